@@ -0,0 +1 @@
+SELECT Student.A, Student.D FROM Student WHERE Student.A >= 2 AND Student.A < 5;
\ No newline at end of file
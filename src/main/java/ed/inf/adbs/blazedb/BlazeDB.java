@@ -1,6 +1,7 @@
 package ed.inf.adbs.blazedb;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
@@ -9,11 +10,20 @@ import java.util.regex.Pattern;
 
 import ed.inf.adbs.blazedb.operator.*;
 import ed.inf.adbs.blazedb.result.AggregationResult;
+import ed.inf.adbs.blazedb.result.JoinKeyResult;
 import ed.inf.adbs.blazedb.result.OperatorInitializationResult;
 import ed.inf.adbs.blazedb.result.ProjectionResult;
+import ed.inf.adbs.blazedb.expression.KeyRange;
+import ed.inf.adbs.blazedb.expression.ZoneMapFilter;
+import ed.inf.adbs.blazedb.storage.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.storage.IndexBuilder;
+import ed.inf.adbs.blazedb.storage.TableAnalyzer;
+import ed.inf.adbs.blazedb.storage.TableImporter;
+import ed.inf.adbs.blazedb.storage.ZoneMap;
 import ed.inf.adbs.blazedb.util.*;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.Statement;
@@ -43,14 +53,48 @@ import java.util.List;
  *   - Database Directory: Accepts a database directory parameter for locating the underlying data files.
  *
  * Usage Example:
- *   java -jar BlazeDB.jar queries/query1.sql results/output1.csv /path/to/databaseDir
+ *   java -jar BlazeDB.jar /path/to/databaseDir queries/query1.sql results/output1.csv [--option=value ...]
+ *   (see {@link ExecutionConfig} for the supported options)
+ *
+ * Import Command:
+ *   java -jar BlazeDB.jar import /path/to/databaseDir [table ...]
+ *   converts the CSV files of the given tables (by default, every table of the schema file) into the columnar
+ *   format, from which queries then read only the columns they need (see {@link TableImporter}).
+ *
+ * Index Command:
+ *   java -jar BlazeDB.jar index /path/to/databaseDir [table column [clustered]]
+ *   builds a B+-tree index on a table column and registers it in the {@link Catalog}; a clustered index first
+ *   sorts the table file on the column (see {@link IndexBuilder}). Without a table, every registered index is
+ *   rebuilt.
+ *
+ * Analyze Command:
+ *   java -jar BlazeDB.jar analyze /path/to/databaseDir [table ...]
+ *   scans the given tables (by default, every table of the schema file) and stores their row counts, distinct
+ *   value counts and histograms in the {@link Catalog}, from which the join order is estimated (see
+ *   {@link TableAnalyzer}).
  */
 public class BlazeDB {
 
 	public static void main(String[] args) {
 
-		if (args.length != 3) {
-			System.err.println("Usage: BlazeDB database_dir input_file output_file");
+		if (args.length >= 2 && args[0].equals("import")) {
+			importTables(args);
+			return;
+		}
+		if (args.length >= 2 && args[0].equals("index")) {
+			buildIndexes(args);
+			return;
+		}
+		if (args.length >= 2 && args[0].equals("analyze")) {
+			analyzeTables(args);
+			return;
+		}
+
+		if (args.length < 3) {
+			System.err.println("Usage: BlazeDB database_dir input_file output_file [--option=value ...]");
+			System.err.println("       BlazeDB import database_dir [table ...] [--option=value ...]");
+			System.err.println("       BlazeDB index database_dir [table column [clustered]] [--option=value ...]");
+			System.err.println("       BlazeDB analyze database_dir [table ...] [--option=value ...]");
 			return;
 		}
 
@@ -59,11 +103,150 @@ public class BlazeDB {
         String inputFile = args[1];
 		String outputFile = args[2];
 
+		// Apply the optional execution settings following the positional arguments.
+		try {
+			for (int i = 3; i < args.length; i++) {
+				ExecutionConfig.getInstance().applyOption(args[i]);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+
 		// Just for demonstration, replace this function call with your logic
 		executeQueryPlan(inputFile, outputFile, databaseDir);
 	}
 
 
+	/**
+	 * Runs the import command: {@code import database_dir [table ...] [--option=value ...]}. Each listed table,
+	 * or every table of the schema file if none is listed, is converted from its CSV file into a columnar file.
+	 * A table that fails to import is reported and keeps being read from its CSV file.
+	 *
+	 * @param args The command line arguments, starting with {@code import}.
+	 */
+	private static void importTables(String[] args) {
+		List<String> tables = parseTableArguments(args);
+		if (tables == null) {
+			return;
+		}
+		for (String table : tables) {
+			try {
+				TableImporter.importTable(table);
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Error importing table " + table + ": " + e.getMessage());
+			}
+		}
+	}
+
+
+	/**
+	 * Runs the analyze command: {@code analyze database_dir [table ...] [--option=value ...]}. Each listed table,
+	 * or every table of the schema file if none is listed, is scanned and its statistics are stored in the
+	 * {@link Catalog}. A table that fails to be analyzed is reported and keeps its previous statistics.
+	 *
+	 * @param args The command line arguments, starting with {@code analyze}.
+	 */
+	private static void analyzeTables(String[] args) {
+		List<String> tables = parseTableArguments(args);
+		if (tables == null) {
+			return;
+		}
+		for (String table : tables) {
+			try {
+				TableAnalyzer.analyzeTable(table);
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Error analyzing table " + table + ": " + e.getMessage());
+			}
+		}
+	}
+
+
+	/**
+	 * Applies the options of a command taking a list of tables, {@code command database_dir [table ...]
+	 * [--option=value ...]}, and returns its tables: the listed ones, or by default every table of the schema
+	 * file that has a CSV file.
+	 *
+	 * @param args The command line arguments, starting with the command.
+	 * @return The tables, or {@code null} if an option is invalid.
+	 */
+	private static List<String> parseTableArguments(String[] args) {
+		List<String> tables = new ArrayList<>();
+		try {
+			for (int i = 2; i < args.length; i++) {
+				if (args[i].startsWith("--")) {
+					ExecutionConfig.getInstance().applyOption(args[i]);
+				} else {
+					tables.add(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return null;
+		}
+		if (tables.isEmpty()) {
+			// Every declared table that has a CSV file.
+			for (String table : new TreeSet<>(Catalog.getInstance().getTableSchemas().keySet())) {
+				if (Catalog.getInstance().hasCsvFile(table)) {
+					tables.add(table);
+				}
+			}
+		}
+		return tables;
+	}
+
+
+	/**
+	 * Runs the index command: {@code index database_dir [table column [clustered]] [--option=value ...]}. The given
+	 * index is built and registered; without a table, every registered index is rebuilt, clustered indexes first
+	 * since building one also rebuilds the other indexes of its table.
+	 *
+	 * @param args The command line arguments, starting with {@code index}.
+	 */
+	private static void buildIndexes(String[] args) {
+		List<String> positional = new ArrayList<>();
+		try {
+			for (int i = 2; i < args.length; i++) {
+				if (args[i].startsWith("--")) {
+					ExecutionConfig.getInstance().applyOption(args[i]);
+				} else {
+					positional.add(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		List<IndexInfo> indexes = new ArrayList<>();
+		if (positional.isEmpty()) {
+			Set<String> clusteredTables = new HashSet<>();
+			for (IndexInfo index : Catalog.getInstance().getRegisteredIndexes()) {
+				if (index.isClustered()) {
+					indexes.add(index);
+					clusteredTables.add(index.getTableName());
+				}
+			}
+			for (IndexInfo index : Catalog.getInstance().getRegisteredIndexes()) {
+				if (!index.isClustered() && !clusteredTables.contains(index.getTableName())) {
+					indexes.add(index);
+				}
+			}
+		} else if (positional.size() == 2 || (positional.size() == 3 && positional.get(2).equalsIgnoreCase("clustered"))) {
+			indexes.add(new IndexInfo(positional.get(0), positional.get(1), positional.size() == 3));
+		} else {
+			System.err.println("Usage: BlazeDB index database_dir [table column [clustered]] [--option=value ...]");
+			return;
+		}
+		for (IndexInfo index : indexes) {
+			try {
+				IndexBuilder.buildIndex(index.getTableName(), index.getColumnName(), index.isClustered());
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Error building the " + index + ": " + e.getMessage());
+			}
+		}
+	}
+
+
 	/**
 	 * Executes the SQL query plan defined in the specified input file and writes the results to the output file.
 	 * This method performs the following steps:
@@ -74,14 +257,17 @@ public class BlazeDB {
 	 *      - For aggregation queries, build a pruned mapping and wrap the operator tree with the SumOperator.
 	 *      - Rebuild the final schema mapping to match the SELECT items when aggregations are present.
 	 *   5. For non-aggregation queries, apply early projection processing and handle duplicate elimination if DISTINCT or GROUP BY clauses are specified.
-	 *   6. Handle ORDER BY processing to sort the final results.
-	 *   7. Execute the operator tree and compare the generated output with the expected results.
+	 *   6. Handle ORDER BY processing to sort the final results, keeping only the top LIMIT + OFFSET tuples if a LIMIT is given.
+	 *   7. Apply LIMIT and OFFSET to the final results.
+	 *   8. Execute the operator tree and compare the generated output with the expected results.
 	 *
 	 * @param inputFile   The path to the input file containing the SQL SELECT query.
 	 * @param outputFile  The path to the output file where the query results will be written.
 	 * @param databaseDir The directory containing the database data files.
 	 */
 	public static void executeQueryPlan(String inputFile, String outputFile, String databaseDir) {
+		// Blocking operators may already run while the plan is built, so metrics are collected from here on.
+		QueryMetrics.reset();
 		try (FileReader fileReader = new FileReader(inputFile)) {
 			// 1. Initialize operator tree and full schema mapping.
 			List<String> tableNames = new ArrayList<>();
@@ -127,7 +313,7 @@ public class BlazeDB {
 
 			// 7. For non-aggregation queries, handle duplicate elimination.
 			if (!hasAggregation) {
-				rootOperator = handleDuplicateElimination(plainSelect, rootOperator);
+				rootOperator = handleDuplicateElimination(plainSelect, rootOperator, initResult.isSortedByOrderBy());
 			}
 
 			// 8. Process subsequent projection.
@@ -142,11 +328,26 @@ public class BlazeDB {
 				System.out.println("Final schemaMapping for ORDER BY: " + schemaMapping);
 			}
 
-			// 10. Order By processing.
-			rootOperator = handleOrderBy(plainSelect, rootOperator, schemaMapping);
+			// 10. Order By processing, unless a sort-merge join already delivers the required order
+			// (projection and duplicate elimination preserve it, aggregation does not).
+			// With a LIMIT, only the first LIMIT + OFFSET tuples of the sort order are kept.
+			long limit = getLimitRowCount(plainSelect);
+			long offset = getOffsetRowCount(plainSelect);
+			if (initResult.isSortedByOrderBy() && !hasAggregation) {
+				System.out.println("ORDER BY satisfied by the sort-merge join; skipping the final sort.");
+			} else {
+				long topN = limit == LimitOperator.NO_LIMIT ? LimitOperator.NO_LIMIT : limit + offset;
+				rootOperator = handleOrderBy(plainSelect, rootOperator, schemaMapping, topN);
+			}
 
-			// 11. Execute query plan.
+			// 11. Apply LIMIT and OFFSET; the limit stops pulling tuples from the plan once it is reached.
+			if (limit != LimitOperator.NO_LIMIT || offset > 0) {
+				rootOperator = new LimitOperator(rootOperator, limit, offset);
+			}
+
+			// 12. Execute query plan.
 			executeAndCompareOutput(rootOperator, outputFile);
+			QueryMetrics.report();
 		} catch (Exception e) {
 			System.err.println("Error executing query plan: " + e.getMessage());
 			e.printStackTrace();
@@ -279,12 +480,14 @@ public class BlazeDB {
 			}
 		}
 
-		// Apply the ProjectionOperator.
-		rootOperator = new ProjectionOperator(
-				rootOperator,
-				queryColumnsOrdered.toArray(new String[0]),
-				prunedMapping
-		);
+		// Apply the ProjectionOperator; a parallel scan runs it in each of its workers.
+		String[] projectionColumns = queryColumnsOrdered.toArray(new String[0]);
+		if (rootOperator instanceof ExchangeOperator) {
+			((ExchangeOperator) rootOperator).addStage(
+					child -> new ProjectionOperator(child, projectionColumns, prunedMapping));
+		} else {
+			rootOperator = new ProjectionOperator(rootOperator, projectionColumns, prunedMapping);
+		}
 
 		return new ProjectionResult(rootOperator, prunedMapping);
 	}
@@ -298,17 +501,22 @@ public class BlazeDB {
 	 *
 	 * @param plainSelect   The parsed SQL SELECT statement.
 	 * @param rootOperator  The current root operator in the operator tree prior to duplicate elimination.
+	 * @param preserveOrder Whether the order of the tuples must be kept, in which case the distinct tuples
+	 *                      are kept in memory rather than partitioned to disk.
 	 * @return The updated root operator after applying duplicate elimination if required. If duplicate
 	 *         elimination is not needed, returns the original root operator unchanged.
 	 */
-	private static Operator handleDuplicateElimination(PlainSelect plainSelect, Operator rootOperator) {
+	private static Operator handleDuplicateElimination(PlainSelect plainSelect, Operator rootOperator,
+													   boolean preserveOrder) {
 		boolean hasDistinct = (plainSelect.getDistinct() != null);
 		boolean hasGroupBy = plainSelect.getGroupBy() != null &&
 				plainSelect.getGroupBy().getGroupByExpressions() != null &&
 				!plainSelect.getGroupBy().getGroupByExpressions().isEmpty();
 
 		if (hasDistinct || hasGroupBy) {
-			rootOperator = new DuplicateEliminationOperator(rootOperator);
+			rootOperator = preserveOrder
+					? new DuplicateEliminationOperator(rootOperator, Long.MAX_VALUE, ExecutionConfig.getInstance().getScratchDir())
+					: new DuplicateEliminationOperator(rootOperator);
 		}
 
 		return rootOperator;
@@ -451,15 +659,58 @@ public class BlazeDB {
 
 
 
+	/**
+	 * Returns the row count of the LIMIT clause.
+	 *
+	 * @param plainSelect The parsed SQL select statement.
+	 * @return The maximum number of result tuples, or {@link LimitOperator#NO_LIMIT} if there is no limit.
+	 */
+	private static long getLimitRowCount(PlainSelect plainSelect) {
+		Limit limit = plainSelect.getLimit();
+		// LIMIT ALL and LIMIT NULL are parsed as AllValue and NullValue row counts.
+		if (limit == null || limit.getRowCount() == null
+				|| limit.getRowCount() instanceof AllValue || limit.getRowCount() instanceof NullValue) {
+			return LimitOperator.NO_LIMIT;
+		}
+		return parseRowCount(limit.getRowCount(), "LIMIT");
+	}
+
+	/**
+	 * Returns the number of tuples to skip, given either by an OFFSET clause or by {@code LIMIT offset, count}.
+	 *
+	 * @param plainSelect The parsed SQL select statement.
+	 * @return The number of leading result tuples to skip (0 if none).
+	 */
+	private static long getOffsetRowCount(PlainSelect plainSelect) {
+		if (plainSelect.getOffset() != null && plainSelect.getOffset().getOffset() != null) {
+			return parseRowCount(plainSelect.getOffset().getOffset(), "OFFSET");
+		}
+		if (plainSelect.getLimit() != null && plainSelect.getLimit().getOffset() != null) {
+			return parseRowCount(plainSelect.getLimit().getOffset(), "OFFSET");
+		}
+		return 0;
+	}
+
+	private static long parseRowCount(Expression expression, String clause) {
+		if (expression instanceof LongValue && ((LongValue) expression).getValue() >= 0) {
+			return ((LongValue) expression).getValue();
+		}
+		throw new IllegalArgumentException(clause + " must be a non-negative integer: " + expression);
+	}
+
 	/**
 	 * Handles the wrapping of the operator tree with SortOperator if ORDER BY clauses are present.
+	 * If only the first {@code topN} tuples of the sort order are needed, a {@link TopNOperator} is used instead,
+	 * which keeps a bounded heap rather than sorting the whole input.
 	 *
 	 * @param plainSelect   The parsed SQL select statement.
 	 * @param rootOperator  The current root operator in the operator tree.
 	 * @param schemaMapping The current schema mapping of column names to their indices.
+	 * @param topN          The number of leading tuples needed, or {@link LimitOperator#NO_LIMIT} for all of them.
 	 * @return The updated root operator after applying sorting if required.
 	 */
-	private static Operator handleOrderBy(PlainSelect plainSelect, Operator rootOperator, Map<String, Integer> schemaMapping) {
+	private static Operator handleOrderBy(PlainSelect plainSelect, Operator rootOperator, Map<String, Integer> schemaMapping,
+										  long topN) {
 		List<OrderByElement> orderByElements = plainSelect.getOrderByElements();
 		if (orderByElements == null || orderByElements.isEmpty()) {
 			return rootOperator;
@@ -500,6 +751,9 @@ public class BlazeDB {
 				orderBy.setExpression(new Column(exprStr));
 			}
 		}
+		if (topN != LimitOperator.NO_LIMIT) {
+			return new TopNOperator(rootOperator, orderByElements, schemaMapping, topN);
+		}
 		return new SortOperator(rootOperator, orderByElements, schemaMapping);
 	}
 
@@ -801,50 +1055,359 @@ public class BlazeDB {
 	private static OperatorInitializationResult initializeOperators(List<Join> joins, PlainSelect plainSelect, List<String> tableNames, Table fromTable) throws Exception {
 		Operator rootOperator;
 		Map<String, Integer> schemaMapping = null;
+		boolean sortedByOrderBy = false;
 
 		if (joins != null && !joins.isEmpty()) {
 			for (Join join : joins) {
 				Table joinTable = (Table) join.getRightItem();
 				tableNames.add(joinTable.getName());
 			}
-			// Build a join tree based on all table names and the WHERE clause.
-			rootOperator = buildJoinTree(tableNames, plainSelect.getWhere());
 			// Compute the merged schema mapping for the join operators.
-
-			if (tableNames.size() == 1) {
-				schemaMapping = createSchemaMapping(tableNames.get(0));
-			} else {
-				Map<String, Integer> mapping = createSchemaMapping(tableNames.get(0));
-				for (int i = 1; i < tableNames.size(); i++) {
-					Map<String, Integer> nextMapping = createSchemaMapping(tableNames.get(i));
-					mapping = mergeSchemaMappings(mapping, nextMapping);
-				}
-					schemaMapping = mapping;
+			Map<String, Integer> mapping = createSchemaMapping(tableNames.get(0));
+			for (int i = 1; i < tableNames.size(); i++) {
+				Map<String, Integer> nextMapping = createSchemaMapping(tableNames.get(i));
+				mapping = mergeSchemaMappings(mapping, nextMapping);
 			}
+			schemaMapping = mapping;
+			// Build a join tree based on all table names, the WHERE clause and the ORDER BY clause.
+			Set<String> scannedColumns = collectScannedColumns(plainSelect, tableNames.get(0), schemaMapping);
+			rootOperator = buildJoinTree(tableNames, plainSelect.getWhere(), plainSelect.getOrderByElements(), scannedColumns);
+			Operator joinRoot = rootOperator instanceof ColumnReorderOperator
+					? ((ColumnReorderOperator) rootOperator).getChild() : rootOperator;
+			sortedByOrderBy = joinRoot instanceof SortMergeJoinOperator;
 		} else {
 			// No join: use a simple scan.
 			String tableName = fromTable.getName();
 			System.out.println("Scanning table: " + tableName);
-			rootOperator = new ScanOperator(tableName, false);
 			schemaMapping = createSchemaMapping(tableName);
-
 			// Push down selection if where clause exists.
-			if (plainSelect.getWhere() != null) {
-				rootOperator = new SelectOperator(rootOperator, plainSelect.getWhere(), schemaMapping);
+			Set<String> scannedColumns = collectScannedColumns(plainSelect, tableName, schemaMapping);
+			rootOperator = createTableAccess(tableName, plainSelect.getWhere(), schemaMapping, scannedColumns);
+		}
+
+		return new OperatorInitializationResult(rootOperator, schemaMapping, sortedByOrderBy);
+	}
+
+	/**
+	 * Determines the columns the table scans must read: the columns required by the query, as collected by
+	 * {@link #collectRequiredColumns}, or {@code null} (every column) when they cannot be determined exactly,
+	 * e.g. for a {@code Table.*} select item or a select item that cannot be parsed on its own.
+	 *
+	 * @param plainSelect      The parsed SQL SELECT query.
+	 * @param defaultTableName The table of unqualified columns.
+	 * @param schemaMapping    The schema mapping of all tables of the query.
+	 * @return The fully qualified names of the columns to read, or {@code null} to read every column.
+	 */
+	private static Set<String> collectScannedColumns(PlainSelect plainSelect, String defaultTableName,
+													 Map<String, Integer> schemaMapping) throws Exception {
+		List<SelectItem<?>> selectItems = plainSelect.getSelectItems();
+		if (!(selectItems.size() == 1 && selectItems.get(0).toString().trim().equals("*"))) {
+			for (SelectItem<?> item : selectItems) {
+				String itemStr = item.toString().trim();
+				if (itemStr.endsWith("*")) {
+					return null;
+				}
+				try {
+					CCJSqlParserUtil.parseExpression(itemStr);
+				} catch (Exception e) {
+					return null;
+				}
 			}
 		}
+		Set<String> requiredColumns = collectRequiredColumns(plainSelect, defaultTableName, null, schemaMapping);
+		return schemaMapping.keySet().containsAll(requiredColumns) ? requiredColumns : null;
+	}
 
-		return new OperatorInitializationResult(rootOperator, schemaMapping);
+	/**
+	 * Creates the operators reading one table: a scan, followed by a selection if the table has a local
+	 * selection condition. A table imported into the columnar format is scanned with a
+	 * {@link ColumnarScanOperator} reading only the required columns; any other table with a {@link ScanOperator}.
+	 * With a selection, both scans skip the blocks of rows whose minimum and maximum values show that no row can
+	 * satisfy it: chunks of a columnar file, and blocks of a CSV file as recorded in its {@link ZoneMap}.
+	 * A selection bounding an indexed column may instead read the table through the index
+	 * (see {@link #createIndexScan}).
+	 * When several threads are configured and the table spans more than one morsel, the scan and the selection
+	 * run in parallel, one pipeline per worker, under an {@link ExchangeOperator}.
+	 *
+	 * @param tableName       The name of the table.
+	 * @param selection       The selection condition on the table's columns (may be {@code null}).
+	 * @param schemaMapping   The schema mapping of the table.
+	 * @param requiredColumns The fully qualified names of the columns the query uses, or {@code null} for all.
+	 * @return The operator producing the (selected) tuples of the table.
+	 */
+	private static Operator createTableAccess(String tableName, Expression selection, Map<String, Integer> schemaMapping,
+											  Set<String> requiredColumns) {
+		ExecutionConfig config = ExecutionConfig.getInstance();
+		boolean columnar = config.isColumnarScans()
+				&& Catalog.getInstance().getTableFormat(tableName) == TableFormat.COLUMNAR;
+		if (config.isIndexScans() && selection != null) {
+			Operator indexScan = createIndexScan(tableName, selection, columnar);
+			if (indexScan != null) {
+				return new SelectOperator(indexScan, selection, schemaMapping);
+			}
+		}
+		int[] columns = columnar ? getScannedColumnIndexes(schemaMapping, requiredColumns) : null;
+		if (columnar) {
+			System.out.println("Scanning columnar table " + tableName + " reading columns "
+					+ (columns == null ? "all" : Arrays.toString(columns)) + ".");
+		}
+		ZoneMapFilter zoneMapFilter = config.isZoneMaps()
+				? ZoneMapFilter.fromSelection(selection, Catalog.getInstance().getTableSchema(tableName)) : null;
+		// Byte ranges of the CSV file that may hold selected rows, or null to scan the whole file.
+		List<ScanOperator.Morsel> csvRanges = null;
+		if (!columnar && zoneMapFilter != null) {
+			ZoneMap zoneMap = ZoneMap.forTable(tableName);
+			if (zoneMap != null) {
+				csvRanges = ScanOperator.splitIntoMorsels(tableName, zoneMap, zoneMapFilter, config.getMorselSize());
+			}
+		}
+		if (config.getThreads() > 1) {
+			List<ScanOperator.Morsel> morsels;
+			if (columnar) {
+				morsels = ColumnarScanOperator.splitIntoMorsels(tableName, columns, config.getMorselSize());
+			} else if (csvRanges != null) {
+				morsels = csvRanges;
+			} else {
+				morsels = ScanOperator.splitIntoMorsels(tableName, config.getMorselSize());
+			}
+			if (morsels.size() > 1) {
+				System.out.println("Scanning " + morsels.size() + " morsels of " + tableName + " with "
+						+ Math.min(config.getThreads(), morsels.size()) + " threads.");
+				ExchangeOperator exchange = columnar
+						? new ExchangeOperator(tableName, morsels,
+								morsel -> new ColumnarScanOperator(tableName, columns, morsel, zoneMapFilter), config.getThreads())
+						: new ExchangeOperator(tableName, morsels, config.getThreads());
+				if (selection != null) {
+					exchange.addStage(child -> new SelectOperator(child, selection, schemaMapping));
+				}
+				return exchange;
+			}
+		}
+		Operator operator;
+		if (columnar) {
+			operator = new ColumnarScanOperator(tableName, columns, null, zoneMapFilter);
+		} else if (csvRanges != null) {
+			operator = new ScanOperator(tableName, csvRanges);
+		} else {
+			operator = new ScanOperator(tableName, false);
+		}
+		if (selection != null) {
+			operator = new SelectOperator(operator, selection, schemaMapping);
+		}
+		return operator;
+	}
+
+	/**
+	 * Chooses an index through which to read a table with a selection, among the table's up-to-date indexes whose
+	 * column the selection bounds with a numeric or date literal. A clustered index is used whenever the table
+	 * would otherwise be scanned from its CSV file; an unclustered index, or a clustered one on a columnar table,
+	 * only if at most {@link IndexScanOperator#MAX_INDEX_SCAN_FRACTION} of the rows lie in the key range. Among
+	 * the usable indexes, the one with the fewest estimated rows is chosen. An index is not used for an ordering
+	 * comparison if some row's field is not a number, since the comparison must then report an error.
+	 *
+	 * @param tableName The name of the table.
+	 * @param selection The selection condition on the table's columns.
+	 * @param columnar  Whether the table would be scanned from its columnar file.
+	 * @return The index scan, or {@code null} if no index is worth using.
+	 */
+	private static Operator createIndexScan(String tableName, Expression selection, boolean columnar) {
+		Catalog catalog = Catalog.getInstance();
+		TableSchema schema = catalog.getTableSchema(tableName);
+		if (schema == null) {
+			return null;
+		}
+		IndexInfo bestIndex = null;
+		KeyRange bestRange = null;
+		long bestRowCount = Long.MAX_VALUE;
+		for (IndexInfo info : catalog.getIndexes(tableName)) {
+			KeyRange range = KeyRange.fromSelection(selection, schema, schema.getColumnIndex(info.getColumnName()));
+			if (range == null) {
+				continue;
+			}
+			try (BPlusTreeIndex index = new BPlusTreeIndex(catalog.getIndexFilePath(tableName, info.getColumnName()))) {
+				if (index.hasNonNumbers() && range.hasOrderingComparison()) {
+					continue;
+				}
+				long rowCount = index.estimateRowCount(range.getLow(), range.getHigh());
+				boolean worthwhile = (index.isClustered() && !columnar)
+						|| rowCount <= index.getTableRowCount() * IndexScanOperator.MAX_INDEX_SCAN_FRACTION;
+				if (worthwhile && rowCount < bestRowCount) {
+					bestIndex = info;
+					bestRange = range;
+					bestRowCount = rowCount;
+				}
+			} catch (IOException e) {
+				System.err.println("Error reading the " + info + ": " + e.getMessage());
+			}
+		}
+		if (bestIndex == null) {
+			return null;
+		}
+		System.out.println("Reading " + tableName + " through the " + bestIndex + " for keys " + bestRange
+				+ " (about " + bestRowCount + " rows).");
+		try (BPlusTreeIndex index = new BPlusTreeIndex(catalog.getIndexFilePath(tableName, bestIndex.getColumnName()))) {
+			return new IndexScanOperator(tableName, index, bestRange);
+		} catch (IOException e) {
+			System.err.println("Error reading the " + bestIndex + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Chooses whether to join a table as the inner side of an {@link IndexNestedLoopJoinOperator}, probing an
+	 * up-to-date index on one of its equality columns once per left tuple. The index must hold every row of the
+	 * table and be built on a column of the same kind (integral or {@code DOUBLE}) as the left column it is
+	 * compared with. The join is chosen if the left input is estimated to hold at most
+	 * {@link IndexNestedLoopJoinOperator#MAX_OUTER_FRACTION} of the table's rows, and fewer rows than the table's
+	 * selection keeps. With an unclustered index, the rows fetched, the left rows times the average number of rows
+	 * per key, must also be at most that fraction of the table; with a clustered one, which reads the rows of a key
+	 * sequentially, at most the whole table. Unless the {@link JoinOrderOptimizer} estimated it, the left input is
+	 * estimated by its largest table, assuming each join matches a key: the rows a table's selection keeps are
+	 * estimated through its indexes, or else from the size of its file.
+	 *
+	 * @param leftOperator       The left input.
+	 * @param leftTables         The tables of the left input.
+	 * @param leftRowCount       The estimated number of rows of the left input, or -1 if unknown.
+	 * @param whereClause        The SQL WHERE clause.
+	 * @param leftSchemaMapping  The schema mapping of the left input.
+	 * @param tableName          The name of the right table.
+	 * @param selection          The selection condition on the right table (may be {@code null}).
+	 * @param rightSchemaMapping The schema mapping of the right table.
+	 * @param joinKeys           The equality columns of the join.
+	 * @param combinedMapping    The schema mapping of the joined tuples.
+	 * @return The index nested-loop join, or {@code null} if the right table should be joined otherwise.
+	 */
+	private static Operator createIndexJoin(Operator leftOperator, List<String> leftTables, long leftRowCount,
+											Expression whereClause, Map<String, Integer> leftSchemaMapping, String tableName,
+											Expression selection, Map<String, Integer> rightSchemaMapping,
+											JoinKeyResult joinKeys, Map<String, Integer> combinedMapping) {
+		Catalog catalog = Catalog.getInstance();
+		TableSchema schema = catalog.getTableSchema(tableName);
+		if (schema == null) {
+			return null;
+		}
+		IndexInfo bestIndex = null;
+		int indexedKey = -1;
+		long tableRowCount = 0;
+		double rowsPerKey = 1;
+		for (IndexInfo info : catalog.getIndexes(tableName)) {
+			int column = schema.getColumnIndex(info.getColumnName());
+			int key = -1;
+			for (int k = 0; k < joinKeys.getRightKeyIndexes().length; k++) {
+				ColumnType leftType = getColumnType(leftSchemaMapping, joinKeys.getLeftKeyIndexes()[k]);
+				if (joinKeys.getRightKeyIndexes()[k] == column && leftType != null && leftType != ColumnType.VARCHAR
+						&& (leftType == ColumnType.DOUBLE) == (schema.getColumnType(column) == ColumnType.DOUBLE)) {
+					key = k;
+					break;
+				}
+			}
+			if (key < 0 || (bestIndex != null && (bestIndex.isClustered() || !info.isClustered()))) {
+				continue;
+			}
+			try (BPlusTreeIndex index = new BPlusTreeIndex(catalog.getIndexFilePath(tableName, info.getColumnName()))) {
+				if (!index.hasNonNumbers()) {
+					bestIndex = info;
+					indexedKey = key;
+					tableRowCount = index.getTableRowCount();
+					rowsPerKey = (double) tableRowCount / Math.max(1, index.getDistinctKeyCount());
+				}
+			} catch (IOException e) {
+				System.err.println("Error reading the " + info + ": " + e.getMessage());
+			}
+		}
+		if (bestIndex == null) {
+			return null;
+		}
+
+		if (leftRowCount < 0) {
+			String tablePath = catalog.getFilePathForTable(tableName);
+			if (tablePath == null) {
+				return null;
+			}
+			File tableFile = new File(tablePath);
+			leftRowCount = 0;
+			for (String leftTable : leftTables) {
+				long rowCount = JoinOrderOptimizer.estimateRowCount(leftTable,
+						extractSelectionCondition(whereClause, leftTable));
+				if (rowCount < 0) {
+					// Scaled from the size of the table file, assuming rows of the same size as the right table's.
+					String path = catalog.getFilePathForTable(leftTable);
+					long length = path == null ? 0 : new File(path).length();
+					if (length == 0 || tableFile.length() == 0) {
+						return null;
+					}
+					rowCount = (long) ((double) length * tableRowCount / tableFile.length());
+				}
+				leftRowCount = Math.max(leftRowCount, rowCount);
+			}
+		}
+		long selectedRowCount = JoinOrderOptimizer.estimateRowCount(tableName, selection);
+		double maxFetchedRows = bestIndex.isClustered()
+				? tableRowCount : tableRowCount * IndexNestedLoopJoinOperator.MAX_OUTER_FRACTION;
+		if (leftRowCount > tableRowCount * IndexNestedLoopJoinOperator.MAX_OUTER_FRACTION
+				|| leftRowCount * rowsPerKey > maxFetchedRows
+				|| (selectedRowCount >= 0 && leftRowCount >= selectedRowCount)) {
+			return null;
+		}
+		System.out.println("Joining " + tableName + " through the " + bestIndex + " for each of about "
+				+ leftRowCount + " left rows.");
+		return new IndexNestedLoopJoinOperator(leftOperator, tableName,
+				catalog.getIndexFilePath(tableName, bestIndex.getColumnName()), joinKeys.getLeftKeyIndexes(),
+				joinKeys.getRightKeyIndexes(), indexedKey, selection, rightSchemaMapping,
+				joinKeys.getResidualCondition(), combinedMapping);
+	}
+
+	/**
+	 * Returns the declared type of the column at an index of a schema mapping.
+	 *
+	 * @return The type, or {@code null} if the column is unknown.
+	 */
+	private static ColumnType getColumnType(Map<String, Integer> schemaMapping, int index) {
+		for (Map.Entry<String, Integer> entry : schemaMapping.entrySet()) {
+			if (entry.getValue() == index) {
+				String name = entry.getKey();
+				int dot = name.lastIndexOf('.');
+				TableSchema schema = Catalog.getInstance().getTableSchema(name.substring(0, dot));
+				int column = schema == null ? -1 : schema.getColumnIndex(name.substring(dot + 1));
+				return column < 0 ? null : schema.getColumnType(column);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the indexes, in a table's schema mapping, of the required columns of the table.
+	 *
+	 * @return The sorted column indexes, or {@code null} if every column is required.
+	 */
+	private static int[] getScannedColumnIndexes(Map<String, Integer> schemaMapping, Set<String> requiredColumns) {
+		if (requiredColumns == null) {
+			return null;
+		}
+		List<Integer> indexes = new ArrayList<>();
+		for (Map.Entry<String, Integer> entry : schemaMapping.entrySet()) {
+			if (requiredColumns.contains(entry.getKey())) {
+				indexes.add(entry.getValue());
+			}
+		}
+		Collections.sort(indexes);
+		int[] columns = new int[indexes.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = indexes.get(i);
+		}
+		return columns;
 	}
 
 	/**
 	 * Constructs a join tree operator based on the provided list of table names and the SQL WHERE clause.
 	 *
 	 * The resulting operator tree represents a left-deep join tree where the first table is progressively
-	 * joined with each subsequent table in the provided list using the specified join conditions.
+	 * joined with each subsequent table using the specified join conditions. The tables are joined in the order
+	 * chosen by the {@link JoinOrderOptimizer}, or in the order of the list with {@code --join-order=from}; the
+	 * joined tuples always hold the fields of the tables in the order of the list.
 	 *
-	 * @param tableNames   A {@code List<String>} containing the names of the tables to be joined. The order of
-	 *                     tables in the list determines the sequence of JOIN operations.
+	 * @param tableNames   A {@code List<String>} containing the names of the tables to be joined, in FROM-clause
+	 *                     order.
 	 * @param whereClause  An {@link Expression} representing the SQL WHERE clause, which may contain both
 	 *                     selection predicates (filters) and join conditions.
 	 *
@@ -855,39 +1418,128 @@ public class BlazeDB {
 	 *                                  no tables specified in the FROM clause of the SQL query.
 	 */
 	public static Operator buildJoinTree(List<String> tableNames, Expression whereClause) {
+		return buildJoinTree(tableNames, whereClause, null);
+	}
+
+	/**
+	 * Constructs a join tree operator as {@link #buildJoinTree(List, Expression)} does, additionally taking the
+	 * ORDER BY clause into account: when the ORDER BY columns match the equality columns of the last join, that
+	 * join is evaluated as a {@link SortMergeJoinOperator} whose output already has the required order, so the
+	 * sort it performs is shared with the ORDER BY.
+	 *
+	 * @param tableNames       The names of the tables to be joined, in FROM-clause order.
+	 * @param whereClause      The SQL WHERE clause (may be {@code null}).
+	 * @param orderByElements  The ORDER BY elements of the query (may be {@code null}).
+	 * @return An {@link Operator} representing the root of the join tree operator.
+	 */
+	public static Operator buildJoinTree(List<String> tableNames, Expression whereClause, List<OrderByElement> orderByElements) {
+		return buildJoinTree(tableNames, whereClause, orderByElements, null);
+	}
+
+	/**
+	 * Constructs a join tree operator as {@link #buildJoinTree(List, Expression, List)} does, scanning only the
+	 * given columns of tables stored in the columnar format. An equi-join whose right table is indexed on an
+	 * equality column may be evaluated as an {@link IndexNestedLoopJoinOperator} (see {@link #createIndexJoin}).
+	 *
+	 * @param tableNames       The names of the tables to be joined, in FROM-clause order.
+	 * @param whereClause      The SQL WHERE clause (may be {@code null}).
+	 * @param orderByElements  The ORDER BY elements of the query (may be {@code null}).
+	 * @param requiredColumns  The fully qualified names of the columns the query uses, or {@code null} for all.
+	 * @return An {@link Operator} representing the root of the join tree operator.
+	 */
+	public static Operator buildJoinTree(List<String> tableNames, Expression whereClause, List<OrderByElement> orderByElements,
+										 Set<String> requiredColumns) {
 		if (tableNames.isEmpty()) {
 			throw new IllegalArgumentException("No table in FROM clause.");
 		}
 
-		// Start with the first table.
-		Map<String, Integer> currentSchemaMapping = createSchemaMapping(tableNames.get(0));
-		Operator currentOperator = new ScanOperator(tableNames.get(0), false);
-		Expression selectionForLeft = extractSelectionCondition(whereClause, tableNames.get(0));
-		if (selectionForLeft != null) {
-			currentOperator = new SelectOperator(currentOperator, selectionForLeft, currentSchemaMapping);
+		// Choose the join order, unless a table appears twice or is not declared.
+		List<String> joinOrder = tableNames;
+		JoinOrderOptimizer optimizer = null;
+		if (tableNames.size() > 1 && ExecutionConfig.getInstance().isCostBasedJoinOrder()
+				&& new HashSet<>(tableNames).size() == tableNames.size()
+				&& Catalog.getInstance().getTableSchemas().keySet().containsAll(tableNames)) {
+			optimizer = new JoinOrderOptimizer(tableNames, whereClause);
+			joinOrder = optimizer.getJoinOrder();
 		}
 
+		// Start with the first table.
+		Map<String, Integer> currentSchemaMapping = createSchemaMapping(joinOrder.get(0));
+		Expression selectionForLeft = extractSelectionCondition(whereClause, joinOrder.get(0));
+		Operator currentOperator = createTableAccess(joinOrder.get(0), selectionForLeft, currentSchemaMapping, requiredColumns);
+
 		// Iteratively join with the remaining tables.
-		for (int i = 1; i < tableNames.size(); i++) {
-			String table = tableNames.get(i);
+		for (int i = 1; i < joinOrder.size(); i++) {
+			String table = joinOrder.get(i);
 			Map<String, Integer> rightSchemaMapping = createSchemaMapping(table);
-			Operator rightOperator = new ScanOperator(table, false);
-
 			Expression selectionForRight = extractSelectionCondition(whereClause, table);
-			if (selectionForRight != null) {
-				rightOperator = new SelectOperator(rightOperator, selectionForRight, rightSchemaMapping);
-			}
 
 			// Extract a join condition that references columns from both current and right schemas.
 			Expression joinCondition = extractJoinCondition(whereClause, currentSchemaMapping, rightSchemaMapping);
 
 			// Merge the two schema mappings.
 			Map<String, Integer> combinedMapping = mergeSchemaMappings(currentSchemaMapping, rightSchemaMapping);
-			// Create the join operator.
-			currentOperator = new JoinOperator(currentOperator, rightOperator, joinCondition, combinedMapping);
+			// Create the join operator: a hash join whenever the condition contains a column equality
+			// between both sides, and the block-nested-loop join otherwise.
+			// With a join memory budget configured, the hash join spills partitions to disk when it is exceeded.
+			JoinKeyResult joinKeys = extractJoinKeys(joinCondition, currentSchemaMapping, rightSchemaMapping);
+			ExecutionConfig config = ExecutionConfig.getInstance();
+			// The last join may instead be a sort-merge join when the ORDER BY matches its keys.
+			JoinKeyResult sortedKeys = (i == joinOrder.size() - 1)
+					? matchOrderByToJoinKeys(orderByElements, joinKeys, currentSchemaMapping, rightSchemaMapping)
+					: null;
+			// Otherwise, an index on the right table's equality column may be probed for each left tuple.
+			Operator indexJoin = (sortedKeys == null && joinKeys.hasKeys() && config.isIndexScans())
+					? createIndexJoin(currentOperator, joinOrder.subList(0, i),
+							optimizer == null ? -1 : optimizer.getEstimatedRowCount(i), whereClause,
+							currentSchemaMapping, table, selectionForRight, rightSchemaMapping, joinKeys, combinedMapping)
+					: null;
+			if (indexJoin != null) {
+				currentOperator = indexJoin;
+				currentSchemaMapping = combinedMapping;
+				continue;
+			}
+			Operator rightOperator = createTableAccess(table, selectionForRight, rightSchemaMapping, requiredColumns);
+			if (sortedKeys != null) {
+				long runBufferBudget = config.getJoinMemoryBudget() > 0
+						? config.getJoinMemoryBudget() : SortMergeJoinOperator.DEFAULT_RUN_BUFFER_BUDGET;
+				Operator sortedLeft = new SortOperator(currentOperator,
+						buildSortElements(sortedKeys.getLeftKeyIndexes(), currentSchemaMapping), currentSchemaMapping);
+				Operator sortedRight = new SortOperator(rightOperator,
+						buildSortElements(sortedKeys.getRightKeyIndexes(), rightSchemaMapping), rightSchemaMapping);
+				currentOperator = new SortMergeJoinOperator(sortedLeft, sortedRight, sortedKeys.getLeftKeyIndexes(),
+						sortedKeys.getRightKeyIndexes(), sortedKeys.getResidualCondition(), combinedMapping,
+						runBufferBudget, config.getScratchDir());
+			} else if (joinKeys.hasKeys() && config.getJoinMemoryBudget() > 0) {
+				currentOperator = new GraceHashJoinOperator(currentOperator, rightOperator, joinKeys.getLeftKeyIndexes(),
+						joinKeys.getRightKeyIndexes(), joinKeys.getResidualCondition(), combinedMapping,
+						config.getJoinMemoryBudget(), config.getScratchDir());
+			} else if (joinKeys.hasKeys()) {
+				currentOperator = new HashJoinOperator(currentOperator, rightOperator, joinKeys.getLeftKeyIndexes(),
+						joinKeys.getRightKeyIndexes(), joinKeys.getResidualCondition(), combinedMapping);
+			} else {
+				// The inner relation is rescanned once per block: replay it from memory after the first pass.
+				if (config.getScanCacheBudget() > 0) {
+					rightOperator = new MaterializeOperator(rightOperator, config.getScanCacheBudget());
+				}
+				currentOperator = new BlockNestedLoopJoinOperator(currentOperator, rightOperator, joinCondition,
+						combinedMapping, config.getBlockNestedLoopPages());
+			}
 			currentSchemaMapping = combinedMapping;
 		}
 
+		if (optimizer != null && optimizer.isReordered()) {
+			// Restore the FROM-clause order of the fields, which the rest of the plan expects.
+			Map<String, Integer> fromMapping = createSchemaMapping(tableNames.get(0));
+			for (int i = 1; i < tableNames.size(); i++) {
+				fromMapping = mergeSchemaMappings(fromMapping, createSchemaMapping(tableNames.get(i)));
+			}
+			int[] columns = new int[fromMapping.size()];
+			for (Map.Entry<String, Integer> entry : fromMapping.entrySet()) {
+				columns[entry.getValue()] = currentSchemaMapping.get(entry.getKey());
+			}
+			currentOperator = new ColumnReorderOperator(currentOperator, columns);
+		}
 		return currentOperator;
 	}
 
@@ -1031,10 +1683,157 @@ public class BlazeDB {
 		return null;
 	}
 
+	/**
+	 * Splits a join condition into the column equalities usable as hash keys and a residual condition.
+	 *
+	 * Every conjunct of the form {@code Column = Column}, where one column belongs to the left schema and the
+	 * other to the right schema, contributes a pair of key indexes (relative to the left and right tuples).
+	 * All remaining conjuncts are combined with AND into the residual condition.
+	 *
+	 * @param joinCondition       The join condition produced by {@link #extractJoinCondition}; may be {@code null}.
+	 * @param leftSchemaMapping   The schema mapping of the left input.
+	 * @param rightSchemaMapping  The schema mapping of the right input.
+	 * @return A {@link JoinKeyResult} holding the aligned key indexes and the residual condition.
+	 */
+	private static JoinKeyResult extractJoinKeys(Expression joinCondition,
+												 Map<String, Integer> leftSchemaMapping,
+												 Map<String, Integer> rightSchemaMapping) {
+		List<Integer> leftKeys = new ArrayList<>();
+		List<Integer> rightKeys = new ArrayList<>();
+		Expression residual = null;
+
+		List<Expression> conjuncts = new ArrayList<>();
+		collectConjuncts(joinCondition, conjuncts);
+		for (Expression conjunct : conjuncts) {
+			boolean isKey = false;
+			if (conjunct instanceof EqualsTo) {
+				EqualsTo equalsTo = (EqualsTo) conjunct;
+				if (equalsTo.getLeftExpression() instanceof Column && equalsTo.getRightExpression() instanceof Column) {
+					String first = ((Column) equalsTo.getLeftExpression()).getFullyQualifiedName();
+					String second = ((Column) equalsTo.getRightExpression()).getFullyQualifiedName();
+					if (leftSchemaMapping.containsKey(first) && rightSchemaMapping.containsKey(second)) {
+						leftKeys.add(leftSchemaMapping.get(first));
+						rightKeys.add(rightSchemaMapping.get(second));
+						isKey = true;
+					} else if (leftSchemaMapping.containsKey(second) && rightSchemaMapping.containsKey(first)) {
+						leftKeys.add(leftSchemaMapping.get(second));
+						rightKeys.add(rightSchemaMapping.get(first));
+						isKey = true;
+					}
+				}
+			}
+			if (!isKey) {
+				residual = (residual == null) ? conjunct : new AndExpression(residual, conjunct);
+			}
+		}
+
+		int[] leftKeyIndexes = new int[leftKeys.size()];
+		int[] rightKeyIndexes = new int[rightKeys.size()];
+		for (int i = 0; i < leftKeys.size(); i++) {
+			leftKeyIndexes[i] = leftKeys.get(i);
+			rightKeyIndexes[i] = rightKeys.get(i);
+		}
+		return new JoinKeyResult(leftKeyIndexes, rightKeyIndexes, residual);
+	}
+
+	/**
+	 * Checks whether the ORDER BY clause can be answered by sorting on the keys of an equi-join.
+	 *
+	 * This is the case when every ORDER BY element is an ascending column that is one of the join's equality
+	 * columns (on either side). The join keys are then reordered so that the ORDER BY columns come first; sorting
+	 * both inputs on the reordered keys makes the merged output sorted as the ORDER BY requires.
+	 *
+	 * @param orderByElements     The ORDER BY elements of the query (may be {@code null}).
+	 * @param joinKeys            The keys extracted from the join condition.
+	 * @param leftSchemaMapping   The schema mapping of the left input.
+	 * @param rightSchemaMapping  The schema mapping of the right input.
+	 * @return The join keys reordered to match the ORDER BY, or {@code null} if the ORDER BY does not match them.
+	 */
+	private static JoinKeyResult matchOrderByToJoinKeys(List<OrderByElement> orderByElements, JoinKeyResult joinKeys,
+														Map<String, Integer> leftSchemaMapping,
+														Map<String, Integer> rightSchemaMapping) {
+		if (orderByElements == null || orderByElements.isEmpty() || !joinKeys.hasKeys()) {
+			return null;
+		}
+		int[] leftKeys = joinKeys.getLeftKeyIndexes();
+		int[] rightKeys = joinKeys.getRightKeyIndexes();
+		List<Integer> keyOrder = new ArrayList<>();
+		for (OrderByElement orderBy : orderByElements) {
+			if (!orderBy.isAsc() || !(orderBy.getExpression() instanceof Column)) {
+				return null;
+			}
+			String name = ((Column) orderBy.getExpression()).getFullyQualifiedName();
+			int matchingKey = -1;
+			for (int k = 0; k < leftKeys.length; k++) {
+				if (Integer.valueOf(leftKeys[k]).equals(leftSchemaMapping.get(name))
+						|| Integer.valueOf(rightKeys[k]).equals(rightSchemaMapping.get(name))) {
+					matchingKey = k;
+					break;
+				}
+			}
+			if (matchingKey < 0) {
+				return null;
+			}
+			if (!keyOrder.contains(matchingKey)) {
+				keyOrder.add(matchingKey);
+			}
+		}
+		// The remaining keys follow the ORDER BY columns in the sort order.
+		for (int k = 0; k < leftKeys.length; k++) {
+			if (!keyOrder.contains(k)) {
+				keyOrder.add(k);
+			}
+		}
+		int[] orderedLeft = new int[leftKeys.length];
+		int[] orderedRight = new int[rightKeys.length];
+		for (int k = 0; k < keyOrder.size(); k++) {
+			orderedLeft[k] = leftKeys[keyOrder.get(k)];
+			orderedRight[k] = rightKeys[keyOrder.get(k)];
+		}
+		return new JoinKeyResult(orderedLeft, orderedRight, joinKeys.getResidualCondition());
+	}
+
+	/**
+	 * Builds ascending ORDER BY elements on the columns at the given indexes of a schema mapping, as used to
+	 * sort the inputs of a sort-merge join.
+	 */
+	private static List<OrderByElement> buildSortElements(int[] keyIndexes, Map<String, Integer> schemaMapping) {
+		List<OrderByElement> sortElements = new ArrayList<>();
+		for (int index : keyIndexes) {
+			for (Map.Entry<String, Integer> entry : schemaMapping.entrySet()) {
+				if (entry.getValue() == index) {
+					OrderByElement element = new OrderByElement();
+					element.setExpression(new Column(entry.getKey()));
+					element.setAsc(true);
+					sortElements.add(element);
+					break;
+				}
+			}
+		}
+		return sortElements;
+	}
+
+	/**
+	 * Flattens a conjunction into the list of its conjuncts, unwrapping parentheses around AND expressions.
+	 */
+	static void collectConjuncts(Expression expr, List<Expression> conjuncts) {
+		if (expr == null) {
+			return;
+		}
+		if (expr instanceof Parenthesis && ((Parenthesis) expr).getExpression() instanceof AndExpression) {
+			collectConjuncts(((Parenthesis) expr).getExpression(), conjuncts);
+		} else if (expr instanceof AndExpression) {
+			collectConjuncts(((AndExpression) expr).getLeftExpression(), conjuncts);
+			collectConjuncts(((AndExpression) expr).getRightExpression(), conjuncts);
+		} else {
+			conjuncts.add(expr);
+		}
+	}
+
 	/**
 	 * Collects the set of table names referenced in an expression.
 	 */
-	private static Set<String> getReferencedTables(Expression expr) {
+	static Set<String> getReferencedTables(Expression expr) {
 		final Set<String> tables = new HashSet<>();
 		expr.accept(new ExpressionVisitorAdapter() {
 			@Override
@@ -1105,7 +1904,7 @@ public class BlazeDB {
 	}
 
 /**
-	 * Executes the provided query plan by repeatedly calling `getNextTuple()`
+	 * Executes the provided query plan by repeatedly calling `getNextBatch()`
 	 * on the root operator and writing the result to outputFile.
 	 *
 	 * @param root The root operator of the operator tree (assumed to be non-null).
@@ -1113,12 +1912,15 @@ public class BlazeDB {
 	 */
 	public static void execute(Operator root, String outputFile) {
 		try (java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(outputFile))) {
-			Tuple tuple = root.getNextTuple();
-			while (tuple != null) {
-				System.out.println(tuple);
-				writer.write(tuple.toString());
-				writer.newLine();
-				tuple = root.getNextTuple();
+			TupleBatch batch = root.getNextBatch();
+			while (batch != null) {
+				for (int i = 0; i < batch.size(); i++) {
+					Tuple tuple = batch.get(i);
+					System.out.println(tuple);
+					writer.write(tuple.toString());
+					writer.newLine();
+				}
+				batch = root.getNextBatch();
 			}
 		} catch (java.io.IOException e) {
 			e.printStackTrace();
@@ -1126,36 +1928,16 @@ public class BlazeDB {
 	}
 
 	/**
-	 * Creates a schema mapping for the specified table by reading its column information from the schema file.
+	 * Creates a schema mapping for the specified table from its schema in the {@link Catalog}.
 	 *
 	 * @param tableName The name of the table for which the schema mapping is to be created.
 	 * @return A map containing column names as keys and their respective indices as values.
 	 */
 	private static Map<String, Integer> createSchemaMapping(String tableName) {
-		Map<String, Integer> mapping = new HashMap<>();
-		// Specify the absolute path to your schema file
-		String schemaFilePath = "samples/db/schema.txt";
-
-		try (BufferedReader reader = new BufferedReader(new FileReader(schemaFilePath))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				// Check if the line starts with the table name followed by a space.
-				if (line.startsWith(tableName + " ")) {
-					// Tokenize the line; the first token is the table name and the rest are column names.
-					String[] tokens = line.trim().split("\\s+");
-					// Starting from index 1 since tokens[0] is already the table name.
-					for (int i = 1; i < tokens.length; i++) {
-						// Use i - 1 as the index if your tuple structure starts at 0
-						mapping.put(tableName + "." + tokens[i], i - 1);
-					}
-					break; // Stop after processing the relevant table
-				}
-			}
-		} catch (IOException e) {
-			System.err.println("Error reading the schema file: " + e.getMessage());
+		TableSchema tableSchema = Catalog.getInstance().getTableSchema(tableName);
+		if (tableSchema == null) {
+			return new HashMap<>();
 		}
-
-		// System.out.println("Schema mapping: " + mapping);
-		return mapping;
+		return tableSchema.createSchemaMapping();
 	}
 }
@@ -1,6 +1,21 @@
 package ed.inf.adbs.blazedb;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * The {@code Catalog} class serves as a centralized repository for managing table metadata within the BlazeDB system.
@@ -12,6 +27,21 @@ import java.io.File;
  *  - Singleton Enforcement: Guarantees a single instance of the catalog, providing a global point of access.
  *  - File Path Management: Maintains and resolves file paths for tables, allowing dynamic lookup and overriding.
  *  - Metadata Storage: Stores essential metadata about tables, such as their storage locations.
+ *  - Typed Schemas: Reads the schema file, in which each table is described on one line as its name
+ *         followed by its columns, each written {@code name} or {@code name:TYPE} (see {@link ColumnType};
+ *         columns without a type are {@code INT}), e.g. {@code Student sid:INT name:VARCHAR gpa:DOUBLE}.
+ *  - Schema Caching: The schema file is parsed once into an immutable table-to-schema map that every lookup
+ *         reads in constant time. The map is reloaded only when the modification time of the file changes.
+ *         Loading is synchronized and the published map is never modified, so lookups are thread-safe.
+ *  - Storage Formats: Detects whether a table is stored as a CSV file or has been imported into a columnar
+ *         file (see {@link TableFormat}). A columnar file is used only while it is at least as recent as both
+ *         the table's CSV file and the schema file, so editing either of them falls back to the CSV file
+ *         until the table is imported again. Zone map sidecar files of CSV tables follow the same rule.
+ *  - Table Statistics: Stores the {@link TableStatistics} gathered by the {@code analyze} command in a statistics
+ *         file next to the schema file, with one line per table giving its number of rows, followed by one line
+ *         per column giving its type, its number of numeric fields, its estimated number of distinct values and
+ *         the bounds of its histogram, e.g. {@code Student.sid INT 1000 998 1,251,500,750,1000}.
+ *         Like the schema file, the statistics file is parsed once and reloaded only when it changes.
  */
 public class Catalog {
     // Singleton instance
@@ -19,6 +49,16 @@ public class Catalog {
 
     // Base directory where all table files are stored.
     private final String baseDir;
+    // Schema file describing the columns of every table.
+    private final String schemaFilePath;
+    // File registering the indexes of the tables.
+    private final String indexRegistryPath;
+    // File holding the statistics of the analyzed tables.
+    private final String statisticsFilePath;
+    // Parsed schema file; replaced as a whole when the file changes.
+    private volatile SchemaSnapshot schemaSnapshot;
+    // Parsed statistics file; replaced as a whole when the file changes.
+    private volatile StatisticsSnapshot statisticsSnapshot;
 
     /**
      * Private constructor to enforce Singleton pattern.
@@ -27,6 +67,9 @@ public class Catalog {
     private Catalog() {
         // The base directory
         this.baseDir = "samples/db/data/";
+        this.schemaFilePath = "samples/db/schema.txt";
+        this.indexRegistryPath = "samples/db/indexes.txt";
+        this.statisticsFilePath = "samples/db/statistics.txt";
     }
 
     /**
@@ -36,7 +79,7 @@ public class Catalog {
      *
      * @return The singleton {@code Catalog} instance.
      */
-    public static Catalog getInstance() {
+    public static synchronized Catalog getInstance() {
         if (instance == null) {
             instance = new Catalog();
         }
@@ -64,4 +107,358 @@ public class Catalog {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tells whether a table has a CSV file, without reporting a missing file as {@link #getFilePathForTable} does.
+     *
+     * @param tableName The name of the table.
+     * @return {@code true} if the table's CSV file exists.
+     */
+    public boolean hasCsvFile(String tableName) {
+        return new File(baseDir + tableName + ".csv").exists();
+    }
+
+    /**
+     * Returns the path of the columnar file of a table, whether or not the table has been imported.
+     *
+     * @param tableName The name of the table.
+     * @return The path of the table's {@code .col} file.
+     */
+    public String getColumnarFilePathForTable(String tableName) {
+        return baseDir + tableName + ".col";
+    }
+
+    /**
+     * Determines the format from which a table is read: {@link TableFormat#COLUMNAR} if the table has an
+     * up-to-date columnar file, and {@link TableFormat#CSV} otherwise.
+     *
+     * @param tableName The name of the table.
+     * @return The format of the table's data.
+     */
+    public TableFormat getTableFormat(String tableName) {
+        File columnarFile = new File(getColumnarFilePathForTable(tableName));
+        return isUpToDate(columnarFile, tableName) ? TableFormat.COLUMNAR : TableFormat.CSV;
+    }
+
+    /**
+     * Returns the path of the zone map sidecar file of a table's CSV file, whether or not it exists.
+     *
+     * @param tableName The name of the table.
+     * @return The path of the table's {@code .zonemap} file.
+     */
+    public String getZoneMapPathForTable(String tableName) {
+        return baseDir + tableName + ".zonemap";
+    }
+
+    /**
+     * Tells whether a table has a zone map that describes its current CSV file and schema.
+     *
+     * @param tableName The name of the table.
+     * @return {@code true} if the zone map file exists and is up to date.
+     */
+    public boolean hasCurrentZoneMap(String tableName) {
+        return isUpToDate(new File(getZoneMapPathForTable(tableName)), tableName);
+    }
+
+    /**
+     * Returns the path of the index file of a table column, whether or not the index exists.
+     *
+     * @param tableName  The name of the table.
+     * @param columnName The name of the indexed column.
+     * @return The path of the {@code .idx} file.
+     */
+    public String getIndexFilePath(String tableName, String columnName) {
+        return baseDir + tableName + "." + columnName + ".idx";
+    }
+
+    /**
+     * Returns the registered indexes of a table whose index files describe its current CSV file and schema.
+     *
+     * @param tableName The name of the table.
+     * @return The usable indexes, in registration order.
+     */
+    public List<IndexInfo> getIndexes(String tableName) {
+        List<IndexInfo> indexes = new ArrayList<>();
+        for (IndexInfo index : getRegisteredIndexes()) {
+            if (index.getTableName().equals(tableName)
+                    && isUpToDate(new File(getIndexFilePath(tableName, index.getColumnName())), tableName)) {
+                indexes.add(index);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns every registered index, whether or not its index file is up to date.
+     *
+     * @return The registered indexes, in registration order.
+     */
+    public synchronized List<IndexInfo> getRegisteredIndexes() {
+        List<IndexInfo> indexes = new ArrayList<>();
+        File registry = new File(indexRegistryPath);
+        if (!registry.exists()) {
+            return indexes;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(registry))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length >= 2) {
+                    boolean clustered = tokens.length > 2 && tokens[2].equalsIgnoreCase("clustered");
+                    indexes.add(new IndexInfo(tokens[0], tokens[1], clustered));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the index registry: " + e.getMessage());
+        }
+        return indexes;
+    }
+
+    /**
+     * Registers an index, replacing any index on the same column. Since a table file can only be sorted on one
+     * column, registering a clustered index registers the table's other indexes as unclustered.
+     *
+     * @param index The index to register.
+     * @throws IOException if the registry cannot be written.
+     */
+    public synchronized void registerIndex(IndexInfo index) throws IOException {
+        List<IndexInfo> indexes = new ArrayList<>();
+        for (IndexInfo registered : getRegisteredIndexes()) {
+            if (!registered.getTableName().equals(index.getTableName())) {
+                indexes.add(registered);
+            } else if (!registered.getColumnName().equals(index.getColumnName())) {
+                indexes.add(index.isClustered() && registered.isClustered()
+                        ? new IndexInfo(registered.getTableName(), registered.getColumnName(), false)
+                        : registered);
+            }
+        }
+        indexes.add(index);
+        try (PrintWriter writer = new PrintWriter(new FileWriter(indexRegistryPath))) {
+            for (IndexInfo registered : indexes) {
+                writer.println(registered.getTableName() + " " + registered.getColumnName() + " "
+                        + (registered.isClustered() ? "clustered" : "unclustered"));
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of a table gathered by the {@code analyze} command, loading or reloading the
+     * statistics file if needed.
+     *
+     * @param tableName The name of the table.
+     * @return The statistics of the table, or {@code null} if it has not been analyzed.
+     */
+    public TableStatistics getTableStatistics(String tableName) {
+        long lastModified = new File(statisticsFilePath).lastModified();
+        StatisticsSnapshot snapshot = statisticsSnapshot;
+        if (snapshot == null || snapshot.lastModified != lastModified) {
+            synchronized (this) {
+                snapshot = statisticsSnapshot;
+                if (snapshot == null || snapshot.lastModified != lastModified) {
+                    snapshot = new StatisticsSnapshot(loadStatistics(), lastModified);
+                    statisticsSnapshot = snapshot;
+                }
+            }
+        }
+        return snapshot.statistics.get(tableName);
+    }
+
+    /**
+     * Stores the statistics of a table, replacing its previous statistics and keeping those of other tables.
+     *
+     * @param statistics The statistics to store.
+     * @throws IOException if the statistics file cannot be written.
+     */
+    public synchronized void saveTableStatistics(TableStatistics statistics) throws IOException {
+        Map<String, TableStatistics> tables = new TreeMap<>(loadStatistics());
+        tables.put(statistics.getTableName(), statistics);
+        File temporaryFile = new File(statisticsFilePath + ".tmp");
+        try (PrintWriter writer = new PrintWriter(new FileWriter(temporaryFile))) {
+            for (TableStatistics table : tables.values()) {
+                writer.println(table.getTableName() + " " + table.getRowCount());
+                for (Map.Entry<String, ColumnDistribution> entry : table.getColumns().entrySet()) {
+                    ColumnDistribution column = entry.getValue();
+                    StringBuilder bounds = new StringBuilder();
+                    for (double bound : column.getHistogramBounds()) {
+                        bounds.append(bounds.length() == 0 ? "" : ",").append(column.getType().isIntegral()
+                                ? Long.toString((long) bound) : Double.toString(bound));
+                    }
+                    writer.println(table.getTableName() + "." + entry.getKey() + " " + column.getType() + " "
+                            + column.getNumberCount() + " " + column.getDistinctCount() + " "
+                            + (bounds.length() == 0 ? "-" : bounds.toString()));
+                }
+            }
+        }
+        Files.move(temporaryFile.toPath(), Paths.get(statisticsFilePath), StandardCopyOption.REPLACE_EXISTING);
+        statisticsSnapshot = null;
+    }
+
+    /**
+     * Reads and parses the whole statistics file; lines that cannot be parsed are reported and skipped.
+     */
+    private Map<String, TableStatistics> loadStatistics() {
+        Map<String, Long> rowCounts = new HashMap<>();
+        Map<String, Map<String, ColumnDistribution>> columns = new HashMap<>();
+        File file = new File(statisticsFilePath);
+        if (!file.exists()) {
+            return Collections.emptyMap();
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                try {
+                    int dot = tokens[0].indexOf('.');
+                    if (tokens.length == 2 && dot < 0) {
+                        rowCounts.put(tokens[0], Long.parseLong(tokens[1]));
+                        columns.put(tokens[0], new LinkedHashMap<>());
+                    } else if (tokens.length == 5 && rowCounts.containsKey(tokens[0].substring(0, dot))) {
+                        String table = tokens[0].substring(0, dot);
+                        columns.get(table).put(tokens[0].substring(dot + 1), new ColumnDistribution(
+                                ColumnType.fromName(tokens[1]), rowCounts.get(table),
+                                Long.parseLong(tokens[2]), Long.parseLong(tokens[3]), parseBounds(tokens[4])));
+                    } else if (!tokens[0].isEmpty()) {
+                        System.err.println("Ignoring statistics line: " + line);
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Ignoring statistics line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the statistics file: " + e.getMessage());
+        }
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        for (Map.Entry<String, Long> entry : rowCounts.entrySet()) {
+            statistics.put(entry.getKey(),
+                    new TableStatistics(entry.getKey(), entry.getValue(), columns.get(entry.getKey())));
+        }
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private static double[] parseBounds(String token) {
+        if (token.equals("-")) {
+            return new double[0];
+        }
+        String[] parts = token.split(",");
+        double[] bounds = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            bounds[i] = Double.parseDouble(parts[i]);
+        }
+        return bounds;
+    }
+
+    /**
+     * Tells whether a file derived from a table exists and is at least as recent as both the table's CSV file
+     * and the schema file.
+     */
+    private boolean isUpToDate(File derivedFile, String tableName) {
+        if (!derivedFile.isFile()) {
+            return false;
+        }
+        long written = derivedFile.lastModified();
+        File csvFile = new File(baseDir + tableName + ".csv");
+        if (csvFile.exists() && csvFile.lastModified() > written) {
+            return false;
+        }
+        return new File(schemaFilePath).lastModified() <= written;
+    }
+
+    /**
+     * Returns the typed schema of a table as declared in the schema file.
+     *
+     * @param tableName The name of the table.
+     * @return The {@link TableSchema} of the table, or {@code null} if the schema file does not describe it.
+     *
+     * @throws IllegalArgumentException if the schema file declares an unknown column type.
+     */
+    public TableSchema getTableSchema(String tableName) {
+        return getTableSchemas().get(tableName);
+    }
+
+    /**
+     * Returns the schemas of all tables declared in the schema file, loading or reloading the file if needed.
+     *
+     * @return An immutable map from table names to their schemas.
+     *
+     * @throws IllegalArgumentException if the schema file declares an unknown column type.
+     */
+    public Map<String, TableSchema> getTableSchemas() {
+        long lastModified = new File(schemaFilePath).lastModified();
+        SchemaSnapshot snapshot = schemaSnapshot;
+        if (snapshot != null && snapshot.lastModified == lastModified) {
+            return snapshot.schemas;
+        }
+        synchronized (this) {
+            // Another thread may have loaded the file in the meantime.
+            snapshot = schemaSnapshot;
+            if (snapshot == null || snapshot.lastModified != lastModified) {
+                snapshot = new SchemaSnapshot(loadSchemas(), lastModified);
+                schemaSnapshot = snapshot;
+            }
+            return snapshot.schemas;
+        }
+    }
+
+    /**
+     * Reads and parses the whole schema file.
+     */
+    private Map<String, TableSchema> loadSchemas() {
+        Map<String, TableSchema> schemas = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(schemaFilePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // The first token is the table name and the rest are column declarations.
+                String[] tokens = line.trim().split("\\s+");
+                if (!tokens[0].isEmpty()) {
+                    schemas.put(tokens[0], parseTableSchema(tokens));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading the schema file: " + e.getMessage());
+        }
+        return Collections.unmodifiableMap(schemas);
+    }
+
+    private static TableSchema parseTableSchema(String[] tokens) {
+        List<String> columnNames = new ArrayList<>();
+        List<ColumnType> columnTypes = new ArrayList<>();
+        for (int i = 1; i < tokens.length; i++) {
+            int separator = tokens[i].indexOf(':');
+            if (separator < 0) {
+                columnNames.add(tokens[i]);
+                columnTypes.add(ColumnType.INT);
+            } else {
+                columnNames.add(tokens[i].substring(0, separator));
+                columnTypes.add(ColumnType.fromName(tokens[i].substring(separator + 1)));
+            }
+        }
+        return new TableSchema(tokens[0], columnNames, columnTypes);
+    }
+
+    /**
+     * An immutable parsed schema file together with the modification time it was read at.
+     */
+    private static final class SchemaSnapshot {
+        private final Map<String, TableSchema> schemas;
+        private final long lastModified;
+
+        SchemaSnapshot(Map<String, TableSchema> schemas, long lastModified) {
+            this.schemas = schemas;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * The immutable statistics of every analyzed table together with the modification time of the statistics
+     * file they were read from.
+     */
+    private static final class StatisticsSnapshot {
+        private final Map<String, TableStatistics> statistics;
+        private final long lastModified;
+
+        StatisticsSnapshot(Map<String, TableStatistics> statistics, long lastModified) {
+            this.statistics = statistics;
+            this.lastModified = lastModified;
+        }
+    }
+}
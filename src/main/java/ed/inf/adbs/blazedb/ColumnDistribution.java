@@ -0,0 +1,152 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * Describes the distribution of the values of one table column, as measured by the {@code analyze} command (see
+ * {@link TableStatistics}): the number of rows whose field is a number, the estimated number of distinct values,
+ * and an equi-depth histogram of the numbers, whose first and last bounds are the column's minimum and maximum.
+ *
+ * The histogram splits the numbers into buckets holding the same number of values: bucket {@code i} holds the
+ * values between bounds {@code i} and {@code i + 1}. A value filling several buckets appears as several equal
+ * bounds, so frequent values are estimated better than by the number of distinct values alone. Numbers are held
+ * as doubles, {@code DATE}s as their day number.
+ *
+ * The fractions returned by the estimation methods are fractions of all the rows of the table.
+ */
+public class ColumnDistribution {
+    private final ColumnType type;
+    private final long rowCount;
+    private final long numberCount;
+    private final long distinctCount;
+    private final double[] bounds;
+
+    /**
+     * Constructs the distribution of a column.
+     *
+     * @param type          The declared type of the column.
+     * @param rowCount      The number of rows of the table.
+     * @param numberCount   The number of rows whose field is a number.
+     * @param distinctCount The estimated number of distinct values of the column, numbers and strings.
+     * @param bounds        The bounds of the histogram of the numbers, in increasing order; empty if the column
+     *                      holds no number.
+     */
+    public ColumnDistribution(ColumnType type, long rowCount, long numberCount, long distinctCount, double[] bounds) {
+        this.type = type;
+        this.rowCount = rowCount;
+        this.numberCount = numberCount;
+        this.distinctCount = distinctCount;
+        this.bounds = bounds;
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getNumberCount() {
+        return numberCount;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Returns the bounds of the histogram; the array must not be modified.
+     */
+    public double[] getHistogramBounds() {
+        return bounds;
+    }
+
+    public boolean hasNumbers() {
+        return bounds.length > 0;
+    }
+
+    /**
+     * Returns the smallest number of the column; only meaningful if {@link #hasNumbers()}.
+     */
+    public double getMin() {
+        return bounds[0];
+    }
+
+    /**
+     * Returns the largest number of the column; only meaningful if {@link #hasNumbers()}.
+     */
+    public double getMax() {
+        return bounds[bounds.length - 1];
+    }
+
+    /**
+     * Returns the fraction of rows whose field is a number.
+     */
+    public double getNumberFraction() {
+        return rowCount == 0 ? 0 : (double) numberCount / rowCount;
+    }
+
+    /**
+     * Estimates the fraction of rows whose field is a number equal to a value: one distinct value's share of
+     * the rows, or more if the value fills some histogram buckets.
+     *
+     * @param value The value.
+     * @return The estimated fraction, between 0 and 1.
+     */
+    public double estimateEqualFraction(double value) {
+        if (!hasNumbers() || value < getMin() || value > getMax()
+                || (type.isIntegral() && value != Math.rint(value))) {
+            return 0;
+        }
+        int buckets = bounds.length - 1;
+        int fullBuckets = 0;
+        for (int i = 0; i < buckets; i++) {
+            if (bounds[i] == value && bounds[i + 1] == value) {
+                fullBuckets++;
+            }
+        }
+        double fraction = buckets == 0 ? 1 : (double) fullBuckets / buckets;
+        double share = Math.max(fraction * getNumberFraction(), 1.0 / Math.max(1, distinctCount));
+        return Math.min(getNumberFraction(), share);
+    }
+
+    /**
+     * Estimates the fraction of rows whose field is a number less than or equal to a value, interpolating
+     * linearly within the histogram bucket the value falls in. Integral columns are interpolated over the
+     * integers of the bucket.
+     *
+     * @param value The value.
+     * @return The estimated fraction, between 0 and 1.
+     */
+    public double estimateAtMostFraction(double value) {
+        if (!hasNumbers() || value < getMin()) {
+            return 0;
+        }
+        if (value >= getMax()) {
+            return getNumberFraction();
+        }
+        int buckets = bounds.length - 1;
+        double filled = 0;
+        for (int i = 0; i < buckets; i++) {
+            double low = bounds[i];
+            double high = bounds[i + 1];
+            if (high <= value) {
+                filled++;
+            } else if (low <= value) {
+                filled += type.isIntegral()
+                        ? (Math.floor(value) - low + 1) / (high - low + 1)
+                        : (value - low) / (high - low);
+            }
+        }
+        return Math.min(1, filled / buckets) * getNumberFraction();
+    }
+
+    /**
+     * Estimates the fraction of rows whose field is a number less than a value.
+     *
+     * @param value The value.
+     * @return The estimated fraction, between 0 and 1.
+     */
+    public double estimateLessFraction(double value) {
+        return Math.max(0, estimateAtMostFraction(value) - estimateEqualFraction(value));
+    }
+}
@@ -0,0 +1,45 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * The {@code ColumnType} enum lists the column types that can be declared in the schema file.
+ * Every type is stored in one {@code long} slot of a {@link Tuple}:
+ *  - {@code INT} and {@code BIGINT}: the integer value itself.
+ *  - {@code DOUBLE}: the IEEE 754 bits of the value ({@link Double#doubleToLongBits(double)}).
+ *  - {@code DATE}: the number of days since 1970-01-01 of an ISO date ({@code yyyy-MM-dd}).
+ *  - {@code VARCHAR}: the {@link ed.inf.adbs.blazedb.util.StringDictionary} code of the text.
+ *
+ * Columns declared without a type are {@code INT}.
+ */
+public enum ColumnType {
+    INT,
+    BIGINT,
+    DOUBLE,
+    VARCHAR,
+    DATE;
+
+    /**
+     * Parses a type name as written in the schema file, ignoring case.
+     *
+     * @param name The type name (e.g. {@code "INT"} or {@code "varchar"}).
+     * @return The matching type.
+     * @throws IllegalArgumentException if the name is not a known type.
+     */
+    public static ColumnType fromName(String name) {
+        for (ColumnType type : values()) {
+            if (type.name().equalsIgnoreCase(name.trim())) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column type: " + name);
+    }
+
+    /**
+     * Tells whether values of this type are integers that compare as {@code long}s
+     * ({@code INT}, {@code BIGINT} and {@code DATE}).
+     *
+     * @return {@code true} for integer-valued types.
+     */
+    public boolean isIntegral() {
+        return this == INT || this == BIGINT || this == DATE;
+    }
+}
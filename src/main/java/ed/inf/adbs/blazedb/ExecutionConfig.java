@@ -0,0 +1,383 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.File;
+
+/**
+ * The {@code ExecutionConfig} class holds the tunable execution settings of the BlazeDB system.
+ * Like the {@link Catalog}, it is implemented as a Singleton so that the planner and the operators
+ * share one set of settings for the lifetime of the application.
+ *
+ * Settings are given on the command line after the positional arguments, in the form
+ * {@code --name=value}, and are applied through {@link #applyOption(String)}.
+ *
+ * Supported Options:
+ *  - {@code --scratch-dir=DIR}: Directory in which operators create their temporary spill files.
+ *  - {@code --join-memory=SIZE}: Memory budget of a hash join (e.g. {@code 64MB}). When set, equi-joins
+ *         use the {@code GraceHashJoinOperator}, which spills partitions to the scratch directory once
+ *         the budget is exceeded.
+ *  - {@code --sort-memory=SIZE}: Memory budget of a sort; larger inputs are sorted with an external merge sort.
+ *  - {@code --distinct-memory=SIZE}: Memory budget of the set of distinct tuples of a duplicate elimination
+ *         (default {@code 64MB}); beyond it, the tuples not yet seen are partitioned to the scratch directory.
+ *  - {@code --bnlj-pages=B}: Number of pages buffered for the outer relation by the block-nested-loop join
+ *         used for joins without an equality condition.
+ *  - {@code --scan-cache=SIZE}: Memory budget for caching the inner relation of a block-nested-loop join
+ *         during its first pass, so that later passes replay it instead of rescanning the table (default
+ *         {@code 64MB}); {@code 0} always rescans it.
+ *  - {@code --buffer-pool=SIZE}: Size of the shared buffer pool caching the pages of index files and of the
+ *         rows fetched through indexes (default {@code 64MB}).
+ *  - {@code --codegen=on|off}: Whether selection and join conditions are compiled to JVM bytecode
+ *         (default {@code on}); {@code off} evaluates them with the compiled expression trees.
+ *  - {@code --threads=N}: Number of worker threads scanning a table in parallel (default: the number of
+ *         available processors); {@code 1} disables parallel scans.
+ *  - {@code --morsel-size=SIZE}: Size of the byte ranges (morsels) a table file is split into for a parallel
+ *         scan. Files no larger than one morsel are scanned by a single thread.
+ *  - {@code --mmap=on|off}: Whether table files are scanned through memory mappings, tokenizing rows directly
+ *         from the mapped bytes (default {@code on}); {@code off} reads them with a {@code BufferedReader}.
+ *  - {@code --columnar=on|off}: Whether tables imported into the columnar format are scanned from their
+ *         columnar files (default {@code on}); {@code off} always scans the CSV files.
+ *  - {@code --zone-maps=on|off}: Whether scans with a selection skip the blocks of rows (zone map blocks of CSV
+ *         files, chunks of columnar files) whose minimum and maximum values show that no row can match
+ *         (default {@code on}).
+ *  - {@code --indexes=on|off}: Whether selections on an indexed column may read the table through its index,
+ *         and equi-joins may look up the rows of an indexed right table (default {@code on}).
+ *  - {@code --join-order=cost|from}: Whether the tables of a join are joined in the order chosen by the cost-based
+ *         {@link JoinOrderOptimizer} (default {@code cost}) or in FROM-clause order.
+ */
+public class ExecutionConfig {
+    // Singleton instance
+    private static ExecutionConfig instance = null;
+
+    // Directory for temporary spill files.
+    private String scratchDir;
+    // Memory budget of a hash join in bytes; 0 means that joins are kept entirely in memory.
+    private long joinMemoryBudget;
+    // Memory budget of a sort in bytes.
+    private long sortMemoryBudget;
+    // Memory budget of the set of distinct tuples of a duplicate elimination in bytes.
+    private long distinctMemoryBudget;
+    // Number of outer pages buffered by a block-nested-loop join.
+    private int blockNestedLoopPages;
+    // Memory budget in bytes of the cached inner relation of a block-nested-loop join; 0 disables the cache.
+    private long scanCacheBudget;
+    // Size in bytes of the shared buffer pool.
+    private long bufferPoolSize;
+    // Whether predicates are compiled to bytecode.
+    private boolean codeGenerationEnabled;
+    // Degree of parallelism of table scans.
+    private int threads;
+    // Size of a parallel scan morsel in bytes.
+    private long morselSize;
+    // Whether scans read memory-mapped files.
+    private boolean memoryMappedScans;
+    // Whether imported tables are read from their columnar files.
+    private boolean columnarScans;
+    // Whether scans skip blocks using min/max statistics.
+    private boolean zoneMaps;
+    // Whether selections and joins may use the indexes registered in the Catalog.
+    private boolean indexScans;
+    // Whether the join order is chosen by the cost-based optimizer rather than taken from the FROM clause.
+    private boolean costBasedJoinOrder;
+
+    /**
+     * Private constructor to enforce Singleton pattern.
+     * Initializes every setting to its default value.
+     */
+    private ExecutionConfig() {
+        this.scratchDir = System.getProperty("java.io.tmpdir");
+        this.joinMemoryBudget = 0;
+        this.sortMemoryBudget = 64L * 1024 * 1024;
+        this.distinctMemoryBudget = 64L * 1024 * 1024;
+        this.blockNestedLoopPages = 1024;
+        this.scanCacheBudget = 64L * 1024 * 1024;
+        this.bufferPoolSize = 64L * 1024 * 1024;
+        this.codeGenerationEnabled = true;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.morselSize = 4L * 1024 * 1024;
+        this.memoryMappedScans = true;
+        this.columnarScans = true;
+        this.zoneMaps = true;
+        this.indexScans = true;
+        this.costBasedJoinOrder = true;
+    }
+
+    /**
+     * Retrieves the single instance of {@code ExecutionConfig}, creating it on first use.
+     *
+     * @return The singleton {@code ExecutionConfig} instance.
+     */
+    public static ExecutionConfig getInstance() {
+        if (instance == null) {
+            instance = new ExecutionConfig();
+        }
+        return instance;
+    }
+
+    /**
+     * Applies a single command line option of the form {@code --name=value}.
+     *
+     * @param option The option as given on the command line.
+     * @throws IllegalArgumentException if the option is malformed or unknown.
+     */
+    public void applyOption(String option) {
+        int separator = option.indexOf('=');
+        if (!option.startsWith("--") || separator < 0) {
+            throw new IllegalArgumentException("Options must have the form --name=value: " + option);
+        }
+        String name = option.substring(2, separator);
+        String value = option.substring(separator + 1);
+        switch (name) {
+            case "scratch-dir":
+                setScratchDir(value);
+                break;
+            case "join-memory":
+                setJoinMemoryBudget(parseSize(value));
+                break;
+            case "sort-memory":
+                setSortMemoryBudget(parseSize(value));
+                break;
+            case "distinct-memory":
+                setDistinctMemoryBudget(parseSize(value));
+                break;
+            case "bnlj-pages":
+                setBlockNestedLoopPages(parseCount(option, value));
+                break;
+            case "scan-cache":
+                setScanCacheBudget(parseSize(value));
+                break;
+            case "buffer-pool":
+                setBufferPoolSize(parseSize(value));
+                break;
+            case "codegen":
+                setCodeGenerationEnabled(parseSwitch(option, value));
+                break;
+            case "threads":
+                setThreads(parseCount(option, value));
+                break;
+            case "morsel-size":
+                setMorselSize(parseSize(value));
+                break;
+            case "mmap":
+                setMemoryMappedScans(parseSwitch(option, value));
+                break;
+            case "columnar":
+                setColumnarScans(parseSwitch(option, value));
+                break;
+            case "zone-maps":
+                setZoneMaps(parseSwitch(option, value));
+                break;
+            case "indexes":
+                setIndexScans(parseSwitch(option, value));
+                break;
+            case "join-order":
+                setCostBasedJoinOrder(parseJoinOrder(option, value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + option);
+        }
+    }
+
+    /**
+     * Parses a strictly positive count given as the value of an option.
+     */
+    private static int parseCount(String option, String value) {
+        try {
+            int count = Integer.parseInt(value.trim());
+            if (count > 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Option requires a positive number: " + option);
+    }
+
+    /**
+     * Parses the join order given as the value of an option: {@code cost} or {@code from}.
+     */
+    private static boolean parseJoinOrder(String option, String value) {
+        switch (value.trim().toLowerCase()) {
+            case "cost":
+                return true;
+            case "from":
+                return false;
+            default:
+                throw new IllegalArgumentException("Option requires cost or from: " + option);
+        }
+    }
+
+    /**
+     * Parses an on/off switch given as the value of an option.
+     */
+    private static boolean parseSwitch(String option, String value) {
+        switch (value.trim().toLowerCase()) {
+            case "on":
+            case "true":
+                return true;
+            case "off":
+            case "false":
+                return false;
+            default:
+                throw new IllegalArgumentException("Option requires on or off: " + option);
+        }
+    }
+
+    /**
+     * Parses a size such as {@code 4096}, {@code 512KB}, {@code 64MB} or {@code 2GB} into a number of bytes.
+     *
+     * @param value The size to parse.
+     * @return The size in bytes.
+     * @throws IllegalArgumentException if the value is not a valid size.
+     */
+    public static long parseSize(String value) {
+        String normalized = value.trim().toUpperCase();
+        long multiplier = 1;
+        if (normalized.endsWith("B")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        if (normalized.endsWith("K")) {
+            multiplier = 1024L;
+        } else if (normalized.endsWith("M")) {
+            multiplier = 1024L * 1024;
+        } else if (normalized.endsWith("G")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        if (multiplier != 1) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        try {
+            return Long.parseLong(normalized.trim()) * multiplier;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + value);
+        }
+    }
+
+    public String getScratchDir() {
+        return scratchDir;
+    }
+
+    public void setScratchDir(String scratchDir) {
+        File dir = new File(scratchDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalArgumentException("Scratch directory cannot be created: " + scratchDir);
+        }
+        this.scratchDir = scratchDir;
+    }
+
+    public long getJoinMemoryBudget() {
+        return joinMemoryBudget;
+    }
+
+    public void setJoinMemoryBudget(long joinMemoryBudget) {
+        this.joinMemoryBudget = joinMemoryBudget;
+    }
+
+    public long getSortMemoryBudget() {
+        return sortMemoryBudget;
+    }
+
+    public void setSortMemoryBudget(long sortMemoryBudget) {
+        this.sortMemoryBudget = sortMemoryBudget;
+    }
+
+    public long getDistinctMemoryBudget() {
+        return distinctMemoryBudget;
+    }
+
+    public void setDistinctMemoryBudget(long distinctMemoryBudget) {
+        this.distinctMemoryBudget = distinctMemoryBudget;
+    }
+
+    public int getBlockNestedLoopPages() {
+        return blockNestedLoopPages;
+    }
+
+    public void setBlockNestedLoopPages(int blockNestedLoopPages) {
+        this.blockNestedLoopPages = blockNestedLoopPages;
+    }
+
+    public long getScanCacheBudget() {
+        return scanCacheBudget;
+    }
+
+    public void setScanCacheBudget(long scanCacheBudget) {
+        this.scanCacheBudget = scanCacheBudget;
+    }
+
+    public long getBufferPoolSize() {
+        return bufferPoolSize;
+    }
+
+    /**
+     * Sets the size of the shared buffer pool, which only takes effect if the pool has not been used yet.
+     */
+    public void setBufferPoolSize(long bufferPoolSize) {
+        this.bufferPoolSize = bufferPoolSize;
+    }
+
+    public boolean isCodeGenerationEnabled() {
+        return codeGenerationEnabled;
+    }
+
+    public void setCodeGenerationEnabled(boolean codeGenerationEnabled) {
+        this.codeGenerationEnabled = codeGenerationEnabled;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getMorselSize() {
+        return morselSize;
+    }
+
+    public void setMorselSize(long morselSize) {
+        if (morselSize <= 0) {
+            throw new IllegalArgumentException("Morsel size must be positive: " + morselSize);
+        }
+        this.morselSize = morselSize;
+    }
+
+    public boolean isMemoryMappedScans() {
+        return memoryMappedScans;
+    }
+
+    public void setMemoryMappedScans(boolean memoryMappedScans) {
+        this.memoryMappedScans = memoryMappedScans;
+    }
+
+    public boolean isColumnarScans() {
+        return columnarScans;
+    }
+
+    public void setColumnarScans(boolean columnarScans) {
+        this.columnarScans = columnarScans;
+    }
+
+    public boolean isZoneMaps() {
+        return zoneMaps;
+    }
+
+    public void setZoneMaps(boolean zoneMaps) {
+        this.zoneMaps = zoneMaps;
+    }
+
+    public boolean isIndexScans() {
+        return indexScans;
+    }
+
+    public void setIndexScans(boolean indexScans) {
+        this.indexScans = indexScans;
+    }
+
+    public boolean isCostBasedJoinOrder() {
+        return costBasedJoinOrder;
+    }
+
+    public void setCostBasedJoinOrder(boolean costBasedJoinOrder) {
+        this.costBasedJoinOrder = costBasedJoinOrder;
+    }
+}
@@ -0,0 +1,34 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * Describes an index registered in the {@link Catalog}: the indexed table and column, and whether the index is
+ * clustered, i.e. whether the table's file is sorted on the column.
+ */
+public class IndexInfo {
+    private final String tableName;
+    private final String columnName;
+    private final boolean clustered;
+
+    public IndexInfo(String tableName, String columnName, boolean clustered) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+        this.clustered = clustered;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    @Override
+    public String toString() {
+        return (clustered ? "clustered" : "unclustered") + " index on " + tableName + "." + columnName;
+    }
+}
@@ -0,0 +1,513 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.expression.KeyRange;
+import ed.inf.adbs.blazedb.expression.SelectivityEstimator;
+import ed.inf.adbs.blazedb.operator.IndexNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.storage.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.storage.ColumnarTableReader;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code JoinOrderOptimizer} chooses the order in which {@link BlazeDB#buildJoinTree} joins the tables of a
+ * query into a left-deep join tree, instead of the FROM-clause order.
+ *
+ * Each table's number of rows is taken from its columnar file, its indexes or its {@link TableStatistics}, or
+ * estimated from the beginning of its CSV file. The rows kept by its selection are estimated by the
+ * {@link SelectivityEstimator} from the table's statistics if it has been analyzed, and otherwise through its
+ * indexes when the selection bounds an indexed column, or with default selectivities. A column equality between
+ * two tables keeps one pair in {@code max(d1, d2)}, where {@code d} is a column's number of distinct values
+ * (from its statistics or its index, or assumed to be the number of rows); other join conditions are estimated
+ * by the {@link SelectivityEstimator}.
+ *
+ * The cost of a join order is the sum of the rows produced by each join plus the cost of the cheapest algorithm
+ * for each join: a hash join reads both inputs, an index nested-loop join pays for a lookup per left row and for
+ * the rows it fetches, and a join without an equality compares every pair of rows. Up to
+ * {@link #MAX_EXHAUSTIVE_TABLES} tables, the cheapest order is found by dynamic programming over the subsets of
+ * tables; beyond, tables are added greedily, the cheapest join first. Since the estimates are rough, the
+ * FROM-clause order is kept unless the chosen order is estimated to be clearly cheaper.
+ */
+public class JoinOrderOptimizer {
+    /**
+     * The largest number of tables for which every join order is considered.
+     */
+    public static final int MAX_EXHAUSTIVE_TABLES = 10;
+    // Cost of an index lookup, or of fetching a row by record id, relative to reading a row sequentially.
+    private static final double RANDOM_ACCESS_COST = 4;
+    // Cost of comparing a pair of rows in a nested-loop join, relative to reading a row.
+    private static final double PAIR_COST = 0.01;
+    // A join order replaces the FROM-clause order only if its cost is below this fraction of the latter's.
+    private static final double MIN_IMPROVEMENT = 0.9;
+    // Number of bytes at the beginning of a CSV file read to estimate its number of rows.
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    private final List<String> tableNames;
+    private final boolean indexJoins;
+    private final double[] tableRows;
+    private final double[] selectedRows;
+    private final double[] scanCosts;
+    // Statistics of the indexed columns of each table, by column name.
+    private final List<Map<String, IndexStatistics>> indexStatistics = new ArrayList<>();
+    // Statistics of the analyzed tables, by table name.
+    private final Map<String, TableStatistics> tableStatistics = new HashMap<>();
+    private final List<JoinPredicate> predicates = new ArrayList<>();
+    private final List<String> joinOrder;
+    private final double[] prefixRows;
+
+    /**
+     * Chooses the join order of the tables of a query.
+     *
+     * @param tableNames  The names of the tables, in FROM-clause order; each table must appear once.
+     * @param whereClause The SQL WHERE clause (may be {@code null}).
+     */
+    public JoinOrderOptimizer(List<String> tableNames, Expression whereClause) {
+        this.tableNames = tableNames;
+        this.indexJoins = ExecutionConfig.getInstance().isIndexScans();
+        int n = tableNames.size();
+        tableRows = new double[n];
+        selectedRows = new double[n];
+        scanCosts = new double[n];
+
+        List<Expression> conjuncts = new ArrayList<>();
+        BlazeDB.collectConjuncts(whereClause, conjuncts);
+        List<List<Expression>> localConjuncts = new ArrayList<>();
+        for (int t = 0; t < n; t++) {
+            localConjuncts.add(new ArrayList<>());
+        }
+        List<Expression> joinConjuncts = new ArrayList<>();
+        for (Expression conjunct : conjuncts) {
+            int mask = getTableMask(conjunct);
+            if (Integer.bitCount(mask) == 1) {
+                localConjuncts.get(Integer.numberOfTrailingZeros(mask)).add(conjunct);
+            } else if (mask != 0) {
+                joinConjuncts.add(conjunct);
+            }
+        }
+
+        Catalog catalog = Catalog.getInstance();
+        for (int t = 0; t < n; t++) {
+            String table = tableNames.get(t);
+            TableStatistics statistics = catalog.getTableStatistics(table);
+            if (statistics != null) {
+                tableStatistics.put(table, statistics);
+            }
+            indexStatistics.add(readIndexStatistics(table));
+            tableRows[t] = Math.max(1, countRows(table, indexStatistics.get(t), statistics));
+            Expression selection = null;
+            for (Expression conjunct : localConjuncts.get(t)) {
+                selection = selection == null ? conjunct : new AndExpression(selection, conjunct);
+            }
+            double selectivity = SelectivityEstimator.estimateSelection(selection, catalog.getTableSchema(table),
+                    statistics);
+            long indexRows = selection == null ? -1 : estimateRowCount(table, selection);
+            if (indexRows >= 0 && indexRows < tableRows[t]) {
+                // The statistics account for every conjunct, the index only for the range of one column.
+                selectedRows[t] = Math.max(1, statistics != null ? tableRows[t] * selectivity : indexRows);
+                scanCosts[t] = Math.min(tableRows[t], indexRows * RANDOM_ACCESS_COST);
+            } else {
+                selectedRows[t] = Math.max(1, tableRows[t] * selectivity);
+                scanCosts[t] = tableRows[t];
+            }
+        }
+        for (Expression conjunct : joinConjuncts) {
+            predicates.add(createPredicate(conjunct));
+        }
+
+        List<Integer> fromOrder = new ArrayList<>();
+        for (int t = 0; t < n; t++) {
+            fromOrder.add(t);
+        }
+        List<Integer> bestOrder = n <= MAX_EXHAUSTIVE_TABLES ? findOrderExhaustively() : findOrderGreedily();
+        double fromCost = getCost(fromOrder);
+        double bestCost = getCost(bestOrder);
+        List<Integer> order = bestCost < fromCost * MIN_IMPROVEMENT ? bestOrder : fromOrder;
+
+        joinOrder = new ArrayList<>();
+        prefixRows = new double[n + 1];
+        int mask = 0;
+        for (int k = 0; k < n; k++) {
+            int t = order.get(k);
+            joinOrder.add(tableNames.get(t));
+            prefixRows[k + 1] = k == 0 ? selectedRows[t] : getJoinRows(mask, prefixRows[k], t);
+            mask |= 1 << t;
+        }
+        if (order != fromOrder) {
+            System.out.printf("Joining tables in the order %s (estimated cost %.0f instead of %.0f in FROM order).%n",
+                    joinOrder, bestCost, fromCost);
+        }
+    }
+
+    /**
+     * Returns the names of the tables in the order in which they should be joined.
+     */
+    public List<String> getJoinOrder() {
+        return joinOrder;
+    }
+
+    /**
+     * Tells whether the join order differs from the FROM-clause order.
+     */
+    public boolean isReordered() {
+        return !joinOrder.equals(tableNames);
+    }
+
+    /**
+     * Returns the estimated number of rows of the join of the first tables of the join order.
+     *
+     * @param tableCount The number of tables joined, at least 1.
+     * @return The estimated number of rows.
+     */
+    public long getEstimatedRowCount(int tableCount) {
+        return (long) Math.min(Long.MAX_VALUE, prefixRows[tableCount]);
+    }
+
+    /**
+     * Finds the cheapest join order by dynamic programming: the cheapest left-deep plan of each subset of tables
+     * extends the cheapest plan of the subset without its last table. Since the number of rows of a join does not
+     * depend on the order of its tables, each subset is only planned once.
+     */
+    private List<Integer> findOrderExhaustively() {
+        int n = tableNames.size();
+        int subsets = 1 << n;
+        double[] costs = new double[subsets];
+        double[] rows = new double[subsets];
+        int[] lastTables = new int[subsets];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        for (int t = 0; t < n; t++) {
+            costs[1 << t] = scanCosts[t];
+            rows[1 << t] = selectedRows[t];
+            lastTables[1 << t] = t;
+        }
+        for (int mask = 1; mask < subsets; mask++) {
+            if (costs[mask] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            for (int t = 0; t < n; t++) {
+                if ((mask & (1 << t)) != 0) {
+                    continue;
+                }
+                double joinRows = getJoinRows(mask, rows[mask], t);
+                double cost = costs[mask] + getJoinCost(mask, rows[mask], t) + joinRows;
+                int extended = mask | (1 << t);
+                if (cost < costs[extended]) {
+                    costs[extended] = cost;
+                    rows[extended] = joinRows;
+                    lastTables[extended] = t;
+                }
+            }
+        }
+        Integer[] order = new Integer[n];
+        int mask = subsets - 1;
+        for (int k = n - 1; k >= 0; k--) {
+            order[k] = lastTables[mask];
+            mask &= ~(1 << order[k]);
+        }
+        return Arrays.asList(order);
+    }
+
+    /**
+     * Builds a join order greedily: the table keeping the fewest rows first, then repeatedly the table whose join
+     * with the tables already ordered is the cheapest.
+     */
+    private List<Integer> findOrderGreedily() {
+        int n = tableNames.size();
+        List<Integer> order = new ArrayList<>();
+        int first = 0;
+        for (int t = 1; t < n; t++) {
+            if (selectedRows[t] < selectedRows[first]) {
+                first = t;
+            }
+        }
+        order.add(first);
+        int mask = 1 << first;
+        double rows = selectedRows[first];
+        while (order.size() < n) {
+            int best = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int t = 0; t < n; t++) {
+                if ((mask & (1 << t)) == 0) {
+                    double cost = getJoinCost(mask, rows, t) + getJoinRows(mask, rows, t);
+                    if (cost < bestCost) {
+                        best = t;
+                        bestCost = cost;
+                    }
+                }
+            }
+            rows = getJoinRows(mask, rows, best);
+            mask |= 1 << best;
+            order.add(best);
+        }
+        return order;
+    }
+
+    /**
+     * Returns the estimated cost of joining the tables in an order.
+     */
+    private double getCost(List<Integer> order) {
+        int first = order.get(0);
+        double cost = scanCosts[first];
+        double rows = selectedRows[first];
+        int mask = 1 << first;
+        for (int k = 1; k < order.size(); k++) {
+            int t = order.get(k);
+            double joinRows = getJoinRows(mask, rows, t);
+            cost += getJoinCost(mask, rows, t) + joinRows;
+            rows = joinRows;
+            mask |= 1 << t;
+        }
+        return cost;
+    }
+
+    /**
+     * Estimates the number of rows of the join of a set of tables with one more table.
+     */
+    private double getJoinRows(int mask, double rows, int table) {
+        double joinRows = rows * selectedRows[table];
+        int extended = mask | (1 << table);
+        for (JoinPredicate predicate : predicates) {
+            if ((predicate.tables & (1 << table)) != 0 && (predicate.tables & ~extended) == 0) {
+                joinRows *= predicate.selectivity;
+            }
+        }
+        return Math.max(1, joinRows);
+    }
+
+    /**
+     * Estimates the cost of the cheapest algorithm joining a set of tables with one more table, not counting the
+     * rows produced.
+     */
+    private double getJoinCost(int mask, double rows, int table) {
+        double cost = Double.POSITIVE_INFINITY;
+        for (JoinPredicate predicate : predicates) {
+            if (predicate.leftTable < 0) {
+                continue;
+            }
+            String innerColumn;
+            if (predicate.leftTable == table && (mask & (1 << predicate.rightTable)) != 0) {
+                innerColumn = predicate.leftColumn;
+            } else if (predicate.rightTable == table && (mask & (1 << predicate.leftTable)) != 0) {
+                innerColumn = predicate.rightColumn;
+            } else {
+                continue;
+            }
+            // Hash join: the left rows are probed into (or hashed with) the table's selected rows.
+            cost = Math.min(cost, rows + scanCosts[table] + selectedRows[table]);
+            // Index nested-loop join, under the conditions in which the planner chooses it.
+            IndexStatistics index = indexStatistics.get(table).get(innerColumn);
+            if (indexJoins && index != null && index.complete
+                    && rows <= tableRows[table] * IndexNestedLoopJoinOperator.MAX_OUTER_FRACTION
+                    && rows * index.rowsPerKey <= (index.clustered
+                            ? tableRows[table] : tableRows[table] * IndexNestedLoopJoinOperator.MAX_OUTER_FRACTION)) {
+                double fetchCost = index.clustered ? 1 : RANDOM_ACCESS_COST;
+                cost = Math.min(cost, rows * RANDOM_ACCESS_COST + rows * index.rowsPerKey * fetchCost);
+            }
+        }
+        if (cost == Double.POSITIVE_INFINITY) {
+            // Without an equality, every pair of rows is compared.
+            cost = scanCosts[table] + rows * selectedRows[table] * PAIR_COST;
+        }
+        return cost;
+    }
+
+    /**
+     * Creates the join predicate of a condition on several tables.
+     */
+    private JoinPredicate createPredicate(Expression conjunct) {
+        int tables = getTableMask(conjunct);
+        if (conjunct instanceof EqualsTo) {
+            EqualsTo equalsTo = (EqualsTo) conjunct;
+            if (equalsTo.getLeftExpression() instanceof Column && equalsTo.getRightExpression() instanceof Column
+                    && Integer.bitCount(tables) == 2) {
+                Column left = (Column) equalsTo.getLeftExpression();
+                Column right = (Column) equalsTo.getRightExpression();
+                int leftTable = tableNames.indexOf(left.getTable().getName());
+                int rightTable = tableNames.indexOf(right.getTable().getName());
+                double distinct = Math.max(getDistinctCount(leftTable, left.getColumnName()),
+                        getDistinctCount(rightTable, right.getColumnName()));
+                return new JoinPredicate(tables, 1 / Math.max(1, distinct), leftTable, left.getColumnName(),
+                        rightTable, right.getColumnName());
+            }
+        }
+        return new JoinPredicate(tables, SelectivityEstimator.estimateJoin(conjunct, tableStatistics), -1, null, -1,
+                null);
+    }
+
+    /**
+     * Estimates the number of distinct values of a column among the rows kept by its table's selection.
+     */
+    private double getDistinctCount(int table, String column) {
+        TableStatistics statistics = tableStatistics.get(tableNames.get(table));
+        ColumnDistribution distribution = statistics == null ? null : statistics.getColumn(column);
+        IndexStatistics index = indexStatistics.get(table).get(column);
+        double distinct = distribution != null ? distribution.getDistinctCount()
+                : index != null ? index.distinctKeyCount : tableRows[table];
+        return Math.min(distinct, selectedRows[table]);
+    }
+
+    /**
+     * Returns the set of query tables a condition refers to, as a bit mask of their FROM-clause positions.
+     */
+    private int getTableMask(Expression conjunct) {
+        int mask = 0;
+        Set<String> referenced = BlazeDB.getReferencedTables(conjunct);
+        for (int t = 0; t < tableNames.size(); t++) {
+            if (referenced.contains(tableNames.get(t))) {
+                mask |= 1 << t;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Reads the header of every up-to-date index of a table.
+     */
+    private static Map<String, IndexStatistics> readIndexStatistics(String tableName) {
+        Catalog catalog = Catalog.getInstance();
+        Map<String, IndexStatistics> statistics = new HashMap<>();
+        for (IndexInfo info : catalog.getIndexes(tableName)) {
+            try (BPlusTreeIndex index = new BPlusTreeIndex(catalog.getIndexFilePath(tableName, info.getColumnName()))) {
+                statistics.put(info.getColumnName(), new IndexStatistics(index));
+            } catch (IOException e) {
+                System.err.println("Error reading the " + info + ": " + e.getMessage());
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the number of rows of a table: exact if the table has a columnar file or an index, as counted when
+     * it was last analyzed if it has statistics, and otherwise extrapolated from the number of lines at the
+     * beginning of its CSV file.
+     */
+    private static long countRows(String tableName, Map<String, IndexStatistics> indexes,
+                                  TableStatistics statistics) {
+        Catalog catalog = Catalog.getInstance();
+        if (catalog.getTableFormat(tableName) == TableFormat.COLUMNAR) {
+            try (ColumnarTableReader reader = new ColumnarTableReader(catalog.getColumnarFilePathForTable(tableName))) {
+                return reader.getRowCount();
+            } catch (IOException e) {
+                System.err.println("Error reading the columnar file of " + tableName + ": " + e.getMessage());
+            }
+        }
+        if (!indexes.isEmpty()) {
+            return indexes.values().iterator().next().tableRowCount;
+        }
+        if (statistics != null) {
+            return statistics.getRowCount();
+        }
+        if (!catalog.hasCsvFile(tableName)) {
+            return 1;
+        }
+        Path path = Paths.get(catalog.getFilePathForTable(tableName));
+        try (InputStream input = Files.newInputStream(path)) {
+            long size = Files.size(path);
+            byte[] sample = new byte[(int) Math.min(size, SAMPLE_SIZE)];
+            int length = 0;
+            int read;
+            while (length < sample.length && (read = input.read(sample, length, sample.length - length)) > 0) {
+                length += read;
+            }
+            long lines = 0;
+            for (int i = 0; i < length; i++) {
+                if (sample[i] == '\n') {
+                    lines++;
+                }
+            }
+            if (length == size) {
+                // The whole file was read; its last line may have no line terminator.
+                return length > 0 && sample[length - 1] != '\n' ? lines + 1 : lines;
+            }
+            return lines == 0 ? 1 : (long) ((double) size * lines / length);
+        } catch (IOException e) {
+            System.err.println("Error reading table " + tableName + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Estimates the number of rows of a table satisfying a selection from the table's up-to-date indexes: the
+     * smallest number of rows in the key range of an indexed column the selection bounds, or the table's number
+     * of rows if it bounds none.
+     *
+     * @param tableName The name of the table.
+     * @param selection The selection condition on the table's columns (may be {@code null}).
+     * @return The estimated number of rows, or -1 if the table has no up-to-date index.
+     */
+    static long estimateRowCount(String tableName, Expression selection) {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(tableName);
+        if (schema == null) {
+            return -1;
+        }
+        long rowCount = -1;
+        for (IndexInfo info : catalog.getIndexes(tableName)) {
+            KeyRange range = selection == null ? null
+                    : KeyRange.fromSelection(selection, schema, schema.getColumnIndex(info.getColumnName()));
+            try (BPlusTreeIndex index = new BPlusTreeIndex(catalog.getIndexFilePath(tableName, info.getColumnName()))) {
+                long estimate = range == null || (index.hasNonNumbers() && range.hasOrderingComparison())
+                        ? index.getTableRowCount() : index.estimateRowCount(range.getLow(), range.getHigh());
+                rowCount = rowCount < 0 ? estimate : Math.min(rowCount, estimate);
+            } catch (IOException e) {
+                System.err.println("Error reading the " + info + ": " + e.getMessage());
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * The statistics of an index used to estimate joins on its column.
+     */
+    private static final class IndexStatistics {
+        final long tableRowCount;
+        final long distinctKeyCount;
+        final double rowsPerKey;
+        final boolean clustered;
+        // Whether every row is indexed, which index nested-loop joins require.
+        final boolean complete;
+
+        IndexStatistics(BPlusTreeIndex index) {
+            tableRowCount = index.getTableRowCount();
+            distinctKeyCount = Math.max(1, index.getDistinctKeyCount());
+            rowsPerKey = (double) tableRowCount / distinctKeyCount;
+            clustered = index.isClustered();
+            complete = !index.hasNonNumbers();
+        }
+    }
+
+    /**
+     * A condition on several tables, with its estimated selectivity. For a column equality between two tables,
+     * the tables' FROM-clause positions and the columns are also kept.
+     */
+    private static final class JoinPredicate {
+        final int tables;
+        final double selectivity;
+        final int leftTable;
+        final String leftColumn;
+        final int rightTable;
+        final String rightColumn;
+
+        JoinPredicate(int tables, double selectivity, int leftTable, String leftColumn, int rightTable,
+                      String rightColumn) {
+            this.tables = tables;
+            this.selectivity = selectivity;
+            this.leftTable = leftTable;
+            this.leftColumn = leftColumn;
+            this.rightTable = rightTable;
+            this.rightColumn = rightColumn;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * The {@code TableFormat} enum lists the formats in which the {@link Catalog} may find a table stored.
+ *  - {@code CSV}: a text file {@code <table>.csv} with one comma-separated row per line.
+ *  - {@code COLUMNAR}: a binary file {@code <table>.col} written by the import command, which stores each column
+ *         of a chunk of rows contiguously (see {@link ed.inf.adbs.blazedb.storage.ColumnarTableWriter}).
+ */
+public enum TableFormat {
+    CSV,
+    COLUMNAR
+}
@@ -0,0 +1,87 @@
+package ed.inf.adbs.blazedb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code TableSchema} class describes the columns of one table as declared in the schema file:
+ * their names, in storage order, and their {@link ColumnType}s. It is created by the {@link Catalog}.
+ */
+public class TableSchema {
+    private final String tableName;
+    private final List<String> columnNames;
+    private final ColumnType[] columnTypes;
+    // Types in the form stored by tuples of this table, or null if every column is an INT.
+    private final ColumnType[] tupleTypes;
+
+    /**
+     * Constructs a {@code TableSchema}.
+     *
+     * @param tableName   The name of the table.
+     * @param columnNames The column names in storage order.
+     * @param columnTypes The type of each column, aligned with {@code columnNames}.
+     */
+    public TableSchema(String tableName, List<String> columnNames, List<ColumnType> columnTypes) {
+        this.tableName = tableName;
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        this.columnTypes = columnTypes.toArray(new ColumnType[0]);
+        boolean allInt = true;
+        for (ColumnType type : this.columnTypes) {
+            allInt &= type == ColumnType.INT;
+        }
+        this.tupleTypes = allInt ? null : this.columnTypes;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getColumnCount() {
+        return columnTypes.length;
+    }
+
+    public ColumnType getColumnType(int index) {
+        return columnTypes[index];
+    }
+
+    /**
+     * Returns the index of a column given by its unqualified name.
+     *
+     * @param columnName The column name.
+     * @return The index of the column, or -1 if the table has no such column.
+     */
+    public int getColumnIndex(String columnName) {
+        return columnNames.indexOf(columnName);
+    }
+
+    /**
+     * Returns the column types shared by every {@link Tuple} scanned from this table. Tables made only of
+     * {@code INT} columns return {@code null}, the default representation of integer-only tuples.
+     *
+     * @return The shared type array, which must not be modified, or {@code null}.
+     */
+    public ColumnType[] getTupleTypes() {
+        return tupleTypes;
+    }
+
+    /**
+     * Creates a schema mapping from the fully qualified column names of this table (e.g. "Student.A")
+     * to their indexes in a tuple.
+     *
+     * @return A new, modifiable schema mapping.
+     */
+    public Map<String, Integer> createSchemaMapping() {
+        Map<String, Integer> mapping = new HashMap<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            mapping.put(tableName + "." + columnNames.get(i), i);
+        }
+        return mapping;
+    }
+}
@@ -0,0 +1,56 @@
+package ed.inf.adbs.blazedb;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The statistics of one table gathered by the {@code analyze} command and stored by the {@link Catalog}: the
+ * table's number of rows and the {@link ColumnDistribution} of each of its columns.
+ *
+ * Statistics describe the table as it was when it was analyzed. They are not invalidated when the table's file
+ * changes, which only makes the estimates drawn from them less accurate until the table is analyzed again.
+ */
+public class TableStatistics {
+    private final String tableName;
+    private final long rowCount;
+    private final Map<String, ColumnDistribution> columns;
+
+    /**
+     * Constructs the statistics of a table.
+     *
+     * @param tableName The name of the table.
+     * @param rowCount  The number of rows of the table.
+     * @param columns   The distribution of each column, by column name, in schema order.
+     */
+    public TableStatistics(String tableName, long rowCount, Map<String, ColumnDistribution> columns) {
+        this.tableName = tableName;
+        this.rowCount = rowCount;
+        this.columns = Collections.unmodifiableMap(new LinkedHashMap<>(columns));
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the distribution of every analyzed column, by column name, in schema order.
+     */
+    public Map<String, ColumnDistribution> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the distribution of a column.
+     *
+     * @param columnName The unqualified name of the column.
+     * @return The distribution, or {@code null} if the column was not analyzed.
+     */
+    public ColumnDistribution getColumn(String columnName) {
+        return columns.get(columnName);
+    }
+}
@@ -1,70 +1,338 @@
 package ed.inf.adbs.blazedb;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
+import ed.inf.adbs.blazedb.util.StringDictionary;
+
 /**
  * The {@code Tuple} class represents a single record or row in a database table within the BlazeDB system.
  * It encapsulates the data fields of the record and provides methods to access and manipulate these fields.
- * This class is designed to handle both raw data representations and structured field lists,
- * offering flexibility in how data is stored and retrieved. It serves as a fundamental building block
- * for query processing, data manipulation, and storage operations within the BlazeDB framework.
+ * It serves as a fundamental building block for query processing, data manipulation, and storage operations
+ * within the BlazeDB framework.
+ *
+ * Representation:
+ *  - Every field occupies one slot of a primitive {@code long[]}. Integer values are stored directly, so
+ *    operators compare and hash them without re-parsing any text.
+ *  - Fields that hold text are dictionary-encoded: their slot stores the {@link StringDictionary} code, and
+ *    an optional {@code String[]} array (absent for purely numeric tuples) holds the canonical string.
+ *  - Values are parsed exactly once, when a row is read by the {@code ScanOperator} ({@link #parse(String, ColumnType[])}).
+ *  - The declared {@link ColumnType}s of the slots are kept in an array shared by all tuples of a table, which is
+ *    absent for tuples made only of integers. It tells how {@code DOUBLE} and {@code DATE} slots are compared
+ *    and formatted; text that does not match its declared type is kept as a string.
  */
 public class Tuple {
-    private String rawData;
-    private List<String> fields;
+    private final long[] values;
+    // Canonical string of each dictionary-encoded field, or null if the tuple only holds numbers.
+    private final String[] strings;
+    // Declared type of each slot (shared, never modified), or null if every numeric slot is an INT.
+    private final ColumnType[] types;
 
     /**
-     * Constructs a new {@code Tuple} instance with the specified list of fields.
-     * This constructor is typically used when the tuple data is already parsed and available
-     * as a list of individual fields.
+     * Constructs a new {@code Tuple} holding only numeric fields.
      *
-     * @param fields A {@code List<String>} containing the fields of the tuple.
-     * @throws IllegalArgumentException if {@code fields} is {@code null} or empty.
+     * @param values The values of the fields.
      */
-    public Tuple(List<String> fields) {
-        this.fields = fields;
+    public Tuple(long[] values) {
+        this(values, null);
     }
 
     /**
-     * Retrieves the list of fields contained in this tuple.
-     * The returned list contains each field as a {@code String}, representing the values
-     * of the tuple's columns.
+     * Constructs a new {@code Tuple} from its slot arrays.
      *
-     * @return A {@code List<String>} representing the tuple's fields.
+     * @param values  The values of the fields; string fields hold their dictionary code.
+     * @param strings The canonical string of each string field (null entries for numeric fields),
+     *                or {@code null} if every field is numeric.
      */
-    public List<String> getFields() {
-        return fields;
+    public Tuple(long[] values, String[] strings) {
+        this(values, strings, null);
     }
 
     /**
-     * Constructs a new {@code Tuple} instance with the specified raw data string.
-     * This constructor is useful when the tuple data is available as a single raw
-     * {@code String} and needs to be parsed or processed later.
+     * Constructs a new {@code Tuple} from its slot arrays and slot types.
      *
-     * @param rawData A {@code String} containing the raw data of the tuple.
-     * @throws IllegalArgumentException if {@code rawData} is {@code null} or empty.
+     * @param values  The values of the fields, encoded as described by {@link ColumnType}.
+     * @param strings The canonical string of each string field (null entries for other fields),
+     *                or {@code null} if there are no string fields.
+     * @param types   The type of each slot, or {@code null} if all numeric slots are {@code INT}s.
+     *                The array is shared and must not be modified.
      */
-    public Tuple(String rawData) {
-        this.rawData = rawData;
+    public Tuple(long[] values, String[] strings, ColumnType[] types) {
+        this.values = values;
+        this.strings = strings;
+        this.types = types;
     }
 
     /**
-     * Returns a string representation of the tuple by joining all fields with a comma and space.
-     * This method provides a human-readable format of the tuple, suitable for logging,
-     * debugging, or display purposes.
+     * Parses a comma-separated data row. Fields are trimmed; those that are integers are stored as numbers
+     * without creating intermediate strings, all others are dictionary-encoded.
      *
-     * @return A {@code String} representing the concatenated fields of the tuple.
+     * @param line The row as read from a data file.
+     * @return The parsed tuple.
      */
-    @Override
-    public String toString() {
-        return String.join(", ", fields);
+    public static Tuple parse(String line) {
+        return parse(line, null);
+    }
+
+    /**
+     * Parses a comma-separated data row whose columns have the given declared types. Each field is parsed
+     * with the parser of its type only; a field that does not match its type is kept as a string.
+     *
+     * @param line  The row as read from a data file.
+     * @param types The declared column types, or {@code null} if every column is an {@code INT}.
+     * @return The parsed tuple.
+     */
+    public static Tuple parse(String line, ColumnType[] types) {
+        int fieldCount = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                fieldCount++;
+            }
+        }
+        long[] values = new long[fieldCount];
+        String[] strings = null;
+        int start = 0;
+        for (int field = 0; field < fieldCount; field++) {
+            int end = line.indexOf(',', start);
+            if (end < 0) {
+                end = line.length();
+            }
+            int from = start;
+            int to = end;
+            while (from < to && line.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && line.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            ColumnType type = types != null && field < types.length ? types[field] : ColumnType.INT;
+            if (!parseField(line, from, to, type, values, field)) {
+                if (strings == null) {
+                    strings = new String[fieldCount];
+                }
+                setString(values, strings, field, line.substring(from, to));
+            }
+            start = end + 1;
+        }
+        return new Tuple(values, strings, types != null && types.length == fieldCount ? types : null);
+    }
+
+    /**
+     * Parses a comma-separated data row directly from the bytes of a (memory-mapped) buffer, as
+     * {@link #parse(String, ColumnType[])} parses a line of text. Integer fields are parsed from the bytes
+     * without creating any {@code String}; only text, {@code DOUBLE} and {@code DATE} fields are decoded.
+     *
+     * @param buffer The buffer holding the row, read with absolute indexes.
+     * @param from   The index of the first byte of the row.
+     * @param to     The index just past the last byte of the row, excluding the line terminator.
+     * @param types  The declared column types, or {@code null} if every column is an {@code INT}.
+     * @return The parsed tuple.
+     */
+    public static Tuple parse(ByteBuffer buffer, int from, int to, ColumnType[] types) {
+        int fieldCount = 1;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == ',') {
+                fieldCount++;
+            }
+        }
+        long[] values = new long[fieldCount];
+        String[] strings = null;
+        int start = from;
+        for (int field = 0; field < fieldCount; field++) {
+            int end = start;
+            while (end < to && buffer.get(end) != ',') {
+                end++;
+            }
+            int fieldFrom = start;
+            int fieldTo = end;
+            // Bytes are compared unsigned, so that bytes of multi-byte characters are never trimmed.
+            while (fieldFrom < fieldTo && (buffer.get(fieldFrom) & 0xFF) <= ' ') {
+                fieldFrom++;
+            }
+            while (fieldTo > fieldFrom && (buffer.get(fieldTo - 1) & 0xFF) <= ' ') {
+                fieldTo--;
+            }
+            ColumnType type = types != null && field < types.length ? types[field] : ColumnType.INT;
+            boolean parsed;
+            String text = null;
+            if (type == ColumnType.INT || type == ColumnType.BIGINT) {
+                parsed = parseLong(buffer, fieldFrom, fieldTo, values, field);
+            } else {
+                text = decode(buffer, fieldFrom, fieldTo);
+                parsed = parseField(text, 0, text.length(), type, values, field);
+            }
+            if (!parsed) {
+                if (strings == null) {
+                    strings = new String[fieldCount];
+                }
+                setString(values, strings, field, text != null ? text : decode(buffer, fieldFrom, fieldTo));
+            }
+            start = end + 1;
+        }
+        return new Tuple(values, strings, types != null && types.length == fieldCount ? types : null);
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses {@code text[from, to)} according to its declared type into {@code values[index]}.
+     *
+     * @return {@code false} if the field must be stored as a string.
+     */
+    private static boolean parseField(String text, int from, int to, ColumnType type, long[] values, int index) {
+        switch (type) {
+            case INT:
+            case BIGINT:
+                return parseLong(text, from, to, values, index);
+            case DOUBLE:
+                try {
+                    values[index] = Double.doubleToLongBits(Double.parseDouble(text.substring(from, to)));
+                    return true;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            case DATE:
+                try {
+                    values[index] = LocalDate.parse(text.substring(from, to)).toEpochDay();
+                    return true;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Builds a tuple from boxed values, as produced by expression evaluation: {@link Double}s are stored
+     * as {@code DOUBLE}s, other {@link Number}s as integers and any other value as a string.
+     *
+     * @param fieldValues The values of the fields.
+     * @return The new tuple.
+     */
+    public static Tuple fromValues(List<?> fieldValues) {
+        long[] values = new long[fieldValues.size()];
+        String[] strings = null;
+        ColumnType[] types = null;
+        for (int i = 0; i < values.length; i++) {
+            Object value = fieldValues.get(i);
+            if (value instanceof Double || value instanceof Float) {
+                if (types == null) {
+                    types = new ColumnType[values.length];
+                    Arrays.fill(types, ColumnType.INT);
+                }
+                types[i] = ColumnType.DOUBLE;
+                values[i] = Double.doubleToLongBits(((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                values[i] = ((Number) value).longValue();
+            } else {
+                if (strings == null) {
+                    strings = new String[values.length];
+                }
+                setString(values, strings, i, String.valueOf(value));
+            }
+        }
+        return new Tuple(values, strings, types);
     }
 
+    /**
+     * Concatenates two tuples, as done by joins: the fields of {@code left} followed by those of {@code right}.
+     *
+     * @param left  The left tuple.
+     * @param right The right tuple.
+     * @return The joined tuple.
+     */
+    public static Tuple concat(Tuple left, Tuple right) {
+        int leftSize = left.values.length;
+        long[] values = new long[leftSize + right.values.length];
+        System.arraycopy(left.values, 0, values, 0, leftSize);
+        System.arraycopy(right.values, 0, values, leftSize, right.values.length);
+        String[] strings = null;
+        if (left.strings != null || right.strings != null) {
+            strings = new String[values.length];
+            if (left.strings != null) {
+                System.arraycopy(left.strings, 0, strings, 0, leftSize);
+            }
+            if (right.strings != null) {
+                System.arraycopy(right.strings, 0, strings, leftSize, right.values.length);
+            }
+        }
+        ColumnType[] types = null;
+        if (left.types != null || right.types != null) {
+            types = new ColumnType[values.length];
+            copyTypes(left, types, 0);
+            copyTypes(right, types, leftSize);
+        }
+        return new Tuple(values, strings, types);
+    }
+
+    /**
+     * Returns a tuple made of the given fields of this tuple. An index of {@code -1} produces an empty string.
+     *
+     * @param indexes The indexes of the fields to keep, in output order.
+     * @return The projected tuple.
+     */
+    public Tuple project(int[] indexes) {
+        long[] projectedValues = new long[indexes.length];
+        String[] projectedStrings = null;
+        ColumnType[] projectedTypes = null;
+        if (types != null) {
+            projectedTypes = new ColumnType[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                int index = indexes[i];
+                projectedTypes[i] = index < 0 || index >= values.length ? ColumnType.VARCHAR : types[index];
+            }
+        }
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            if (index < 0 || index >= values.length) {
+                if (projectedStrings == null) {
+                    projectedStrings = new String[indexes.length];
+                }
+                setString(projectedValues, projectedStrings, i, "");
+                continue;
+            }
+            projectedValues[i] = values[index];
+            if (strings != null && strings[index] != null) {
+                if (projectedStrings == null) {
+                    projectedStrings = new String[indexes.length];
+                }
+                projectedStrings[i] = strings[index];
+            }
+        }
+        return new Tuple(projectedValues, projectedStrings, projectedTypes);
+    }
+
+    /**
+     * Returns the number of fields of this tuple.
+     *
+     * @return The number of fields.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the raw slot value of a field: the number itself, or the dictionary code of a string.
+     *
+     * @param index The zero-based index of the field.
+     * @return The slot value.
+     */
+    public long getLong(int index) {
+        return values[index];
+    }
 
     /**
      * Retrieves the integer value of the field at the specified index within the tuple.
-     * This method parses the field at the given index from a {@code String} to an {@code int}.
-     * It is useful for accessing numerical data stored in the tuple.
      *
      * @param index The zero-based index of the field to retrieve as an integer.
      * @return The integer value of the field at the specified index.
@@ -72,9 +340,235 @@ public class Tuple {
      * @throws IndexOutOfBoundsException if the provided index is out of the tuple's field bounds.
      */
     public int getInt(int index) {
-        if (index < 0 || index >= fields.size()) {
-            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for tuple: " + rawData);
+        return (int) values[index];
+    }
+
+    /**
+     * Returns the type of a field as it is stored: its declared type, or {@code VARCHAR} for any field held
+     * as a string.
+     *
+     * @param index The zero-based index of the field.
+     * @return The type of the field.
+     */
+    public ColumnType getType(int index) {
+        if (isString(index)) {
+            return ColumnType.VARCHAR;
+        }
+        return types == null ? ColumnType.INT : types[index];
+    }
+
+    /**
+     * Returns the value of a {@code DOUBLE} field, or the value of an integer field converted to a double.
+     *
+     * @param index The zero-based index of the field.
+     * @return The field as a double.
+     */
+    public double getDouble(int index) {
+        if (getType(index) == ColumnType.DOUBLE) {
+            return Double.longBitsToDouble(values[index]);
+        }
+        return values[index];
+    }
+
+    /**
+     * Tells whether a field holds a (dictionary-encoded) string rather than a number.
+     *
+     * @param index The zero-based index of the field.
+     * @return {@code true} if the field is a string.
+     */
+    public boolean isString(int index) {
+        return strings != null && strings[index] != null;
+    }
+
+    /**
+     * Returns the text of a field, formatting numbers as decimal integers.
+     *
+     * @param index The zero-based index of the field.
+     * @return The field as a string.
+     */
+    public String getString(int index) {
+        switch (getType(index)) {
+            case VARCHAR:
+                return strings[index];
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(values[index]));
+            case DATE:
+                return LocalDate.ofEpochDay(values[index]).toString();
+            default:
+                return Long.toString(values[index]);
+        }
+    }
+
+    /**
+     * Returns a field as an object: a {@code Double} for {@code DOUBLE}s, a {@code String} for strings and
+     * a {@code Long} otherwise ({@code DATE}s as their day number).
+     *
+     * @param index The zero-based index of the field.
+     * @return The boxed value of the field.
+     */
+    public Object getValue(int index) {
+        switch (getType(index)) {
+            case VARCHAR:
+                return strings[index];
+            case DOUBLE:
+                return Double.longBitsToDouble(values[index]);
+            default:
+                return values[index];
+        }
+    }
+
+    /**
+     * Compares a field of this tuple with a field of another tuple. Integer types compare as longs, doubles
+     * numerically and strings lexicographically; a number and a string are compared by their text.
+     *
+     * @param index      The index of the field in this tuple.
+     * @param other      The other tuple.
+     * @param otherIndex The index of the field in the other tuple.
+     * @return A negative number, zero or a positive number as this field is smaller, equal or greater.
+     */
+    public int compareField(int index, Tuple other, int otherIndex) {
+        ColumnType type = getType(index);
+        ColumnType otherType = other.getType(otherIndex);
+        if (type.isIntegral() && otherType.isIntegral()) {
+            return Long.compare(values[index], other.values[otherIndex]);
+        }
+        if (type == ColumnType.VARCHAR || otherType == ColumnType.VARCHAR) {
+            if (type == otherType && values[index] == other.values[otherIndex]) {
+                return 0;
+            }
+            return getString(index).compareTo(other.getString(otherIndex));
+        }
+        return Double.compare(getDouble(index), other.getDouble(otherIndex));
+    }
+
+    /**
+     * Returns a rough estimate of the heap space occupied by this tuple, in bytes.
+     * Operators working under a memory budget use it to decide when to spill to disk.
+     *
+     * @return The estimated size of the tuple in bytes.
+     */
+    public long getEstimatedSize() {
+        // Tuple header, long[] header and slots; string slots share their dictionary strings.
+        long size = 32 + 8L * values.length;
+        if (strings != null) {
+            size += 16 + 8L * strings.length;
+        }
+        return size;
+    }
+
+    /**
+     * Two tuples are equal if they have the same fields with the same kinds (number or string) and values.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Tuple)) {
+            return false;
+        }
+        Tuple other = (Tuple) o;
+        if (!Arrays.equals(values, other.values)) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (getType(i) != other.getType(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    /**
+     * Returns a string representation of the tuple by joining all fields with a comma and space.
+     * This method provides a human-readable format of the tuple, suitable for logging,
+     * debugging, or display purposes.
+     *
+     * @return A {@code String} representing the concatenated fields of the tuple.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (types == null && !isString(i)) {
+                builder.append(values[i]);
+            } else {
+                builder.append(getString(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void copyTypes(Tuple tuple, ColumnType[] target, int offset) {
+        if (tuple.types != null) {
+            System.arraycopy(tuple.types, 0, target, offset, tuple.values.length);
+        } else {
+            Arrays.fill(target, offset, offset + tuple.values.length, ColumnType.INT);
+        }
+    }
+
+    private static void setString(long[] values, String[] strings, int index, String value) {
+        int code = StringDictionary.encode(value);
+        values[index] = code;
+        strings[index] = StringDictionary.decode(code);
+    }
+
+    /**
+     * Parses {@code text[from, to)} as a decimal integer into {@code values[index]}.
+     *
+     * @return {@code false} if the text is not an integer that fits in a {@code long}.
+     */
+    private static boolean parseLong(String text, int from, int to, long[] values, int index) {
+        return parseLong(null, text, from, to, values, index);
+    }
+
+    private static boolean parseLong(ByteBuffer buffer, int from, int to, long[] values, int index) {
+        return parseLong(buffer, null, from, to, values, index);
+    }
+
+    /**
+     * Parses a decimal integer from either a buffer or a string, whichever is not {@code null}.
+     */
+    private static boolean parseLong(ByteBuffer buffer, String text, int from, int to, long[] values, int index) {
+        if (from >= to) {
+            return false;
+        }
+        boolean negative = false;
+        int first = buffer != null ? buffer.get(from) : text.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            from++;
+            if (from == to) {
+                return false;
+            }
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = (buffer != null ? buffer.get(i) : text.charAt(i)) - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            // Accumulate negatively so that Long.MIN_VALUE can be represented.
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                return false;
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                return false;
+            }
+            value = -value;
         }
-        return Integer.parseInt(fields.get(index));
+        values[index] = value;
+        return true;
     }
 }
@@ -0,0 +1,108 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
+
+/**
+ * The {@code TupleBatch} class holds a batch of tuples passed between operators by
+ * {@link ed.inf.adbs.blazedb.operator.Operator#getNextBatch()}.
+ *
+ * A batch stores up to {@link #DEFAULT_CAPACITY} rows together with a selection vector. Filters do not copy
+ * rows; they record the positions of the rows that qualify, and {@link #size()} and {@link #get(int)} only
+ * expose those rows. An operator may reuse the same batch for every call, so a batch is valid only until
+ * the next call to {@code getNextBatch()} on the operator that returned it; the tuples themselves may be kept.
+ */
+public class TupleBatch {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Tuple[] rows;
+    private int rowCount;
+    // Positions of the selected rows in increasing order, used once a filter has been applied.
+    private final int[] selection;
+    private int selectedCount;
+    private boolean filtered;
+
+    /**
+     * Constructs an empty batch of {@link #DEFAULT_CAPACITY} rows.
+     */
+    public TupleBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty batch.
+     *
+     * @param capacity The maximum number of rows of the batch.
+     */
+    public TupleBatch(int capacity) {
+        this.rows = new Tuple[capacity];
+        this.selection = new int[capacity];
+    }
+
+    /**
+     * Appends a row to a batch to which no filter has been applied.
+     *
+     * @param tuple The row to append.
+     * @throws IllegalStateException if the batch is full or filtered.
+     */
+    public void add(Tuple tuple) {
+        if (filtered || rowCount == rows.length) {
+            throw new IllegalStateException("Rows can only be added to an unfiltered batch with free space.");
+        }
+        rows[rowCount++] = tuple;
+    }
+
+    /**
+     * Keeps only the selected rows that satisfy a predicate, by updating the selection vector.
+     *
+     * @param predicate The predicate the rows must satisfy.
+     */
+    public void filter(TuplePredicate predicate) {
+        int count = size();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = filtered ? selection[i] : i;
+            // kept <= i, so the selection vector can be rewritten in place.
+            if (predicate.test(rows[row])) {
+                selection[kept++] = row;
+            }
+        }
+        selectedCount = kept;
+        filtered = true;
+    }
+
+    /**
+     * Returns a selected row.
+     *
+     * @param index The position of the row among the selected rows.
+     * @return The row.
+     */
+    public Tuple get(int index) {
+        return rows[filtered ? selection[index] : index];
+    }
+
+    /**
+     * Returns the number of selected rows.
+     *
+     * @return The number of rows visible through {@link #get(int)}.
+     */
+    public int size() {
+        return filtered ? selectedCount : rowCount;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isFull() {
+        return rowCount == rows.length;
+    }
+
+    /**
+     * Removes every row and the selection vector, so that the batch can be refilled.
+     */
+    public void clear() {
+        rowCount = 0;
+        selectedCount = 0;
+        filtered = false;
+    }
+}
@@ -0,0 +1,474 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.util.StringDictionary;
+import net.sf.jsqlparser.expression.DateTimeLiteralExpression;
+import net.sf.jsqlparser.expression.DateValue;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.arithmetic.Multiplication;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Compiles JSQLParser expressions into trees of {@link TuplePredicate} and {@link ValueNode} objects.
+ *
+ * <p>The {@link ExpressionEvaluator} walks the parsed expression for every tuple, allocating a visitor per
+ * sub-expression and resolving column names through the schema mapping each time. The compiler does that work
+ * once per query: column references are resolved to tuple indexes, literals are converted to their slot
+ * representation, and each node is specialised for its operator. Evaluating a compiled tree on a tuple then
+ * does no map lookups and, for numeric and string-equality conditions, no boxing and no allocation.
+ *
+ * The compiler supports the same expressions as the {@link ExpressionEvaluator}: columns, integer, double,
+ * string and date literals, {@code +}, {@code *}, the six comparison operators and {@code AND}. Any other
+ * sub-expression (or a column missing from the schema mapping) is compiled into a node that delegates to the
+ * {@link ExpressionEvaluator}, so results and errors are the same as with the interpreter.
+ */
+public final class ExpressionCompiler {
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compiles a boolean condition.
+     *
+     * @param expression    The condition to compile.
+     * @param schemaMapping The mapping from fully qualified column names to tuple indexes.
+     * @return The compiled predicate.
+     */
+    public static TuplePredicate compilePredicate(Expression expression, Map<String, Integer> schemaMapping) {
+        return compilePredicate(expression, schemaMapping, (ColumnType[]) null);
+    }
+
+    /**
+     * Compiles a boolean condition for an operator that has read its first input tuple. String literals
+     * compared with a {@code DATE} field of that tuple are converted to dates once, here. Unless code generation
+     * is disabled in the {@link ExecutionConfig}, the compiled predicate is then translated into bytecode
+     * specialised to the field types of that tuple by the {@link PredicateCodeGenerator}.
+     *
+     * @param expression    The condition to compile.
+     * @param schemaMapping The mapping from fully qualified column names to tuple indexes.
+     * @param sample        The first tuple the condition is evaluated on.
+     * @return The compiled predicate.
+     * @throws IllegalArgumentException if a string literal compared with a {@code DATE} is not an ISO date.
+     */
+    public static TuplePredicate compilePredicate(Expression expression, Map<String, Integer> schemaMapping,
+                                                  Tuple sample) {
+        ColumnType[] fieldTypes = new ColumnType[sample.size()];
+        for (int i = 0; i < fieldTypes.length; i++) {
+            fieldTypes[i] = sample.getType(i);
+        }
+        TuplePredicate compiled = compilePredicate(expression, schemaMapping, fieldTypes);
+        if (!ExecutionConfig.getInstance().isCodeGenerationEnabled()) {
+            return compiled;
+        }
+        return PredicateCodeGenerator.generate(compiled, sample);
+    }
+
+    private static TuplePredicate compilePredicate(Expression expression, Map<String, Integer> schemaMapping,
+                                                   ColumnType[] fieldTypes) {
+        if (expression instanceof Parenthesis) {
+            return compilePredicate(((Parenthesis) expression).getExpression(), schemaMapping, fieldTypes);
+        }
+        if (expression instanceof AndExpression) {
+            AndExpression and = (AndExpression) expression;
+            return new AndPredicate(compilePredicate(and.getLeftExpression(), schemaMapping, fieldTypes),
+                    compilePredicate(and.getRightExpression(), schemaMapping, fieldTypes));
+        }
+        Comparison comparison = Comparison.of(expression);
+        if (comparison != null) {
+            ComparisonOperator binary = (ComparisonOperator) expression;
+            ValueNode left = compileValue(binary.getLeftExpression(), schemaMapping);
+            ValueNode right = compileValue(binary.getRightExpression(), schemaMapping);
+            if (fieldTypes != null) {
+                ColumnType leftType = staticType(left, fieldTypes);
+                left = compileOperand(left, staticType(right, fieldTypes));
+                right = compileOperand(right, leftType);
+            }
+            return new ComparisonPredicate(comparison, left, right);
+        }
+        return new EvaluatorPredicate(expression, schemaMapping);
+    }
+
+    /**
+     * Returns the type of a column or literal given the types of the tuple's fields, or {@code null} for any
+     * other value.
+     */
+    private static ColumnType staticType(ValueNode node, ColumnType[] fieldTypes) {
+        if (node instanceof ColumnNode && ((ColumnNode) node).index < fieldTypes.length) {
+            return fieldTypes[((ColumnNode) node).index];
+        }
+        return node instanceof ConstantNode ? ((ConstantNode) node).type : null;
+    }
+
+    /**
+     * Returns the operand to compare with a value of the given type: a string literal compared with a
+     * {@code DATE} stands for the ISO {@code yyyy-MM-dd} date it spells, any other operand is unchanged.
+     *
+     * @param operand   The compiled operand.
+     * @param otherType The type of the other operand, or {@code null} if it is not known.
+     * @return The operand, or the date literal it stands for.
+     * @throws IllegalArgumentException if the string literal is not an ISO date.
+     */
+    static ValueNode compileOperand(ValueNode operand, ColumnType otherType) {
+        if (otherType != ColumnType.DATE || !(operand instanceof ConstantNode)
+                || ((ConstantNode) operand).type != ColumnType.VARCHAR) {
+            return operand;
+        }
+        return new ConstantNode(ColumnType.DATE,
+                ExpressionEvaluator.parseDate((String) ((ConstantNode) operand).objectValue));
+    }
+
+    /**
+     * Compiles a value expression.
+     *
+     * @param expression    The expression to compile.
+     * @param schemaMapping The mapping from fully qualified column names to tuple indexes.
+     * @return The compiled value node.
+     */
+    public static ValueNode compileValue(Expression expression, Map<String, Integer> schemaMapping) {
+        if (expression instanceof Parenthesis) {
+            return compileValue(((Parenthesis) expression).getExpression(), schemaMapping);
+        }
+        if (expression instanceof Column) {
+            Integer index = schemaMapping.get(((Column) expression).getFullyQualifiedName());
+            if (index != null) {
+                return new ColumnNode(index);
+            }
+        } else if (expression instanceof LongValue) {
+            return new ConstantNode(ColumnType.INT, ((LongValue) expression).getValue());
+        } else if (expression instanceof DoubleValue) {
+            return new ConstantNode(((DoubleValue) expression).getValue());
+        } else if (expression instanceof StringValue) {
+            return new ConstantNode(((StringValue) expression).getValue());
+        } else if (expression instanceof DateValue) {
+            return new ConstantNode(ColumnType.DATE,
+                    ((DateValue) expression).getValue().toLocalDate().toEpochDay());
+        } else if (expression instanceof DateTimeLiteralExpression
+                && ((DateTimeLiteralExpression) expression).getType() == DateTimeLiteralExpression.DateTime.DATE) {
+            String text = ((DateTimeLiteralExpression) expression).getValue().replace("'", "").trim();
+            return new ConstantNode(ColumnType.DATE, LocalDate.parse(text).toEpochDay());
+        } else if (expression instanceof Addition) {
+            Addition addition = (Addition) expression;
+            return new ArithmeticNode('+', compileValue(addition.getLeftExpression(), schemaMapping),
+                    compileValue(addition.getRightExpression(), schemaMapping));
+        } else if (expression instanceof Multiplication) {
+            Multiplication multiplication = (Multiplication) expression;
+            return new ArithmeticNode('*', compileValue(multiplication.getLeftExpression(), schemaMapping),
+                    compileValue(multiplication.getRightExpression(), schemaMapping));
+        }
+        return new EvaluatorValueNode(expression, schemaMapping);
+    }
+
+    /**
+     * The comparison operators supported by compiled predicates.
+     */
+    enum Comparison {
+        EQUALS("="), NOT_EQUALS("<>"), LESS("<"), LESS_EQUALS("<="), GREATER(">"), GREATER_EQUALS(">=");
+
+        final String symbol;
+
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Comparison of(Expression expression) {
+            if (expression instanceof EqualsTo) {
+                return EQUALS;
+            } else if (expression instanceof NotEqualsTo) {
+                return NOT_EQUALS;
+            } else if (expression instanceof MinorThan) {
+                return LESS;
+            } else if (expression instanceof MinorThanEquals) {
+                return LESS_EQUALS;
+            } else if (expression instanceof GreaterThan) {
+                return GREATER;
+            } else if (expression instanceof GreaterThanEquals) {
+                return GREATER_EQUALS;
+            }
+            return null;
+        }
+
+        boolean holds(int cmp) {
+            switch (this) {
+                case EQUALS:
+                    return cmp == 0;
+                case NOT_EQUALS:
+                    return cmp != 0;
+                case LESS:
+                    return cmp < 0;
+                case LESS_EQUALS:
+                    return cmp <= 0;
+                case GREATER:
+                    return cmp > 0;
+                default:
+                    return cmp >= 0;
+            }
+        }
+    }
+
+    /**
+     * A field of the tuple, read from its slot.
+     */
+    static final class ColumnNode extends ValueNode {
+        final int index;
+
+        ColumnNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public ColumnType getType(Tuple tuple) {
+            return tuple.getType(index);
+        }
+
+        @Override
+        public long evalLong(Tuple tuple) {
+            return tuple.getLong(index);
+        }
+
+        @Override
+        public double evalDouble(Tuple tuple) {
+            return tuple.getDouble(index);
+        }
+
+        @Override
+        public Object evalObject(Tuple tuple) {
+            return tuple.getValue(index);
+        }
+    }
+
+    /**
+     * A literal, stored in the same representation as a tuple slot.
+     */
+    static final class ConstantNode extends ValueNode {
+        final ColumnType type;
+        final long longValue;
+        final double doubleValue;
+        final Object objectValue;
+
+        ConstantNode(ColumnType type, long value) {
+            this.type = type;
+            this.longValue = value;
+            this.doubleValue = value;
+            this.objectValue = value;
+        }
+
+        ConstantNode(double value) {
+            this.type = ColumnType.DOUBLE;
+            this.longValue = (long) value;
+            this.doubleValue = value;
+            this.objectValue = value;
+        }
+
+        ConstantNode(String value) {
+            this.type = ColumnType.VARCHAR;
+            this.longValue = StringDictionary.encode(value);
+            this.doubleValue = Double.NaN;
+            this.objectValue = value;
+        }
+
+        @Override
+        public ColumnType getType(Tuple tuple) {
+            return type;
+        }
+
+        @Override
+        public long evalLong(Tuple tuple) {
+            return longValue;
+        }
+
+        @Override
+        public double evalDouble(Tuple tuple) {
+            return doubleValue;
+        }
+
+        @Override
+        public Object evalObject(Tuple tuple) {
+            return objectValue;
+        }
+    }
+
+    /**
+     * An addition or multiplication: computed on longs if both operands are integers, on doubles otherwise.
+     */
+    static final class ArithmeticNode extends ValueNode {
+        final char operator;
+        final ValueNode left;
+        final ValueNode right;
+
+        ArithmeticNode(char operator, ValueNode left, ValueNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public ColumnType getType(Tuple tuple) {
+            ColumnType leftType = left.getType(tuple);
+            ColumnType rightType = right.getType(tuple);
+            if (leftType == ColumnType.VARCHAR || rightType == ColumnType.VARCHAR) {
+                throw new IllegalArgumentException("Operands of '" + operator + "' must be numeric.");
+            }
+            return leftType == ColumnType.DOUBLE || rightType == ColumnType.DOUBLE ? ColumnType.DOUBLE : ColumnType.BIGINT;
+        }
+
+        @Override
+        public long evalLong(Tuple tuple) {
+            long leftValue = left.evalLong(tuple);
+            long rightValue = right.evalLong(tuple);
+            return operator == '+' ? leftValue + rightValue : leftValue * rightValue;
+        }
+
+        @Override
+        public double evalDouble(Tuple tuple) {
+            if (getType(tuple) != ColumnType.DOUBLE) {
+                return evalLong(tuple);
+            }
+            double leftValue = left.evalDouble(tuple);
+            double rightValue = right.evalDouble(tuple);
+            return operator == '+' ? leftValue + rightValue : leftValue * rightValue;
+        }
+
+        @Override
+        public Object evalObject(Tuple tuple) {
+            if (getType(tuple) == ColumnType.DOUBLE) {
+                return evalDouble(tuple);
+            }
+            return evalLong(tuple);
+        }
+    }
+
+    /**
+     * A sub-expression the compiler does not specialise, evaluated by the {@link ExpressionEvaluator}.
+     */
+    static final class EvaluatorValueNode extends ValueNode {
+        final Expression expression;
+        final Map<String, Integer> schemaMapping;
+
+        EvaluatorValueNode(Expression expression, Map<String, Integer> schemaMapping) {
+            this.expression = expression;
+            this.schemaMapping = schemaMapping;
+        }
+
+        @Override
+        public ColumnType getType(Tuple tuple) {
+            Object value = evalObject(tuple);
+            if (value instanceof Double) {
+                return ColumnType.DOUBLE;
+            }
+            return value instanceof Number ? ColumnType.BIGINT : ColumnType.VARCHAR;
+        }
+
+        @Override
+        public long evalLong(Tuple tuple) {
+            Object value = evalObject(tuple);
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            return StringDictionary.encode(String.valueOf(value));
+        }
+
+        @Override
+        public double evalDouble(Tuple tuple) {
+            return ((Number) evalObject(tuple)).doubleValue();
+        }
+
+        @Override
+        public Object evalObject(Tuple tuple) {
+            ExpressionEvaluator evaluator = new ExpressionEvaluator(tuple, schemaMapping);
+            expression.accept(evaluator);
+            Object value = evaluator.getCurrentValue();
+            if (value == null) {
+                throw new IllegalStateException("Expression could not be evaluated: " + expression);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A comparison between two values. Integers compare as longs, other numbers as doubles, and strings
+     * can only be tested for (in)equality, by comparing their dictionary codes.
+     */
+    static final class ComparisonPredicate implements TuplePredicate {
+        final Comparison comparison;
+        final ValueNode left;
+        final ValueNode right;
+
+        ComparisonPredicate(Comparison comparison, ValueNode left, ValueNode right) {
+            this.comparison = comparison;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Tuple tuple) {
+            ColumnType leftType = left.getType(tuple);
+            ColumnType rightType = right.getType(tuple);
+            if (leftType.isIntegral() && rightType.isIntegral()) {
+                return comparison.holds(Long.compare(left.evalLong(tuple), right.evalLong(tuple)));
+            }
+            if (leftType != ColumnType.VARCHAR && rightType != ColumnType.VARCHAR) {
+                return comparison.holds(Double.compare(left.evalDouble(tuple), right.evalDouble(tuple)));
+            }
+            if (comparison != Comparison.EQUALS && comparison != Comparison.NOT_EQUALS) {
+                throw new IllegalArgumentException("Operands of '" + comparison.symbol + "' must be numeric.");
+            }
+            // A string never equals a number; two strings are equal if they have the same dictionary code.
+            boolean equal = leftType == rightType && left.evalLong(tuple) == right.evalLong(tuple);
+            return (comparison == Comparison.EQUALS) == equal;
+        }
+    }
+
+    /**
+     * A conjunction, evaluated left to right with short-circuiting.
+     */
+    static final class AndPredicate implements TuplePredicate {
+        final TuplePredicate left;
+        final TuplePredicate right;
+
+        AndPredicate(TuplePredicate left, TuplePredicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Tuple tuple) {
+            return left.test(tuple) && right.test(tuple);
+        }
+    }
+
+    /**
+     * A condition the compiler does not specialise, evaluated by the {@link ExpressionEvaluator}.
+     */
+    static final class EvaluatorPredicate implements TuplePredicate {
+        final Expression expression;
+        final Map<String, Integer> schemaMapping;
+
+        EvaluatorPredicate(Expression expression, Map<String, Integer> schemaMapping) {
+            this.expression = expression;
+            this.schemaMapping = schemaMapping;
+        }
+
+        @Override
+        public boolean test(Tuple tuple) {
+            return new ExpressionEvaluator(tuple, schemaMapping).evaluate(expression);
+        }
+    }
+}
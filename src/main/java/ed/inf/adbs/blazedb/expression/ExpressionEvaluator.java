@@ -1,5 +1,6 @@
 package ed.inf.adbs.blazedb.expression;
 
+import ed.inf.adbs.blazedb.ColumnType;
 import ed.inf.adbs.blazedb.Tuple;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.arithmetic.*;
@@ -14,6 +15,8 @@ import net.sf.jsqlparser.statement.select.AllTableColumns;
 import net.sf.jsqlparser.statement.select.ParenthesedSelect;
 import net.sf.jsqlparser.statement.select.Select;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 
@@ -102,6 +105,39 @@ public class ExpressionEvaluator implements ExpressionVisitor {
         return subEvaluator.currentValue;
     }
 
+    /**
+     * Evaluates an operand of a comparison. A string literal compared with a {@code DATE} column is read as the
+     * ISO date it spells, as the {@link ExpressionCompiler} does, so both sides are day numbers.
+     *
+     * @param operand The operand to evaluate.
+     * @param other   The other operand of the comparison.
+     * @return The value of the operand.
+     */
+    private Object evaluateOperand(Expression operand, Expression other) {
+        if (operand instanceof StringValue && other instanceof Column) {
+            Integer columnIndex = schemaMapping.get(((Column) other).getFullyQualifiedName());
+            if (columnIndex != null && tuple.getType(columnIndex) == ColumnType.DATE) {
+                return parseDate(((StringValue) operand).getValue());
+            }
+        }
+        return evaluateSubExpression(operand);
+    }
+
+    /**
+     * Converts an ISO {@code yyyy-MM-dd} date to its day number, as {@code DATE} fields are stored.
+     *
+     * @param text The date.
+     * @return The number of days since 1970-01-01.
+     * @throws IllegalArgumentException if the text is not an ISO date.
+     */
+    static long parseDate(String text) {
+        try {
+            return LocalDate.parse(text.trim()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("'" + text + "' is not a date of the form yyyy-MM-dd.");
+        }
+    }
+
     @Override
     public void visit(LongValue longValue) {
         currentValue = longValue.getValue();
@@ -123,16 +159,9 @@ public class ExpressionEvaluator implements ExpressionVisitor {
         if (columnIndex == null) {
             throw new RuntimeException("Column " + fullColumnName + " not found in schema mapping.");
         }
-        String fieldValue = tuple.getFields().get(columnIndex);
-
-        // Attempt to parse the field value as a number.
-        try {
-            // You can adjust the parsing as needed (Long/Double) based on your schema.
-            currentValue = Long.parseLong(fieldValue);
-        } catch (NumberFormatException e) {
-            // If not numeric, retain the string value.
-            currentValue = fieldValue;
-        }
+        // Fields were parsed by the scan according to their declared type: integers and dates are read
+        // as Longs, doubles as Doubles and strings keep their text.
+        currentValue = tuple.getValue(columnIndex);
     }
 
 
@@ -278,7 +307,11 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(DateTimeLiteralExpression dateTimeLiteralExpression) {
-
+        // DATE '2024-01-31' literals are converted to day numbers, like DATE columns.
+        if (dateTimeLiteralExpression.getType() == DateTimeLiteralExpression.DateTime.DATE) {
+            String text = dateTimeLiteralExpression.getValue().replace("'", "").trim();
+            currentValue = LocalDate.parse(text).toEpochDay();
+        }
     }
 
     @Override
@@ -423,10 +456,10 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(EqualsTo equalsTo) {
-        Object leftResult = evaluateSubExpression(equalsTo.getLeftExpression());
-        Object rightResult = evaluateSubExpression(equalsTo.getRightExpression());
+        Object leftResult = evaluateOperand(equalsTo.getLeftExpression(), equalsTo.getRightExpression());
+        Object rightResult = evaluateOperand(equalsTo.getRightExpression(), equalsTo.getLeftExpression());
         if (leftResult instanceof Number && rightResult instanceof Number) {
-            currentValue = (((Number) leftResult).longValue() == ((Number) rightResult).longValue());
+            currentValue = compareNumbers((Number) leftResult, (Number) rightResult) == 0;
         } else {
             currentValue = leftResult.equals(rightResult);
         }
@@ -434,10 +467,10 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(GreaterThan greaterThan) {
-        Object leftResult = evaluateSubExpression(greaterThan.getLeftExpression());
-        Object rightResult = evaluateSubExpression(greaterThan.getRightExpression());
+        Object leftResult = evaluateOperand(greaterThan.getLeftExpression(), greaterThan.getRightExpression());
+        Object rightResult = evaluateOperand(greaterThan.getRightExpression(), greaterThan.getLeftExpression());
         if (leftResult instanceof Number && rightResult instanceof Number) {
-            currentValue = (((Number) leftResult).longValue() > ((Number) rightResult).longValue());
+            currentValue = compareNumbers((Number) leftResult, (Number) rightResult) > 0;
         } else {
             throw new IllegalArgumentException("Operands of '>' must be numeric.");
         }
@@ -445,16 +478,11 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(GreaterThanEquals greaterThanEquals) {
-        // Evaluate left expression.
-        greaterThanEquals.getLeftExpression().accept(this);
-        Object leftValue = currentValue;
-        // Evaluate right expression.
-        greaterThanEquals.getRightExpression().accept(this);
-        Object rightValue = currentValue;
+        Object leftValue = evaluateOperand(greaterThanEquals.getLeftExpression(), greaterThanEquals.getRightExpression());
+        Object rightValue = evaluateOperand(greaterThanEquals.getRightExpression(), greaterThanEquals.getLeftExpression());
 
         if (leftValue instanceof Number && rightValue instanceof Number) {
-            // Compare using double values.
-            currentValue = ((Number) leftValue).doubleValue() >= ((Number) rightValue).doubleValue();
+            currentValue = compareNumbers((Number) leftValue, (Number) rightValue) >= 0;
         } else {
             throw new RuntimeException("Expression did not evaluate to a boolean: " + greaterThanEquals);
         }
@@ -488,11 +516,11 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(MinorThan minorThan) {
-        Object leftResult = evaluateSubExpression(minorThan.getLeftExpression());
-        Object rightResult = evaluateSubExpression(minorThan.getRightExpression());
+        Object leftResult = evaluateOperand(minorThan.getLeftExpression(), minorThan.getRightExpression());
+        Object rightResult = evaluateOperand(minorThan.getRightExpression(), minorThan.getLeftExpression());
 
         if (leftResult instanceof Number && rightResult instanceof Number) {
-            currentValue = (((Number) leftResult).longValue() < ((Number) rightResult).longValue());
+            currentValue = compareNumbers((Number) leftResult, (Number) rightResult) < 0;
         } else {
             throw new IllegalArgumentException("Operands of '<' must be numeric.");
         }
@@ -500,16 +528,11 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(MinorThanEquals minorThanEquals) {
-        // Evaluate left expression.
-        minorThanEquals.getLeftExpression().accept(this);
-        Object leftValue = currentValue;
-        // Evaluate right expression.
-        minorThanEquals.getRightExpression().accept(this);
-        Object rightValue = currentValue;
+        Object leftValue = evaluateOperand(minorThanEquals.getLeftExpression(), minorThanEquals.getRightExpression());
+        Object rightValue = evaluateOperand(minorThanEquals.getRightExpression(), minorThanEquals.getLeftExpression());
 
         if (leftValue instanceof Number && rightValue instanceof Number) {
-            // Compare using double values.
-            currentValue = ((Number) leftValue).doubleValue() <= ((Number) rightValue).doubleValue();
+            currentValue = compareNumbers((Number) leftValue, (Number) rightValue) <= 0;
         } else {
             throw new RuntimeException("Expression did not evaluate to a boolean: " + minorThanEquals);
         }
@@ -517,15 +540,25 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(NotEqualsTo notEqualsTo) {
-        Object leftResult = evaluateSubExpression(notEqualsTo.getLeftExpression());
-        Object rightResult = evaluateSubExpression(notEqualsTo.getRightExpression());
+        Object leftResult = evaluateOperand(notEqualsTo.getLeftExpression(), notEqualsTo.getRightExpression());
+        Object rightResult = evaluateOperand(notEqualsTo.getRightExpression(), notEqualsTo.getLeftExpression());
         if (leftResult instanceof Number && rightResult instanceof Number) {
-            currentValue = (((Number) leftResult).longValue() != ((Number) rightResult).longValue());
+            currentValue = compareNumbers((Number) leftResult, (Number) rightResult) != 0;
         } else {
             currentValue = !leftResult.equals(rightResult);
         }
     }
 
+    /**
+     * Compares two numbers: as longs when both are integers (INT, BIGINT and DATE columns), as doubles otherwise.
+     */
+    private static int compareNumbers(Number left, Number right) {
+        if (left instanceof Double || right instanceof Double) {
+            return Double.compare(left.doubleValue(), right.doubleValue());
+        }
+        return Long.compare(left.longValue(), right.longValue());
+    }
+
     @Override
     public void visit(ParenthesedSelect parenthesedSelect) {
 
@@ -540,7 +573,9 @@ public class ExpressionEvaluator implements ExpressionVisitor {
     public void visit(Addition addition) {
         Object leftResult = evaluateSubExpression(addition.getLeftExpression());
         Object rightResult = evaluateSubExpression(addition.getRightExpression());
-        if (leftResult instanceof Number && rightResult instanceof Number) {
+        if (leftResult instanceof Double || rightResult instanceof Double) {
+            currentValue = ((Number) leftResult).doubleValue() + ((Number) rightResult).doubleValue();
+        } else if (leftResult instanceof Number && rightResult instanceof Number) {
             currentValue = ((Number) leftResult).longValue() + ((Number) rightResult).longValue();
         } else {
             throw new IllegalArgumentException("Operands of '+' must be numeric.");
@@ -626,17 +661,19 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     @Override
     public void visit(DoubleValue doubleValue) {
-        throw new UnsupportedOperationException("DoubleValue not supported yet.");
+        currentValue = doubleValue.getValue();
     }
 
     @Override
     public void visit(StringValue stringValue) {
-        throw new UnsupportedOperationException("StringValue not supported yet.");
+        // String fields are compared by their text.
+        currentValue = stringValue.getValue();
     }
 
     @Override
     public void visit(DateValue dateValue) {
-        throw new UnsupportedOperationException("DateValue not supported yet.");
+        // DATE columns are read as day numbers, so date literals are converted the same way.
+        currentValue = dateValue.getValue().toLocalDate().toEpochDay();
     }
 
     @Override
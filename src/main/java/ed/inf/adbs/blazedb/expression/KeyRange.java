@@ -0,0 +1,137 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.storage.BPlusTreeIndex;
+import net.sf.jsqlparser.expression.Expression;
+
+/**
+ * The range {@code [low, high]} of {@link BPlusTreeIndex} keys of one column that may satisfy a table's
+ * selection, derived from the conjuncts comparing the column with a numeric or date literal (see
+ * {@link ZoneMapFilter}). Rows whose keys lie outside the range cannot satisfy the selection; rows inside it must
+ * still be checked against the whole selection.
+ */
+public final class KeyRange {
+    // Literals beyond this magnitude are not converted to bounds on integer columns, whose values then compare
+    // as doubles that may be rounded.
+    private static final double MAX_EXACT_DOUBLE = 1L << 52;
+
+    private final long low;
+    private final long high;
+    private final boolean hasOrderingComparison;
+
+    private KeyRange(long low, long high, boolean hasOrderingComparison) {
+        this.low = low;
+        this.high = high;
+        this.hasOrderingComparison = hasOrderingComparison;
+    }
+
+    /**
+     * Derives the key range of a column from a selection.
+     *
+     * @param selection The selection condition pushed down to the table (may be {@code null}).
+     * @param schema    The schema of the table.
+     * @param column    The index of the column.
+     * @return The key range, or {@code null} if no conjunct bounds the column.
+     */
+    public static KeyRange fromSelection(Expression selection, TableSchema schema, int column) {
+        long low = Long.MIN_VALUE;
+        long high = Long.MAX_VALUE;
+        boolean bounded = false;
+        boolean hasOrderingComparison = false;
+        for (ZoneMapFilter.Bound bound : ZoneMapFilter.collectBounds(selection, schema)) {
+            if (bound.column != column || bound.comparison == ExpressionCompiler.Comparison.NOT_EQUALS) {
+                continue;
+            }
+            long[] range = bound.columnType == ColumnType.DOUBLE ? doubleRange(bound) : integerRange(bound);
+            if (range == null) {
+                continue;
+            }
+            low = Math.max(low, range[0]);
+            high = Math.min(high, range[1]);
+            bounded = true;
+            hasOrderingComparison |= bound.comparison != ExpressionCompiler.Comparison.EQUALS;
+        }
+        return bounded ? new KeyRange(low, high, hasOrderingComparison) : null;
+    }
+
+    /**
+     * Returns the keys of a {@code DOUBLE} column satisfying a comparison, which compares doubles.
+     */
+    private static long[] doubleRange(ZoneMapFilter.Bound bound) {
+        long key = BPlusTreeIndex.doubleKey(bound.literal.doubleValue);
+        switch (bound.comparison) {
+            case EQUALS:
+                return new long[]{key, key};
+            case LESS:
+                return key == Long.MIN_VALUE ? new long[]{0, -1} : new long[]{Long.MIN_VALUE, key - 1};
+            case LESS_EQUALS:
+                return new long[]{Long.MIN_VALUE, key};
+            case GREATER:
+                return key == Long.MAX_VALUE ? new long[]{0, -1} : new long[]{key + 1, Long.MAX_VALUE};
+            default:
+                return new long[]{key, Long.MAX_VALUE};
+        }
+    }
+
+    /**
+     * Returns the keys of an integer or date column satisfying a comparison, which compares {@code long}s with an
+     * integer literal and doubles otherwise.
+     */
+    private static long[] integerRange(ZoneMapFilter.Bound bound) {
+        long below;
+        long above;
+        if (bound.literal.type.isIntegral()) {
+            below = bound.literal.longValue;
+            above = bound.literal.longValue;
+        } else {
+            double value = bound.literal.doubleValue;
+            if (Double.isNaN(value) || Math.abs(value) >= MAX_EXACT_DOUBLE) {
+                return null;
+            }
+            // The integers just below and above the literal (both equal to it if it is an integer).
+            below = (long) Math.floor(value);
+            above = (long) Math.ceil(value);
+            if (below != above && bound.comparison == ExpressionCompiler.Comparison.EQUALS) {
+                return new long[]{0, -1};
+            }
+        }
+        switch (bound.comparison) {
+            case EQUALS:
+                return new long[]{below, above};
+            case LESS:
+                return above == Long.MIN_VALUE ? new long[]{0, -1} : new long[]{Long.MIN_VALUE, above - 1};
+            case LESS_EQUALS:
+                return new long[]{Long.MIN_VALUE, below};
+            case GREATER:
+                return below == Long.MAX_VALUE ? new long[]{0, -1} : new long[]{below + 1, Long.MAX_VALUE};
+            default:
+                return new long[]{above, Long.MAX_VALUE};
+        }
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public boolean isEmpty() {
+        return low > high;
+    }
+
+    /**
+     * Tells whether the range comes from an ordering comparison ({@code <}, {@code <=}, {@code >}, {@code >=}),
+     * which fails with an error rather than being false on a field that is not a number.
+     */
+    public boolean hasOrderingComparison() {
+        return hasOrderingComparison;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + low + ", " + high + "]";
+    }
+}
@@ -0,0 +1,333 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler.AndPredicate;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler.ArithmeticNode;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler.ColumnNode;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler.Comparison;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler.ComparisonPredicate;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler.ConstantNode;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Translates a predicate compiled by the {@link ExpressionCompiler} into a JVM class implementing
+ * {@link TuplePredicate}, so that the JIT can inline the whole condition into the loop of the operator using it.
+ *
+ * <p>The generated code is specialised to the field types of a sample tuple: numeric comparisons and arithmetic
+ * become straight-line {@code long} or {@code double} instructions on the tuple slots, and string (in)equality
+ * becomes a comparison of dictionary codes. Conditions it does not specialise (for instance evaluator fallbacks
+ * or {@code <} on strings) are called through the compiled tree, in the same order, so results and errors are
+ * unchanged.
+ *
+ * Before evaluating a tuple, the generated class checks that every field it reads is stored the way the sample's
+ * was (a number or a string). A tuple that differs, such as one with a malformed field held as a string, is
+ * evaluated by the compiled tree instead.
+ */
+final class PredicateCodeGenerator {
+    private static final String TUPLE = Type.getInternalName(Tuple.class);
+    private static final String PREDICATE = Type.getInternalName(TuplePredicate.class);
+    private static final String TUPLE_DESCRIPTOR = Type.getDescriptor(Tuple.class);
+    private static final String PREDICATE_DESCRIPTOR = Type.getDescriptor(TuplePredicate.class);
+    private static final String DELEGATES_DESCRIPTOR = "[" + PREDICATE_DESCRIPTOR;
+    private static final String CLASS_PREFIX = "ed/inf/adbs/blazedb/expression/GeneratedPredicate$";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    /**
+     * The static kind of a compiled value on the sample tuple.
+     */
+    private enum Kind {
+        LONG, DOUBLE, STRING
+    }
+
+    private final Tuple sample;
+    private final String className;
+    // Conditions evaluated through the compiled tree, referenced by their position.
+    private final List<TuplePredicate> delegates = new ArrayList<>();
+    // Fields read by the generated code, mapped to whether they must hold a string.
+    private final Map<Integer, Boolean> guardedFields = new TreeMap<>();
+    private boolean specialised = false;
+
+    private PredicateCodeGenerator(Tuple sample) {
+        this.sample = sample;
+        this.className = CLASS_PREFIX + classCounter.incrementAndGet();
+    }
+
+    /**
+     * Generates and loads a class evaluating a compiled predicate.
+     *
+     * @param compiled The predicate compiled by the {@link ExpressionCompiler}.
+     * @param sample   A tuple of the input, whose field types the generated code is specialised to.
+     * @return An instance of the generated class, or {@code compiled} itself if no part of it could be specialised
+     *         or the class could not be loaded.
+     */
+    static TuplePredicate generate(TuplePredicate compiled, Tuple sample) {
+        PredicateCodeGenerator generator = new PredicateCodeGenerator(sample);
+        byte[] code = generator.generateClass(compiled);
+        if (!generator.specialised) {
+            return compiled;
+        }
+        try {
+            Class<?> generatedClass = new GeneratedClassLoader().define(generator.className.replace('/', '.'), code);
+            TuplePredicate[] delegates = generator.delegates.toArray(new TuplePredicate[0]);
+            return (TuplePredicate) generatedClass.getConstructor(TuplePredicate.class, TuplePredicate[].class)
+                    .newInstance(compiled, delegates);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Code generation failed, using the compiled predicate: " + e.getMessage());
+            return compiled;
+        }
+    }
+
+    private byte[] generateClass(TuplePredicate compiled) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+                "java/lang/Object", new String[]{PREDICATE});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "fallback", PREDICATE_DESCRIPTOR, null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "delegates", DELEGATES_DESCRIPTOR, null, null).visitEnd();
+        generateConstructor(cw);
+        // The body is generated first, as it determines the fields that test() must check.
+        generateEvaluate(cw, compiled);
+        generateTest(cw);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateConstructor(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+                "(" + PREDICATE_DESCRIPTOR + DELEGATES_DESCRIPTOR + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, className, "fallback", PREDICATE_DESCRIPTOR);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, className, "delegates", DELEGATES_DESCRIPTOR);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Generates {@code test(Tuple)}: the field checks, then a call to the specialised body.
+     */
+    private void generateTest(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "test", "(" + TUPLE_DESCRIPTOR + ")Z", null, null);
+        mv.visitCode();
+        Label fallback = new Label();
+        for (Map.Entry<Integer, Boolean> field : guardedFields.entrySet()) {
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            pushInt(mv, field.getKey());
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, TUPLE, "isString", "(I)Z", false);
+            mv.visitJumpInsn(field.getValue() ? Opcodes.IFEQ : Opcodes.IFNE, fallback);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, className, "evaluate", "(" + TUPLE_DESCRIPTOR + ")Z", false);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitLabel(fallback);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, "fallback", PREDICATE_DESCRIPTOR);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, PREDICATE, "test", "(" + TUPLE_DESCRIPTOR + ")Z", true);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Generates the private {@code evaluate(Tuple)} method holding the specialised condition.
+     */
+    private void generateEvaluate(ClassWriter cw, TuplePredicate compiled) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PRIVATE, "evaluate", "(" + TUPLE_DESCRIPTOR + ")Z", null, null);
+        mv.visitCode();
+        Label onFalse = new Label();
+        emitCondition(mv, compiled, onFalse);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitLabel(onFalse);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Emits code that jumps to {@code onFalse} if the condition does not hold, and falls through otherwise.
+     */
+    private void emitCondition(MethodVisitor mv, TuplePredicate predicate, Label onFalse) {
+        if (predicate instanceof AndPredicate) {
+            emitCondition(mv, ((AndPredicate) predicate).left, onFalse);
+            emitCondition(mv, ((AndPredicate) predicate).right, onFalse);
+            return;
+        }
+        if (predicate instanceof ComparisonPredicate && emitComparison(mv, (ComparisonPredicate) predicate, onFalse)) {
+            specialised = true;
+            return;
+        }
+        // Not specialised: call the compiled node through the delegate array.
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, "delegates", DELEGATES_DESCRIPTOR);
+        pushInt(mv, delegates.size());
+        mv.visitInsn(Opcodes.AALOAD);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, PREDICATE, "test", "(" + TUPLE_DESCRIPTOR + ")Z", true);
+        mv.visitJumpInsn(Opcodes.IFEQ, onFalse);
+        delegates.add(predicate);
+    }
+
+    /**
+     * Emits a comparison whose operands have static kinds on the sample tuple.
+     *
+     * @return {@code false}, without emitting anything, if the comparison cannot be specialised.
+     */
+    private boolean emitComparison(MethodVisitor mv, ComparisonPredicate predicate, Label onFalse) {
+        Kind left = kindOf(predicate.left);
+        Kind right = kindOf(predicate.right);
+        if (left == null || right == null) {
+            return false;
+        }
+        if (left == Kind.LONG && right == Kind.LONG) {
+            emitValue(mv, predicate.left, Kind.LONG);
+            emitValue(mv, predicate.right, Kind.LONG);
+            mv.visitInsn(Opcodes.LCMP);
+        } else if (left != Kind.STRING && right != Kind.STRING) {
+            emitValue(mv, predicate.left, Kind.DOUBLE);
+            emitValue(mv, predicate.right, Kind.DOUBLE);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+        } else if (left == Kind.STRING && right == Kind.STRING
+                && (predicate.comparison == Comparison.EQUALS || predicate.comparison == Comparison.NOT_EQUALS)) {
+            // Equal strings have equal dictionary codes.
+            emitValue(mv, predicate.left, Kind.STRING);
+            emitValue(mv, predicate.right, Kind.STRING);
+            mv.visitInsn(Opcodes.LCMP);
+        } else {
+            return false;
+        }
+        mv.visitJumpInsn(failingJump(predicate.comparison), onFalse);
+        return true;
+    }
+
+    /**
+     * Returns the jump taken on the result of a three-way comparison when the comparison does not hold.
+     */
+    private static int failingJump(Comparison comparison) {
+        switch (comparison) {
+            case EQUALS:
+                return Opcodes.IFNE;
+            case NOT_EQUALS:
+                return Opcodes.IFEQ;
+            case LESS:
+                return Opcodes.IFGE;
+            case LESS_EQUALS:
+                return Opcodes.IFGT;
+            case GREATER:
+                return Opcodes.IFLE;
+            default:
+                return Opcodes.IFLT;
+        }
+    }
+
+    /**
+     * Returns the kind of a value on the sample tuple, or {@code null} if it cannot be specialised.
+     */
+    private Kind kindOf(ValueNode node) {
+        if (node instanceof ColumnNode) {
+            int index = ((ColumnNode) node).index;
+            return index < sample.size() ? kindOf(sample.getType(index)) : null;
+        }
+        if (node instanceof ConstantNode) {
+            return kindOf(((ConstantNode) node).type);
+        }
+        if (node instanceof ArithmeticNode) {
+            Kind left = kindOf(((ArithmeticNode) node).left);
+            Kind right = kindOf(((ArithmeticNode) node).right);
+            if (left == null || right == null || left == Kind.STRING || right == Kind.STRING) {
+                return null;
+            }
+            return left == Kind.DOUBLE || right == Kind.DOUBLE ? Kind.DOUBLE : Kind.LONG;
+        }
+        return null;
+    }
+
+    private static Kind kindOf(ColumnType type) {
+        if (type == ColumnType.VARCHAR) {
+            return Kind.STRING;
+        }
+        return type == ColumnType.DOUBLE ? Kind.DOUBLE : Kind.LONG;
+    }
+
+    /**
+     * Emits a value onto the operand stack: a {@code long} for {@link Kind#LONG} (or the dictionary code for
+     * {@link Kind#STRING}) and a {@code double} for {@link Kind#DOUBLE}.
+     */
+    private void emitValue(MethodVisitor mv, ValueNode node, Kind wanted) {
+        Kind kind = kindOf(node);
+        if (node instanceof ColumnNode) {
+            int index = ((ColumnNode) node).index;
+            guardedFields.put(index, kind == Kind.STRING);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            pushInt(mv, index);
+            if (kind == Kind.DOUBLE) {
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, TUPLE, "getDouble", "(I)D", false);
+            } else {
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, TUPLE, "getLong", "(I)J", false);
+            }
+        } else if (node instanceof ConstantNode) {
+            ConstantNode constant = (ConstantNode) node;
+            if (wanted == Kind.DOUBLE) {
+                mv.visitLdcInsn(constant.doubleValue);
+                return;
+            }
+            mv.visitLdcInsn(constant.longValue);
+        } else {
+            ArithmeticNode arithmetic = (ArithmeticNode) node;
+            emitValue(mv, arithmetic.left, kind);
+            emitValue(mv, arithmetic.right, kind);
+            if (kind == Kind.DOUBLE) {
+                mv.visitInsn(arithmetic.operator == '+' ? Opcodes.DADD : Opcodes.DMUL);
+            } else {
+                mv.visitInsn(arithmetic.operator == '+' ? Opcodes.LADD : Opcodes.LMUL);
+            }
+        }
+        if (wanted == Kind.DOUBLE && kind != Kind.DOUBLE) {
+            mv.visitInsn(Opcodes.L2D);
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * Loads each generated class in its own loader, so that the class can be unloaded once the query is done.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader() {
+            super(TuplePredicate.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] code) {
+            return defineClass(name, code, 0, code.length);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.ColumnDistribution;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.TableStatistics;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the fraction of rows satisfying the selections and join conditions the planner extracts from a WHERE
+ * clause, from the {@link TableStatistics} gathered by the {@code analyze} command.
+ *
+ * Conjuncts are assumed independent, so their selectivities multiply, except that the comparisons of one column
+ * with literals are combined into a single range read from the column's histogram: {@code A > 10 AND A < 20}
+ * keeps the rows between the two bounds rather than the product of two halves. An equality keeps a frequent
+ * value's share of the rows, or one distinct value's. An equality between two columns keeps one pair of rows in
+ * {@code max(d1, d2)}, where {@code d} is a column's number of distinct values. Conditions the statistics cannot
+ * estimate, and every condition of a table that has not been analyzed, get fixed default selectivities.
+ */
+public final class SelectivityEstimator {
+    /**
+     * The default selectivity of an equality.
+     */
+    public static final double EQUALS_SELECTIVITY = 0.1;
+    /**
+     * The default selectivity of an ordering comparison.
+     */
+    public static final double RANGE_SELECTIVITY = 1.0 / 3;
+    /**
+     * The default selectivity of an inequality.
+     */
+    public static final double NOT_EQUALS_SELECTIVITY = 0.9;
+    /**
+     * The default selectivity of any other condition.
+     */
+    public static final double OTHER_SELECTIVITY = 0.5;
+
+    private SelectivityEstimator() {
+    }
+
+    /**
+     * Estimates the fraction of a table's rows satisfying its selection.
+     *
+     * @param selection  The selection condition on the table's columns (may be {@code null}).
+     * @param schema     The schema of the table.
+     * @param statistics The statistics of the table (may be {@code null}).
+     * @return The estimated selectivity, between 0 and 1.
+     */
+    public static double estimateSelection(Expression selection, TableSchema schema, TableStatistics statistics) {
+        List<Expression> conjuncts = new ArrayList<>();
+        collectConjuncts(selection, conjuncts);
+        if (statistics == null) {
+            return getDefaultSelectivity(conjuncts);
+        }
+        Map<String, Integer> schemaMapping = schema.createSchemaMapping();
+        // The comparisons of each column with numeric literals, combined per column.
+        Map<Integer, ColumnRange> ranges = new LinkedHashMap<>();
+        double selectivity = 1;
+        for (Expression conjunct : conjuncts) {
+            ExpressionCompiler.Comparison comparison = ExpressionCompiler.Comparison.of(conjunct);
+            if (comparison == null) {
+                selectivity *= OTHER_SELECTIVITY;
+                continue;
+            }
+            ComparisonOperator binary = (ComparisonOperator) conjunct;
+            ValueNode left = ExpressionCompiler.compileValue(binary.getLeftExpression(), schemaMapping);
+            ValueNode right = ExpressionCompiler.compileValue(binary.getRightExpression(), schemaMapping);
+            if (right instanceof ExpressionCompiler.ColumnNode && left instanceof ExpressionCompiler.ConstantNode) {
+                ValueNode swapped = left;
+                left = right;
+                right = swapped;
+                comparison = ZoneMapFilter.reverse(comparison);
+            }
+            if (left instanceof ExpressionCompiler.ColumnNode) {
+                right = ExpressionCompiler.compileOperand(right,
+                        schema.getColumnType(((ExpressionCompiler.ColumnNode) left).index));
+            }
+            ColumnDistribution column = left instanceof ExpressionCompiler.ColumnNode
+                    ? getColumn(statistics, schema, ((ExpressionCompiler.ColumnNode) left).index) : null;
+            if (column == null) {
+                selectivity *= getDefaultSelectivity(conjunct);
+            } else if (right instanceof ExpressionCompiler.ConstantNode
+                    && ((ExpressionCompiler.ConstantNode) right).type != ColumnType.VARCHAR) {
+                int index = ((ExpressionCompiler.ColumnNode) left).index;
+                ColumnRange range = ranges.get(index);
+                if (range == null) {
+                    range = new ColumnRange(column);
+                    ranges.put(index, range);
+                }
+                range.add(comparison, ((ExpressionCompiler.ConstantNode) right).doubleValue);
+            } else if (right instanceof ExpressionCompiler.ConstantNode) {
+                selectivity *= estimateStringComparison(column, comparison);
+            } else if (right instanceof ExpressionCompiler.ColumnNode
+                    && comparison == ExpressionCompiler.Comparison.EQUALS) {
+                ColumnDistribution other = getColumn(statistics, schema,
+                        ((ExpressionCompiler.ColumnNode) right).index);
+                selectivity *= other == null ? EQUALS_SELECTIVITY
+                        : 1.0 / Math.max(1, Math.max(column.getDistinctCount(), other.getDistinctCount()));
+            } else {
+                selectivity *= getDefaultSelectivity(conjunct);
+            }
+        }
+        for (ColumnRange range : ranges.values()) {
+            selectivity *= range.estimate();
+        }
+        return Math.min(1, Math.max(0, selectivity));
+    }
+
+    /**
+     * Estimates the fraction of the pairs of rows of two inputs satisfying a join condition.
+     *
+     * @param joinCondition The join condition, whose columns are qualified by their table names (may be
+     *                      {@code null}).
+     * @param statistics    The statistics of the joined tables, by table name; tables that have not been
+     *                      analyzed may be missing.
+     * @return The estimated selectivity, between 0 and 1.
+     */
+    public static double estimateJoin(Expression joinCondition, Map<String, TableStatistics> statistics) {
+        List<Expression> conjuncts = new ArrayList<>();
+        collectConjuncts(joinCondition, conjuncts);
+        double selectivity = 1;
+        for (Expression conjunct : conjuncts) {
+            long distinct = -1;
+            if (conjunct instanceof EqualsTo) {
+                EqualsTo equalsTo = (EqualsTo) conjunct;
+                ColumnDistribution left = getColumn(statistics, equalsTo.getLeftExpression());
+                ColumnDistribution right = getColumn(statistics, equalsTo.getRightExpression());
+                if (left != null && right != null) {
+                    distinct = Math.max(left.getDistinctCount(), right.getDistinctCount());
+                }
+            }
+            selectivity *= distinct >= 0 ? 1.0 / Math.max(1, distinct) : getDefaultSelectivity(conjunct);
+        }
+        return selectivity;
+    }
+
+    /**
+     * Returns the default selectivity of a condition, used when no statistics can estimate it.
+     *
+     * @param conjunct The condition.
+     * @return The default selectivity of its operator.
+     */
+    public static double getDefaultSelectivity(Expression conjunct) {
+        ExpressionCompiler.Comparison comparison = ExpressionCompiler.Comparison.of(conjunct);
+        if (comparison == null) {
+            return OTHER_SELECTIVITY;
+        }
+        switch (comparison) {
+            case EQUALS:
+                return EQUALS_SELECTIVITY;
+            case NOT_EQUALS:
+                return NOT_EQUALS_SELECTIVITY;
+            default:
+                return RANGE_SELECTIVITY;
+        }
+    }
+
+    private static double getDefaultSelectivity(List<Expression> conjuncts) {
+        double selectivity = 1;
+        for (Expression conjunct : conjuncts) {
+            selectivity *= getDefaultSelectivity(conjunct);
+        }
+        return selectivity;
+    }
+
+    /**
+     * Estimates a comparison of a column with a string literal: only an equality or inequality can be estimated,
+     * from the column's share of strings and number of distinct values.
+     */
+    private static double estimateStringComparison(ColumnDistribution column,
+                                                   ExpressionCompiler.Comparison comparison) {
+        double stringFraction = 1 - column.getNumberFraction();
+        double equalFraction = Math.min(stringFraction, 1.0 / Math.max(1, column.getDistinctCount()));
+        switch (comparison) {
+            case EQUALS:
+                return equalFraction;
+            case NOT_EQUALS:
+                return 1 - equalFraction;
+            default:
+                return RANGE_SELECTIVITY;
+        }
+    }
+
+    private static ColumnDistribution getColumn(TableStatistics statistics, TableSchema schema, int index) {
+        return index < schema.getColumnCount() ? statistics.getColumn(schema.getColumnNames().get(index)) : null;
+    }
+
+    private static ColumnDistribution getColumn(Map<String, TableStatistics> statistics, Expression expression) {
+        while (expression instanceof Parenthesis) {
+            expression = ((Parenthesis) expression).getExpression();
+        }
+        if (!(expression instanceof Column) || ((Column) expression).getTable() == null) {
+            return null;
+        }
+        Column column = (Column) expression;
+        TableStatistics table = statistics.get(column.getTable().getName());
+        return table == null ? null : table.getColumn(column.getColumnName());
+    }
+
+    private static void collectConjuncts(Expression expression, List<Expression> conjuncts) {
+        if (expression instanceof Parenthesis) {
+            collectConjuncts(((Parenthesis) expression).getExpression(), conjuncts);
+        } else if (expression instanceof AndExpression) {
+            collectConjuncts(((AndExpression) expression).getLeftExpression(), conjuncts);
+            collectConjuncts(((AndExpression) expression).getRightExpression(), conjuncts);
+        } else if (expression != null) {
+            conjuncts.add(expression);
+        }
+    }
+
+    /**
+     * The comparisons of one column with numeric literals: the tightest lower and upper bounds, an equality and
+     * the values excluded by inequalities.
+     */
+    private static final class ColumnRange {
+        final ColumnDistribution column;
+        double low = Double.NEGATIVE_INFINITY;
+        boolean lowInclusive = true;
+        double high = Double.POSITIVE_INFINITY;
+        boolean highInclusive = true;
+        final List<Double> excluded = new ArrayList<>();
+
+        ColumnRange(ColumnDistribution column) {
+            this.column = column;
+        }
+
+        void add(ExpressionCompiler.Comparison comparison, double value) {
+            switch (comparison) {
+                case EQUALS:
+                    addLow(value, true);
+                    addHigh(value, true);
+                    break;
+                case NOT_EQUALS:
+                    excluded.add(value);
+                    break;
+                case LESS:
+                    addHigh(value, false);
+                    break;
+                case LESS_EQUALS:
+                    addHigh(value, true);
+                    break;
+                case GREATER:
+                    addLow(value, false);
+                    break;
+                default:
+                    addLow(value, true);
+                    break;
+            }
+        }
+
+        private void addLow(double value, boolean inclusive) {
+            if (value > low || (value == low && !inclusive)) {
+                low = value;
+                lowInclusive = inclusive;
+            }
+        }
+
+        private void addHigh(double value, boolean inclusive) {
+            if (value < high || (value == high && !inclusive)) {
+                high = value;
+                highInclusive = inclusive;
+            }
+        }
+
+        double estimate() {
+            double fraction;
+            if (low > high || (low == high && !(lowInclusive && highInclusive))) {
+                fraction = 0;
+            } else if (low == high) {
+                fraction = column.estimateEqualFraction(low);
+            } else if (low == Double.NEGATIVE_INFINITY && high == Double.POSITIVE_INFINITY) {
+                // Only inequalities: every field, numbers and strings, may satisfy them.
+                fraction = 1;
+            } else {
+                double below = low == Double.NEGATIVE_INFINITY ? 0
+                        : lowInclusive ? column.estimateLessFraction(low) : column.estimateAtMostFraction(low);
+                double atMost = high == Double.POSITIVE_INFINITY ? column.getNumberFraction()
+                        : highInclusive ? column.estimateAtMostFraction(high) : column.estimateLessFraction(high);
+                fraction = Math.max(0, atMost - below);
+            }
+            for (double value : excluded) {
+                if (value >= low && value <= high) {
+                    fraction -= column.estimateEqualFraction(value);
+                }
+            }
+            return Math.max(0, fraction);
+        }
+    }
+}
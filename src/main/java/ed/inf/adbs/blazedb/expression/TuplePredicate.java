@@ -0,0 +1,19 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.Tuple;
+
+/**
+ * A compiled boolean condition, such as a WHERE clause or a join condition, bound to the field indexes
+ * of the tuples it is evaluated on. Instances are created by the {@link ExpressionCompiler}.
+ */
+public interface TuplePredicate {
+
+    /**
+     * Evaluates the condition on a tuple.
+     *
+     * @param tuple The tuple to evaluate the condition on.
+     * @return {@code true} if the tuple satisfies the condition.
+     * @throws RuntimeException if the condition cannot be evaluated on the tuple.
+     */
+    boolean test(Tuple tuple);
+}
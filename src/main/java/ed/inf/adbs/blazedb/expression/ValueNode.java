@@ -0,0 +1,51 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+/**
+ * A compiled value expression, such as a column reference, a literal or an arithmetic expression, bound to
+ * the field indexes of the tuples it is evaluated on. Instances are created by the {@link ExpressionCompiler}.
+ *
+ * Callers first ask for the type of the value on a tuple and then read it with the matching primitive
+ * accessor, so that integer and double values are produced without boxing:
+ *  - integer types ({@code INT}, {@code BIGINT}, {@code DATE}): {@link #evalLong(Tuple)};
+ *  - {@code DOUBLE}: {@link #evalDouble(Tuple)};
+ *  - {@code VARCHAR}: {@link #evalObject(Tuple)}, or {@link #evalLong(Tuple)} for the
+ *    {@link ed.inf.adbs.blazedb.util.StringDictionary} code, which is enough to test two strings for equality.
+ */
+public abstract class ValueNode {
+
+    /**
+     * Returns the type of the value on the given tuple.
+     *
+     * @param tuple The tuple to evaluate the expression on.
+     * @return The type of the value.
+     */
+    public abstract ColumnType getType(Tuple tuple);
+
+    /**
+     * Evaluates an integer-typed value, or the dictionary code of a string.
+     *
+     * @param tuple The tuple to evaluate the expression on.
+     * @return The value as a long.
+     */
+    public abstract long evalLong(Tuple tuple);
+
+    /**
+     * Evaluates a numeric value as a double.
+     *
+     * @param tuple The tuple to evaluate the expression on.
+     * @return The value as a double.
+     */
+    public abstract double evalDouble(Tuple tuple);
+
+    /**
+     * Evaluates the value as an object, as the {@link ExpressionEvaluator} would: a {@code Long} for integer
+     * types, a {@code Double} for doubles and a {@code String} for strings.
+     *
+     * @param tuple The tuple to evaluate the expression on.
+     * @return The boxed value.
+     */
+    public abstract Object evalObject(Tuple tuple);
+}
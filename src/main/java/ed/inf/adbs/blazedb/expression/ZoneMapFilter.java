@@ -0,0 +1,191 @@
+package ed.inf.adbs.blazedb.expression;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.storage.ColumnStatistics;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Decides from the {@link ColumnStatistics} of a block of rows (a zone map block or a columnar file chunk) whether
+ * any row of the block may satisfy a table's selection, so that scans can skip blocks that cannot match.
+ *
+ * The filter keeps the conjuncts of the selection that compare a column of the table with a numeric or date
+ * literal, with the same semantics as compiled {@link ExpressionCompiler} predicates: integers compare as
+ * {@code long}s and other numbers as doubles. A block is skipped only if one of these conjuncts fails for every
+ * number in the column's {@code [min, max]} range and the block's other values cannot satisfy it either: a
+ * string never equals a number, but an ordering comparison with a string is an error that is left to the
+ * selection to report. Every other conjunct is ignored, which only makes the filter less selective.
+ */
+public final class ZoneMapFilter {
+    private final List<Bound> bounds;
+
+    private ZoneMapFilter(List<Bound> bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Extracts the usable conjuncts of a selection on one table.
+     *
+     * @param selection The selection condition pushed down to the table (may be {@code null}).
+     * @param schema    The schema of the table.
+     * @return The filter, or {@code null} if no conjunct can be checked against column statistics.
+     */
+    public static ZoneMapFilter fromSelection(Expression selection, TableSchema schema) {
+        List<Bound> bounds = collectBounds(selection, schema);
+        return bounds.isEmpty() ? null : new ZoneMapFilter(bounds);
+    }
+
+    /**
+     * Extracts the conjuncts of a selection on one table that compare a column with a numeric or date literal.
+     *
+     * @param selection The selection condition pushed down to the table (may be {@code null}).
+     * @param schema    The schema of the table (may be {@code null}).
+     * @return The comparisons, with the column on the left.
+     */
+    static List<Bound> collectBounds(Expression selection, TableSchema schema) {
+        List<Bound> bounds = new ArrayList<>();
+        if (selection != null && schema != null) {
+            collectBounds(selection, schema.createSchemaMapping(), schema, bounds);
+        }
+        return bounds;
+    }
+
+    private static void collectBounds(Expression expression, Map<String, Integer> schemaMapping, TableSchema schema,
+                                      List<Bound> bounds) {
+        if (expression instanceof Parenthesis) {
+            collectBounds(((Parenthesis) expression).getExpression(), schemaMapping, schema, bounds);
+            return;
+        }
+        if (expression instanceof AndExpression) {
+            AndExpression and = (AndExpression) expression;
+            collectBounds(and.getLeftExpression(), schemaMapping, schema, bounds);
+            collectBounds(and.getRightExpression(), schemaMapping, schema, bounds);
+            return;
+        }
+        ExpressionCompiler.Comparison comparison = ExpressionCompiler.Comparison.of(expression);
+        if (comparison == null) {
+            return;
+        }
+        ComparisonOperator binary = (ComparisonOperator) expression;
+        ValueNode left = ExpressionCompiler.compileValue(binary.getLeftExpression(), schemaMapping);
+        ValueNode right = ExpressionCompiler.compileValue(binary.getRightExpression(), schemaMapping);
+        // String literals compared with a DATE column are dates, as in compiled predicates.
+        if (left instanceof ExpressionCompiler.ColumnNode) {
+            right = ExpressionCompiler.compileOperand(right,
+                    schema.getColumnType(((ExpressionCompiler.ColumnNode) left).index));
+        } else if (right instanceof ExpressionCompiler.ColumnNode) {
+            left = ExpressionCompiler.compileOperand(left,
+                    schema.getColumnType(((ExpressionCompiler.ColumnNode) right).index));
+        }
+        if (left instanceof ExpressionCompiler.ColumnNode && isNumericConstant(right)) {
+            int column = ((ExpressionCompiler.ColumnNode) left).index;
+            bounds.add(new Bound(column, schema.getColumnType(column), comparison,
+                    (ExpressionCompiler.ConstantNode) right));
+        } else if (right instanceof ExpressionCompiler.ColumnNode && isNumericConstant(left)) {
+            int column = ((ExpressionCompiler.ColumnNode) right).index;
+            bounds.add(new Bound(column, schema.getColumnType(column), reverse(comparison),
+                    (ExpressionCompiler.ConstantNode) left));
+        }
+    }
+
+    private static boolean isNumericConstant(ValueNode node) {
+        return node instanceof ExpressionCompiler.ConstantNode
+                && ((ExpressionCompiler.ConstantNode) node).type != ColumnType.VARCHAR;
+    }
+
+    /**
+     * Returns the comparison obtained by swapping the operands, e.g. {@code 5 < A} becomes {@code A > 5}.
+     */
+    static ExpressionCompiler.Comparison reverse(ExpressionCompiler.Comparison comparison) {
+        switch (comparison) {
+            case LESS:
+                return ExpressionCompiler.Comparison.GREATER;
+            case LESS_EQUALS:
+                return ExpressionCompiler.Comparison.GREATER_EQUALS;
+            case GREATER:
+                return ExpressionCompiler.Comparison.LESS;
+            case GREATER_EQUALS:
+                return ExpressionCompiler.Comparison.LESS_EQUALS;
+            default:
+                return comparison;
+        }
+    }
+
+    /**
+     * Tells whether some row of a block may satisfy the selection.
+     *
+     * @param statistics Returns the statistics of a column of the block, given the column index.
+     * @return {@code false} only if no row of the block can satisfy the selection.
+     */
+    public boolean mightMatch(IntFunction<ColumnStatistics> statistics) {
+        for (Bound bound : bounds) {
+            if (!bound.mightMatch(statistics.apply(bound.column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A comparison {@code column <op> literal}.
+     */
+    static final class Bound {
+        final int column;
+        final ColumnType columnType;
+        final ExpressionCompiler.Comparison comparison;
+        final ExpressionCompiler.ConstantNode literal;
+
+        Bound(int column, ColumnType columnType, ExpressionCompiler.Comparison comparison,
+              ExpressionCompiler.ConstantNode literal) {
+            this.column = column;
+            this.columnType = columnType;
+            this.comparison = comparison;
+            this.literal = literal;
+        }
+
+        boolean mightMatch(ColumnStatistics statistics) {
+            if (statistics.hasNonNumbers() && comparison != ExpressionCompiler.Comparison.EQUALS) {
+                // A string is unequal to every number, and ordering it is an error the scan must report.
+                return true;
+            }
+            if (!statistics.hasNumbers()) {
+                return false;
+            }
+            int minComparison;
+            int maxComparison;
+            if (columnType.isIntegral() && literal.type.isIntegral()) {
+                minComparison = Long.compare(statistics.getMin(), literal.longValue);
+                maxComparison = Long.compare(statistics.getMax(), literal.longValue);
+            } else {
+                minComparison = Double.compare(toDouble(statistics.getMin()), literal.doubleValue);
+                maxComparison = Double.compare(toDouble(statistics.getMax()), literal.doubleValue);
+            }
+            switch (comparison) {
+                case EQUALS:
+                    return minComparison <= 0 && maxComparison >= 0;
+                case NOT_EQUALS:
+                    return minComparison != 0 || maxComparison != 0;
+                case LESS:
+                    return minComparison < 0;
+                case LESS_EQUALS:
+                    return minComparison <= 0;
+                case GREATER:
+                    return maxComparison > 0;
+                default:
+                    return maxComparison >= 0;
+            }
+        }
+
+        private double toDouble(long slot) {
+            return columnType == ColumnType.DOUBLE ? Double.longBitsToDouble(slot) : slot;
+        }
+    }
+}
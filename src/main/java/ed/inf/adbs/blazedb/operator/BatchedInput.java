@@ -0,0 +1,44 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+
+/**
+ * Reads the output of a child operator batch by batch through {@link Operator#getNextBatch()} and hands it out
+ * one tuple at a time. Join operators, whose state machines advance one input tuple at a time, use it so that
+ * their children still produce whole batches in their tight loops.
+ */
+final class BatchedInput {
+    private final Operator child;
+    private TupleBatch batch;
+    private int position;
+
+    BatchedInput(Operator child) {
+        this.child = child;
+    }
+
+    /**
+     * Returns the next tuple of the child.
+     *
+     * @return The next tuple, or {@code null} if the child is exhausted.
+     */
+    Tuple next() {
+        while (batch == null || position == batch.size()) {
+            batch = child.getNextBatch();
+            position = 0;
+            if (batch == null) {
+                return null;
+            }
+        }
+        return batch.get(position++);
+    }
+
+    /**
+     * Resets the child and discards the rest of the current batch.
+     */
+    void reset() {
+        child.reset();
+        batch = null;
+        position = 0;
+    }
+}
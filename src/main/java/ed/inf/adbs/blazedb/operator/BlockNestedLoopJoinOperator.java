@@ -0,0 +1,156 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BlockNestedLoopJoinOperator implements a block-nested-loop join for arbitrary join conditions,
+ * including non-equality predicates such as {@code Flight.Price < Car.Price} and cross products.
+ *
+ * The join algorithm operates as follows:
+ * 1. Fill an in-memory block of B pages with tuples from the left (outer) operator, where a page holds
+ *    {@value #PAGE_SIZE} bytes of (estimated) tuple data.
+ * 2. Reset and scan the right (inner) operator once; pair every inner tuple with every outer tuple of
+ *    the block and return the joined tuple if it satisfies the join condition (or if there is none).
+ * 3. Repeat with the next block until the outer operator is exhausted.
+ *
+ * Compared to the tuple-nested-loop {@link JoinOperator}, the inner relation is rescanned once per block
+ * instead of once per outer tuple, which divides the number of inner scans by the number of outer tuples
+ * fitting in a block.
+ */
+public class BlockNestedLoopJoinOperator extends Operator {
+    // Size of a buffer page in bytes.
+    public static final int PAGE_SIZE = 4096;
+
+    private Operator left;         // left (outer) child operator
+    private Operator right;        // right (inner) child operator
+    // Children read one batch at a time.
+    private BatchedInput leftInput;
+    private BatchedInput rightInput;
+    private Expression joinCondition;  // join condition as an Expression (null for cross join)
+    private TuplePredicate joinPredicate;  // compiled form of joinCondition
+    private Map<String, Integer> schemaMapping; // combined schema mapping for the joined tuple
+    private long blockCapacity;    // capacity of the outer block in bytes
+
+    private List<Tuple> block = new ArrayList<>();
+    private boolean outerExhausted;
+    private Tuple currentRight;    // current tuple from the inner operator
+    private int blockIndex;        // next outer tuple of the block to pair with currentRight
+
+    /**
+     * Constructs a BlockNestedLoopJoinOperator.
+     *
+     * @param left           The left (outer) operator.
+     * @param right          The right (inner) operator.
+     * @param joinCondition  The join condition (can be null for a cross join).
+     * @param schemaMapping  A combined schema mapping that maps fully qualified column names
+     *                       (e.g., "Student.sid" or "Course.cid") to their index in the joined tuple.
+     * @param bufferPages    The number B of pages used to buffer outer tuples.
+     */
+    public BlockNestedLoopJoinOperator(Operator left, Operator right, Expression joinCondition,
+                                       Map<String, Integer> schemaMapping, int bufferPages) {
+        this.left = left;
+        this.right = right;
+        this.leftInput = new BatchedInput(left);
+        this.rightInput = new BatchedInput(right);
+        this.joinCondition = joinCondition;
+        this.schemaMapping = schemaMapping;
+        this.blockCapacity = (long) bufferPages * PAGE_SIZE;
+    }
+
+    /**
+     * Implements the block-nested-loop join.
+     *
+     * @return the next joined Tuple that satisfies the join condition (if provided), or null if no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (true) {
+            if (currentRight != null) {
+                while (blockIndex < block.size()) {
+                    Tuple joinedTuple = combineTuples(block.get(blockIndex++), currentRight);
+                    if (satisfiesCondition(joinedTuple)) {
+                        return joinedTuple;
+                    }
+                }
+                currentRight = rightInput.next();
+                blockIndex = 0;
+                continue;
+            }
+
+            // The inner scan for the current block is finished (or has not started): load the next block.
+            if (!loadNextBlock()) {
+                return null;
+            }
+            rightInput.reset();
+            currentRight = rightInput.next();
+            blockIndex = 0;
+            if (currentRight == null) {
+                // An empty inner relation produces no join pairs at all.
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Fills the block with outer tuples until B pages are used or the outer operator is exhausted.
+     *
+     * @return {@code false} if no outer tuples are left.
+     */
+    private boolean loadNextBlock() {
+        block.clear();
+        if (outerExhausted) {
+            return false;
+        }
+        long used = 0;
+        Tuple tuple;
+        // A block always holds at least one tuple, even one larger than the whole buffer.
+        while (used < blockCapacity && (tuple = leftInput.next()) != null) {
+            block.add(tuple);
+            used += tuple.getEstimatedSize();
+        }
+        if (used < blockCapacity) {
+            outerExhausted = true;
+        }
+        return !block.isEmpty();
+    }
+
+    private boolean satisfiesCondition(Tuple joinedTuple) {
+        if (joinCondition == null) {
+            return true;
+        }
+        if (joinPredicate == null) {
+            // Compiled once, on the first joined tuple, into index-bound nodes.
+            joinPredicate = ExpressionCompiler.compilePredicate(joinCondition, schemaMapping, joinedTuple);
+        }
+        try {
+            return joinPredicate.test(joinedTuple);
+        } catch (Exception e) {
+            System.err.println("Error evaluating join condition for tuple: " + joinedTuple);
+            return false;
+        }
+    }
+
+    private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
+        return Tuple.concat(leftTuple, rightTuple);
+    }
+
+    /**
+     * Resets the {@code BlockNestedLoopJoinOperator} and its child operators to their initial states.
+     */
+    @Override
+    public void reset() {
+        leftInput.reset();
+        rightInput.reset();
+        block.clear();
+        outerExhausted = false;
+        currentRight = null;
+        blockIndex = 0;
+    }
+}
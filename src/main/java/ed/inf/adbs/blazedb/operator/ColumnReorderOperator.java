@@ -0,0 +1,73 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+
+/**
+ * The {@code ColumnReorderOperator} permutes the fields of its child's tuples. The planner places it above a join
+ * tree whose tables were joined in another order than the FROM clause, so that the joined tuples still have the
+ * fields of the tables in FROM-clause order. Unlike a {@link ProjectionOperator}, it always rebuilds the tuples,
+ * since they have the same width before and after the permutation.
+ */
+public class ColumnReorderOperator extends Operator {
+    private final Operator child;
+    // For each output field, the index of the child's field it is taken from.
+    private final int[] columns;
+    // Output batch reused by getNextBatch, created on first use.
+    private TupleBatch batch;
+
+    /**
+     * Constructs a ColumnReorderOperator.
+     *
+     * @param child   The child operator.
+     * @param columns For each output field, the index of the field of the child's tuples it is taken from.
+     */
+    public ColumnReorderOperator(Operator child, int[] columns) {
+        this.child = child;
+        this.columns = columns;
+    }
+
+    public Operator getChild() {
+        return child;
+    }
+
+    /**
+     * Returns the next tuple of the child with its fields reordered.
+     *
+     * @return The reordered tuple, or {@code null} if the child is exhausted.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        Tuple tuple = child.getNextTuple();
+        return tuple == null ? null : tuple.project(columns);
+    }
+
+    /**
+     * Returns the next batch of the child with the fields of its selected tuples reordered.
+     *
+     * @return A {@link TupleBatch} of reordered tuples, or {@code null} if the child is exhausted.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch input = child.getNextBatch();
+        if (input == null) {
+            return null;
+        }
+        if (batch == null) {
+            batch = new TupleBatch();
+        }
+        batch.clear();
+        for (int i = 0; i < input.size(); i++) {
+            batch.add(input.get(i).project(columns));
+        }
+        return batch;
+    }
+
+    /**
+     * Resets the child operator.
+     */
+    @Override
+    public void reset() {
+        child.reset();
+    }
+}
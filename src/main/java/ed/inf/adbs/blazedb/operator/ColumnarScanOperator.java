@@ -0,0 +1,249 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.expression.ZoneMapFilter;
+import ed.inf.adbs.blazedb.storage.ColumnarTableReader;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code ColumnarScanOperator} scans a table that has been imported into a columnar file
+ * (see {@link ed.inf.adbs.blazedb.storage.ColumnarTableReader}).
+ *
+ * Only the columns needed by the query are read from the file; nothing needs to be parsed, since the file stores
+ * the tuple slots themselves. The operator still produces tuples with one field per column of the table, so
+ * that the schema mappings of the plan are unchanged: fields of columns that are not read hold {@code 0}.
+ *
+ * The scan may be restricted to a {@link ScanOperator.Morsel} whose bounds are chunk indexes rather than byte
+ * offsets, so that the {@link ExchangeOperator} can scan the file with several threads. Given a
+ * {@link ZoneMapFilter} of the table's selection, it skips the chunks whose column statistics show that no row can
+ * match, without reading them, and reports the numbers of read and skipped chunks to {@link QueryMetrics}.
+ */
+public class ColumnarScanOperator extends Operator {
+    private final String tableName;
+    private final String filePath;
+    // Indexes of the columns read from the file, in increasing order.
+    private final int[] columns;
+    // Range of chunks to scan.
+    private final int firstChunk;
+    private final int endChunk;
+    // Filter deciding from the chunk statistics which chunks to read, or null to read every chunk.
+    private final ZoneMapFilter filter;
+
+    private ColumnarTableReader reader;
+    // Slot types of the produced tuples (null if every column is an INT).
+    private ColumnType[] tupleTypes;
+    private int columnCount;
+    private int nextChunk;
+    // Decoded columns of the current chunk, one per entry of columns.
+    private ColumnarTableReader.ColumnVector[] vectors;
+    private int chunkRowCount;
+    private int row;
+    private final TupleBatch batch = new TupleBatch();
+
+    /**
+     * Constructs a {@code ColumnarScanOperator} over the whole table.
+     *
+     * @param tableName The name of the table.
+     * @param columns   The indexes of the columns to read, in increasing order, or {@code null} for all columns.
+     */
+    public ColumnarScanOperator(String tableName, int[] columns) {
+        this(tableName, columns, null);
+    }
+
+    /**
+     * Constructs a {@code ColumnarScanOperator} over a range of chunks of the table.
+     *
+     * @param tableName The name of the table.
+     * @param columns   The indexes of the columns to read, in increasing order, or {@code null} for all columns.
+     * @param morsel    The chunks {@code [start, end)} to scan, as returned by {@link #splitIntoMorsels},
+     *                  or {@code null} for every chunk.
+     */
+    public ColumnarScanOperator(String tableName, int[] columns, ScanOperator.Morsel morsel) {
+        this(tableName, columns, morsel, null);
+    }
+
+    /**
+     * Constructs a {@code ColumnarScanOperator} over a range of chunks of the table that skips the chunks in
+     * which no row can satisfy a selection.
+     *
+     * @param tableName The name of the table.
+     * @param columns   The indexes of the columns to read, in increasing order, or {@code null} for all columns.
+     * @param morsel    The chunks {@code [start, end)} to scan, or {@code null} for every chunk.
+     * @param filter    The zone map filter of the selection on the table, or {@code null} to read every chunk.
+     */
+    public ColumnarScanOperator(String tableName, int[] columns, ScanOperator.Morsel morsel, ZoneMapFilter filter) {
+        this.tableName = tableName;
+        this.filter = filter;
+        this.filePath = Catalog.getInstance().getColumnarFilePathForTable(tableName);
+        open();
+        this.columns = columns != null ? columns : allColumns(columnCount);
+        this.firstChunk = morsel == null ? 0 : (int) morsel.getStart();
+        this.endChunk = morsel == null ? reader.getChunkCount() : (int) morsel.getEnd();
+        this.nextChunk = firstChunk;
+    }
+
+    /**
+     * Splits the chunks of a columnar table into morsels of consecutive chunks, each holding about
+     * {@code morselSize} bytes of the given columns.
+     *
+     * @param tableName  The name of the table.
+     * @param columns    The indexes of the columns that will be read, or {@code null} for all columns.
+     * @param morselSize The target number of bytes read per morsel.
+     * @return The morsels in file order, whose bounds are chunk indexes.
+     * @throws RuntimeException if the file cannot be read.
+     */
+    public static List<ScanOperator.Morsel> splitIntoMorsels(String tableName, int[] columns, long morselSize) {
+        String path = Catalog.getInstance().getColumnarFilePathForTable(tableName);
+        List<ScanOperator.Morsel> morsels = new ArrayList<>();
+        try (ColumnarTableReader reader = new ColumnarTableReader(path)) {
+            int[] readColumns = columns != null ? columns : allColumns(reader.getColumnCount());
+            int start = 0;
+            long bytes = 0;
+            for (int chunk = 0; chunk < reader.getChunkCount(); chunk++) {
+                for (int column : readColumns) {
+                    bytes += reader.getColumnChunk(chunk, column).getLength();
+                }
+                if (bytes >= morselSize || chunk == reader.getChunkCount() - 1) {
+                    morsels.add(new ScanOperator.Morsel(start, chunk + 1));
+                    start = chunk + 1;
+                    bytes = 0;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error splitting table " + tableName + " into morsels: " + e.getMessage(), e);
+        }
+        return morsels;
+    }
+
+    private static int[] allColumns(int columnCount) {
+        int[] columns = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    /**
+     * Opens the columnar file and derives the slot types of the produced tuples from its column types.
+     *
+     * @throws RuntimeException if the file cannot be opened.
+     */
+    private void open() {
+        try {
+            reader = new ColumnarTableReader(filePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening columnar file of table " + tableName + ": " + e.getMessage(), e);
+        }
+        ColumnType[] types = reader.getColumnTypes();
+        columnCount = types.length;
+        tupleTypes = null;
+        for (ColumnType type : types) {
+            if (type != ColumnType.INT) {
+                tupleTypes = types;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the next tuple of the table.
+     *
+     * @return The next {@link Tuple}, or {@code null} once every chunk of the scan has been read.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (row == chunkRowCount && !loadNextChunk()) {
+            return null;
+        }
+        return buildTuple(row++);
+    }
+
+    /**
+     * Builds the tuples of up to a full batch of rows of the current chunk.
+     *
+     * @return The next batch of tuples, or {@code null} once every chunk of the scan has been read.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        batch.clear();
+        if (row == chunkRowCount && !loadNextChunk()) {
+            return null;
+        }
+        while (row < chunkRowCount && !batch.isFull()) {
+            batch.add(buildTuple(row++));
+        }
+        return batch;
+    }
+
+    /**
+     * Reads the scanned columns of the next chunk that has rows.
+     *
+     * @return {@code false} if there are no more chunks.
+     */
+    private boolean loadNextChunk() {
+        while (nextChunk < endChunk) {
+            int chunk = nextChunk++;
+            chunkRowCount = reader.getChunkRowCount(chunk);
+            row = 0;
+            if (chunkRowCount == 0) {
+                continue;
+            }
+            if (filter != null) {
+                if (!filter.mightMatch(column -> reader.getColumnChunk(chunk, column).getStatistics())) {
+                    QueryMetrics.add("ZoneMap.chunksSkipped", 1);
+                    chunkRowCount = 0;
+                    continue;
+                }
+                QueryMetrics.add("ZoneMap.chunksRead", 1);
+            }
+            try {
+                if (vectors == null) {
+                    vectors = new ColumnarTableReader.ColumnVector[columns.length];
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    vectors[i] = reader.readColumn(chunk, columns[i]);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading columnar file of table " + tableName + ": " + e.getMessage(), e);
+            }
+            return true;
+        }
+        chunkRowCount = 0;
+        row = 0;
+        return false;
+    }
+
+    private Tuple buildTuple(int index) {
+        long[] values = new long[columnCount];
+        String[] strings = null;
+        for (int i = 0; i < columns.length; i++) {
+            ColumnarTableReader.ColumnVector vector = vectors[i];
+            values[columns[i]] = vector.getValue(index);
+            String text = vector.getString(index);
+            if (text != null) {
+                if (strings == null) {
+                    strings = new String[columnCount];
+                }
+                strings[columns[i]] = text;
+            }
+        }
+        return new Tuple(values, strings, tupleTypes);
+    }
+
+    /**
+     * Resets the scan to the first chunk of its range.
+     */
+    @Override
+    public void reset() {
+        nextChunk = firstChunk;
+        chunkRowCount = 0;
+        row = 0;
+    }
+}
@@ -1,24 +1,31 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
-import java.util.HashSet;
-import java.util.Set;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+import ed.inf.adbs.blazedb.util.SpillFile;
+import ed.inf.adbs.blazedb.util.TupleArena;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
  * The {@code DuplicateEliminationOperator} class is responsible for removing duplicate tuples
  * from the data stream provided by its child operator. It extends the abstract {@link Operator}
- * class within the BlazeDB framework, utilizing each tuple's string representation to identify
+ * class within the BlazeDB framework, utilizing each tuple's field values to identify
  * and eliminate duplicates efficiently.
  *
  * This operator is essential in query execution plans where duplicate records need to be
- * filtered out to ensure the correctness and integrity of the resulting dataset. By leveraging
- * the {@code toString()} method of the {@link Tuple} class, it uniquely identifies tuples that
- * have already been processed, thereby preventing redundant data from propagating further
- * through the operator pipeline.
+ * filtered out to ensure the correctness and integrity of the resulting dataset. By hashing and
+ * comparing the primitive field slots and types of tuples, as the {@code equals()} method of the
+ * {@link Tuple} class does, it uniquely identifies tuples that have already been processed, thereby
+ * preventing redundant data from propagating further through the operator pipeline.
  *
  * Key Features:
- *  - Duplicate Detection: Utilizes a {@link Set} to track and identify unique tuples
- *         based on their string representations.
+ *  - Duplicate Detection: Utilizes an open-addressing hash set over the raw field values of the
+ *         tuples to track and identify unique tuples.
+ *  - Bounded Memory: Once the set of distinct tuples exceeds its memory budget, the tuples not yet
+ *         seen are partitioned to spill files and deduplicated one partition at a time.
  *  - Child Operator Integration: Works in conjunction with a child operator to
  *         seamlessly eliminate duplicates from the data stream.
  *  - Reset Capability: Provides the ability to reset its state, allowing for
@@ -26,22 +33,57 @@ import java.util.Set;
  *
  *
  * Implementation Details:
- * The class maintains an internal {@code HashSet<String>} called {@code seenTuples} to store
- * the string representations of tuples that have already been encountered.
- * During iteration, each incoming tuple from the child operator is converted to a string and
- * checked against {@code seenTuples}. If it is not present, it's added to the set and returned;
- * otherwise, it's skipped to eliminate the duplicate.
+ * The class stores the tuples that have already been encountered off the heap, in a {@link TupleArena}
+ * called {@code seenTuples}, and finds them through an open-addressing hash table of their row numbers,
+ * probed linearly, which also keeps the 64-bit hash of each row. During iteration, the hash of each
+ * incoming tuple is computed once; only the rows of its probe sequence with the same hash are compared
+ * in place with it. If it is not present, it's added to the set and returned; otherwise, it's skipped
+ * to eliminate the duplicate.
+ *
+ * When the set grows beyond the memory budget, it stops growing: incoming tuples found in it are still
+ * skipped, while the others are written to one of {@value #FANOUT} spill files chosen by the bits of
+ * their hash, so that all the copies of a tuple land in the same file. Once the input is exhausted,
+ * each file is read back in turn into an empty set, and is itself partitioned with the next bits of
+ * the hash if its distinct tuples do not fit either, up to {@value #MAX_DEPTH} levels; beyond that the
+ * set grows past the budget. The spilled bytes and partitions and the maximum depth are reported through
+ * {@link QueryMetrics}. A spilled operator returns its tuples in a different order from its input, so
+ * a plan relying on the input order is given an unlimited budget.
+ *
  * The {@code reset()} method clears the {@code seenTuples} set and resets the child operator,
  * allowing the elimination process to start fresh for subsequent queries.
  */
 public class DuplicateEliminationOperator extends Operator {
 
+    // Initial number of slots of the hash table.
+    private static final int INITIAL_CAPACITY = 1024;
+    // Number of partitions created each time the set overflows; a power of two.
+    static final int FANOUT = 16;
+    private static final int FANOUT_BITS = Integer.numberOfTrailingZeros(FANOUT);
+    // Maximum number of partitioning levels, each consuming FANOUT_BITS high bits of the hash.
+    static final int MAX_DEPTH = 4;
+
     private final Operator child;
-    private final Set<String> seenTuples;
+    private final long memoryBudget;  // memory budget of the set of distinct tuples in bytes
+    private final String scratchDir;  // directory for the partition files
+    private final TupleArena seenTuples;
+    // Number plus one of the row of the tuple in each slot, 0 for an empty slot; at most half full.
+    private int[] table;
+    // Hash of the tuple in each slot.
+    private long[] hashes;
+
+    // Partitioning level of the current input: 0 for the child, the depth of the partition being read otherwise.
+    private int depth;
+    // Partition being read, or null while reading the child.
+    private SpillFile currentPartition;
+    // Partitions of the tuples not yet seen, or null as long as the set fits in memory.
+    private SpillFile[] spillFiles;
+    // Spilled partitions still to be deduplicated.
+    private final Deque<Partition> pendingPartitions;
 
 
     /**
      * Constructs a {@code DuplicateEliminationOperator} with the specified child operator.
+     * The memory budget and scratch directory are taken from the {@link ExecutionConfig}.
      *
      * @param child The child {@link Operator} from which tuples are retrieved.
      *              Must not be {@code null}.
@@ -49,42 +91,222 @@ public class DuplicateEliminationOperator extends Operator {
      * @throws IllegalArgumentException if {@code child} is {@code null}.
      */
     public DuplicateEliminationOperator(Operator child) {
+        this(child, ExecutionConfig.getInstance().getDistinctMemoryBudget(),
+                ExecutionConfig.getInstance().getScratchDir());
+    }
+
+    /**
+     * Constructs a {@code DuplicateEliminationOperator} with an explicit memory budget and scratch directory.
+     *
+     * @param child        The child {@link Operator} from which tuples are retrieved.
+     * @param memoryBudget The size in bytes beyond which the set of distinct tuples is partitioned to disk;
+     *                     {@link Long#MAX_VALUE} keeps it in memory and the tuples in their input order.
+     * @param scratchDir   The directory in which partitions are written.
+     */
+    public DuplicateEliminationOperator(Operator child, long memoryBudget, String scratchDir) {
         this.child = child;
-        this.seenTuples = new HashSet<>();
+        this.memoryBudget = memoryBudget;
+        this.scratchDir = scratchDir;
+        this.seenTuples = new TupleArena();
+        this.table = new int[INITIAL_CAPACITY];
+        this.hashes = new long[INITIAL_CAPACITY];
+        this.pendingPartitions = new ArrayDeque<>();
     }
 
     /**
      * Retrieves the next unique tuple from the child operator.
      *
      * This method iteratively fetches tuples from the child operator and checks whether
-     * each tuple has been seen before by examining its string representation. If the tuple
+     * each tuple has been seen before by comparing its field values. If the tuple
      * is unique, it is returned; otherwise, it is skipped to prevent duplicate entries.
+     * Once the child is exhausted, the spilled partitions, if any, are deduplicated in turn.
      *
      * @return The next distinct {@link Tuple}, or {@code null} if no more tuples are available.
      */
     @Override
     public Tuple getNextTuple() {
-        Tuple tuple;
-        while ((tuple = child.getNextTuple()) != null) {
-            // Use tuple.toString() as a unique signature for duplicate detection.
-            if (seenTuples.add(tuple.toString())) {
+        while (true) {
+            Tuple tuple;
+            while ((tuple = nextInput()) != null) {
+                long hash = hash(tuple);
+                int slot = find(tuple, hash);
+                if (table[slot] != 0) {
+                    continue;
+                }
+                if (spillFiles != null) {
+                    spill(tuple, hash);
+                    continue;
+                }
+                insert(slot, tuple, hash);
+                if (depth < MAX_DEPTH && getMemoryUsage() > memoryBudget) {
+                    spillFiles = new SpillFile[FANOUT];
+                }
                 return tuple;
             }
+            finishInput();
+            Partition next = pendingPartitions.pollFirst();
+            if (next == null) {
+                // Every distinct tuple has been returned: free the memory of the set.
+                seenTuples.release();
+                table = new int[INITIAL_CAPACITY];
+                hashes = new long[INITIAL_CAPACITY];
+                return null;
+            }
+            // The tuples of a partition differ from every tuple returned so far.
+            seenTuples.clear();
+            table = new int[INITIAL_CAPACITY];
+            hashes = new long[INITIAL_CAPACITY];
+            depth = next.depth;
+            currentPartition = next.file;
+            currentPartition.openReader();
         }
-        return null;
+    }
+
+    private Tuple nextInput() {
+        return currentPartition == null ? child.getNextTuple() : currentPartition.read();
+    }
+
+    /**
+     * Queues the partitions spilled while reading the current input, and deletes the partition just read.
+     */
+    private void finishInput() {
+        if (spillFiles != null) {
+            for (SpillFile file : spillFiles) {
+                if (file != null) {
+                    QueryMetrics.add("DuplicateElimination.spillBytes", file.finishWriting());
+                    QueryMetrics.add("DuplicateElimination.spilledPartitions", 1);
+                    pendingPartitions.addLast(new Partition(file, depth + 1));
+                }
+            }
+            QueryMetrics.max("DuplicateElimination.maxDepth", depth + 1);
+            spillFiles = null;
+        }
+        if (currentPartition != null) {
+            currentPartition.delete();
+            currentPartition = null;
+        }
+    }
+
+    /**
+     * Returns the slot holding a tuple equal to the given one, or the empty slot where it belongs.
+     */
+    private int find(Tuple tuple, long hash) {
+        int mask = table.length - 1;
+        int slot = (int) hash & mask;
+        while (table[slot] != 0) {
+            if (hashes[slot] == hash && seenTuples.equalsTuple(table[slot] - 1, tuple)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, Tuple tuple, long hash) {
+        table[slot] = seenTuples.add(tuple) + 1;
+        hashes[slot] = hash;
+        if (2 * seenTuples.size() > table.length) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        int[] resizedTable = new int[table.length * 2];
+        long[] resizedHashes = new long[resizedTable.length];
+        int mask = resizedTable.length - 1;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != 0) {
+                int slot = (int) hashes[i] & mask;
+                while (resizedTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                resizedTable[slot] = table[i];
+                resizedHashes[slot] = hashes[i];
+            }
+        }
+        table = resizedTable;
+        hashes = resizedHashes;
+    }
+
+    /**
+     * Writes a tuple not yet seen to the partition selected by the bits of its hash for the current depth;
+     * the low bits, which select its slot in the table, are never used.
+     */
+    private void spill(Tuple tuple, long hash) {
+        int partition = (int) (hash >>> (Long.SIZE - FANOUT_BITS * (depth + 1))) & (FANOUT - 1);
+        if (spillFiles[partition] == null) {
+            spillFiles[partition] = new SpillFile(scratchDir, "distinct");
+        }
+        spillFiles[partition].write(tuple);
+    }
+
+    /**
+     * Returns the memory held by the set: its rows and the slots of the table.
+     */
+    private long getMemoryUsage() {
+        return seenTuples.getMemoryUsage() + 12L * table.length;
+    }
+
+    /**
+     * Computes the 64-bit hash of a tuple from the slots and types of its fields, so that tuples equal
+     * according to {@link Tuple#equals(Object)} have the same hash.
+     */
+    static long hash(Tuple tuple) {
+        int fieldCount = tuple.size();
+        long hash = fieldCount;
+        for (int i = 0; i < fieldCount; i++) {
+            hash = (hash ^ tuple.getLong(i)) * 0x9E3779B97F4A7C15L + tuple.getType(i).ordinal();
+            hash ^= hash >>> 29;
+        }
+        // Final mix of SplitMix64, spreading every input bit over the high and low bits.
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
     }
 
     /**
      * Resets the {@code DuplicateEliminationOperator} to its initial state.
      *
-     * This method clears the internal cache of seen tuples and resets the child operator,
-     * enabling the operator to be reused for processing a new set of tuples without retaining
-     * any information from previous executions.
+     * This method clears the internal cache of seen tuples, deletes any spilled partition and resets
+     * the child operator, enabling the operator to be reused for processing a new set of tuples without
+     * retaining any information from previous executions.
      */
 
     @Override
     public void reset() {
         child.reset();
+        if (spillFiles != null) {
+            for (SpillFile file : spillFiles) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+            spillFiles = null;
+        }
+        if (currentPartition != null) {
+            currentPartition.delete();
+            currentPartition = null;
+        }
+        for (Partition partition : pendingPartitions) {
+            partition.file.delete();
+        }
+        pendingPartitions.clear();
+        depth = 0;
         seenTuples.clear();
+        table = new int[INITIAL_CAPACITY];
+        hashes = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * A spilled partition and the level at which it was created.
+     */
+    private static final class Partition {
+        final SpillFile file;
+        final int depth;
+
+        Partition(SpillFile file, int depth) {
+            this.file = file;
+            this.depth = depth;
+        }
     }
-}
\ No newline at end of file
+}
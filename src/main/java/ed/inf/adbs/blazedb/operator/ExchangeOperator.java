@@ -0,0 +1,298 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The {@code ExchangeOperator} scans a table with several threads and merges their results.
+ *
+ * The table file is split into morsels, byte ranges made of whole lines (or ranges of chunks for a columnar file,
+ * see {@link ColumnarScanOperator}). Each worker thread repeatedly claims the next unscanned morsel and runs its
+ * own pipeline over it: a scan restricted to the morsel,
+ * wrapped by the stages added with {@link #addStage(Function)} (typically a {@link SelectOperator} and a
+ * {@link ProjectionOperator}). The batches produced by the pipelines are copied into a bounded queue, from which
+ * the consuming thread reads them. Results therefore arrive in no particular order.
+ *
+ * Workers are started on the first call to {@link #getNextTuple()} or {@link #getNextBatch()}. They are daemon
+ * threads, and they stop as soon as the operator is reset, so a consumer that stops reading early (e.g. a LIMIT)
+ * does not keep them alive.
+ */
+public class ExchangeOperator extends Operator {
+    // Number of result batches each worker may have queued before it waits for the consumer.
+    private static final int QUEUED_BATCHES_PER_WORKER = 4;
+    // Marks the end of the output of one worker.
+    private static final List<Tuple> END_OF_WORKER = new ArrayList<>();
+
+    private final String tableName;
+    private final List<ScanOperator.Morsel> morsels;
+    // Creates the scan of one morsel.
+    private final Function<ScanOperator.Morsel, Operator> morselScan;
+    private final int threads;
+    private final List<Function<Operator, Operator>> stages = new ArrayList<>();
+
+    // State of the current execution; null until the workers are started.
+    private Execution execution;
+    private List<Tuple> currentRows;
+    private int rowIndex;
+    private final TupleBatch batch = new TupleBatch();
+
+    /**
+     * Constructs an {@code ExchangeOperator} scanning morsels of a CSV table file with {@link ScanOperator}s.
+     *
+     * @param tableName The name of the table to scan.
+     * @param morsels   The morsels of the table's file, as returned by {@link ScanOperator#splitIntoMorsels}.
+     * @param threads   The number of worker threads; never more than the number of morsels are started.
+     */
+    public ExchangeOperator(String tableName, List<ScanOperator.Morsel> morsels, int threads) {
+        this(tableName, morsels, morsel -> new ScanOperator(tableName, morsel), threads);
+    }
+
+    /**
+     * Constructs an {@code ExchangeOperator} with a given scan for each morsel.
+     *
+     * @param tableName  The name of the table to scan.
+     * @param morsels    The morsels of the table.
+     * @param morselScan Creates the scan of one morsel, e.g. a {@link ColumnarScanOperator}.
+     * @param threads    The number of worker threads; never more than the number of morsels are started.
+     */
+    public ExchangeOperator(String tableName, List<ScanOperator.Morsel> morsels,
+                            Function<ScanOperator.Morsel, Operator> morselScan, int threads) {
+        this.tableName = tableName;
+        this.morsels = morsels;
+        this.morselScan = morselScan;
+        this.threads = Math.max(1, Math.min(threads, morsels.size()));
+    }
+
+    /**
+     * Adds an operator on top of the pipeline run by every worker. Stages are applied in the order in which
+     * they are added, the first one to the morsel scan.
+     *
+     * @param stage A function wrapping the pipeline built so far into a new operator.
+     */
+    public void addStage(Function<Operator, Operator> stage) {
+        if (execution != null) {
+            throw new IllegalStateException("Stages must be added before the exchange is read.");
+        }
+        stages.add(stage);
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        while (currentRows == null || rowIndex == currentRows.size()) {
+            currentRows = nextRows();
+            rowIndex = 0;
+            if (currentRows == null) {
+                return null;
+            }
+        }
+        return currentRows.get(rowIndex++);
+    }
+
+    @Override
+    public TupleBatch getNextBatch() {
+        batch.clear();
+        // Tuples left over from getNextTuple come first.
+        while (currentRows != null && rowIndex < currentRows.size() && !batch.isFull()) {
+            batch.add(currentRows.get(rowIndex++));
+        }
+        if (batch.isEmpty()) {
+            currentRows = nextRows();
+            rowIndex = 0;
+            if (currentRows == null) {
+                return null;
+            }
+            // Workers queue at most one batch worth of rows at a time.
+            while (rowIndex < currentRows.size() && !batch.isFull()) {
+                batch.add(currentRows.get(rowIndex++));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Takes the next chunk of rows produced by any worker, starting the workers on the first call.
+     *
+     * @return A non-empty list of rows, or {@code null} once every worker has finished.
+     */
+    private List<Tuple> nextRows() {
+        if (execution == null) {
+            execution = new Execution();
+        }
+        return execution.take();
+    }
+
+    /**
+     * Stops the workers of the current execution. The next read starts a new execution from the first morsel.
+     */
+    @Override
+    public void reset() {
+        if (execution != null) {
+            execution.cancel();
+            execution = null;
+        }
+        currentRows = null;
+        rowIndex = 0;
+    }
+
+    /**
+     * Runs the workers' pipelines to completion and hands every batch they produce to a consumer in the
+     * worker's own thread, instead of queueing the rows for the calling thread. Each worker keeps its own
+     * state, so consumers can pre-aggregate without synchronisation; the caller then merges the states.
+     *
+     * @param stateFactory Creates the state of one worker.
+     * @param consumer     Processes one batch with the state of the worker that produced it.
+     * @param <T>          The type of the per-worker state.
+     * @return The states of all workers.
+     * @throws RuntimeException if a worker fails or the calling thread is interrupted.
+     */
+    public <T> List<T> consumeInWorkers(Supplier<T> stateFactory, BiConsumer<T, TupleBatch> consumer) {
+        AtomicInteger nextMorsel = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<T> states = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            T state = stateFactory.get();
+            states.add(state);
+            Thread worker = new Thread(() -> {
+                try {
+                    int index;
+                    while (failure.get() == null && (index = nextMorsel.getAndIncrement()) < morsels.size()) {
+                        Operator pipeline = buildPipeline(morsels.get(index));
+                        TupleBatch output;
+                        while ((output = pipeline.getNextBatch()) != null) {
+                            consumer.accept(state, output);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "exchange-" + tableName + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the scan of " + tableName, e);
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException("Parallel scan of " + tableName + " failed: " + failure.get().getMessage(), failure.get());
+        }
+        return states;
+    }
+
+    /**
+     * Builds the pipeline a worker runs over one morsel.
+     */
+    private Operator buildPipeline(ScanOperator.Morsel morsel) {
+        Operator pipeline = morselScan.apply(morsel);
+        for (Function<Operator, Operator> stage : stages) {
+            pipeline = stage.apply(pipeline);
+        }
+        return pipeline;
+    }
+
+    /**
+     * One run of the workers over all morsels.
+     */
+    private final class Execution {
+        private final AtomicInteger nextMorsel = new AtomicInteger();
+        private final BlockingQueue<List<Tuple>> queue = new ArrayBlockingQueue<>(threads * QUEUED_BATCHES_PER_WORKER);
+        private final List<Thread> workers = new ArrayList<>();
+        private volatile boolean cancelled = false;
+        private volatile Throwable failure;
+        private int runningWorkers;
+
+        Execution() {
+            runningWorkers = threads;
+            for (int i = 0; i < threads; i++) {
+                Thread worker = new Thread(this::work, "exchange-" + tableName + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        private void work() {
+            try {
+                int index;
+                while (!stopping() && (index = nextMorsel.getAndIncrement()) < morsels.size()) {
+                    Operator pipeline = buildPipeline(morsels.get(index));
+                    TupleBatch output;
+                    while (!stopping() && (output = pipeline.getNextBatch()) != null) {
+                        // The pipeline reuses its batch, so the rows are copied out before it is refilled.
+                        List<Tuple> rows = new ArrayList<>(output.size());
+                        for (int i = 0; i < output.size(); i++) {
+                            rows.add(output.get(i));
+                        }
+                        put(rows);
+                    }
+                }
+            } catch (Throwable t) {
+                // The other workers stop as well; the consumer reports the failure.
+                failure = t;
+            } finally {
+                put(END_OF_WORKER);
+            }
+        }
+
+        private boolean stopping() {
+            return cancelled || failure != null;
+        }
+
+        /**
+         * Queues rows for the consumer, giving up if the execution is cancelled while the queue is full.
+         */
+        private void put(List<Tuple> rows) {
+            try {
+                while (!cancelled && !queue.offer(rows, 100, TimeUnit.MILLISECONDS)) {
+                    // Wait for the consumer.
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<Tuple> take() {
+            try {
+                while (runningWorkers > 0) {
+                    List<Tuple> rows = queue.take();
+                    if (rows == END_OF_WORKER) {
+                        runningWorkers--;
+                    } else if (!rows.isEmpty()) {
+                        return rows;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the scan of " + tableName, e);
+            }
+            if (failure != null) {
+                throw new RuntimeException("Parallel scan of " + tableName + " failed: " + failure.getMessage(), failure);
+            }
+            return null;
+        }
+
+        void cancel() {
+            cancelled = true;
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+    }
+}
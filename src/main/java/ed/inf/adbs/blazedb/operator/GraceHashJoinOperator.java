@@ -0,0 +1,498 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+import ed.inf.adbs.blazedb.util.SpillFile;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.*;
+
+/**
+ * The {@code GraceHashJoinOperator} implements a hybrid (Grace) hash join for equi-join conditions whose
+ * inputs may not fit in memory. The right child is the build side and the left child is the probe side.
+ *
+ * The join algorithm operates as follows:
+ * 1. The build side is loaded into an in-memory hash table. As long as it stays within the memory budget,
+ *    the join behaves exactly like an in-memory hash join.
+ * 2. Once the budget is exceeded, the build tuples are split into {@value #FANOUT} partitions by hashing
+ *    their join key. Partition 0 stays resident in memory (hybrid hashing) while the other partitions are
+ *    spilled to temporary files in the scratch directory. If the resident partition overflows as well,
+ *    it is spilled too.
+ * 3. Probe tuples falling into the resident partition are joined immediately; the others are written to
+ *    the probe file of their partition.
+ * 4. Each pair of spilled build/probe partitions is then joined in turn. A build partition that still
+ *    exceeds the budget is recursively repartitioned with a different hash function, up to
+ *    {@value #MAX_DEPTH} levels; beyond that (e.g. a single heavily skewed key), the build partition is
+ *    processed in budget-sized chunks, re-reading the probe partition once per chunk.
+ *
+ * The number of spilled bytes and partitions and the maximum recursion depth are reported through
+ * {@link QueryMetrics} so that the memory budget can be sized from real runs.
+ */
+public class GraceHashJoinOperator extends Operator {
+    // Number of partitions created each time a build input is partitioned.
+    static final int FANOUT = 16;
+    // Maximum number of recursive repartitioning levels.
+    static final int MAX_DEPTH = 4;
+
+    private Operator left;         // left (probe) child operator
+    private Operator right;        // right (build) child operator
+    // Children read one batch at a time.
+    private BatchedInput leftInput;
+    private BatchedInput rightInput;
+    private int[] leftKeyIndexes;  // indexes of the equality columns in the left tuples
+    private int[] rightKeyIndexes; // indexes of the equality columns in the right tuples
+    private Expression residualCondition; // non-equality part of the join condition (may be null)
+    private TuplePredicate residualPredicate;  // compiled form of residualCondition
+    private Map<String, Integer> schemaMapping; // combined schema mapping for the joined tuple
+    private long memoryBudget;     // memory budget of the hash table in bytes
+    private String scratchDir;     // directory for the partition files
+
+    // In-memory hash table over the build tuples currently being joined.
+    private Map<Object, List<Tuple>> hashTable;
+    private long memoryUsed;
+
+    // Top-level partition files; null as long as the build side fits in memory.
+    private SpillFile[] buildFiles;
+    private SpillFile[] probeFiles;
+    private long[] buildPartitionBytes;
+    // Partition kept in memory at the top level, or -1 once it has been spilled as well.
+    private int residentPartition;
+    private boolean leftExhausted;
+
+    // Spilled partition pairs still to be joined.
+    private Deque<PartitionPair> pendingPairs;
+    private PartitionPair currentPair;
+    private boolean currentPairFullyLoaded;
+
+    private Tuple currentProbe;    // current tuple from the probe side
+    private List<Tuple> currentMatches;
+    private int matchIndex;
+
+    private long spilledBytes;
+    private int spilledPartitions;
+    private int maxDepthReached;
+
+    /**
+     * Constructs a GraceHashJoinOperator.
+     *
+     * @param left              The left (probe) operator.
+     * @param right             The right (build) operator.
+     * @param leftKeyIndexes    The indexes of the join columns in the left tuples.
+     * @param rightKeyIndexes   The indexes of the join columns in the right tuples, aligned with {@code leftKeyIndexes}.
+     * @param residualCondition The remaining join condition evaluated on joined tuples (can be null).
+     * @param schemaMapping     A combined schema mapping that maps fully qualified column names
+     *                          (e.g., "Student.sid" or "Course.cid") to their index in the joined tuple.
+     * @param memoryBudget      The maximum estimated size in bytes of the in-memory hash table.
+     * @param scratchDir        The directory in which partition files are created.
+     */
+    public GraceHashJoinOperator(Operator left, Operator right, int[] leftKeyIndexes, int[] rightKeyIndexes,
+                                 Expression residualCondition, Map<String, Integer> schemaMapping,
+                                 long memoryBudget, String scratchDir) {
+        this.left = left;
+        this.right = right;
+        this.leftInput = new BatchedInput(left);
+        this.rightInput = new BatchedInput(right);
+        this.leftKeyIndexes = leftKeyIndexes;
+        this.rightKeyIndexes = rightKeyIndexes;
+        this.residualCondition = residualCondition;
+        this.schemaMapping = schemaMapping;
+        this.memoryBudget = memoryBudget;
+        this.scratchDir = scratchDir;
+    }
+
+    /**
+     * Returns the next joined tuple, building (and if needed partitioning) the build side on the first call.
+     *
+     * @return the next joined Tuple that satisfies the join condition, or null if no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (hashTable == null) {
+            build();
+        }
+
+        while (true) {
+            while (currentMatches != null && matchIndex < currentMatches.size()) {
+                Tuple joinedTuple = combineTuples(currentProbe, currentMatches.get(matchIndex++));
+                if (satisfiesResidual(joinedTuple)) {
+                    return joinedTuple;
+                }
+            }
+            currentMatches = null;
+
+            currentProbe = nextProbeTuple();
+            if (currentProbe == null) {
+                if (!advance()) {
+                    return null;
+                }
+                continue;
+            }
+
+            Object key = HashJoinOperator.extractKey(currentProbe, leftKeyIndexes);
+            if (currentPair == null && buildFiles != null) {
+                // Top-level probe of a partitioned build side: only the resident partition is in memory.
+                int partition = partitionOf(key, 0);
+                if (partition != residentPartition) {
+                    if (buildFiles[partition] != null) {
+                        if (probeFiles[partition] == null) {
+                            probeFiles[partition] = new SpillFile(scratchDir, "hashjoin-probe");
+                        }
+                        probeFiles[partition].write(currentProbe);
+                    }
+                    continue;
+                }
+            }
+            currentMatches = hashTable.get(key);
+            matchIndex = 0;
+        }
+    }
+
+    /**
+     * Reads the build side into memory, partitioning and spilling it as soon as the memory budget is exceeded.
+     */
+    private void build() {
+        hashTable = new HashMap<>();
+        memoryUsed = 0;
+        residentPartition = 0;
+        pendingPairs = new ArrayDeque<>();
+
+        Tuple tuple;
+        while ((tuple = rightInput.next()) != null) {
+            Object key = HashJoinOperator.extractKey(tuple, rightKeyIndexes);
+            if (buildFiles == null) {
+                insert(key, tuple);
+                if (memoryUsed > memoryBudget) {
+                    partitionBuildSide();
+                }
+            } else {
+                int partition = partitionOf(key, 0);
+                if (partition == residentPartition) {
+                    insert(key, tuple);
+                    if (memoryUsed > memoryBudget) {
+                        spillResidentPartition();
+                    }
+                } else {
+                    spillBuildTuple(partition, tuple);
+                }
+            }
+        }
+
+        if (buildFiles != null) {
+            probeFiles = new SpillFile[FANOUT];
+            for (SpillFile file : buildFiles) {
+                if (file != null) {
+                    recordSpill(file.finishWriting());
+                    spilledPartitions++;
+                    QueryMetrics.add("GraceHashJoin.spilledPartitions", 1);
+                }
+            }
+            maxDepthReached = 1;
+            QueryMetrics.max("GraceHashJoin.maxDepth", 1);
+        }
+    }
+
+    private void insert(Object key, Tuple tuple) {
+        hashTable.computeIfAbsent(key, k -> new ArrayList<>()).add(tuple);
+        memoryUsed += tuple.getEstimatedSize();
+    }
+
+    /**
+     * Splits the in-memory build tuples into partitions, keeping the resident partition in memory.
+     */
+    private void partitionBuildSide() {
+        buildFiles = new SpillFile[FANOUT];
+        buildPartitionBytes = new long[FANOUT];
+        Map<Object, List<Tuple>> previous = hashTable;
+        hashTable = new HashMap<>();
+        memoryUsed = 0;
+        for (Map.Entry<Object, List<Tuple>> entry : previous.entrySet()) {
+            int partition = partitionOf(entry.getKey(), 0);
+            for (Tuple tuple : entry.getValue()) {
+                if (partition == residentPartition) {
+                    insert(entry.getKey(), tuple);
+                } else {
+                    spillBuildTuple(partition, tuple);
+                }
+            }
+        }
+        if (memoryUsed > memoryBudget) {
+            spillResidentPartition();
+        }
+    }
+
+    /**
+     * Moves the resident partition to disk once it no longer fits in memory by itself.
+     */
+    private void spillResidentPartition() {
+        int partition = residentPartition;
+        residentPartition = -1;
+        for (List<Tuple> tuples : hashTable.values()) {
+            for (Tuple tuple : tuples) {
+                spillBuildTuple(partition, tuple);
+            }
+        }
+        hashTable.clear();
+        memoryUsed = 0;
+    }
+
+    private void spillBuildTuple(int partition, Tuple tuple) {
+        if (buildFiles[partition] == null) {
+            buildFiles[partition] = new SpillFile(scratchDir, "hashjoin-build");
+        }
+        buildFiles[partition].write(tuple);
+        buildPartitionBytes[partition] += tuple.getEstimatedSize();
+    }
+
+    private Tuple nextProbeTuple() {
+        if (currentPair != null) {
+            return currentPair.probe.read();
+        }
+        if (leftExhausted) {
+            return null;
+        }
+        return leftInput.next();
+    }
+
+    /**
+     * Moves on to the next unit of work once the current probe input is exhausted: the next chunk of an
+     * oversized build partition, or the next spilled partition pair.
+     *
+     * @return {@code false} once every partition pair has been joined.
+     */
+    private boolean advance() {
+        if (currentPair == null) {
+            if (leftExhausted) {
+                return false;
+            }
+            // End of the top-level probe: schedule every spilled partition pair.
+            leftExhausted = true;
+            hashTable.clear();
+            memoryUsed = 0;
+            if (buildFiles == null) {
+                return false;
+            }
+            for (int p = 0; p < FANOUT; p++) {
+                if (buildFiles[p] != null && probeFiles[p] != null) {
+                    recordSpill(probeFiles[p].finishWriting());
+                    pendingPairs.add(new PartitionPair(buildFiles[p], probeFiles[p], buildPartitionBytes[p], 1));
+                } else {
+                    deleteFile(buildFiles[p]);
+                    deleteFile(probeFiles[p]);
+                }
+            }
+            buildFiles = null;
+            probeFiles = null;
+        } else if (!currentPairFullyLoaded) {
+            // The build partition is processed in chunks: load the next one and rescan the probe partition.
+            loadBuildChunk();
+            currentPair.probe.openReader();
+            return true;
+        } else {
+            currentPair.delete();
+            currentPair = null;
+        }
+
+        while (!pendingPairs.isEmpty()) {
+            PartitionPair pair = pendingPairs.poll();
+            if (pair.buildBytes > memoryBudget && pair.depth < MAX_DEPTH) {
+                repartition(pair);
+                continue;
+            }
+            currentPair = pair;
+            currentPair.build.openReader();
+            loadBuildChunk();
+            currentPair.probe.openReader();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loads build tuples of the current partition pair into the hash table until the memory budget is reached.
+     */
+    private void loadBuildChunk() {
+        hashTable.clear();
+        memoryUsed = 0;
+        currentPairFullyLoaded = true;
+        Tuple tuple;
+        while ((tuple = currentPair.build.read()) != null) {
+            insert(HashJoinOperator.extractKey(tuple, rightKeyIndexes), tuple);
+            if (memoryUsed > memoryBudget) {
+                currentPairFullyLoaded = false;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Splits an oversized partition pair into {@value #FANOUT} smaller pairs using the hash function of the next level.
+     */
+    private void repartition(PartitionPair pair) {
+        SpillFile[] childBuild = new SpillFile[FANOUT];
+        SpillFile[] childProbe = new SpillFile[FANOUT];
+        long[] childBytes = new long[FANOUT];
+
+        pair.build.openReader();
+        Tuple tuple;
+        while ((tuple = pair.build.read()) != null) {
+            int partition = partitionOf(HashJoinOperator.extractKey(tuple, rightKeyIndexes), pair.depth);
+            if (childBuild[partition] == null) {
+                childBuild[partition] = new SpillFile(scratchDir, "hashjoin-build");
+            }
+            childBuild[partition].write(tuple);
+            childBytes[partition] += tuple.getEstimatedSize();
+        }
+        pair.probe.openReader();
+        while ((tuple = pair.probe.read()) != null) {
+            int partition = partitionOf(HashJoinOperator.extractKey(tuple, leftKeyIndexes), pair.depth);
+            if (childBuild[partition] == null) {
+                continue;
+            }
+            if (childProbe[partition] == null) {
+                childProbe[partition] = new SpillFile(scratchDir, "hashjoin-probe");
+            }
+            childProbe[partition].write(tuple);
+        }
+        pair.delete();
+
+        int depth = pair.depth + 1;
+        maxDepthReached = Math.max(maxDepthReached, depth);
+        QueryMetrics.max("GraceHashJoin.maxDepth", depth);
+        for (int p = 0; p < FANOUT; p++) {
+            if (childBuild[p] != null && childProbe[p] != null) {
+                recordSpill(childBuild[p].finishWriting());
+                recordSpill(childProbe[p].finishWriting());
+                spilledPartitions++;
+                QueryMetrics.add("GraceHashJoin.spilledPartitions", 1);
+                // Deeper partitions are processed before the remaining ones to bound the number of open files.
+                pendingPairs.addFirst(new PartitionPair(childBuild[p], childProbe[p], childBytes[p], depth));
+            } else {
+                deleteFile(childBuild[p]);
+                deleteFile(childProbe[p]);
+            }
+        }
+    }
+
+    /**
+     * Maps a join key to a partition. The depth is mixed into the hash so that every recursion level
+     * distributes the keys of an oversized partition differently.
+     */
+    private int partitionOf(Object key, int depth) {
+        int h = key.hashCode() * 0x9E3779B9 + depth * 0x85EBCA6B;
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        h *= 0xC2B2AE35;
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % FANOUT;
+    }
+
+    private void recordSpill(long bytes) {
+        spilledBytes += bytes;
+        QueryMetrics.add("GraceHashJoin.spillBytes", bytes);
+    }
+
+    private static void deleteFile(SpillFile file) {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private boolean satisfiesResidual(Tuple joinedTuple) {
+        if (residualCondition == null) {
+            return true;
+        }
+        if (residualPredicate == null) {
+            // Compiled once, on the first joined tuple, into index-bound nodes.
+            residualPredicate = ExpressionCompiler.compilePredicate(residualCondition, schemaMapping, joinedTuple);
+        }
+        try {
+            return residualPredicate.test(joinedTuple);
+        } catch (Exception e) {
+            System.err.println("Error evaluating join condition for tuple: " + joinedTuple);
+            return false;
+        }
+    }
+
+    private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
+        return Tuple.concat(leftTuple, rightTuple);
+    }
+
+    /**
+     * @return The total number of bytes written to partition files so far.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * @return The number of build partitions that have been spilled to disk so far.
+     */
+    public int getSpilledPartitions() {
+        return spilledPartitions;
+    }
+
+    /**
+     * @return The deepest partitioning level reached (0 if the join ran entirely in memory).
+     */
+    public int getMaxDepthReached() {
+        return maxDepthReached;
+    }
+
+    /**
+     * Resets the {@code GraceHashJoinOperator} and its child operators to their initial states,
+     * removing any partition files that are still on disk.
+     */
+    @Override
+    public void reset() {
+        leftInput.reset();
+        rightInput.reset();
+        if (buildFiles != null) {
+            for (int p = 0; p < FANOUT; p++) {
+                deleteFile(buildFiles[p]);
+                deleteFile(probeFiles == null ? null : probeFiles[p]);
+            }
+        }
+        if (pendingPairs != null) {
+            for (PartitionPair pair : pendingPairs) {
+                pair.delete();
+            }
+        }
+        if (currentPair != null) {
+            currentPair.delete();
+        }
+        hashTable = null;
+        buildFiles = null;
+        probeFiles = null;
+        pendingPairs = null;
+        currentPair = null;
+        leftExhausted = false;
+        currentProbe = null;
+        currentMatches = null;
+        matchIndex = 0;
+    }
+
+    /**
+     * A spilled build partition together with the probe tuples that hash to it.
+     */
+    private static class PartitionPair {
+        private final SpillFile build;
+        private final SpillFile probe;
+        private final long buildBytes;
+        private final int depth;
+
+        PartitionPair(SpillFile build, SpillFile probe, long buildBytes, int depth) {
+            this.build = build;
+            this.probe = probe;
+            this.buildBytes = buildBytes;
+            this.depth = depth;
+        }
+
+        void delete() {
+            build.delete();
+            probe.delete();
+        }
+    }
+}
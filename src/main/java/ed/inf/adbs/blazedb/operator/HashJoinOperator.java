@@ -0,0 +1,232 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.*;
+
+/**
+ * The {@code HashJoinOperator} implements an in-memory hash join for equi-join conditions.
+ * It takes a left and a right child operator together with the indexes of the equality columns
+ * on each side, and an optional residual condition for the remaining (non-equality) conjuncts.
+ *
+ * The join algorithm operates as follows:
+ * 1. Both children are read alternately, one batch at a time, until one of them is exhausted. The exhausted side is the
+ *    smaller input and becomes the build side; the tuples already read from the other side are kept
+ *    and probed first.
+ * 2. The build side is loaded into a hash table keyed by the values of its join columns. Numeric keys are
+ *    normalised so that an integer matches a double of the same value, as in a selection.
+ * 3. Every tuple of the probe side looks up its matching build tuples in the hash table. Each match
+ *    is combined into a joined tuple (always left fields followed by right fields) and, if a residual
+ *    condition was provided, returned only if it satisfies that condition.
+ *
+ * Each child is read exactly once, so unlike the {@link JoinOperator} the right child is never reset
+ * and the cost of the join is linear in the size of its inputs.
+ */
+public class HashJoinOperator extends Operator {
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+
+    private Operator left;         // left child operator
+    private Operator right;        // right child operator
+    private int[] leftKeyIndexes;  // indexes of the equality columns in the left tuples
+    private int[] rightKeyIndexes; // indexes of the equality columns in the right tuples
+    private Expression residualCondition; // non-equality part of the join condition (may be null)
+    private TuplePredicate residualPredicate;  // compiled form of residualCondition
+    private Map<String, Integer> schemaMapping; // combined schema mapping for the joined tuple
+
+    // Hash table over the build side, from join key to all build tuples carrying that key.
+    private Map<Object, List<Tuple>> hashTable;
+    private boolean buildIsLeft;
+    private BatchedInput probeInput;
+    // Probe tuples read ahead while looking for the smaller input.
+    private Queue<Tuple> pendingProbeTuples;
+
+    private Tuple currentProbe;    // current tuple from the probe side
+    private List<Tuple> currentMatches;
+    private int matchIndex;
+
+    /**
+     * Constructs a HashJoinOperator.
+     *
+     * @param left              The left operator.
+     * @param right             The right operator.
+     * @param leftKeyIndexes    The indexes of the join columns in the left tuples.
+     * @param rightKeyIndexes   The indexes of the join columns in the right tuples, aligned with {@code leftKeyIndexes}.
+     * @param residualCondition The remaining join condition evaluated on joined tuples (can be null).
+     * @param schemaMapping     A combined schema mapping that maps fully qualified column names
+     *                          (e.g., "Student.sid" or "Course.cid") to their index in the joined tuple.
+     */
+    public HashJoinOperator(Operator left, Operator right, int[] leftKeyIndexes, int[] rightKeyIndexes,
+                            Expression residualCondition, Map<String, Integer> schemaMapping) {
+        this.left = left;
+        this.right = right;
+        this.leftKeyIndexes = leftKeyIndexes;
+        this.rightKeyIndexes = rightKeyIndexes;
+        this.residualCondition = residualCondition;
+        this.schemaMapping = schemaMapping;
+    }
+
+    /**
+     * Returns the next joined tuple, building the hash table on the first call.
+     *
+     * @return the next joined Tuple that satisfies the join condition, or null if no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (hashTable == null) {
+            build();
+        }
+
+        while (true) {
+            while (currentMatches != null && matchIndex < currentMatches.size()) {
+                Tuple match = currentMatches.get(matchIndex++);
+                Tuple joinedTuple = buildIsLeft
+                        ? combineTuples(match, currentProbe)
+                        : combineTuples(currentProbe, match);
+                if (satisfiesResidual(joinedTuple)) {
+                    return joinedTuple;
+                }
+            }
+
+            currentProbe = nextProbeTuple();
+            if (currentProbe == null) {
+                return null;
+            }
+            int[] probeKeys = buildIsLeft ? rightKeyIndexes : leftKeyIndexes;
+            currentMatches = hashTable.get(extractKey(currentProbe, probeKeys));
+            matchIndex = 0;
+        }
+    }
+
+    /**
+     * Reads both children alternately until one is exhausted, then hashes the exhausted (smaller) side.
+     */
+    private void build() {
+        List<Tuple> leftTuples = new ArrayList<>();
+        List<Tuple> rightTuples = new ArrayList<>();
+        boolean leftDone = false;
+        boolean rightDone = false;
+        while (!leftDone && !rightDone) {
+            leftDone = !readBatch(left, leftTuples);
+            rightDone = !readBatch(right, rightTuples);
+        }
+
+        // On a tie the right side is built so the left keeps its role as the outer relation.
+        buildIsLeft = leftDone && !rightDone;
+        List<Tuple> buildTuples = buildIsLeft ? leftTuples : rightTuples;
+        int[] buildKeys = buildIsLeft ? leftKeyIndexes : rightKeyIndexes;
+
+        hashTable = new HashMap<>();
+        for (Tuple tuple : buildTuples) {
+            hashTable.computeIfAbsent(extractKey(tuple, buildKeys), k -> new ArrayList<>()).add(tuple);
+        }
+
+        pendingProbeTuples = new LinkedList<>(buildIsLeft ? rightTuples : leftTuples);
+        // The probe side is only read further if it has not been exhausted already.
+        probeInput = (buildIsLeft ? rightDone : leftDone) ? null : new BatchedInput(buildIsLeft ? right : left);
+    }
+
+    /**
+     * Appends the next batch of a child to a list.
+     *
+     * @return {@code false} if the child is exhausted.
+     */
+    private static boolean readBatch(Operator child, List<Tuple> tuples) {
+        TupleBatch batch = child.getNextBatch();
+        if (batch == null) {
+            return false;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            tuples.add(batch.get(i));
+        }
+        return true;
+    }
+
+    private Tuple nextProbeTuple() {
+        if (!pendingProbeTuples.isEmpty()) {
+            return pendingProbeTuples.poll();
+        }
+        return probeInput == null ? null : probeInput.next();
+    }
+
+    /**
+     * Extracts the join key of a tuple, made of the {@link #keyValue(Tuple, int)} of each join column.
+     */
+    static Object extractKey(Tuple tuple, int[] keyIndexes) {
+        if (keyIndexes.length == 1) {
+            return keyValue(tuple, keyIndexes[0]);
+        }
+        List<Object> key = new ArrayList<>(keyIndexes.length);
+        for (int index : keyIndexes) {
+            key.add(keyValue(tuple, index));
+        }
+        return key;
+    }
+
+    /**
+     * Returns the value of a join column as a key that equals the key of another value exactly when the
+     * {@link ExpressionEvaluator} finds the two values equal. Numbers compare by value whatever their type, so a
+     * {@code DOUBLE} holding a whole number becomes the same {@code Long} as an integer (or date) of that value, and
+     * other doubles stay {@code Double}s; string fields become their canonical {@code String}. An integer beyond
+     * 2<sup>53</sup> only matches a double of exactly its value, where the evaluator would round it to a double first.
+     */
+    static Object keyValue(Tuple tuple, int index) {
+        if (tuple.getType(index) != ColumnType.DOUBLE) {
+            return tuple.getValue(index);
+        }
+        double value = tuple.getDouble(index);
+        // -0.0 is kept apart from 0, as Double.compare does; 2^63 is the first double beyond the range of a long.
+        if (value == (long) value && value < 0x1p63 && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    /**
+     * Tells whether two join values are equal, comparing their {@link #keyValue(Tuple, int)}s.
+     */
+    static boolean keysEqual(Tuple tuple, int index, Tuple other, int otherIndex) {
+        return keyValue(tuple, index).equals(keyValue(other, otherIndex));
+    }
+
+    private boolean satisfiesResidual(Tuple joinedTuple) {
+        if (residualCondition == null) {
+            return true;
+        }
+        if (residualPredicate == null) {
+            // Compiled once, on the first joined tuple, into index-bound nodes.
+            residualPredicate = ExpressionCompiler.compilePredicate(residualCondition, schemaMapping, joinedTuple);
+        }
+        try {
+            return residualPredicate.test(joinedTuple);
+        } catch (Exception e) {
+            System.err.println("Error evaluating join condition for tuple: " + joinedTuple);
+            return false;
+        }
+    }
+
+    private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
+        return Tuple.concat(leftTuple, rightTuple);
+    }
+
+    /**
+     * Resets the {@code HashJoinOperator} and its child operators to their initial states.
+     * The hash table is discarded and rebuilt on the next call to {@link #getNextTuple()}.
+     */
+    @Override
+    public void reset() {
+        left.reset();
+        right.reset();
+        hashTable = null;
+        probeInput = null;
+        pendingProbeTuples = null;
+        currentProbe = null;
+        currentMatches = null;
+        matchIndex = 0;
+    }
+}
@@ -0,0 +1,266 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
+import ed.inf.adbs.blazedb.storage.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The {@code IndexNestedLoopJoinOperator} joins an outer child operator with an inner table that has a
+ * {@link BPlusTreeIndex} on one of its equality columns. Instead of reading the whole inner table, it looks up,
+ * for each outer tuple, the inner rows whose indexed column equals the outer tuple's key, and fetches only those
+ * rows from the inner table's file: a byte range of the file for a clustered index, and one row per record id
+ * otherwise.
+ *
+ * Keys match as in the {@link HashJoinOperator}: numbers match by value, so an integer outer key is looked up in an
+ * index over a {@code DOUBLE} column as the double of the same value, and a double outer key in an index over an
+ * integer column only if it holds a whole number; an outer key that is not a number has no match. The index must
+ * hold every row of the inner table, i.e. none of its fields may be a non-number. The fetched inner rows are checked against the inner
+ * table's selection and the remaining equality columns, and the joined tuples (outer fields followed by inner
+ * fields) against the residual condition.
+ *
+ * The cost of the join is proportional to the number of outer tuples and of matching inner rows, which makes it
+ * cheaper than hashing the inner table when the outer input is small.
+ */
+public class IndexNestedLoopJoinOperator extends Operator {
+    /**
+     * The largest number of outer tuples, and of inner rows fetched one by one through an unclustered index, as a
+     * fraction of the inner table's rows, for which the join looks up each outer tuple in the index instead of
+     * hashing the inner table.
+     */
+    public static final double MAX_OUTER_FRACTION = 0.05;
+
+    private final BatchedInput outer;
+    private final String innerTable;
+    private final String indexPath;
+    private final int[] outerKeyIndexes;
+    private final int[] innerKeyIndexes;
+    // Position, in the key arrays, of the key pair whose inner column is indexed.
+    private final int indexedKey;
+    private final boolean indexIsDouble;
+    private final Expression innerSelection;         // selection on the inner table (may be null)
+    private final Map<String, Integer> innerSchemaMapping;
+    private final Expression residualCondition;      // non-equality part of the join condition (may be null)
+    private final Map<String, Integer> schemaMapping; // combined schema mapping for the joined tuple
+    private final RowFetcher fetcher;
+    private TuplePredicate innerPredicate;
+    private TuplePredicate residualPredicate;
+
+    private BPlusTreeIndex index;
+    private Tuple currentOuter;
+    // Record ids of the current outer tuple's matches (unclustered index).
+    private long[] recordIds;
+    private int nextRecord;
+    // Byte range of the current outer tuple's matches not fetched yet (clustered index).
+    private long nextOffset;
+    private long endOffset;
+    private long lookups;
+    private long rowsFetched;
+
+    /**
+     * Constructs an IndexNestedLoopJoinOperator.
+     *
+     * @param outer              The outer (left) operator.
+     * @param innerTable         The name of the inner (right) table.
+     * @param indexPath          The path of the index on the inner table.
+     * @param outerKeyIndexes    The indexes of the join columns in the outer tuples.
+     * @param innerKeyIndexes    The indexes of the join columns in the inner rows, aligned with {@code outerKeyIndexes}.
+     * @param indexedKey         The position in the key arrays of the inner column the index is built on.
+     * @param innerSelection     The selection condition on the inner table (can be null).
+     * @param innerSchemaMapping The schema mapping of the inner table.
+     * @param residualCondition  The remaining join condition evaluated on joined tuples (can be null).
+     * @param schemaMapping      A combined schema mapping that maps fully qualified column names to their index in
+     *                           the joined tuple.
+     */
+    public IndexNestedLoopJoinOperator(Operator outer, String innerTable, String indexPath, int[] outerKeyIndexes,
+                                       int[] innerKeyIndexes, int indexedKey, Expression innerSelection,
+                                       Map<String, Integer> innerSchemaMapping, Expression residualCondition,
+                                       Map<String, Integer> schemaMapping) {
+        this.outer = new BatchedInput(outer);
+        this.innerTable = innerTable;
+        this.indexPath = indexPath;
+        this.outerKeyIndexes = outerKeyIndexes;
+        this.innerKeyIndexes = innerKeyIndexes;
+        this.indexedKey = indexedKey;
+        this.innerSelection = innerSelection;
+        this.innerSchemaMapping = innerSchemaMapping;
+        this.residualCondition = residualCondition;
+        this.schemaMapping = schemaMapping;
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(innerTable);
+        this.indexIsDouble = schema.getColumnType(innerKeyIndexes[indexedKey]) == ColumnType.DOUBLE;
+        this.fetcher = new RowFetcher(catalog.getFilePathForTable(innerTable), schema.getTupleTypes());
+    }
+
+    /**
+     * Returns the next joined tuple, looking up the matches of the next outer tuple once those of the current one
+     * are exhausted.
+     *
+     * @return the next joined Tuple that satisfies the join condition, or null if no more tuples.
+     * @throws RuntimeException if the index or the inner table cannot be read.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        try {
+            if (index == null) {
+                index = new BPlusTreeIndex(indexPath);
+            }
+            while (true) {
+                Tuple inner;
+                while (currentOuter != null && (inner = nextMatch()) != null) {
+                    rowsFetched++;
+                    if (!satisfiesInnerSelection(inner) || !matchesOtherKeys(currentOuter, inner)) {
+                        continue;
+                    }
+                    Tuple joinedTuple = Tuple.concat(currentOuter, inner);
+                    if (satisfiesResidual(joinedTuple)) {
+                        return joinedTuple;
+                    }
+                }
+                currentOuter = outer.next();
+                if (currentOuter == null) {
+                    close();
+                    return null;
+                }
+                lookUp(currentOuter);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading the index of table " + innerTable + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finds the inner rows whose indexed column equals the key of an outer tuple.
+     */
+    private void lookUp(Tuple outerTuple) throws IOException {
+        recordIds = null;
+        nextRecord = 0;
+        nextOffset = 0;
+        endOffset = 0;
+        Object value = HashJoinOperator.keyValue(outerTuple, outerKeyIndexes[indexedKey]);
+        long key;
+        if (value instanceof Long) {
+            long integer = (Long) value;
+            double asDouble = integer;
+            if (indexIsDouble && (asDouble >= 0x1p63 || (long) asDouble != integer)) {
+                // No double holds exactly this integer.
+                return;
+            }
+            key = indexIsDouble ? BPlusTreeIndex.doubleKey(asDouble) : integer;
+        } else if (value instanceof Double && indexIsDouble) {
+            key = BPlusTreeIndex.doubleKey((Double) value);
+        } else {
+            // A string, or a double that is not a whole number, never equals an integer column.
+            return;
+        }
+        lookups++;
+        if (index.isClustered()) {
+            long[] bytes = index.findByteRange(key, key);
+            nextOffset = bytes[0];
+            endOffset = bytes[1];
+        } else {
+            long[] positions = index.findRange(key, key);
+            recordIds = index.readRecordIds(positions[0], positions[1]);
+        }
+    }
+
+    /**
+     * Fetches the next inner row matching the current outer tuple's key.
+     *
+     * @return The row, or {@code null} if every match has been fetched.
+     */
+    private Tuple nextMatch() throws IOException {
+        if (recordIds != null) {
+            return nextRecord < recordIds.length ? fetcher.fetch(recordIds[nextRecord++]) : null;
+        }
+        if (nextOffset >= endOffset) {
+            return null;
+        }
+        Tuple row = fetcher.fetch(nextOffset);
+        nextOffset = fetcher.getRowEnd();
+        return row;
+    }
+
+    private boolean satisfiesInnerSelection(Tuple inner) {
+        if (innerSelection == null) {
+            return true;
+        }
+        if (innerPredicate == null) {
+            innerPredicate = ExpressionCompiler.compilePredicate(innerSelection, innerSchemaMapping, inner);
+        }
+        try {
+            return innerPredicate.test(inner);
+        } catch (Exception e) {
+            System.err.println("Error evaluating expression on tuple " + inner + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks the equality columns other than the indexed one, comparing their values as the hash join does.
+     */
+    private boolean matchesOtherKeys(Tuple outerTuple, Tuple inner) {
+        for (int i = 0; i < outerKeyIndexes.length; i++) {
+            if (i != indexedKey
+                    && !HashJoinOperator.keysEqual(outerTuple, outerKeyIndexes[i], inner, innerKeyIndexes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean satisfiesResidual(Tuple joinedTuple) {
+        if (residualCondition == null) {
+            return true;
+        }
+        if (residualPredicate == null) {
+            residualPredicate = ExpressionCompiler.compilePredicate(residualCondition, schemaMapping, joinedTuple);
+        }
+        try {
+            return residualPredicate.test(joinedTuple);
+        } catch (Exception e) {
+            System.err.println("Error evaluating join condition for tuple: " + joinedTuple);
+            return false;
+        }
+    }
+
+    /**
+     * Closes the index and the inner table's file, reporting the number of lookups and fetched rows.
+     */
+    private void close() throws IOException {
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+        fetcher.close();
+        QueryMetrics.add("IndexNestedLoopJoin.lookups", lookups);
+        QueryMetrics.add("IndexNestedLoopJoin.rowsFetched", rowsFetched);
+        lookups = 0;
+        rowsFetched = 0;
+    }
+
+    /**
+     * Resets the {@code IndexNestedLoopJoinOperator} and its outer child to their initial states.
+     */
+    @Override
+    public void reset() {
+        outer.reset();
+        currentOuter = null;
+        recordIds = null;
+        nextOffset = 0;
+        endOffset = 0;
+        try {
+            close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing the index of table " + innerTable + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.expression.KeyRange;
+import ed.inf.adbs.blazedb.storage.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * The {@code IndexScanOperator} reads the rows of a table whose indexed column lies in a {@link KeyRange}, using
+ * a {@link BPlusTreeIndex} instead of scanning the whole table file.
+ *
+ * With a clustered index, the matching rows are contiguous in the file: the index gives the byte range holding
+ * them, which is read sequentially by a {@link ScanOperator}. With an unclustered index, the record ids of the
+ * matching rows are read from the leaves and sorted, so that the rows are fetched in file order, reading each
+ * region of the file once even when several matching rows share it.
+ *
+ * The operator returns a superset of the rows satisfying the selection the range was derived from, so it is
+ * always followed by a {@link SelectOperator} evaluating the whole selection.
+ */
+public class IndexScanOperator extends Operator {
+    /**
+     * The largest fraction of a table's rows for which an unclustered index is read instead of scanning the table:
+     * fetching rows one by one costs far more per row than a sequential scan.
+     */
+    public static final double MAX_INDEX_SCAN_FRACTION = 0.05;
+
+    private final String tableName;
+    // Scan of the byte range of a clustered index's rows, or null for an unclustered index.
+    private final ScanOperator rangeScan;
+    // Record ids of the rows of an unclustered index, in file order.
+    private final long[] recordIds;
+    private final RowFetcher fetcher;
+    private int nextRecord;
+
+    /**
+     * Constructs an {@code IndexScanOperator} over the rows whose keys lie in a range.
+     *
+     * @param tableName The name of the table.
+     * @param index     The index to use, which is only read during construction.
+     * @param range     The range of keys to read.
+     * @throws RuntimeException if the index cannot be read.
+     */
+    public IndexScanOperator(String tableName, BPlusTreeIndex index, KeyRange range) {
+        this.tableName = tableName;
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(tableName);
+        this.fetcher = new RowFetcher(catalog.getFilePathForTable(tableName),
+                schema == null ? null : schema.getTupleTypes());
+        try {
+            if (index.isClustered()) {
+                long[] bytes = index.findByteRange(range.getLow(), range.getHigh());
+                this.rangeScan = new ScanOperator(tableName, bytes[0] < bytes[1]
+                        ? Collections.singletonList(new ScanOperator.Morsel(bytes[0], bytes[1]))
+                        : Collections.<ScanOperator.Morsel>emptyList());
+                this.recordIds = null;
+            } else {
+                long[] positions = index.findRange(range.getLow(), range.getHigh());
+                this.rangeScan = null;
+                this.recordIds = index.readRecordIds(positions[0], positions[1]);
+                Arrays.sort(recordIds);
+                QueryMetrics.add("IndexScan.rowsFetched", recordIds.length);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading index of table " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the next row of the key range.
+     *
+     * @return The next {@link Tuple}, or {@code null} once every row of the range has been read.
+     * @throws RuntimeException if the table file cannot be read.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (rangeScan != null) {
+            return rangeScan.getNextTuple();
+        }
+        try {
+            if (nextRecord == recordIds.length) {
+                fetcher.close();
+                return null;
+            }
+            return fetcher.fetch(recordIds[nextRecord++]);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading table " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the next batch of rows of the key range, read by the range scan of a clustered index in a single loop.
+     *
+     * @return The next batch of tuples, or {@code null} once every row of the range has been read.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        return rangeScan != null ? rangeScan.getNextBatch() : super.getNextBatch();
+    }
+
+    /**
+     * Restarts the scan from the first row of the key range.
+     */
+    @Override
+    public void reset() {
+        if (rangeScan != null) {
+            rangeScan.reset();
+        }
+        nextRecord = 0;
+        try {
+            fetcher.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing table " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+}
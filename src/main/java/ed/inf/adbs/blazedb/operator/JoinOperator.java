@@ -1,7 +1,8 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
-import ed.inf.adbs.blazedb.expression.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
 import net.sf.jsqlparser.expression.Expression;
 
 import java.util.*;
@@ -14,7 +15,7 @@ import java.util.*;
  * The join algorithm operates as follows:
  * 1. For each tuple from the left (outer) operator, reset and scan the entire right (inner) operator.
  * 2. For every (left, right) pair, combine the fields from both tuples into a new joined tuple.
- * 3. If a join condition was provided, evaluate the combined tuple using an ExpressionEvaluator.
+ * 3. If a join condition was provided, evaluate the combined tuple using the compiled join condition.
  *    Only return the tuple if it satisfies the join condition.
  * 4. If the join condition is null, then return every joined tuple.
  *
@@ -28,6 +29,7 @@ public class JoinOperator extends Operator {
     private Operator left;         // left (outer) child operator
     private Operator right;        // right (inner) child operator
     private Expression joinCondition;  // join condition as an Expression (null for cross join)
+    private TuplePredicate joinPredicate;  // compiled form of joinCondition
     private Map<String, Integer> schemaMapping; // combined schema mapping for the joined tuple
     private Tuple currentLeft;     // current tuple from left operator
     private Queue<Tuple> bufferedTuples = new LinkedList<>();
@@ -78,9 +80,11 @@ public class JoinOperator extends Operator {
                 if (joinCondition == null) {
                     bufferedTuples.add(joinedTuple);
                 } else {
-                    ExpressionEvaluator evaluator = new ExpressionEvaluator(joinedTuple, schemaMapping);
+                    if (joinPredicate == null) {
+                        joinPredicate = ExpressionCompiler.compilePredicate(joinCondition, schemaMapping, joinedTuple);
+                    }
                     try {
-                        if (evaluator.evaluate(joinCondition)) {
+                        if (joinPredicate.test(joinedTuple)) {
                             bufferedTuples.add(joinedTuple);
                         }
                     } catch (Exception e) {
@@ -112,9 +116,7 @@ public class JoinOperator extends Operator {
      * @throws IllegalArgumentException if either {@code leftTuple} or {@code rightTuple} is {@code null}.
      */
     private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
-        List<String> combinedFields = new ArrayList<>(leftTuple.getFields());
-        combinedFields.addAll(rightTuple.getFields());
-        return new Tuple(combinedFields);
+        return Tuple.concat(leftTuple, rightTuple);
     }
 
     /**
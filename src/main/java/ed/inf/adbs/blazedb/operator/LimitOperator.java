@@ -0,0 +1,68 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+
+/**
+ * The {@code LimitOperator} class implements the LIMIT and OFFSET clauses. It skips the first
+ * {@code offset} tuples of its child and then returns at most {@code limit} tuples.
+ *
+ * Once the limit is reached the child is no longer called, so a pipelined plan below this operator
+ * (scans, selections, projections, joins) stops reading its input early instead of running to completion.
+ */
+public class LimitOperator extends Operator {
+    // Marks a LIMIT that does not bound the number of tuples (e.g. only an OFFSET is given).
+    public static final long NO_LIMIT = -1;
+
+    private final Operator child;
+    private final long limit;
+    private final long offset;
+
+    private long skipped;
+    private long returned;
+
+    /**
+     * Constructs a {@code LimitOperator}.
+     *
+     * @param child  The child operator providing the input tuples.
+     * @param limit  The maximum number of tuples to return, or {@link #NO_LIMIT}.
+     * @param offset The number of leading tuples to skip.
+     */
+    public LimitOperator(Operator child, long limit, long offset) {
+        this.child = child;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the next tuple within the LIMIT/OFFSET window.
+     *
+     * @return The next {@link Tuple}, or {@code null} once the limit is reached or the child is exhausted.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (limit != NO_LIMIT && returned >= limit) {
+            return null;
+        }
+        while (skipped < offset) {
+            if (child.getNextTuple() == null) {
+                return null;
+            }
+            skipped++;
+        }
+        Tuple tuple = child.getNextTuple();
+        if (tuple != null) {
+            returned++;
+        }
+        return tuple;
+    }
+
+    /**
+     * Resets the {@code LimitOperator} and its child operator to their initial states.
+     */
+    @Override
+    public void reset() {
+        child.reset();
+        skipped = 0;
+        returned = 0;
+    }
+}
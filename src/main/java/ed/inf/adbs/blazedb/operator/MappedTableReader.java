@@ -0,0 +1,105 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the rows of a table file, or of a byte range of it, through memory-mapped windows of the file.
+ * Rows are tokenized and parsed in place by {@link Tuple#parse(java.nio.ByteBuffer, int, int, ColumnType[])},
+ * so no line {@code String} is created and integer fields are parsed without any allocation.
+ *
+ * Lines end with {@code \n} or {@code \r\n}, as for a {@link java.io.BufferedReader}. Files larger than one window
+ * are mapped window by window; a window always starts at the beginning of a line.
+ */
+final class MappedTableReader implements Closeable {
+    // Size of a mapped window; a single mapping cannot exceed 2 GB.
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private MappedByteBuffer window;
+    // File offset of the first byte of the window.
+    private long windowStart;
+    // Position of the next line in the window.
+    private int position;
+
+    /**
+     * Opens a reader over {@code [start, end)} of a file; {@code start} must be the beginning of a line.
+     *
+     * @param path  The path of the file.
+     * @param start The file offset of the first row.
+     * @param end   The file offset just past the last row, or -1 for the end of the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    MappedTableReader(String path, long start, long end) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+        this.windowStart = start;
+    }
+
+    /**
+     * Parses the next row.
+     *
+     * @param types The declared column types, or {@code null} if every column is an {@code INT}.
+     * @return The next tuple, or {@code null} at the end of the range.
+     * @throws IOException if the file cannot be mapped.
+     */
+    Tuple next(ColumnType[] types) throws IOException {
+        while (true) {
+            if (window == null || position == window.limit()) {
+                if (windowStart + position >= end) {
+                    return null;
+                }
+                map(windowStart + position);
+            }
+            int limit = window.limit();
+            int lineEnd = position;
+            while (lineEnd < limit && window.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && windowStart + limit < end) {
+                // The line continues past the window: map a new window starting at the line.
+                if (position == 0) {
+                    throw new IOException("Line longer than " + WINDOW_SIZE + " bytes at offset " + windowStart);
+                }
+                map(windowStart + position);
+                continue;
+            }
+            int lineStart = position;
+            position = Math.min(lineEnd + 1, limit);
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && window.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            return Tuple.parse(window, lineStart, contentEnd, types);
+        }
+    }
+
+    /**
+     * Skips the next line, e.g. a header row.
+     *
+     * @throws IOException if the file cannot be mapped.
+     */
+    void skipLine() throws IOException {
+        next(null);
+    }
+
+    private void map(long offset) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, end - offset));
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        window = null;
+    }
+}
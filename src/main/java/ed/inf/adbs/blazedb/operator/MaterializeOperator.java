@@ -0,0 +1,134 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code MaterializeOperator} caches the tuples of its child during the first complete pass over them, so
+ * that a parent rescanning its input, as the block-nested-loop join rescans its inner relation once per block,
+ * replays them from memory instead of resetting the child. Resetting a scan reopens and reparses the table's
+ * file, and re-evaluates its selection, on every pass.
+ *
+ * The cached tuples are the child's own tuple objects, which are immutable once returned. Their estimated size
+ * is counted against a memory budget: once the budget is exceeded, the cache is dropped and every later pass
+ * reads the child again, as without this operator. A reset before the end of the first pass restarts the
+ * recording from the beginning of the child.
+ */
+public class MaterializeOperator extends Operator {
+    private final Operator child;
+    private final long memoryBudget;
+    // Tuples recorded so far, or null once the memory budget has been exceeded.
+    private List<Tuple> tuples = new ArrayList<>();
+    private long usedMemory;
+    // Whether the whole child has been recorded, so that passes replay the cache.
+    private boolean complete;
+    // Index of the next cached tuple to replay.
+    private int position;
+    // Output batch reused when replaying the cache, created on first use.
+    private TupleBatch batch;
+
+    /**
+     * Constructs a MaterializeOperator.
+     *
+     * @param child        The child operator.
+     * @param memoryBudget The largest estimated size, in bytes, of the tuples kept in memory.
+     */
+    public MaterializeOperator(Operator child, long memoryBudget) {
+        this.child = child;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the next tuple, from the cache once the child has been read entirely.
+     *
+     * @return The next {@link Tuple}, or {@code null} at the end of the pass.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (complete) {
+            return position < tuples.size() ? tuples.get(position++) : null;
+        }
+        Tuple tuple = child.getNextTuple();
+        if (tuple == null) {
+            finishRecording();
+        } else {
+            record(tuple);
+        }
+        return tuple;
+    }
+
+    /**
+     * Returns the next batch of tuples, from the cache once the child has been read entirely.
+     *
+     * @return A batch of tuples, or {@code null} at the end of the pass.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (complete) {
+            if (position == tuples.size()) {
+                return null;
+            }
+            if (batch == null) {
+                batch = new TupleBatch();
+            }
+            batch.clear();
+            while (!batch.isFull() && position < tuples.size()) {
+                batch.add(tuples.get(position++));
+            }
+            return batch;
+        }
+        TupleBatch input = child.getNextBatch();
+        if (input == null) {
+            finishRecording();
+            return null;
+        }
+        for (int i = 0; i < input.size() && tuples != null; i++) {
+            record(input.get(i));
+        }
+        return input;
+    }
+
+    private void record(Tuple tuple) {
+        if (tuples == null) {
+            return;
+        }
+        usedMemory += tuple.getEstimatedSize();
+        if (usedMemory > memoryBudget) {
+            // Too large to keep: every pass reads the child.
+            tuples = null;
+            QueryMetrics.add("Materialize.budgetExceeded", 1);
+        } else {
+            tuples.add(tuple);
+        }
+    }
+
+    private void finishRecording() {
+        if (tuples != null) {
+            complete = true;
+            position = tuples.size();
+            QueryMetrics.add("Materialize.cachedTuples", tuples.size());
+        }
+    }
+
+    /**
+     * Restarts the pass: from the beginning of the cache if the child has been recorded entirely, and otherwise
+     * by resetting the child.
+     */
+    @Override
+    public void reset() {
+        if (complete) {
+            position = 0;
+            QueryMetrics.add("Materialize.replays", 1);
+            return;
+        }
+        if (tuples != null) {
+            tuples.clear();
+            usedMemory = 0;
+        }
+        child.reset();
+    }
+}
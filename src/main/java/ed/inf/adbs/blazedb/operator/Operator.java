@@ -1,6 +1,7 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
 
 
 /**
@@ -12,6 +13,10 @@ import ed.inf.adbs.blazedb.Tuple;
  * Key Responsibilities:
  *  - Tuple Retrieval: Provides a standardized method for fetching the next available
  *         tuple from the data source or the result of a preceding operation.
+ *  - Batch Retrieval: Provides {@link #getNextBatch()}, which returns up to
+ *         {@link TupleBatch#DEFAULT_CAPACITY} tuples per call. Operators on the hot path of scan-heavy
+ *         queries override it to process whole batches in tight loops; all others inherit an adapter
+ *         built on {@link #getNextTuple()}.
  *  - State Management**: Offers a mechanism to reset the operator's state, allowing
  *         for re-execution or iteration over the data from the beginning.
  *
@@ -20,7 +25,8 @@ import ed.inf.adbs.blazedb.Tuple;
  * for different relational operations such as selection, projection, joins, and more.
  */
 public abstract class Operator {
-
+    // Batch reused by the default implementation of getNextBatch.
+    private TupleBatch adapterBatch;
 
     /**
      * Retrieves the next {@link Tuple} from the operator's data stream.
@@ -36,6 +42,30 @@ public abstract class Operator {
     public abstract Tuple getNextTuple();
 
 
+    /**
+     * Retrieves the next batch of tuples from the operator's data stream. Calls to this method and to
+     * {@link #getNextTuple()} read from the same stream and may be interleaved.
+     *
+     * The default implementation fills a batch by calling {@link #getNextTuple()}.
+     *
+     * @return A non-empty {@link TupleBatch}, valid until the next call to this method, or {@code null} if
+     *         the end of the data stream is reached.
+     *
+     * @throws RuntimeException if an error occurs during tuple retrieval.
+     */
+    public TupleBatch getNextBatch() {
+        if (adapterBatch == null) {
+            adapterBatch = new TupleBatch();
+        }
+        adapterBatch.clear();
+        Tuple tuple;
+        while (!adapterBatch.isFull() && (tuple = getNextTuple()) != null) {
+            adapterBatch.add(tuple);
+        }
+        return adapterBatch.isEmpty() ? null : adapterBatch;
+    }
+
+
     /**
      * Resets the operator's state, allowing the iteration over its data stream to start
      * from the beginning.
@@ -1,9 +1,8 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -30,6 +29,10 @@ public class ProjectionOperator extends Operator {
 
     // Pre-calculate the unique projection column order.
     private String[] uniqueProjectionColumns;
+    // Tuple indexes of the unique projection columns, resolved on the first projected tuple.
+    private int[] projectionIndexes;
+    // Output batch reused by getNextBatch, created on first use.
+    private TupleBatch batch;
 
     public ProjectionOperator(Operator child, String[] projectionColumns, Map<String, Integer> schemaMapping) {
         this.child = child;
@@ -77,24 +80,52 @@ public class ProjectionOperator extends Operator {
         }
 
         // If the tuple is already projected, we assume it has been done.
-        if(fullTuple.getFields().size() == uniqueProjectionColumns.length) {
+        if(fullTuple.size() == uniqueProjectionColumns.length) {
             return fullTuple;
         }
 
-        // Build the projected tuple using the unique projection columns.
-        List<String> fullFields = fullTuple.getFields();
-        List<String> projectedFields = new ArrayList<>();
+        return fullTuple.project(getProjectionIndexes());
+    }
 
-        for (String col : uniqueProjectionColumns) {
-            Integer index = schemaMapping.get(col);
-            if (index == null || index >= fullFields.size()) {
-                projectedFields.add("");
-            } else {
-                projectedFields.add(fullFields.get(index));
-            }
+    /**
+     * Retrieves the next batch of projected tuples. Batches whose tuples already have the projected width
+     * are passed through unchanged; otherwise every selected tuple is projected into the output batch.
+     *
+     * @return A {@link TupleBatch} of projected tuples, or {@code null} if there are no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch input = child.getNextBatch();
+        if (input == null) {
+            return null;
+        }
+        if (input.get(0).size() == uniqueProjectionColumns.length) {
+            return input;
         }
+        int[] indexes = getProjectionIndexes();
+        if (batch == null) {
+            batch = new TupleBatch();
+        }
+        batch.clear();
+        for (int i = 0; i < input.size(); i++) {
+            batch.add(input.get(i).project(indexes));
+        }
+        return batch;
+    }
 
-        return new Tuple(projectedFields);
+    /**
+     * Returns the tuple indexes of the unique projection columns, resolving them on the first call.
+     * Missing columns are mapped to -1 and become empty strings.
+     */
+    private int[] getProjectionIndexes() {
+        if (projectionIndexes == null) {
+            projectionIndexes = new int[uniqueProjectionColumns.length];
+            for (int i = 0; i < uniqueProjectionColumns.length; i++) {
+                Integer index = schemaMapping.get(uniqueProjectionColumns[i]);
+                projectionIndexes[i] = index == null ? -1 : index;
+            }
+        }
+        return projectionIndexes;
     }
 
     /**
@@ -0,0 +1,142 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.storage.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads single rows of a CSV table file by record id, the byte offset at which the row starts. The file is read
+ * through the shared {@link BufferPool}, so pages holding rows fetched repeatedly, as by the lookups of an index
+ * nested-loop join, are read from the file once. The page of the last row fetched stays pinned, so rows fetched in
+ * file order, or close to each other, are mostly parsed in place. Index scans and index nested-loop joins use it
+ * to fetch the rows an index points at.
+ */
+final class RowFetcher {
+    private static final int PAGE_SIZE = BufferPool.PAGE_SIZE;
+
+    private final String filePath;
+    private final ColumnType[] columnTypes;
+
+    private BufferPool.PooledFile file;
+    // The page of the last row fetched, kept pinned, and its page number.
+    private BufferPool.Page page;
+    private long pageNumber = -1;
+    // Holds the rows spanning several pages, created on first use.
+    private ByteBuffer scratch;
+    // File offset just past the line terminator of the last row fetched.
+    private long rowEnd;
+
+    RowFetcher(String filePath, ColumnType[] columnTypes) {
+        this.filePath = filePath;
+        this.columnTypes = columnTypes;
+    }
+
+    /**
+     * Reads and parses the row starting at a file offset, from the page holding it if the row ends on that page,
+     * and otherwise from a copy of the row's bytes on the following pages.
+     *
+     * @param recordId The file offset of the row.
+     * @return The row.
+     * @throws IOException if the file cannot be read.
+     */
+    Tuple fetch(long recordId) throws IOException {
+        if (file == null) {
+            file = BufferPool.getInstance().open(filePath);
+        }
+        moveTo(recordId / PAGE_SIZE);
+        int from = (int) (recordId % PAGE_SIZE);
+        ByteBuffer data = page.getData();
+        int length = page.getLength();
+        int to = from;
+        while (to < length && data.get(to) != '\n') {
+            to++;
+        }
+        if (to < length || length < PAGE_SIZE) {
+            rowEnd = pageNumber * PAGE_SIZE + Math.min(to + 1, length);
+            if (to > from && data.get(to - 1) == '\r') {
+                to--;
+            }
+            return Tuple.parse(data, from, to, columnTypes);
+        }
+
+        // The row continues on the next pages: copy it whole.
+        if (scratch == null) {
+            scratch = ByteBuffer.allocate(2 * PAGE_SIZE);
+        }
+        scratch.clear();
+        append(data, from, length);
+        boolean terminated = false;
+        while (!terminated && page.getLength() == PAGE_SIZE) {
+            moveTo(pageNumber + 1);
+            data = page.getData();
+            length = page.getLength();
+            int end = 0;
+            while (end < length && data.get(end) != '\n') {
+                end++;
+            }
+            terminated = end < length;
+            append(data, 0, end);
+            rowEnd = pageNumber * PAGE_SIZE + Math.min(end + 1, length);
+        }
+        int end = scratch.position();
+        if (end > 0 && scratch.get(end - 1) == '\r') {
+            end--;
+        }
+        return Tuple.parse(scratch, 0, end, columnTypes);
+    }
+
+    /**
+     * Pins a page of the file in place of the current one.
+     */
+    private void moveTo(long number) throws IOException {
+        if (number == pageNumber) {
+            return;
+        }
+        releasePage();
+        page = file.pin(number);
+        pageNumber = number;
+    }
+
+    private void append(ByteBuffer data, int from, int to) {
+        if (scratch.remaining() < to - from) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + to - from));
+            scratch.flip();
+            larger.put(scratch);
+            scratch = larger;
+        }
+        for (int i = from; i < to; i++) {
+            scratch.put(data.get(i));
+        }
+    }
+
+    private void releasePage() {
+        if (page != null) {
+            file.unpin(page);
+            page = null;
+            pageNumber = -1;
+        }
+    }
+
+    /**
+     * Returns the file offset just past the last row fetched, where the next row of the file starts.
+     */
+    long getRowEnd() {
+        return rowEnd;
+    }
+
+    /**
+     * Unpins the current page and closes the file; the next fetch opens it again.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    void close() throws IOException {
+        if (file != null) {
+            releasePage();
+            file.close();
+            file = null;
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package ed.inf.adbs.blazedb.operator;
 import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.SchemaProvider;
+import ed.inf.adbs.blazedb.TableSchema;
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.expression.ZoneMapFilter;
+import ed.inf.adbs.blazedb.storage.ZoneMap;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.util.*;
 
 /**
@@ -16,7 +26,10 @@ import java.util.*;
  * interface to supply schema information about the scanned data.
  *
  * Key Responsibilities:
- *  - Data Scanning: Reads data from the specified table's file and converts each line into a {@link Tuple}.
+ *  - Data Scanning: Reads data from the specified table's file and converts each line into a {@link Tuple},
+ *         parsing each field once, with the parser of the column type declared in the {@link Catalog}.
+ *         By default the file is memory-mapped and rows are tokenized directly from the mapped bytes
+ *         (see {@link MappedTableReader}); otherwise it is read line by line with a {@link BufferedReader}.
  *  - Schema Management: Manages the schema mapping to associate column names with their respective indices.
  *  - State Management: Supports resetting the scan to start from the beginning of the data source.
  *  - Projection Support: Allows retrieval of projected tuples based on specified columns.
@@ -25,10 +38,17 @@ import java.util.*;
  *  - Table Identification: Utilizes the table name to locate and access the corresponding data file.
  *  - Header Handling: Supports optional header rows to map column names to their indices.
  *  - Schema Pruning: Allows pruning of the schema to include only relevant columns, optimizing data retrieval.
+ *  - Morsels: A scan may be restricted to a {@link Morsel}, a byte range of the file made of whole lines, so that
+ *         the {@link ExchangeOperator} can scan one file with several threads.
+ *  - Block Skipping: A scan may also read a list of byte ranges, seeking past the rest of the file. With a
+ *         selection, {@link #splitIntoMorsels(String, ZoneMap, ZoneMapFilter, long)} uses the table's
+ *         {@link ZoneMap} to keep only the blocks of rows that may satisfy it.
  */
 public class ScanOperator extends Operator implements SchemaProvider {
     private String tableName;
     private BufferedReader reader;
+    // Reader over the memory-mapped file, used instead of the BufferedReader when mapped scans are enabled.
+    private MappedTableReader mappedReader;
     private String filePath;
     private Catalog catalog;
     // The dynamic schema mapping that maps each column name to its index.
@@ -36,6 +56,16 @@ public class ScanOperator extends Operator implements SchemaProvider {
     // Flag indicating whether the file contains a header row.
     private boolean hasHeader;
     private Set<String> prunedSchema;
+    // Declared column types of the table, shared by all scanned tuples (null if every column is an INT).
+    private ColumnType[] columnTypes;
+    // Batch reused by getNextBatch.
+    private final TupleBatch batch = new TupleBatch();
+    // Byte ranges of the file to scan in order, or null to scan the whole file.
+    private List<Morsel> ranges;
+    // Index in ranges of the range being scanned.
+    private int rangeIndex;
+    // Byte range being scanned, or null when scanning the whole file.
+    private Morsel morsel;
 
 
     /**
@@ -52,9 +82,143 @@ public class ScanOperator extends Operator implements SchemaProvider {
         this.hasHeader = hasHeader;
         this.catalog = Catalog.getInstance();
         this.filePath = catalog.getFilePathForTable(tableName);
+        TableSchema tableSchema = catalog.getTableSchema(tableName);
+        this.columnTypes = tableSchema == null ? null : tableSchema.getTupleTypes();
         openFileScan();
     }
 
+    /**
+     * Constructs a {@code ScanOperator} that scans only the lines of one morsel of the table's file.
+     *
+     * @param tableName The name of the table to scan.
+     * @param morsel    The byte range to scan, as returned by {@link #splitIntoMorsels(String, long)}.
+     */
+    public ScanOperator(String tableName, Morsel morsel) {
+        this(tableName, Collections.singletonList(morsel));
+    }
+
+    /**
+     * Constructs a {@code ScanOperator} that scans the lines of several byte ranges of the table's file, in order.
+     *
+     * @param tableName The name of the table to scan.
+     * @param ranges    The byte ranges to scan, each starting at the beginning of a line and ending after the end
+     *                  of a line; an empty list scans nothing.
+     */
+    public ScanOperator(String tableName, List<Morsel> ranges) {
+        this.tableName = tableName;
+        this.hasHeader = false;
+        this.ranges = ranges;
+        this.catalog = Catalog.getInstance();
+        this.filePath = catalog.getFilePathForTable(tableName);
+        TableSchema tableSchema = catalog.getTableSchema(tableName);
+        this.columnTypes = tableSchema == null ? null : tableSchema.getTupleTypes();
+        openFileScan();
+    }
+
+    /**
+     * A byte range {@code [start, end)} of a table file that starts at the beginning of a line and ends
+     * after the end of a line. For a columnar table file, the bounds are chunk indexes instead
+     * (see {@link ColumnarScanOperator#splitIntoMorsels}).
+     */
+    public static final class Morsel {
+        private final long start;
+        private final long end;
+
+        public Morsel(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+
+    /**
+     * Splits the file of a table into morsels of about {@code morselSize} bytes. Every boundary is moved
+     * forward to the start of the next line, so that each line belongs to exactly one morsel.
+     *
+     * @param tableName  The name of the table.
+     * @param morselSize The target size of a morsel in bytes.
+     * @return The morsels in file order; a single morsel if the file is no larger than {@code morselSize}.
+     * @throws RuntimeException if the file cannot be read.
+     */
+    public static List<Morsel> splitIntoMorsels(String tableName, long morselSize) {
+        String path = Catalog.getInstance().getFilePathForTable(tableName);
+        List<Morsel> morsels = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            long length = file.length();
+            long start = 0;
+            while (start < length) {
+                long end = start + morselSize;
+                if (end >= length) {
+                    end = length;
+                } else {
+                    // Move the boundary to just after the next line break.
+                    file.seek(end - 1);
+                    int b;
+                    while ((b = file.read()) != -1 && b != '\n') {
+                        // Skip the rest of the line.
+                    }
+                    end = file.getFilePointer();
+                }
+                morsels.add(new Morsel(start, end));
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error splitting table " + tableName + " into morsels: " + e.getMessage(), e);
+        }
+        return morsels;
+    }
+
+    /**
+     * Selects the blocks of a table's file that may hold rows satisfying a selection, according to the table's
+     * zone map, and groups consecutive selected blocks into morsels of up to {@code morselSize} bytes (a morsel
+     * holds at least one block). The numbers of selected and skipped blocks are reported to {@link QueryMetrics}.
+     *
+     * @param tableName  The name of the table.
+     * @param zoneMap    The zone map of the table's file.
+     * @param filter     The zone map filter of the selection on the table.
+     * @param morselSize The maximum size of a morsel in bytes.
+     * @return The morsels in file order; an empty list if no block can match.
+     */
+    public static List<Morsel> splitIntoMorsels(String tableName, ZoneMap zoneMap, ZoneMapFilter filter, long morselSize) {
+        List<Morsel> morsels = new ArrayList<>();
+        int readBlocks = 0;
+        long start = -1;
+        long end = -1;
+        for (int block = 0; block < zoneMap.getBlockCount(); block++) {
+            final int current = block;
+            if (!filter.mightMatch(column -> zoneMap.getStatistics(current, column))) {
+                continue;
+            }
+            readBlocks++;
+            long blockStart = zoneMap.getBlockStart(block);
+            long blockEnd = zoneMap.getBlockEnd(block);
+            if (start >= 0 && (blockStart != end || blockEnd - start > morselSize)) {
+                morsels.add(new Morsel(start, end));
+                start = -1;
+            }
+            if (start < 0) {
+                start = blockStart;
+            }
+            end = blockEnd;
+        }
+        if (start >= 0) {
+            morsels.add(new Morsel(start, end));
+        }
+        int skippedBlocks = zoneMap.getBlockCount() - readBlocks;
+        System.out.println("Zone map of " + tableName + ": reading " + readBlocks + " of "
+                + zoneMap.getBlockCount() + " blocks.");
+        QueryMetrics.add("ZoneMap.chunksRead", readBlocks);
+        QueryMetrics.add("ZoneMap.chunksSkipped", skippedBlocks);
+        return morsels;
+    }
+
     /**
      * Opens a file reader for the table's data file.
      *
@@ -64,7 +228,26 @@ public class ScanOperator extends Operator implements SchemaProvider {
      * @throws RuntimeException if an I/O error occurs while opening the file.
      */
     private void openFileScan() {
+        if (ranges != null) {
+            if (rangeIndex >= ranges.size()) {
+                // There is no range to scan.
+                schemaMapping = Collections.emptyMap();
+                return;
+            }
+            morsel = ranges.get(rangeIndex);
+        }
         try {
+            if (ExecutionConfig.getInstance().isMemoryMappedScans()) {
+                mappedReader = morsel == null
+                        ? new MappedTableReader(filePath, 0, -1)
+                        : new MappedTableReader(filePath, morsel.getStart(), morsel.getEnd());
+                if (hasHeader) {
+                    mappedReader.skipLine();
+                }
+                // Columns are resolved through the Catalog's schema, so no mapping is derived from the file.
+                schemaMapping = Collections.emptyMap();
+                return;
+            }
             reader = createBufferedReader(filePath);
             if (hasHeader) {
                 // Read the first line as column header names.
@@ -112,6 +295,15 @@ public class ScanOperator extends Operator implements SchemaProvider {
      * @throws IOException if an I/O error occurs while opening the file.
      */
     private BufferedReader createBufferedReader(String path) throws IOException {
+        if (morsel != null) {
+            // A morsel is small enough to be read at once; its lines are then decoded from memory.
+            byte[] bytes = new byte[(int) (morsel.getEnd() - morsel.getStart())];
+            try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+                file.seek(morsel.getStart());
+                file.readFully(bytes);
+            }
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)));
+        }
         return new BufferedReader(new FileReader(new File(path)));
     }
 
@@ -127,22 +319,55 @@ public class ScanOperator extends Operator implements SchemaProvider {
     @Override
     public Tuple getNextTuple() {
         try {
-            String line = reader.readLine();
-            if (line == null) {
-                return null;
-            }
-            String[] fields = line.split(",");
-            List<String> fieldList = new ArrayList<>();
-            for (String field : fields) {
-                fieldList.add(field.trim());
-            }
-            return new Tuple(fieldList);
+            return readTuple();
         } catch (IOException e) {
             System.err.println("Error reading tuple from table " + tableName + ": " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Reads and parses the next row, from the mapped file or from the {@link BufferedReader}.
+     */
+    private Tuple readTuple() throws IOException {
+        while (true) {
+            // Values are parsed once here; downstream operators only read primitive slots.
+            Tuple tuple = null;
+            if (mappedReader != null) {
+                tuple = mappedReader.next(columnTypes);
+            } else if (reader != null) {
+                String line = reader.readLine();
+                tuple = line == null ? null : Tuple.parse(line, columnTypes);
+            }
+            if (tuple != null || ranges == null || rangeIndex >= ranges.size() - 1) {
+                return tuple;
+            }
+            // Seek to the next range.
+            closeReaders();
+            rangeIndex++;
+            openFileScan();
+        }
+    }
+
+
+    /**
+     * Reads and parses up to a full batch of lines from the table's file in a single loop.
+     *
+     * @return The next batch of tuples, or {@code null} if the end of the file is reached.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        batch.clear();
+        try {
+            Tuple tuple;
+            while (!batch.isFull() && (tuple = readTuple()) != null) {
+                batch.add(tuple);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple from table " + tableName + ": " + e.getMessage());
+        }
+        return batch.isEmpty() ? null : batch;
+    }
 
     /**
      * Resets the {@code ScanOperator} to the beginning of the table's data file.
@@ -154,14 +379,24 @@ public class ScanOperator extends Operator implements SchemaProvider {
      */
     @Override
     public void reset() {
+        closeReaders();
+        rangeIndex = 0;
+        openFileScan();
+    }
+
+    private void closeReaders() {
         try {
             if (reader != null) {
                 reader.close();
+                reader = null;
+            }
+            if (mappedReader != null) {
+                mappedReader.close();
+                mappedReader = null;
             }
         } catch (IOException e) {
             // Handle error if needed.
         }
-        openFileScan();
     }
 
     /**
@@ -1,8 +1,11 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
 import net.sf.jsqlparser.expression.Expression;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
 import ed.inf.adbs.blazedb.expression.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
 
 import java.util.Map;
 
@@ -14,7 +17,8 @@ import java.util.Map;
  *
  * Key Responsibilities:
  * - Tuple Filtering: Evaluates each tuple against the selection condition and filters out those that do not satisfy it.
- * - Condition Evaluation: Utilizes an {@link ExpressionEvaluator} to dynamically assess complex expressions.
+ * - Condition Evaluation: Compiles the condition once with the {@link ExpressionCompiler} into index-bound nodes,
+ *         which evaluate it with the same semantics as the {@link ExpressionEvaluator} but without per-tuple allocation.
  * - Schema Mapping: Maintains a mapping between qualified column names and their indices to accurately reference tuple fields during evaluation.
  * - State Management: Supports resetting of the operator's state, allowing for re-execution or iteration over the filtered data.
  *
@@ -29,6 +33,8 @@ public class SelectOperator extends Operator {
     private Expression selectionCondition;
     // Map for resolving column references to tuple fields. Keys are in the form "TableName.ColumnName".
     private Map<String, Integer> schemaMapping;
+    // Compiled selection condition, created on the first input tuple.
+    private TuplePredicate selectionPredicate;
 
     /**
      * Constructs a {@code SelectOperator} with the specified child operator, selection condition, and schema mapping.
@@ -50,7 +56,7 @@ public class SelectOperator extends Operator {
     /**
      * Retrieves the next tuple from the child operator that satisfies the selection condition.
      * This method iteratively fetches tuples from the child operator and evaluates each one against
-     * the selection condition using an {@link ExpressionEvaluator}. If a tuple satisfies the condition,
+     * the compiled selection condition. If a tuple satisfies the condition,
      * it is returned; otherwise, the method continues to the next tuple. The process repeats until a
      * satisfying tuple is found or the end of the input is reached.
      *
@@ -62,21 +68,46 @@ public class SelectOperator extends Operator {
     public Tuple getNextTuple() {
         Tuple tuple;
         while ((tuple = child.getNextTuple()) != null) {
-            ExpressionEvaluator evaluator = new ExpressionEvaluator(tuple, schemaMapping);
-            try {
-                boolean conditionHolds = evaluator.evaluate(selectionCondition);
-                //System.out.println("Tuple: " + tuple + " -> Condition holds: " + conditionHolds);
-                System.out.flush();
-                if (conditionHolds) {
-                    return tuple;
-                }
-            } catch (Exception e) {
-                System.err.println("Error evaluating expression on tuple " + tuple + ": " + e.getMessage());
+            if (selectionPredicate == null) {
+                selectionPredicate = ExpressionCompiler.compilePredicate(selectionCondition, schemaMapping, tuple);
+            }
+            if (satisfiesCondition(tuple)) {
+                return tuple;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the next batch of the child operator that has at least one tuple satisfying the selection
+     * condition. The batch is filtered in place through its selection vector, so no tuple is copied.
+     *
+     * @return A {@link TupleBatch} of tuples satisfying the condition, or {@code null} if no such tuple remains.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch;
+        while ((batch = child.getNextBatch()) != null) {
+            if (selectionPredicate == null) {
+                selectionPredicate = ExpressionCompiler.compilePredicate(selectionCondition, schemaMapping, batch.get(0));
+            }
+            batch.filter(this::satisfiesCondition);
+            if (!batch.isEmpty()) {
+                return batch;
             }
         }
         return null;
     }
 
+    private boolean satisfiesCondition(Tuple tuple) {
+        try {
+            return selectionPredicate.test(tuple);
+        } catch (Exception e) {
+            System.err.println("Error evaluating expression on tuple " + tuple + ": " + e.getMessage());
+            return false;
+        }
+    }
+
 
     /**
      * Resets the {@code SelectOperator} and its child operator to their initial states.
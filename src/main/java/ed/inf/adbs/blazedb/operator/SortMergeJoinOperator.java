@@ -0,0 +1,241 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.TuplePredicate;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+import ed.inf.adbs.blazedb.util.SpillFile;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code SortMergeJoinOperator} implements a sort-merge join for equi-join conditions.
+ * Both children must deliver their tuples sorted in ascending order on their join columns, typically
+ * by being {@link SortOperator}s on those columns (or inputs that are already sorted).
+ *
+ * The join algorithm operates as follows:
+ * 1. The current left and right tuples are compared on their join keys, and the side with the smaller
+ *    key is advanced until both keys are equal.
+ * 2. On equal keys, the whole run of right tuples sharing that key is buffered. The buffer is bounded by
+ *    a memory budget: a run that exceeds it is moved to a temporary file and replayed from disk.
+ * 3. Every left tuple carrying the same key is combined with each tuple of the buffered run and, if a
+ *    residual condition was provided, returned only if it satisfies that condition.
+ *
+ * The output is sorted on the join keys, so a query whose ORDER BY matches the join keys does not need
+ * to be sorted again.
+ */
+public class SortMergeJoinOperator extends Operator {
+    // Run buffer budget used when no join memory budget is configured.
+    public static final long DEFAULT_RUN_BUFFER_BUDGET = 16L * 1024 * 1024;
+
+    private Operator left;         // left child operator, sorted on its join keys
+    private Operator right;        // right child operator, sorted on its join keys
+    // Children read one batch at a time.
+    private BatchedInput leftInput;
+    private BatchedInput rightInput;
+    private int[] leftKeyIndexes;  // indexes of the equality columns in the left tuples
+    private int[] rightKeyIndexes; // indexes of the equality columns in the right tuples
+    private Expression residualCondition; // non-equality part of the join condition (may be null)
+    private TuplePredicate residualPredicate;  // compiled form of residualCondition
+    private Map<String, Integer> schemaMapping; // combined schema mapping for the joined tuple
+    private long runBufferBudget;  // maximum estimated size of an in-memory run of equal right keys
+    private String scratchDir;     // directory in which oversized runs are spilled
+
+    private boolean started;
+    private Tuple currentLeft;
+    private Tuple currentRight;
+
+    // The buffered run of right tuples sharing one key, either in memory or spilled to disk.
+    private List<Tuple> runTuples = new ArrayList<>();
+    private SpillFile runFile;
+    private long runBytes;
+    private Tuple runFirstTuple;   // first tuple of the run, used to compare keys with the next left tuples
+    private int runIndex;
+    private boolean inRun;         // whether currentLeft is being joined with the buffered run
+
+    /**
+     * Constructs a SortMergeJoinOperator.
+     *
+     * @param left              The left operator, sorted ascending on {@code leftKeyIndexes}.
+     * @param right             The right operator, sorted ascending on {@code rightKeyIndexes}.
+     * @param leftKeyIndexes    The indexes of the join columns in the left tuples.
+     * @param rightKeyIndexes   The indexes of the join columns in the right tuples, aligned with {@code leftKeyIndexes}.
+     * @param residualCondition The remaining join condition evaluated on joined tuples (can be null).
+     * @param schemaMapping     A combined schema mapping that maps fully qualified column names
+     *                          (e.g., "Student.sid" or "Course.cid") to their index in the joined tuple.
+     * @param runBufferBudget   The maximum estimated size in bytes of a run of equal keys kept in memory.
+     * @param scratchDir        The directory in which runs exceeding the budget are spilled.
+     */
+    public SortMergeJoinOperator(Operator left, Operator right, int[] leftKeyIndexes, int[] rightKeyIndexes,
+                                 Expression residualCondition, Map<String, Integer> schemaMapping,
+                                 long runBufferBudget, String scratchDir) {
+        this.left = left;
+        this.right = right;
+        this.leftInput = new BatchedInput(left);
+        this.rightInput = new BatchedInput(right);
+        this.leftKeyIndexes = leftKeyIndexes;
+        this.rightKeyIndexes = rightKeyIndexes;
+        this.residualCondition = residualCondition;
+        this.schemaMapping = schemaMapping;
+        this.runBufferBudget = runBufferBudget;
+        this.scratchDir = scratchDir;
+    }
+
+    /**
+     * Returns the next joined tuple by merging both sorted inputs.
+     *
+     * @return the next joined Tuple that satisfies the join condition, or null if no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!started) {
+            started = true;
+            currentLeft = leftInput.next();
+            currentRight = rightInput.next();
+        }
+
+        while (true) {
+            if (inRun) {
+                Tuple match;
+                while ((match = nextRunTuple()) != null) {
+                    Tuple joinedTuple = combineTuples(currentLeft, match);
+                    if (satisfiesResidual(joinedTuple)) {
+                        return joinedTuple;
+                    }
+                }
+                // The current left tuple is done; the next one may share the key of the buffered run.
+                currentLeft = leftInput.next();
+                if (currentLeft != null && compareKeys(currentLeft, leftKeyIndexes, runFirstTuple, rightKeyIndexes) == 0) {
+                    rewindRun();
+                    continue;
+                }
+                inRun = false;
+                clearRun();
+            }
+
+            if (currentLeft == null || currentRight == null) {
+                return null;
+            }
+
+            int cmp = compareKeys(currentLeft, leftKeyIndexes, currentRight, rightKeyIndexes);
+            if (cmp < 0) {
+                currentLeft = leftInput.next();
+            } else if (cmp > 0) {
+                currentRight = rightInput.next();
+            } else {
+                bufferRun();
+                rewindRun();
+                inRun = true;
+            }
+        }
+    }
+
+    /**
+     * Buffers every right tuple whose key equals the key of {@code currentRight}, leaving
+     * {@code currentRight} on the first tuple of the next run.
+     */
+    private void bufferRun() {
+        runFirstTuple = currentRight;
+        while (currentRight != null
+                && compareKeys(currentRight, rightKeyIndexes, runFirstTuple, rightKeyIndexes) == 0) {
+            addToRun(currentRight);
+            currentRight = rightInput.next();
+        }
+        if (runFile != null) {
+            QueryMetrics.add("SortMergeJoin.spilledRuns", 1);
+            QueryMetrics.add("SortMergeJoin.spillBytes", runFile.finishWriting());
+        }
+    }
+
+    private void addToRun(Tuple tuple) {
+        if (runFile != null) {
+            runFile.write(tuple);
+            return;
+        }
+        runTuples.add(tuple);
+        runBytes += tuple.getEstimatedSize();
+        if (runBytes > runBufferBudget) {
+            // The run no longer fits in its buffer: move it to disk and replay it from there.
+            runFile = new SpillFile(scratchDir, "mergejoin-run");
+            for (Tuple buffered : runTuples) {
+                runFile.write(buffered);
+            }
+            runTuples.clear();
+        }
+    }
+
+    private void rewindRun() {
+        runIndex = 0;
+        if (runFile != null) {
+            runFile.openReader();
+        }
+    }
+
+    private Tuple nextRunTuple() {
+        if (runFile != null) {
+            return runFile.read();
+        }
+        return runIndex < runTuples.size() ? runTuples.get(runIndex++) : null;
+    }
+
+    private void clearRun() {
+        runTuples.clear();
+        runBytes = 0;
+        runFirstTuple = null;
+        if (runFile != null) {
+            runFile.delete();
+            runFile = null;
+        }
+    }
+
+    /**
+     * Compares the join keys of two tuples. Numeric values are compared as numbers, matching the order
+     * produced by the {@link SortOperator}; other values are compared as strings.
+     */
+    private static int compareKeys(Tuple t1, int[] keys1, Tuple t2, int[] keys2) {
+        for (int i = 0; i < keys1.length; i++) {
+            int cmp = t1.compareField(keys1[i], t2, keys2[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private boolean satisfiesResidual(Tuple joinedTuple) {
+        if (residualCondition == null) {
+            return true;
+        }
+        if (residualPredicate == null) {
+            // Compiled once, on the first joined tuple, into index-bound nodes.
+            residualPredicate = ExpressionCompiler.compilePredicate(residualCondition, schemaMapping, joinedTuple);
+        }
+        try {
+            return residualPredicate.test(joinedTuple);
+        } catch (Exception e) {
+            System.err.println("Error evaluating join condition for tuple: " + joinedTuple);
+            return false;
+        }
+    }
+
+    private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
+        return Tuple.concat(leftTuple, rightTuple);
+    }
+
+    /**
+     * Resets the {@code SortMergeJoinOperator} and its child operators to their initial states.
+     */
+    @Override
+    public void reset() {
+        leftInput.reset();
+        rightInput.reset();
+        clearRun();
+        started = false;
+        inRun = false;
+        currentLeft = null;
+        currentRight = null;
+    }
+}
@@ -1,12 +1,17 @@
 package ed.inf.adbs.blazedb.operator;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntBinaryOperator;
 
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+import ed.inf.adbs.blazedb.util.SpillFile;
+import ed.inf.adbs.blazedb.util.TupleArena;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.OrderByElement;
 
@@ -19,29 +24,50 @@ import net.sf.jsqlparser.statement.select.OrderByElement;
  * Key Responsibilities:
  *  - Tuple Retrieval: Fetches all tuples from the child operator and stores them for sorting.
  *  - Sorting Mechanism: Sorts the collected tuples based on one or more ORDER BY criteria.
+ *  - Bounded Memory: Sorts inputs larger than the memory budget with an external k-way merge sort.
  *  - Schema Mapping: Maintains a mapping between column names and their respective indices to facilitate accurate sorting.
  *  - State Management: Manages internal state to allow resetting and re-iteration over sorted tuples.
  *
  * Implementation Details:
- *  - The class retrieves all tuples from the child operator and stores them in a buffer for sorting.
+ *  - Tuples from the child operator are serialized into an off-heap {@link TupleArena} until the memory budget
+ *    is exceeded, so the heap holds no tuple objects however large the buffer. If the whole input fits, the
+ *    rows are sorted in place by number, comparing their fields in the arena, and rebuilt as tuples one at a
+ *    time as they are returned.
+ *  - Otherwise each full buffer is sorted and written to a temporary binary run file. The runs are then merged
+ *    with a priority queue, at most {@value #MAX_FAN_IN} at a time; extra merge passes are only needed when there
+ *    are more runs than that. The final merge pass streams its output through {@link #getNextTuple()}.
  *  - A custom {@link TupleComparator} is used to define the sorting logic based on the provided ORDER BY elements.
- *  - After sorting, tuples are returned one by one through the {@link #getNextTuple()} method.
+ *  - The number of runs, merge passes and spilled bytes are reported through {@link QueryMetrics}.
  */
 public class SortOperator extends Operator {
+    // Maximum number of runs merged at once.
+    static final int MAX_FAN_IN = 64;
 
     private final Operator child;
     private final List<OrderByElement> orderByElements;
     private final Map<String, Integer> schemaMapping;
+    private final long memoryBudget;
+    private final String scratchDir;
 
-    // Buffer to store tuples from the child operator.
-    private List<Tuple> sortedTuples;
+    private boolean sorted;
+    // Buffer of the tuples read, sorted in memory when the whole input fits.
+    private final TupleArena buffer;
+    // Numbers of the buffered rows in sorted order, once the input is sorted in memory.
+    private int[] sortedRows;
     // Pointer for returning tuples one by one.
     private int currentIndex;
+    // Merger over the sorted runs when the input had to be spilled.
+    private RunMerger merger;
+
+    private int runCount;
+    private int mergePasses;
+    private long spilledBytes;
 
     /**
      * Constructs a {@code SortOperator} with the specified child operator, ORDER BY elements, and schema mapping.
      * This constructor initializes the sort operator by setting its child operator, the ORDER BY rules
      * for sorting, and the schema mapping required to resolve column references within the tuples.
+     * The memory budget and scratch directory are taken from the {@link ExecutionConfig}.
      *
      * @param child           The child {@link Operator} providing input tuples (e.g., an instance of {@link ScanOperator}).
      * @param orderByElements A {@link List} of {@link OrderByElement} specifying the sort order based on column names and directions.
@@ -50,17 +76,34 @@ public class SortOperator extends Operator {
      * @throws IllegalArgumentException if {@code child}, {@code orderByElements}, or {@code schemaMapping} is {@code null}.
      */
     public SortOperator(Operator child, List<OrderByElement> orderByElements, Map<String, Integer> schemaMapping) {
+        this(child, orderByElements, schemaMapping,
+                ExecutionConfig.getInstance().getSortMemoryBudget(), ExecutionConfig.getInstance().getScratchDir());
+    }
+
+    /**
+     * Constructs a {@code SortOperator} with an explicit memory budget and scratch directory.
+     *
+     * @param child           The child {@link Operator} providing input tuples.
+     * @param orderByElements A {@link List} of {@link OrderByElement} specifying the sort order.
+     * @param schemaMapping   A {@link Map} that associates column names with their respective indices in the tuples.
+     * @param memoryBudget    The maximum size in bytes of the serialized tuples sorted in memory at once.
+     * @param scratchDir      The directory in which sorted runs are written.
+     */
+    public SortOperator(Operator child, List<OrderByElement> orderByElements, Map<String, Integer> schemaMapping,
+                        long memoryBudget, String scratchDir) {
         this.child = child;
         this.orderByElements = orderByElements;
         this.schemaMapping = schemaMapping;
-        this.sortedTuples = new ArrayList<>();
+        this.memoryBudget = memoryBudget;
+        this.scratchDir = scratchDir;
+        this.buffer = new TupleArena();
         this.currentIndex = 0;
     }
 
     /**
-     * Retrieves the next sorted tuple from the buffer.
-     * If the tuples have not been sorted yet, this method fetches all tuples from the child operator,
-     * sorts them based on the specified ORDER BY elements, and then returns the tuples one by one in sorted order.
+     * Retrieves the next sorted tuple.
+     * On the first call, this method consumes the whole input of the child operator and sorts it, in memory or
+     * by generating and merging sorted runs, and then returns the tuples one by one in sorted order.
      *
      * @return The next {@link Tuple} in sorted order, or {@code null} if no more tuples are available.
      *
@@ -68,46 +111,220 @@ public class SortOperator extends Operator {
      */
     @Override
     public Tuple getNextTuple() {
-        // Buffer all tuples from the child operator and sort them if not already done.
-        if (sortedTuples.isEmpty()) {
-            Tuple tuple;
-            while ((tuple = child.getNextTuple()) != null) {
-                sortedTuples.add(tuple);
-            }
-            // System.out.println("SortOperator getNextTuple: Sorted tuples: " + sortedTuples);
-            // System.out.println("SortOperator getNextTuple: Schema mapping: " + schemaMapping);
-            // System.out.println("SortOperator getNextTuple: Schema mapping size: " + schemaMapping.size());
-            Collections.sort(sortedTuples, new TupleComparator(orderByElements, schemaMapping));
+        if (!sorted) {
+            sortInput();
+            sorted = true;
         }
 
-        // Return tuples one by one until the list is exhausted.
-        if (currentIndex < sortedTuples.size()) {
-            return sortedTuples.get(currentIndex++);
+        if (merger != null) {
+            Tuple next = merger.next();
+            if (next == null) {
+                // All runs are consumed; their files are no longer needed.
+                merger.close();
+            }
+            return next;
+        }
+        // Return tuples one by one until the sorted rows are exhausted.
+        if (sortedRows == null) {
+            return null;
         }
+        if (currentIndex < sortedRows.length) {
+            return buffer.get(sortedRows[currentIndex++]);
+        }
+        // Every tuple has been returned: free the buffer's memory.
+        buffer.release();
+        sortedRows = null;
         return null;
     }
 
+    /**
+     * Reads the child's input and sorts it, generating sorted runs whenever the buffer exceeds the memory budget.
+     */
+    private void sortInput() {
+        TupleComparator comparator = new TupleComparator(orderByElements, schemaMapping);
+        List<SpillFile> runs = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = child.getNextTuple()) != null) {
+            buffer.add(tuple);
+            if (buffer.getMemoryUsage() > memoryBudget) {
+                runs.add(writeRun(comparator));
+                buffer.clear();
+            }
+        }
+
+        if (runs.isEmpty()) {
+            sortedRows = buffer.sortRows(comparator.rowComparator(buffer));
+            return;
+        }
+        if (buffer.size() > 0) {
+            runs.add(writeRun(comparator));
+        }
+        buffer.release();
+
+        // Merge groups of runs into longer runs until the remaining ones can be merged in a single pass.
+        while (runs.size() > MAX_FAN_IN) {
+            List<SpillFile> mergedRuns = new ArrayList<>();
+            for (int start = 0; start < runs.size(); start += MAX_FAN_IN) {
+                List<SpillFile> group = runs.subList(start, Math.min(start + MAX_FAN_IN, runs.size()));
+                if (group.size() == 1) {
+                    mergedRuns.add(group.get(0));
+                    continue;
+                }
+                SpillFile mergedRun = new SpillFile(scratchDir, "sort-run");
+                RunMerger groupMerger = new RunMerger(group, comparator);
+                Tuple next;
+                while ((next = groupMerger.next()) != null) {
+                    mergedRun.write(next);
+                }
+                groupMerger.close();
+                recordSpill(mergedRun.finishWriting());
+                mergedRuns.add(mergedRun);
+            }
+            runs = mergedRuns;
+            recordMergePass();
+        }
+        merger = new RunMerger(runs, comparator);
+        recordMergePass();
+    }
+
+    /**
+     * Sorts the buffered tuples and writes them to a new run file.
+     */
+    private SpillFile writeRun(TupleComparator comparator) {
+        int[] rows = buffer.sortRows(comparator.rowComparator(buffer));
+        SpillFile run = new SpillFile(scratchDir, "sort-run");
+        for (int row : rows) {
+            run.write(buffer.get(row));
+        }
+        recordSpill(run.finishWriting());
+        runCount++;
+        QueryMetrics.add("Sort.runs", 1);
+        return run;
+    }
+
+    private void recordSpill(long bytes) {
+        spilledBytes += bytes;
+        QueryMetrics.add("Sort.spillBytes", bytes);
+    }
+
+    private void recordMergePass() {
+        mergePasses++;
+        QueryMetrics.add("Sort.mergePasses", 1);
+    }
+
+    /**
+     * @return The number of sorted runs written to disk (0 if the input was sorted in memory).
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * @return The number of merge passes performed over the runs.
+     */
+    public int getMergePasses() {
+        return mergePasses;
+    }
+
+    /**
+     * @return The total number of bytes written to run files.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
     /**
      * Resets the {@code SortOperator} to its initial state, allowing for re-iteration over sorted tuples.
-     * This method clears the sorted tuples buffer, resets the current index pointer, and resets the child operator,
-     * enabling the sort operation to be performed again from the beginning.
+     * This method clears the buffered tuples, removes any run files, resets the current index pointer,
+     * and resets the child operator, enabling the sort operation to be performed again from the beginning.
      *
      * @throws RuntimeException if an error occurs during the reset process.
      */
     @Override
     public void reset() {
+        child.reset();
+        buffer.clear();
+        sortedRows = null;
+        currentIndex = 0;
+        if (merger != null) {
+            merger.close();
+            merger = null;
+        }
+        sorted = false;
+    }
 
+    /**
+     * Merges sorted runs with a priority queue holding the current head tuple of each run.
+     * Ties are broken by run order, so the merge is stable.
+     */
+    private static class RunMerger {
+        private final List<SpillFile> runs;
+        private final PriorityQueue<RunHead> heads;
+
+        RunMerger(List<SpillFile> runs, Comparator<Tuple> comparator) {
+            this.runs = new ArrayList<>(runs);
+            this.heads = new PriorityQueue<>(Math.max(1, runs.size()), (h1, h2) -> {
+                int cmp = comparator.compare(h1.tuple, h2.tuple);
+                return cmp != 0 ? cmp : Integer.compare(h1.runIndex, h2.runIndex);
+            });
+            for (int i = 0; i < this.runs.size(); i++) {
+                SpillFile run = this.runs.get(i);
+                run.openReader();
+                Tuple first = run.read();
+                if (first != null) {
+                    heads.add(new RunHead(first, i));
+                }
+            }
+        }
+
+        Tuple next() {
+            RunHead head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            Tuple result = head.tuple;
+            Tuple following = runs.get(head.runIndex).read();
+            if (following != null) {
+                head.tuple = following;
+                heads.add(head);
+            }
+            return result;
+        }
+
+        void close() {
+            heads.clear();
+            for (SpillFile run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    private static class RunHead {
+        private Tuple tuple;
+        private final int runIndex;
+
+        RunHead(Tuple tuple, int runIndex) {
+            this.tuple = tuple;
+            this.runIndex = runIndex;
+        }
     }
 
     /**
      * A custom comparator that defines the sorting logic for {@link Tuple} objects based on the specified ORDER BY elements.
      * This comparator iterates through the ORDER BY elements and compares tuples based on the corresponding
      * column values and sort directions. It ensures that tuples are ordered according to all specified criteria.
+     *
+     * The ORDER BY columns are resolved to tuple indexes on the first comparison. Each key is then compared on the
+     * typed slots of the tuples: integer types ({@code INT}, {@code BIGINT}, {@code DATE}) as primitive longs, and
+     * {@code DOUBLE} and {@code VARCHAR} values through {@link Tuple#compareField(int, Tuple, int)}.
      */
-    private static class TupleComparator implements Comparator<Tuple> {
+    static class TupleComparator implements Comparator<Tuple> {
 
         private final List<OrderByElement> orderByElements;
         private final Map<String, Integer> schemaMapping;
+        // Resolved tuple index and direction of each ORDER BY element.
+        private int[] keyIndexes;
+        private boolean[] ascending;
 
         public TupleComparator(List<OrderByElement> orderByElements, Map<String, Integer> schemaMapping) {
             this.orderByElements = orderByElements;
@@ -116,15 +333,75 @@ public class SortOperator extends Operator {
 
         @Override
         public int compare(Tuple t1, Tuple t2) {
-            for (OrderByElement orderBy : orderByElements) {
-                int cmp = compareByColumn(t1, t2, orderBy);
+            if (keyIndexes == null) {
+                resolveKeys();
+            }
+            for (int i = 0; i < keyIndexes.length; i++) {
+                int index = keyIndexes[i];
+                int cmp;
+                if (t1.getType(index).isIntegral() && t2.getType(index).isIntegral()) {
+                    cmp = Long.compare(t1.getLong(index), t2.getLong(index));
+                } else {
+                    cmp = t1.compareField(index, t2, index);
+                }
                 if (cmp != 0) {
-                    return cmp;
+                    return ascending[i] ? cmp : -cmp;
                 }
             }
             return 0;
         }
 
+        /**
+         * Returns a comparator of the rows of a {@link TupleArena}, comparing their fields in the arena as
+         * {@link #compare(Tuple, Tuple)} compares two tuples. The keys that are integers in every row are first
+         * copied to primitive arrays, one slot per row, so that they are compared without reading the arena.
+         */
+        IntBinaryOperator rowComparator(TupleArena arena) {
+            if (keyIndexes == null) {
+                resolveKeys();
+            }
+            long[][] integralKeys = new long[keyIndexes.length][];
+            for (int i = 0; i < keyIndexes.length; i++) {
+                long[] keys = new long[arena.size()];
+                for (int row = 0; row < keys.length; row++) {
+                    if (!arena.getType(row, keyIndexes[i]).isIntegral()) {
+                        keys = null;
+                        break;
+                    }
+                    keys[row] = arena.getLong(row, keyIndexes[i]);
+                }
+                integralKeys[i] = keys;
+            }
+            return (row, otherRow) -> {
+                for (int i = 0; i < keyIndexes.length; i++) {
+                    long[] keys = integralKeys[i];
+                    int cmp = keys != null ? Long.compare(keys[row], keys[otherRow])
+                            : arena.compareField(row, keyIndexes[i], otherRow, keyIndexes[i]);
+                    if (cmp != 0) {
+                        return ascending[i] ? cmp : -cmp;
+                    }
+                }
+                return 0;
+            };
+        }
+
+        private void resolveKeys() {
+            int[] indexes = new int[orderByElements.size()];
+            boolean[] directions = new boolean[orderByElements.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                OrderByElement orderBy = orderByElements.get(i);
+                String columnName = getColumnName(orderBy);   // Get fully qualified column name
+                Integer index = schemaMapping.get(columnName);
+                if (index == null) {
+                    throw new IllegalArgumentException("Column " + columnName + " is not found in the schema mapping.");
+                }
+                indexes[i] = index;
+                directions[i] = orderBy.isAsc();
+            }
+            ascending = directions;
+            keyIndexes = indexes;
+        }
+
         private String getColumnName(OrderByElement orderBy) {
             // Get the Expression from the ORDER BY element.
             // If the expression is a column, cast it.
@@ -138,24 +415,5 @@ public class SortOperator extends Operator {
             }
             throw new IllegalArgumentException("ORDER BY expression is not a column.");
         }
-
-        private int compareByColumn(Tuple t1, Tuple t2, OrderByElement orderBy) {
-            String columnName = getColumnName(orderBy);   // Get fully qualified column name
-            Integer index = schemaMapping.get(columnName);
-            // System.out.println("SortOperator: Column name: " + columnName + " -> Index: " + index);
-            // System.out.println("SortOperator: Schema mapping" + schemaMapping);
-
-            if (index == null) {
-                throw new IllegalArgumentException("Column " + columnName + " is not found in the schema mapping.");
-            }
-            // System.out.println("SortOperator: t1: " + t1 + "  t2: " + t2);
-            // Now retrieve the actual values based on your requirements.
-            // The example below assumes integer values.
-            int value1 = t1.getInt(index);
-            int value2 = t2.getInt(index);
-
-            int cmp = Integer.compare(value1, value2);
-            return orderBy.isAsc() ? cmp : -cmp;
-        }
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,20 @@
 package ed.inf.adbs.blazedb.operator;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
-import ed.inf.adbs.blazedb.expression.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.expression.ExpressionCompiler;
+import ed.inf.adbs.blazedb.expression.ValueNode;
 import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.util.ExactSum;
+import ed.inf.adbs.blazedb.util.StringDictionary;
+import ed.inf.adbs.blazedb.util.TupleArena;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.LongValue;
 
@@ -23,14 +33,18 @@ import net.sf.jsqlparser.expression.LongValue;
  * Implementation Details:
  *     The operator fetches all input tuples from the child operator during the first call to {@link #getNextTuple()}.
  *     Tuples are grouped based on the specified group-by expressions, and SUM aggregates are computed for each group.
- *     Aggregated results are stored in the {@code outputTuples} list and returned sequentially.
+ *     The running sums are stored off the heap, one row per group in a {@link TupleArena} found through an
+ *     open-addressing hash table, and the output tuples are built one at a time as they are returned.
+ *     With several threads configured, large inputs are pre-aggregated by worker threads into partial results
+ *     that are merged at the end (see {@link #aggregate(ValueNode, ValueNode[])}).
  */
 public class SumOperator extends Operator {
 
     private final Operator child;
     private final List<Expression> groupByExpressions;
     private final List<Expression> sumExpressions; // expressions for SUM aggregates
-    private List<Tuple> outputTuples;
+    // The aggregates of the whole input, once computed; each of its groups is one output tuple.
+    private PartialAggregate result;
     private int currentIndex;
     private Map<String, Integer> schemaMapping;
 
@@ -50,7 +64,6 @@ public class SumOperator extends Operator {
         this.child = child;
         this.groupByExpressions = groupByExpressions;
         this.sumExpressions = sumExpressions;
-        this.outputTuples = new ArrayList<>();
         this.currentIndex = 0;
         this.schemaMapping = schemaMapping;
         computeAggregation();  // block and compute all aggregations on construction or first getNextTuple call
@@ -60,7 +73,7 @@ public class SumOperator extends Operator {
      * Reads all input tuples from the child operator, organizes them into groups based on the group-by expressions,
      * and computes the SUM aggregates for each group.
      * This method performs the core aggregation logic by iterating over all input tuples, determining their group,
-     * and updating the corresponding aggregate sums. The results are stored in the {@code outputTuples} list.
+     * and updating the corresponding aggregate sums. The results are stored in {@code result}.
      *
      * @throws RuntimeException if an error occurs during aggregation computation.
      */
@@ -68,31 +81,12 @@ public class SumOperator extends Operator {
         // Check if there is no GROUP BY clause.
         if (groupByExpressions == null || groupByExpressions.isEmpty()) {
             // This block performs a global aggregation.
-            // Initialize a list to hold the aggregates.
-            // We assume one aggregate value per sum expression. Adjust accordingly.
-            List<Integer> aggregatedSums = new ArrayList<>();
-            // Initialize each sum accumulator to 0.
-            for (int i = 0; i < sumExpressions.size(); i++) {
-                aggregatedSums.add(0);
-            }
-
-            // Read and aggregate all tuples produced by the child.
-            Tuple tuple;
-            while ((tuple = child.getNextTuple()) != null) {
-                // For each SUM expression, evaluate and add the value.
-                for (int i = 0; i < sumExpressions.size(); i++) {
-                    int value = evaluateExpressionAsInt(tuple, sumExpressions.get(i));
-                    aggregatedSums.set(i, aggregatedSums.get(i) + value);
-                }
-            }
-
-            // Build the output tuple.
-            List<String> outputFields = new ArrayList<>();
-            for (int sum : aggregatedSums) {
-                outputFields.add(String.valueOf(sum));
+            // We assume one aggregate value per sum expression; each accumulator starts at 0.
+            ValueNode[] compiledSums = new ValueNode[sumExpressions.size()];
+            for (int i = 0; i < compiledSums.length; i++) {
+                compiledSums[i] = compileSumExpression(sumExpressions.get(i));
             }
-            outputTuples = new ArrayList<>();
-            outputTuples.add(new Tuple(outputFields));
+            result = aggregate(null, compiledSums);
 
             // Update the schema mapping accordingly. For example, label the fields as SUM_0, SUM_1, etc.
             Map<String, Integer> aggSchemaMapping = new LinkedHashMap<>();
@@ -104,27 +98,11 @@ public class SumOperator extends Operator {
             // Optionally, you can print the new schema mapping for debugging.
             // System.out.println("Schema mapping after global aggregation: " + schemaMapping);
         } else {
-            // Existing implementation: process aggregation using a grouping key.
-            Map<String, Integer> groups = new HashMap<>();
-            Tuple tuple;
-            while ((tuple = child.getNextTuple()) != null) {
-                // Evaluate the grouping key (assumed to be in groupByExpressions.get(0)).
-                String groupKey = evaluateExpressionAsString(tuple, groupByExpressions.get(0));
-                // Evaluate the SUM expression; adjust if multiple SUM expressions are needed.
-                int sumValue = evaluateExpressionAsInt(tuple, sumExpressions.get(0));
-
-                int currentSum = groups.getOrDefault(groupKey, 0);
-                groups.put(groupKey, currentSum + sumValue);
-            }
-
-            // Build the output tuples for each group.
-            outputTuples = new ArrayList<>();
-            for (Map.Entry<String, Integer> entry : groups.entrySet()) {
-                List<String> outputFields = new ArrayList<>();
-                outputFields.add(entry.getKey());              // Group key value.
-                outputFields.add(String.valueOf(entry.getValue())); // The computed sum.
-                outputTuples.add(new Tuple(outputFields));
-            }
+            // Existing implementation: process aggregation using a grouping key
+            // (assumed to be in groupByExpressions.get(0)) and one SUM expression.
+            ValueNode groupKeyNode = ExpressionCompiler.compileValue(groupByExpressions.get(0), schemaMapping);
+            ValueNode[] compiledSums = {compileSumExpression(sumExpressions.get(0))};
+            result = aggregate(groupKeyNode, compiledSums);
 
             // Update the schema mapping for grouped aggregation.
             Map<String, Integer> aggSchemaMapping = new LinkedHashMap<>();
@@ -136,6 +114,116 @@ public class SumOperator extends Operator {
         }
     }
 
+    /**
+     * Aggregates the whole input of the child. With more than one thread configured, every worker thread
+     * pre-aggregates part of the input into its own {@link PartialAggregate}, and the partial results are
+     * merged at the end:
+     *  - below an {@link ExchangeOperator}, the workers of the parallel scan aggregate the batches of their
+     *    own pipelines;
+     *  - for any other child, this thread reads the input and hands its batches to worker threads, once the
+     *    input turns out to be larger than one batch.
+     *
+     * @param groupKeyNode The compiled grouping key, or {@code null} for a global aggregation.
+     * @param sumNodes     The compiled SUM expressions.
+     * @return The aggregate of the whole input.
+     */
+    private PartialAggregate aggregate(ValueNode groupKeyNode, ValueNode[] sumNodes) {
+        int threads = ExecutionConfig.getInstance().getThreads();
+        if (child instanceof ExchangeOperator) {
+            List<PartialAggregate> partials = ((ExchangeOperator) child).consumeInWorkers(
+                    () -> new PartialAggregate(groupKeyNode, sumNodes), PartialAggregate::add);
+            return merge(partials);
+        }
+
+        PartialAggregate aggregate = new PartialAggregate(groupKeyNode, sumNodes);
+        TupleBatch first = child.getNextBatch();
+        if (first == null) {
+            return aggregate;
+        }
+        if (threads <= 1) {
+            TupleBatch batch = first;
+            do {
+                aggregate.add(batch);
+            } while ((batch = child.getNextBatch()) != null);
+            return aggregate;
+        }
+        // The child may reuse its batch, so the first one is copied before the second is read.
+        TupleBatch firstCopy = copyBatch(first);
+        TupleBatch second = child.getNextBatch();
+        if (second == null) {
+            aggregate.add(firstCopy);
+            return aggregate;
+        }
+        return aggregateInParallel(firstCopy, second, groupKeyNode, sumNodes, threads);
+    }
+
+    /**
+     * Distributes the child's batches over worker threads through a bounded queue and merges their results.
+     */
+    private PartialAggregate aggregateInParallel(TupleBatch first, TupleBatch second, ValueNode groupKeyNode,
+                                                 ValueNode[] sumNodes, int threads) {
+        BlockingQueue<TupleBatch> queue = new ArrayBlockingQueue<>(threads * 4);
+        TupleBatch endOfInput = new TupleBatch(0);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<PartialAggregate> partials = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            PartialAggregate partial = new PartialAggregate(groupKeyNode, sumNodes);
+            partials.add(partial);
+            Thread worker = new Thread(() -> {
+                try {
+                    TupleBatch batch;
+                    while ((batch = queue.take()) != endOfInput) {
+                        if (failure.get() == null) {
+                            partial.add(batch);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "aggregate-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        try {
+            queue.put(first);
+            TupleBatch batch = second;
+            do {
+                queue.put(copyBatch(batch));
+            } while (failure.get() == null && (batch = child.getNextBatch()) != null);
+            for (int i = 0; i < threads; i++) {
+                queue.put(endOfInput);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while aggregating", e);
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException("Parallel aggregation failed: " + failure.get().getMessage(), failure.get());
+        }
+        return merge(partials);
+    }
+
+    private static TupleBatch copyBatch(TupleBatch batch) {
+        TupleBatch copy = new TupleBatch(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            copy.add(batch.get(i));
+        }
+        return copy;
+    }
+
+    private static PartialAggregate merge(List<PartialAggregate> partials) {
+        PartialAggregate result = partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            result.merge(partials.get(i));
+        }
+        return result;
+    }
+
     /**
      * Retrieves the current schema mapping, associating column names with their respective indices in the tuples.
      *
@@ -146,67 +234,279 @@ public class SumOperator extends Operator {
     }
 
     /**
-     * Evaluates an {@link Expression} on a given {@link Tuple} and returns the result as a {@code String}.
-     * This is a placeholder helper method intended to evaluate expressions such as column references.
-     * In a complete implementation, this method should utilize an expression evaluator or visitor pattern
-     * to handle various expression types based on the system's design.
+     * Compiles a SUM expression into an index-bound {@link ValueNode}, once per query.
+     * Literal aliases (e.g. {@code SUM(1)}) become the intended constant.
      *
-     * @param tuple The input {@link Tuple} on which the expression is to be evaluated.
-     * @param expr  The {@link Expression} to evaluate (e.g., a column reference).
-     * @return The result of the expression evaluation as a {@code String}.
-     *
-     * @throws UnsupportedOperationException if the expression type is not supported.
+     * @param expr The {@link Expression} inside the SUM aggregate.
+     * @return The compiled expression.
      */
-    private String evaluateExpressionAsString(Tuple tuple, Expression expr) {
-        ExpressionEvaluator evaluator = new ExpressionEvaluator(tuple, schemaMapping);
-        expr.accept(evaluator);
-        Object value = evaluator.getCurrentValue();
-        // System.out.println("Evaluated expression: " + expr + " -> " + value);
-        return value.toString();
+    private ValueNode compileSumExpression(Expression expr) {
+        // If the expression is recognized as a literal alias, use the intended constant.
+        if (expr.toString().startsWith("LITERAL_SUM")) {
+            return ExpressionCompiler.compileValue(new LongValue(1), schemaMapping);
+        }
+        return ExpressionCompiler.compileValue(expr, schemaMapping);
     }
 
-
     /**
-     * Evaluates an {@link Expression} on a given {@link Tuple} and returns the result as an integer.
-     * This method is specifically tailored for expressions used in the SUM aggregates. It assumes that
-     * the expression can be evaluated to an integer value.
+     * Tells whether a compiled SUM expression evaluates to a {@code DOUBLE} on a given {@link Tuple}, rather than
+     * an integer. Column values are read from the tuple in their declared type, so no text is parsed and nothing
+     * is boxed: integer columns are summed as longs and {@code DOUBLE} columns as doubles.
      *
-     * @param tuple The input {@link Tuple} on which the expression is to be evaluated.
-     * @param expr  The {@link Expression} to evaluate.
-     * @return The integer value resulting from the expression evaluation.
+     * @throws RuntimeException if the expression does not evaluate to a number.
+     */
+    private static boolean isDoubleValue(ValueNode expr, Tuple tuple) {
+        ColumnType type = expr.getType(tuple);
+        if (type == ColumnType.VARCHAR) {
+            throw new RuntimeException("Unable to evaluate the expression result as a number: " + expr.evalObject(tuple));
+        }
+        return type == ColumnType.DOUBLE;
+    }
+
+    /**
+     * The SUM aggregates of part of the input, stored off the heap in a {@link TupleArena}: one row per group,
+     * holding the group key followed by {@value #SUM_FIELDS} fields per SUM aggregate. Integer values are summed
+     * exactly as longs in the first field. {@code DOUBLE} values are summed exactly too, as an {@link ExactSum}
+     * rounded once the aggregate is read, so the result does not depend on how the input was split between threads
+     * or on the order in which the partial results are merged. The partial sums of an {@code ExactSum} are kept in
+     * the next two fields, and their number in the last one; the rare sums needing more partials are kept on the
+     * heap, and the last field then holds their index. A sum without any {@code DOUBLE} value stays an integer.
+     * A global aggregation has a single row.
      *
-     * @throws NumberFormatException        if the expression cannot be parsed into an integer.
-     * @throws UnsupportedOperationException if the expression type is not supported.
+     * Groups are found through an open-addressing hash table, probed linearly, holding the row number, type and
+     * slot of each group's key in primitive arrays: integer keys are compared as longs, {@code DOUBLE} keys by their
+     * bits and strings by their {@link StringDictionary} code. Each thread aggregating in parallel owns one instance.
      */
-    private int evaluateExpressionAsInt(Tuple tuple, Expression expr) {
-        // If the expression is recognized as a literal alias, return the intended constant.
-        if (expr.toString().startsWith("LITERAL_SUM")) {
-            return 1;
+    private static final class PartialAggregate {
+        // Fields per SUM aggregate: integer sum, two partial sums of the DOUBLE values, and their state.
+        private static final int SUM_FIELDS = 4;
+        // Number of partial sums held in a row.
+        private static final int ROW_PARTIALS = 2;
+        // State of a sum held on the heap: this value plus its index in largeSums.
+        private static final long LARGE_SUM = ROW_PARTIALS + 1;
+
+        private final ValueNode groupKeyNode;
+        private final ValueNode[] sumNodes;
+        private final TupleArena groups = new TupleArena();
+        // Number plus one of the row of the group in each slot, 0 for an empty slot; at most half full.
+        private int[] table = new int[64];
+        // Key slot and type of the group in each slot.
+        private long[] tableKeys = new long[64];
+        private byte[] tableTypes = new byte[64];
+        // Sums of DOUBLE values with more partials than a row holds.
+        private final List<ExactSum> largeSums = new ArrayList<>();
+        // Sum a row's DOUBLE values are loaded into while they are updated.
+        private final ExactSum rowSum = new ExactSum();
+        private final double[] rowPartials = new double[ROW_PARTIALS];
+
+        PartialAggregate(ValueNode groupKeyNode, ValueNode[] sumNodes) {
+            this.groupKeyNode = groupKeyNode;
+            this.sumNodes = sumNodes;
+            if (groupKeyNode == null) {
+                groups.addEmpty(1 + SUM_FIELDS * sumNodes.length);
+            }
         }
 
-        // Otherwise, if the expression itself is a LongValue, use its value.
-        if (expr instanceof LongValue) {
-            return (int) ((LongValue) expr).getValue();
+        void add(TupleBatch batch) {
+            if (groupKeyNode == null) {
+                // For each SUM expression, add the values of the whole batch to the sums read from the single row.
+                for (int i = 0; i < sumNodes.length; i++) {
+                    ValueNode expr = sumNodes[i];
+                    int field = 1 + SUM_FIELDS * i;
+                    long longSum = groups.getLong(0, field);
+                    ExactSum doubleSum = loadDoubleSum(0, field);
+                    boolean isDouble = false;
+                    for (int j = 0; j < batch.size(); j++) {
+                        Tuple tuple = batch.get(j);
+                        if (isDoubleValue(expr, tuple)) {
+                            doubleSum.add(expr.evalDouble(tuple));
+                            isDouble = true;
+                        } else {
+                            longSum += expr.evalLong(tuple);
+                        }
+                    }
+                    groups.setLong(0, field, longSum);
+                    if (isDouble) {
+                        storeDoubleSum(0, field, doubleSum);
+                    }
+                }
+                return;
+            }
+            for (int j = 0; j < batch.size(); j++) {
+                Tuple tuple = batch.get(j);
+                int row;
+                ColumnType type = groupKeyNode.getType(tuple);
+                if (type == ColumnType.DOUBLE) {
+                    row = findGroup(type, Double.doubleToLongBits(groupKeyNode.evalDouble(tuple)));
+                } else {
+                    // The slot of an integer, or the dictionary code of a string: a column's code is read from the
+                    // tuple, and only a computed string is encoded, which locks the shared dictionary.
+                    row = findGroup(type, groupKeyNode.evalLong(tuple));
+                }
+                for (int i = 0; i < sumNodes.length; i++) {
+                    ValueNode expr = sumNodes[i];
+                    int field = 1 + SUM_FIELDS * i;
+                    if (isDoubleValue(expr, tuple)) {
+                        ExactSum doubleSum = loadDoubleSum(row, field);
+                        doubleSum.add(expr.evalDouble(tuple));
+                        storeDoubleSum(row, field, doubleSum);
+                    } else {
+                        groups.setLong(row, field, groups.getLong(row, field) + expr.evalLong(tuple));
+                    }
+                }
+            }
         }
 
-        // Fallback: use your regular evaluation logic.
-        String result = evaluateExpressionAsString(tuple, expr).trim();
-        // System.out.println("Evaluated expression: " + expr + " -> " + result);
-        try {
-            return Integer.parseInt(result);
-        } catch (NumberFormatException e) {
-            try {
-                return (int) Double.parseDouble(result);
-            } catch (NumberFormatException ex) {
-                throw new RuntimeException("Unable to parse the expression result to int: " + result, ex);
+        /**
+         * Returns the sum of the {@code DOUBLE} values of a SUM aggregate of a group, to be passed to
+         * {@link #storeDoubleSum(int, int, ExactSum)} once updated: the sum held on the heap, or the partial sums
+         * of the row loaded into {@code rowSum}, which is empty if no {@code DOUBLE} value was added.
+         */
+        private ExactSum loadDoubleSum(int row, int field) {
+            long state = groups.getLong(row, field + 3);
+            if (state >= LARGE_SUM) {
+                return largeSums.get((int) (state - LARGE_SUM));
+            }
+            for (int k = 0; k < state; k++) {
+                rowPartials[k] = Double.longBitsToDouble(groups.getLong(row, field + 1 + k));
+            }
+            rowSum.setPartials(rowPartials, (int) state);
+            return rowSum;
+        }
+
+        /**
+         * Stores the updated sum of the {@code DOUBLE} values of a SUM aggregate of a group, moving it to the heap
+         * once it no longer fits in the row.
+         */
+        private void storeDoubleSum(int row, int field, ExactSum sum) {
+            if (groups.getLong(row, field + 3) >= LARGE_SUM) {
+                // Updated in place.
+                return;
+            }
+            int count = sum.getPartialCount();
+            if (sum.isFinite() && count <= ROW_PARTIALS) {
+                for (int k = 0; k < count; k++) {
+                    groups.setLong(row, field + 1 + k, Double.doubleToLongBits(sum.getPartial(k)));
+                }
+                groups.setLong(row, field + 3, count);
+                return;
+            }
+            ExactSum large = new ExactSum();
+            large.add(sum);
+            largeSums.add(large);
+            groups.setLong(row, field + 3, LARGE_SUM + largeSums.size() - 1);
+        }
+
+        /**
+         * Returns the row of the group with a key, adding the group if it is new.
+         */
+        private int findGroup(ColumnType keyType, long key) {
+            int mask = table.length - 1;
+            int slot = hash(keyType, key) & mask;
+            while (table[slot] != 0) {
+                if (tableKeys[slot] == key && tableTypes[slot] == keyType.ordinal()) {
+                    return table[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int row = groups.addEmpty(1 + SUM_FIELDS * sumNodes.length);
+            groups.setType(row, 0, keyType);
+            groups.setLong(row, 0, key);
+            table[slot] = row + 1;
+            tableKeys[slot] = key;
+            tableTypes[slot] = (byte) keyType.ordinal();
+            if (2 * groups.size() > table.length) {
+                resize();
+            }
+            return row;
+        }
+
+        private void resize() {
+            int[] resized = new int[table.length * 2];
+            long[] resizedKeys = new long[resized.length];
+            byte[] resizedTypes = new byte[resized.length];
+            int mask = resized.length - 1;
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] == 0) {
+                    continue;
+                }
+                int slot = hash(tableTypes[i], tableKeys[i]) & mask;
+                while (resized[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                resized[slot] = table[i];
+                resizedKeys[slot] = tableKeys[i];
+                resizedTypes[slot] = tableTypes[i];
+            }
+            table = resized;
+            tableKeys = resizedKeys;
+            tableTypes = resizedTypes;
+        }
+
+        private static int hash(ColumnType keyType, long key) {
+            return hash(keyType.ordinal(), key);
+        }
+
+        private static int hash(int keyType, long key) {
+            long mixed = (key ^ keyType) * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32));
+        }
+
+        void merge(PartialAggregate other) {
+            for (int otherRow = 0; otherRow < other.groups.size(); otherRow++) {
+                int row = groupKeyNode == null ? 0
+                        : findGroup(other.groups.getType(otherRow, 0), other.groups.getLong(otherRow, 0));
+                for (int i = 0; i < sumNodes.length; i++) {
+                    int field = 1 + SUM_FIELDS * i;
+                    groups.setLong(row, field, groups.getLong(row, field) + other.groups.getLong(otherRow, field));
+                    if (other.groups.getLong(otherRow, field + 3) != 0) {
+                        ExactSum doubleSum = loadDoubleSum(row, field);
+                        doubleSum.add(other.loadDoubleSum(otherRow, field));
+                        storeDoubleSum(row, field, doubleSum);
+                    }
+                }
             }
         }
+
+        int getGroupCount() {
+            return groups.size();
+        }
+
+        /**
+         * Returns the key of a group as a tuple of one field, of the type the key was evaluated to.
+         */
+        Tuple getGroupKey(int row) {
+            ColumnType type = groups.getType(row, 0);
+            long[] values = {groups.getLong(row, 0)};
+            String[] strings = null;
+            if (type == ColumnType.VARCHAR) {
+                strings = new String[]{StringDictionary.decode((int) values[0])};
+            }
+            return new Tuple(values, strings, new ColumnType[]{type});
+        }
+
+        /**
+         * Returns the value of a SUM aggregate of a group: a long, or once a {@code DOUBLE} value was added, the
+         * exact sum of all its values rounded to a double.
+         */
+        Object getSum(int row, int sum) {
+            int field = 1 + SUM_FIELDS * sum;
+            long longSum = groups.getLong(row, field);
+            if (groups.getLong(row, field + 3) != 0) {
+                ExactSum total = new ExactSum();
+                total.add(loadDoubleSum(row, field));
+                total.add(longSum);
+                return total.doubleValue();
+            }
+            return longSum;
+        }
     }
 
     /**
      * Retrieves the next aggregated {@link Tuple} based on the computed SUM aggregates.
      * If the aggregation has not been performed yet, this method triggers the computation by calling {@link #computeAggregation()}.
-     * It then sequentially returns each aggregated tuple from the {@code outputTuples} list until no more tuples are available.
+     * It then sequentially builds and returns the aggregated tuple of each group until no more tuples are available:
+     * the sums of a global aggregation, or the group key value followed by the computed sum.
      *
      * @return The next aggregated {@link Tuple}, or {@code null} if all aggregated tuples have been returned.
      *
@@ -214,17 +514,23 @@ public class SumOperator extends Operator {
      */
     @Override
     public Tuple getNextTuple() {
-        // If outputTuples is null then aggregate the results:
-        if (outputTuples == null) {
+        // If the result is null then aggregate the results:
+        if (result == null) {
             computeAggregation();
         }
 
-        // If the current index is past the list of aggregated tuples, return null.
-        if (currentIndex < outputTuples.size()){
-            Tuple t = outputTuples.get(currentIndex);
-            // System.out.println("Returning aggregated tuple: " + t.getFields());
-            currentIndex++;
-            return t;
+        // If the current index is past the groups, return null.
+        if (currentIndex < result.getGroupCount()) {
+            int row = currentIndex++;
+            List<Object> outputValues = new ArrayList<>();
+            if (groupByExpressions == null || groupByExpressions.isEmpty()) {
+                for (int i = 0; i < sumExpressions.size(); i++) {
+                    outputValues.add(result.getSum(row, i));
+                }
+                return Tuple.fromValues(outputValues);
+            }
+            outputValues.add(result.getSum(row, 0));
+            return Tuple.concat(result.getGroupKey(row), Tuple.fromValues(outputValues));
         }
         return null;
     }
@@ -0,0 +1,126 @@
+package ed.inf.adbs.blazedb.operator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+
+/**
+ * The {@code TopNOperator} class implements {@code ORDER BY ... LIMIT n} without sorting the whole input.
+ * It returns the first n tuples of its child in the order defined by the ORDER BY elements, exactly as a
+ * {@link SortOperator} followed by a limit would, but only ever keeps n tuples in memory.
+ *
+ * Implementation Details:
+ *  - The child is consumed once into a bounded max-heap of n tuples, ordered with the same
+ *    {@link SortOperator.TupleComparator} as the {@link SortOperator}. A new tuple replaces the head of a
+ *    full heap only if it sorts before it, so the operator runs in O(N log n) time and O(n) memory.
+ *  - Ties are broken by arrival order, which keeps the result identical to that of the (stable) full sort.
+ *  - Once the child is exhausted, the heap is drained into a list and returned in ascending order.
+ */
+public class TopNOperator extends Operator {
+    private final Operator child;
+    private final long limit;
+    private final Comparator<Entry> comparator;
+
+    private boolean computed;
+    // The n smallest tuples in sorted order, available once computed.
+    private List<Tuple> topTuples;
+    // Pointer for returning tuples one by one.
+    private int currentIndex;
+
+    /**
+     * Constructs a {@code TopNOperator}.
+     *
+     * @param child           The child operator providing the input tuples.
+     * @param orderByElements The ORDER BY elements defining the sort order.
+     * @param schemaMapping   The mapping from column names to tuple indices.
+     * @param limit           The number n of tuples to return.
+     */
+    public TopNOperator(Operator child, List<OrderByElement> orderByElements, Map<String, Integer> schemaMapping,
+                        long limit) {
+        this.child = child;
+        this.limit = limit;
+        final SortOperator.TupleComparator tupleComparator =
+                new SortOperator.TupleComparator(orderByElements, schemaMapping);
+        this.comparator = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2) {
+                int cmp = tupleComparator.compare(e1.tuple, e2.tuple);
+                return cmp != 0 ? cmp : Long.compare(e1.sequence, e2.sequence);
+            }
+        };
+    }
+
+    /**
+     * Consumes the child operator and keeps the first n tuples in sort order.
+     */
+    private void computeTopN() {
+        topTuples = new ArrayList<>();
+        if (limit <= 0) {
+            return;
+        }
+        // Max-heap: its head is the tuple that would be evicted first.
+        PriorityQueue<Entry> heap = new PriorityQueue<>(11, Collections.reverseOrder(comparator));
+        long sequence = 0;
+        Tuple tuple;
+        while ((tuple = child.getNextTuple()) != null) {
+            Entry entry = new Entry(tuple, sequence++);
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (comparator.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        while (!heap.isEmpty()) {
+            topTuples.add(heap.poll().tuple);
+        }
+        Collections.reverse(topTuples);
+    }
+
+    /**
+     * Returns the next tuple of the top n in sort order.
+     *
+     * @return The next {@link Tuple}, or {@code null} once n tuples (or all input tuples) have been returned.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!computed) {
+            computeTopN();
+            computed = true;
+        }
+        if (currentIndex < topTuples.size()) {
+            return topTuples.get(currentIndex++);
+        }
+        return null;
+    }
+
+    /**
+     * Resets the {@code TopNOperator} and its child operator to their initial states.
+     */
+    @Override
+    public void reset() {
+        child.reset();
+        computed = false;
+        topTuples = null;
+        currentIndex = 0;
+    }
+
+    /**
+     * A buffered tuple together with its arrival position, used to break ties.
+     */
+    private static final class Entry {
+        private final Tuple tuple;
+        private final long sequence;
+
+        Entry(Tuple tuple, long sequence) {
+            this.tuple = tuple;
+            this.sequence = sequence;
+        }
+    }
+}
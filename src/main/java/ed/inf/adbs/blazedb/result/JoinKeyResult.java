@@ -0,0 +1,36 @@
+package ed.inf.adbs.blazedb.result;
+
+import net.sf.jsqlparser.expression.Expression;
+
+/**
+ * A helper class to encapsulate the equi-join keys extracted from a join condition.
+ * The key indexes are relative to the left and right input tuples respectively, and the
+ * residual condition holds every conjunct that is not a column-to-column equality.
+ */
+public class JoinKeyResult {
+    private int[] leftKeyIndexes;
+    private int[] rightKeyIndexes;
+    private Expression residualCondition;
+
+    public JoinKeyResult(int[] leftKeyIndexes, int[] rightKeyIndexes, Expression residualCondition) {
+        this.leftKeyIndexes = leftKeyIndexes;
+        this.rightKeyIndexes = rightKeyIndexes;
+        this.residualCondition = residualCondition;
+    }
+
+    public int[] getLeftKeyIndexes() {
+        return leftKeyIndexes;
+    }
+
+    public int[] getRightKeyIndexes() {
+        return rightKeyIndexes;
+    }
+
+    public Expression getResidualCondition() {
+        return residualCondition;
+    }
+
+    public boolean hasKeys() {
+        return leftKeyIndexes.length > 0;
+    }
+}
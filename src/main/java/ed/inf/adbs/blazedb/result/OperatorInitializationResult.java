@@ -7,10 +7,16 @@ import java.util.Map;
 public class OperatorInitializationResult {
     private Operator rootOperator;
     private Map<String, Integer> schemaMapping;
+    private boolean sortedByOrderBy;
 
     public OperatorInitializationResult(Operator rootOperator, Map<String, Integer> schemaMapping) {
+        this(rootOperator, schemaMapping, false);
+    }
+
+    public OperatorInitializationResult(Operator rootOperator, Map<String, Integer> schemaMapping, boolean sortedByOrderBy) {
         this.rootOperator = rootOperator;
         this.schemaMapping = schemaMapping;
+        this.sortedByOrderBy = sortedByOrderBy;
     }
 
     public Operator getRootOperator() {
@@ -20,4 +26,11 @@ public class OperatorInitializationResult {
     public Map<String, Integer> getSchemaMapping() {
         return schemaMapping;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return {@code true} if the root operator already delivers its tuples in the order required by ORDER BY.
+     */
+    public boolean isSortedByOrderBy() {
+        return sortedByOrderBy;
+    }
+}
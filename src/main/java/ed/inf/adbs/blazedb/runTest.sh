@@ -3,6 +3,8 @@
 # This function runs all queries and tests from 1 to 12.
 run_all_tests() {
   mvn clean compile assembly:single
+  # Rebuild the registered indexes (samples/db/indexes.txt), which t12.sql reads the Student table through.
+  java -jar target/blazedb-1.0.0-jar-with-dependencies.jar index samples/db
   echo ""
   echo ""
   echo ""
@@ -31,7 +33,7 @@ run_all_tests() {
   done
 
   # Run the test version tests (t1.sql ... t12.sql)
-    for i in {1..11}; do
+    for i in {1..12}; do
       echo ""
       echo -e "Running test file: t${i}.sql"
       java -jar target/blazedb-1.0.0-jar-with-dependencies.jar \
@@ -0,0 +1,403 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A disk-resident B+-tree index on one column of a CSV table, bulk-loaded from its sorted entries by an
+ * {@link IndexBuilder}. Each entry maps a key to a record id, the byte offset of a row in the table's CSV file.
+ *
+ * Keys are the {@link ed.inf.adbs.blazedb.Tuple} slots of the column's numbers; slots of a {@code DOUBLE} column
+ * are mapped by {@link #doubleKey(double)} to {@code long}s of the same order. Rows whose field is not a number
+ * are not indexed, which the header records. An unclustered index has one entry per indexed row, sorted by key and
+ * record id. A clustered index is built on a file sorted by the column, so it only needs one entry per distinct
+ * key, pointing at the first row with that key: the rows of a key range are the bytes between two entries.
+ *
+ * File layout: pages of {@link #PAGE_SIZE} bytes. Page 0 is the header. The leaves follow, contiguous and in key
+ * order, each holding a type byte, an entry count and up to {@link #LEAF_CAPACITY} (key, record id) pairs; every
+ * leaf but the last is full, so the leaf level can also be addressed by entry position. The internal levels are
+ * written bottom-up after the leaves, each node holding a type byte, a child count, the child page numbers and
+ * the first key of every child but the first. The root is the last page.
+ *
+ * Pages are read through the shared {@link BufferPool}, so the internal nodes, which every lookup reads, stay in
+ * memory as long as they are used, even across queries. An internal node is only pinned while a lookup reads it;
+ * the last leaf read stays pinned, so that repeated lookups, such as the one per outer row of an index nested-loop
+ * join, mostly reuse it. An open index is therefore not safe for use by several threads.
+ */
+public class BPlusTreeIndex implements Closeable {
+    public static final int PAGE_SIZE = 4096;
+    static final int MAGIC = 0x425A4931; // "BZI1"
+    static final byte LEAF = 1;
+    static final byte INTERNAL = 2;
+    static final int LEAF_CAPACITY = (PAGE_SIZE - 3) / 16;
+    static final int INTERNAL_CAPACITY = (PAGE_SIZE + 5) / 12;
+
+    private final String path;
+    private final BufferPool.PooledFile file;
+    private final boolean clustered;
+    private final boolean hasNonNumbers;
+    private final int rootPage;
+    private final int firstLeaf;
+    private final long entryCount;
+    private final long tableRowCount;
+    private final long dataEnd;
+    private final long distinctKeyCount;
+    // The last leaf read, pinned until another leaf is read or the index is closed.
+    private int cachedLeaf = -1;
+    private BufferPool.Page cachedLeafNode;
+
+    /**
+     * Opens an index file and reads its header.
+     *
+     * @param path The path of the index file.
+     * @throws IOException if the file cannot be read or is not an index file.
+     */
+    public BPlusTreeIndex(String path) throws IOException {
+        this.path = path;
+        this.file = BufferPool.getInstance().open(path);
+        try {
+            BufferPool.Page page = readPage(0);
+            try {
+                // A private view of the shared page, read with relative accessors.
+                ByteBuffer header = page.getData().duplicate();
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Not an index file: " + path);
+                }
+                clustered = header.get() != 0;
+                hasNonNumbers = header.get() != 0;
+                rootPage = header.getInt();
+                firstLeaf = header.getInt();
+                entryCount = header.getLong();
+                tableRowCount = header.getLong();
+                dataEnd = header.getLong();
+                distinctKeyCount = header.getLong();
+            } finally {
+                file.unpin(page);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps a {@code DOUBLE} value to a {@code long} key such that keys compare as {@link Double#compare} compares
+     * the values, which is how selections compare doubles.
+     *
+     * @param value The value.
+     * @return The key.
+     */
+    public static long doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * Tells whether some row of the table was left out of the index because its field is not a number.
+     */
+    public boolean hasNonNumbers() {
+        return hasNonNumbers;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the number of rows of the table when the index was built, including the rows that are not indexed.
+     */
+    public long getTableRowCount() {
+        return tableRowCount;
+    }
+
+    /**
+     * Returns the file offset just past the last indexed row of a clustered index. Rows that are not indexed
+     * are stored after it.
+     */
+    public long getDataEnd() {
+        return dataEnd;
+    }
+
+    /**
+     * Returns the number of distinct keys of the index, equal to the number of entries of a clustered index.
+     */
+    public long getDistinctKeyCount() {
+        return distinctKeyCount;
+    }
+
+    /**
+     * Finds the position of the first entry whose key is at least {@code key}, descending from the root.
+     *
+     * @param key The key.
+     * @return The position of the entry, or {@link #getEntryCount()} if every key is smaller.
+     * @throws IOException if the index cannot be read.
+     */
+    public long findPosition(long key) throws IOException {
+        int page = rootPage;
+        while (page != cachedLeaf) {
+            BufferPool.Page node = readPage(page);
+            if (node.getData().get(0) != INTERNAL) {
+                cacheLeaf(page, node);
+                break;
+            }
+            try {
+                page = findChild(node.getData(), key);
+            } finally {
+                file.unpin(node);
+            }
+        }
+        // First slot of the leaf whose key is at least key.
+        ByteBuffer leaf = cachedLeafNode.getData();
+        int low = 0;
+        int high = leaf.getShort(1) & 0xFFFF;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (leaf.getLong(3 + middle * 16) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return (long) (page - firstLeaf) * LEAF_CAPACITY + low;
+    }
+
+    /**
+     * Returns the page number of the child of an internal node to descend into when looking for {@code key}.
+     */
+    private static int findChild(ByteBuffer node, long key) {
+        // Child i + 1 starts with separator i; descend into the last child whose separator is smaller than key,
+        // since keys equal to a separator may also end the previous child.
+        int count = node.getShort(1) & 0xFFFF;
+        int keysOffset = 3 + count * 4;
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (node.getLong(keysOffset + middle * 8) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return node.getInt(3 + low * 4);
+    }
+
+    /**
+     * Finds the positions of the entries whose keys lie in {@code [low, high]}.
+     *
+     * @return The positions {@code [from, to)} of the entries.
+     * @throws IOException if the index cannot be read.
+     */
+    public long[] findRange(long low, long high) throws IOException {
+        if (low > high) {
+            return new long[]{0, 0};
+        }
+        long from = findPosition(low);
+        long to = high == Long.MAX_VALUE ? entryCount : findPosition(high + 1);
+        return new long[]{from, to};
+    }
+
+    /**
+     * Returns the record id of the entry at a position.
+     *
+     * @throws IOException if the index cannot be read.
+     */
+    public long getRecordId(long position) throws IOException {
+        ByteBuffer leaf = readLeaf(firstLeaf + (int) (position / LEAF_CAPACITY));
+        return leaf.getLong(3 + (int) (position % LEAF_CAPACITY) * 16 + 8);
+    }
+
+    /**
+     * Reads the record ids of the entries at positions {@code [from, to)}, in key order.
+     *
+     * @throws IOException if the index cannot be read.
+     */
+    public long[] readRecordIds(long from, long to) throws IOException {
+        long[] recordIds = new long[(int) (to - from)];
+        long position = from;
+        while (position < to) {
+            ByteBuffer leaf = readLeaf(firstLeaf + (int) (position / LEAF_CAPACITY));
+            int slot = (int) (position % LEAF_CAPACITY);
+            int count = leaf.getShort(1) & 0xFFFF;
+            for (; slot < count && position < to; slot++, position++) {
+                recordIds[(int) (position - from)] = leaf.getLong(3 + slot * 16 + 8);
+            }
+        }
+        return recordIds;
+    }
+
+    /**
+     * Finds the byte range of a clustered index's table file holding the rows whose keys lie in {@code [low, high]}.
+     *
+     * @return The byte range {@code [start, end)}; empty if no row matches.
+     * @throws IOException if the index cannot be read.
+     */
+    public long[] findByteRange(long low, long high) throws IOException {
+        long[] positions = findRange(low, high);
+        if (positions[0] == positions[1]) {
+            return new long[]{0, 0};
+        }
+        long start = getRecordId(positions[0]);
+        long end = positions[1] == entryCount ? dataEnd : getRecordId(positions[1]);
+        return new long[]{start, end};
+    }
+
+    /**
+     * Estimates the number of rows whose keys lie in {@code [low, high]}: exact for an unclustered index, and
+     * proportional to the size of the byte range for a clustered one.
+     *
+     * @throws IOException if the index cannot be read.
+     */
+    public long estimateRowCount(long low, long high) throws IOException {
+        if (!clustered) {
+            long[] positions = findRange(low, high);
+            return positions[1] - positions[0];
+        }
+        long[] range = findByteRange(low, high);
+        return dataEnd == 0 ? 0 : (long) ((double) tableRowCount * (range[1] - range[0]) / dataEnd);
+    }
+
+    /**
+     * Bulk-loads an index file from its entries: the leaves are filled in order, then each internal level is
+     * built from the first keys of the level below, until a single root remains.
+     *
+     * @param path          The path of the index file.
+     * @param keys          The keys of the entries, in increasing order.
+     * @param recordIds     The record ids of the entries.
+     * @param count         The number of entries.
+     * @param clustered     Whether the index is clustered.
+     * @param hasNonNumbers Whether some rows were not indexed.
+     * @param tableRowCount The number of rows of the table.
+     * @param dataEnd       The file offset just past the last indexed row (used by clustered indexes).
+     * @param distinctKeyCount The number of distinct keys.
+     * @throws IOException if the file cannot be written.
+     */
+    static void write(String path, long[] keys, long[] recordIds, int count, boolean clustered,
+                      boolean hasNonNumbers, long tableRowCount, long dataEnd, long distinctKeyCount)
+            throws IOException {
+        try (FileChannel output = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+            int nextPage = 1;
+
+            // Leaves; an empty index still has one (empty) leaf as its root.
+            int leafCount = Math.max(1, (count + LEAF_CAPACITY - 1) / LEAF_CAPACITY);
+            int[] levelPages = new int[leafCount];
+            long[] levelKeys = new long[leafCount];
+            for (int leaf = 0; leaf < leafCount; leaf++) {
+                int from = leaf * LEAF_CAPACITY;
+                int to = Math.min(count, from + LEAF_CAPACITY);
+                page.clear();
+                page.put(LEAF).putShort((short) (to - from));
+                for (int i = from; i < to; i++) {
+                    page.putLong(keys[i]).putLong(recordIds[i]);
+                }
+                levelPages[leaf] = nextPage;
+                levelKeys[leaf] = to > from ? keys[from] : 0;
+                writePage(output, page, nextPage++);
+            }
+
+            // Internal levels, bottom-up.
+            while (levelPages.length > 1) {
+                int nodeCount = (levelPages.length + INTERNAL_CAPACITY - 1) / INTERNAL_CAPACITY;
+                int[] parentPages = new int[nodeCount];
+                long[] parentKeys = new long[nodeCount];
+                for (int node = 0; node < nodeCount; node++) {
+                    int from = node * INTERNAL_CAPACITY;
+                    int to = Math.min(levelPages.length, from + INTERNAL_CAPACITY);
+                    page.clear();
+                    page.put(INTERNAL).putShort((short) (to - from));
+                    for (int i = from; i < to; i++) {
+                        page.putInt(levelPages[i]);
+                    }
+                    for (int i = from + 1; i < to; i++) {
+                        page.putLong(levelKeys[i]);
+                    }
+                    parentPages[node] = nextPage;
+                    parentKeys[node] = levelKeys[from];
+                    writePage(output, page, nextPage++);
+                }
+                levelPages = parentPages;
+                levelKeys = parentKeys;
+            }
+
+            page.clear();
+            page.putInt(MAGIC);
+            page.put((byte) (clustered ? 1 : 0));
+            page.put((byte) (hasNonNumbers ? 1 : 0));
+            page.putInt(levelPages[0]);
+            page.putInt(1);
+            page.putLong(count);
+            page.putLong(tableRowCount);
+            page.putLong(dataEnd);
+            page.putLong(distinctKeyCount);
+            writePage(output, page, 0);
+        }
+    }
+
+    private static void writePage(FileChannel output, ByteBuffer page, int pageNumber) throws IOException {
+        // Pages are written whole, with their unused tail zeroed.
+        Arrays.fill(page.array(), page.position(), PAGE_SIZE, (byte) 0);
+        page.clear();
+        long offset = (long) pageNumber * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            output.write(page, offset + page.position());
+        }
+    }
+
+    /**
+     * Returns a leaf of the tree, pinning it in place of the last leaf read unless it is that leaf. Leaves are
+     * only read with absolute accessors, as their pages are shared through the pool.
+     */
+    private ByteBuffer readLeaf(int page) throws IOException {
+        if (page != cachedLeaf) {
+            cacheLeaf(page, readPage(page));
+        }
+        return cachedLeafNode.getData();
+    }
+
+    private void cacheLeaf(int page, BufferPool.Page leaf) {
+        if (cachedLeafNode != null) {
+            file.unpin(cachedLeafNode);
+        }
+        cachedLeaf = page;
+        cachedLeafNode = leaf;
+    }
+
+    /**
+     * Pins a page of the index, which must be unpinned once no longer needed.
+     */
+    private BufferPool.Page readPage(int page) throws IOException {
+        BufferPool.Page node = file.pin(page);
+        if (node.getLength() < PAGE_SIZE) {
+            file.unpin(node);
+            throw new EOFException("Unexpected end of index file " + path);
+        }
+        return node;
+    }
+
+    /**
+     * Unpins the last leaf read and closes the index file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (cachedLeafNode != null) {
+            file.unpin(cachedLeafNode);
+            cachedLeafNode = null;
+            cachedLeaf = -1;
+        }
+        file.close();
+    }
+}
@@ -0,0 +1,371 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.util.QueryMetrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A fixed-size pool of {@value #PAGE_SIZE}-byte pages of files, shared by every reader of the application. It
+ * serves the random reads of table and index files: the nodes of {@link BPlusTreeIndex}es and the rows fetched by
+ * record id by index scans and index nested-loop joins. Sequential scans keep reading whole files through memory
+ * mappings or columnar chunks, which the operating system caches, so that a large scan does not evict the pages
+ * that lookups reuse.
+ *
+ * Like the {@link ed.inf.adbs.blazedb.Catalog}, the pool is a Singleton. Its frames, {@code --buffer-pool} bytes
+ * in all, are slices of direct (off-heap) buffers, allocated in chunks as the pool fills. A page is identified by
+ * its file and its page number; a file is known by its path together with its size and modification time when it
+ * is opened, so the pages of a file that has since been rewritten are never returned.
+ *
+ * A page read with {@link PooledFile#pin(long)} stays in its frame until it is unpinned. Frames are replaced with
+ * the CLOCK policy: a hand sweeps the frames, skipping pinned ones and clearing the reference bit of recently used
+ * ones, and evicts the first unpinned frame whose bit is clear. The pool counts hits and misses, and each open
+ * file reports its own to the {@link QueryMetrics} when it is closed.
+ *
+ * Every method is synchronized, including the read of a missing page, so the pool is safe to use from several
+ * threads; page contents must only be read with absolute accessors, as several readers may share a pinned page.
+ */
+public final class BufferPool {
+    /**
+     * The size of a page, which is also the size of a {@link BPlusTreeIndex} node.
+     */
+    public static final int PAGE_SIZE = BPlusTreeIndex.PAGE_SIZE;
+
+    // Singleton instance
+    private static BufferPool instance = null;
+
+    // Number of frames allocated at once, from a single direct buffer.
+    private static final int FRAMES_PER_CHUNK = 256;
+
+    private final int frameCount;
+    // Frames allocated so far; frames are allocated as pages are first read, so a small workload uses little memory.
+    private final Page[] frames;
+    private int allocatedFrames;
+    // Frame of each cached page.
+    private final Map<PageKey, Page> pages = new HashMap<>();
+    // Current version of each file opened, by path.
+    private final Map<String, FileVersion> files = new HashMap<>();
+    private int nextFileId;
+    private int clockHand;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private BufferPool(long size) {
+        this.frameCount = (int) Math.max(8, Math.min(Integer.MAX_VALUE / PAGE_SIZE, size / PAGE_SIZE));
+        this.frames = new Page[frameCount];
+    }
+
+    /**
+     * Retrieves the single instance of {@code BufferPool}, creating it with the size set in the
+     * {@link ExecutionConfig} on first use.
+     *
+     * @return The singleton {@code BufferPool} instance.
+     */
+    public static synchronized BufferPool getInstance() {
+        if (instance == null) {
+            instance = new BufferPool(ExecutionConfig.getInstance().getBufferPoolSize());
+        }
+        return instance;
+    }
+
+    /**
+     * Opens a file whose pages are read through the pool.
+     *
+     * @param path The path of the file.
+     * @return The open file, to be closed once its pages are no longer needed.
+     * @throws IOException if the file cannot be opened.
+     */
+    public PooledFile open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        File file = new File(path);
+        long size = channel.size();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            FileVersion version = files.get(path);
+            if (version == null || version.size != size || version.lastModified != lastModified) {
+                if (version != null) {
+                    dropPages(version.id);
+                }
+                version = new FileVersion(nextFileId++, size, lastModified);
+                files.put(path, version);
+            }
+            return new PooledFile(path, channel, version.id, size);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the fraction of page requests served without reading the file, or 0 before any request.
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns a page of a file, pinned, reading it into a free or evicted frame if it is not in the pool.
+     */
+    private synchronized Page pin(PooledFile file, long pageNumber) throws IOException {
+        PageKey key = new PageKey(file.fileId, pageNumber);
+        Page page = pages.get(key);
+        if (page != null) {
+            hits++;
+            file.hits++;
+        } else {
+            misses++;
+            file.misses++;
+            page = frames[findVictim()];
+            if (page.key != null) {
+                pages.remove(page.key);
+                evictions++;
+            }
+            page.key = null;
+            page.length = file.readPage(pageNumber, page.data);
+            page.key = key;
+            pages.put(key, page);
+        }
+        page.pinCount++;
+        page.referenced = true;
+        return page;
+    }
+
+    private synchronized void unpin(Page page) {
+        if (page.pinCount <= 0) {
+            throw new IllegalStateException("Unpinning a page that is not pinned.");
+        }
+        page.pinCount--;
+    }
+
+    /**
+     * Advances the clock hand to the next frame that can be replaced: an empty frame, or an unpinned frame that has
+     * not been referenced since the hand last passed it.
+     *
+     * @return The index of the frame.
+     * @throws IllegalStateException if every frame is pinned.
+     */
+    private int findVictim() {
+        if (allocatedFrames < frameCount) {
+            allocateFrames();
+            return allocatedFrames++;
+        }
+        // Two sweeps clear every reference bit, so a third finds a frame unless all are pinned.
+        for (int step = 0; step < 3 * frameCount; step++) {
+            Page page = frames[clockHand];
+            int frame = clockHand;
+            clockHand = (clockHand + 1) % frameCount;
+            if (page.key == null) {
+                return frame;
+            }
+            if (page.pinCount > 0) {
+                continue;
+            }
+            if (page.referenced) {
+                page.referenced = false;
+                continue;
+            }
+            return frame;
+        }
+        throw new IllegalStateException("Every page of the buffer pool is pinned; increase --buffer-pool.");
+    }
+
+    /**
+     * Allocates the next chunk of frames once every allocated frame is in use.
+     */
+    private void allocateFrames() {
+        if (frames[allocatedFrames] != null) {
+            return;
+        }
+        int count = Math.min(FRAMES_PER_CHUNK, frameCount - allocatedFrames);
+        ByteBuffer chunk = ByteBuffer.allocateDirect(count * PAGE_SIZE);
+        for (int i = 0; i < count; i++) {
+            chunk.limit((i + 1) * PAGE_SIZE).position(i * PAGE_SIZE);
+            frames[allocatedFrames + i] = new Page(chunk.slice());
+        }
+    }
+
+    /**
+     * Frees the unpinned frames of an outdated version of a file. Pinned frames are freed by eviction once
+     * unpinned, since no request can reach them any more.
+     */
+    private void dropPages(int fileId) {
+        for (int i = 0; i < allocatedFrames; i++) {
+            Page page = frames[i];
+            if (page.key != null && page.key.fileId == fileId && page.pinCount == 0) {
+                pages.remove(page.key);
+                page.key = null;
+                page.referenced = false;
+            }
+        }
+    }
+
+    /**
+     * A frame of the pool and the page it holds.
+     */
+    public static final class Page {
+        private final ByteBuffer data;
+        private PageKey key;
+        private int length;
+        private int pinCount;
+        private boolean referenced;
+
+        private Page(ByteBuffer data) {
+            this.data = data;
+        }
+
+        /**
+         * Returns the contents of the page, from index 0 to {@link #getLength()}; they must only be read with
+         * absolute accessors, and only while the page is pinned.
+         */
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        /**
+         * Returns the number of bytes of the page, less than {@link #PAGE_SIZE} only for the last page of a file.
+         */
+        public int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * A file open for reading through the pool.
+     */
+    public final class PooledFile implements Closeable {
+        private final String path;
+        private final FileChannel channel;
+        private final int fileId;
+        private final long size;
+        private long hits;
+        private long misses;
+
+        private PooledFile(String path, FileChannel channel, int fileId, long size) {
+            this.path = path;
+            this.channel = channel;
+            this.fileId = fileId;
+            this.size = size;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the size of the file when it was opened.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns a page of the file, pinned until it is passed to {@link #unpin(Page)}.
+         *
+         * @param pageNumber The number of the page, the file offset divided by {@link #PAGE_SIZE}.
+         * @return The page; empty if it lies past the end of the file.
+         * @throws IOException if the page cannot be read.
+         * @throws IllegalStateException if every page of the pool is pinned.
+         */
+        public Page pin(long pageNumber) throws IOException {
+            return BufferPool.this.pin(this, pageNumber);
+        }
+
+        /**
+         * Releases a page pinned by {@link #pin(long)}, which may then be evicted.
+         *
+         * @param page The page.
+         */
+        public void unpin(Page page) {
+            BufferPool.this.unpin(page);
+        }
+
+        private int readPage(long pageNumber, ByteBuffer frame) throws IOException {
+            ByteBuffer buffer = frame.duplicate();
+            buffer.clear();
+            long offset = pageNumber * PAGE_SIZE;
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                // Fill the frame up to the end of the file.
+            }
+            return buffer.position();
+        }
+
+        /**
+         * Closes the file, reporting its page requests served from the pool ({@code BufferPool.hits}) and read
+         * from the file ({@code BufferPool.misses}).
+         *
+         * @throws IOException if the file cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            QueryMetrics.add("BufferPool.hits", hits);
+            QueryMetrics.add("BufferPool.misses", misses);
+            hits = 0;
+            misses = 0;
+            channel.close();
+        }
+    }
+
+    /**
+     * Identifies a page: the version of its file and its page number.
+     */
+    private static final class PageKey {
+        final int fileId;
+        final long pageNumber;
+
+        PageKey(int fileId, long pageNumber) {
+            this.fileId = fileId;
+            this.pageNumber = pageNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) o;
+            return fileId == other.fileId && pageNumber == other.pageNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fileId + Long.hashCode(pageNumber);
+        }
+    }
+
+    /**
+     * The version of a file whose pages are in the pool.
+     */
+    private static final class FileVersion {
+        final int id;
+        final long size;
+        final long lastModified;
+
+        FileVersion(int id, long size, long lastModified) {
+            this.id = id;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
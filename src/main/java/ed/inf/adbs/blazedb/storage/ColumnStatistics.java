@@ -0,0 +1,129 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+/**
+ * Summarises the values of one column over a block of rows: the minimum and maximum of its numbers, and whether
+ * it holds any value that is not a number (a string, or a field missing from a short row). Minimums and maximums
+ * are {@link Tuple} slots, compared as doubles for {@code DOUBLE} columns and as {@code long}s otherwise.
+ *
+ * These are the statistics of a columnar file chunk and of a block of a zone map, from which a scan decides that
+ * no row of the block can satisfy its selection.
+ */
+public final class ColumnStatistics {
+    private final boolean hasNumbers;
+    private final boolean hasNonNumbers;
+    private final long min;
+    private final long max;
+
+    /**
+     * Constructs the statistics of a column.
+     *
+     * @param hasNumbers    Whether the column holds any number; {@code min} and {@code max} are ignored otherwise.
+     * @param hasNonNumbers Whether the column holds any value that is not a number.
+     * @param min           The slot of the smallest number.
+     * @param max           The slot of the largest number.
+     */
+    public ColumnStatistics(boolean hasNumbers, boolean hasNonNumbers, long min, long max) {
+        this.hasNumbers = hasNumbers;
+        this.hasNonNumbers = hasNonNumbers;
+        this.min = hasNumbers ? min : 0;
+        this.max = hasNumbers ? max : 0;
+    }
+
+    public boolean hasNumbers() {
+        return hasNumbers;
+    }
+
+    public boolean hasNonNumbers() {
+        return hasNonNumbers;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Tells whether the field of a row is a number stored with the type of its column: a row too short to have
+     * the field, a string, or a field not stored with the column's type (as happens for rows with more fields
+     * than the schema) is not.
+     *
+     * @param tuple    The row.
+     * @param column   The index of the column.
+     * @param isDouble Whether the column is declared {@code DOUBLE}.
+     * @return {@code true} if the field's slot can be compared with the column's other numbers.
+     */
+    static boolean isNumber(Tuple tuple, int column, boolean isDouble) {
+        return column < tuple.size() && !tuple.isString(column)
+                && (tuple.getType(column) == ColumnType.DOUBLE) == isDouble;
+    }
+
+    /**
+     * Accumulates the statistics of one column from the rows of a block.
+     */
+    public static final class Builder {
+        private final boolean isDouble;
+        private boolean hasNumbers;
+        private boolean hasNonNumbers;
+        private long min;
+        private long max;
+
+        /**
+         * Creates an empty builder.
+         *
+         * @param type The declared type of the column, which tells how numbers are ordered.
+         */
+        public Builder(ColumnType type) {
+            this.isDouble = type == ColumnType.DOUBLE;
+        }
+
+        /**
+         * Adds the field of a row; a field that is not a number (see {@link ColumnStatistics#isNumber}) counts
+         * as a non-number.
+         *
+         * @param tuple  The row.
+         * @param column The index of the column.
+         */
+        public void add(Tuple tuple, int column) {
+            if (!isNumber(tuple, column, isDouble)) {
+                hasNonNumbers = true;
+                return;
+            }
+            long value = tuple.getLong(column);
+            if (!hasNumbers) {
+                min = value;
+                max = value;
+                hasNumbers = true;
+            } else if (isDouble) {
+                if (Double.compare(Double.longBitsToDouble(value), Double.longBitsToDouble(min)) < 0) {
+                    min = value;
+                }
+                if (Double.compare(Double.longBitsToDouble(value), Double.longBitsToDouble(max)) > 0) {
+                    max = value;
+                }
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+
+        public ColumnStatistics build() {
+            return new ColumnStatistics(hasNumbers, hasNonNumbers, min, max);
+        }
+
+        /**
+         * Clears the builder for the next block.
+         */
+        public void reset() {
+            hasNumbers = false;
+            hasNonNumbers = false;
+            min = 0;
+            max = 0;
+        }
+    }
+}
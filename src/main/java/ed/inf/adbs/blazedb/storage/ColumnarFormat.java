@@ -0,0 +1,37 @@
+package ed.inf.adbs.blazedb.storage;
+
+/**
+ * Constants of the columnar table file format shared by the {@link ColumnarTableWriter} and the
+ * {@link ColumnarTableReader}. All numbers are big-endian, as written by a {@link java.io.DataOutputStream}.
+ *
+ * Layout:
+ *  - Header: the magic number and the format version (two {@code int}s).
+ *  - Chunks: the rows are split into chunks of up to {@link ColumnarTableWriter#DEFAULT_CHUNK_ROWS} rows. A chunk
+ *         stores its columns one after the other, each encoded on its own (see the encodings below).
+ *  - Footer: the column count, the declared type of each column (one byte), the row count ({@code long}) and
+ *         the chunk count, followed for each chunk by its row count and, for each column, the offset and length
+ *         of the encoded column, its encoding, and the minimum and maximum of its numeric values.
+ *  - Trailer: the offset of the footer ({@code long}) and the magic number again.
+ *
+ * Column encodings:
+ *  - {@link #INT32}: one {@code int} per row, used when every value is a number that fits in 32 bits.
+ *  - {@link #INT64}: one {@code long} slot per row (see {@link ed.inf.adbs.blazedb.ColumnType}).
+ *  - {@link #DICTIONARY}: a dictionary of the distinct strings of the chunk (a count, then each string as its
+ *         UTF-8 length and bytes), followed by one {@code int} dictionary index per row.
+ *  - {@link #MIXED}: for columns mixing numbers and strings, a dictionary as above followed by one flag byte and
+ *         one {@code long} per row, holding either the number or the dictionary index of the string.
+ */
+final class ColumnarFormat {
+    static final int MAGIC = 0x425A4331; // "BZC1"
+    static final int VERSION = 1;
+    // Size of the trailer: the footer offset and the magic number.
+    static final int TRAILER_SIZE = 12;
+
+    static final byte INT32 = 0;
+    static final byte INT64 = 1;
+    static final byte DICTIONARY = 2;
+    static final byte MIXED = 3;
+
+    private ColumnarFormat() {
+    }
+}
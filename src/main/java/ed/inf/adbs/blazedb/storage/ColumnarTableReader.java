@@ -0,0 +1,261 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.util.StringDictionary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a columnar table file written by a {@link ColumnarTableWriter} (see {@link ColumnarFormat} for the layout).
+ *
+ * Opening the file reads only its footer, which describes every chunk. Columns are then read one chunk at a time
+ * with {@link #readColumn(int, int)}, which reads exactly the bytes of that column, so a scan of a few columns
+ * reads only a fraction of a wide table. Reads use positional channel reads and do not change any state of the
+ * reader, so one reader may serve several threads.
+ */
+public class ColumnarTableReader implements Closeable {
+    private static final ColumnType[] TYPES = ColumnType.values();
+
+    private final String path;
+    private final FileChannel channel;
+    private final ColumnType[] columnTypes;
+    private final long rowCount;
+    private final int[] chunkRowCounts;
+    // Footer entry of each column of each chunk, indexed by chunk then column.
+    private final ColumnChunk[][] columnChunks;
+
+    /**
+     * Opens a columnar file and reads its footer.
+     *
+     * @param path The path of the file.
+     * @throws IOException if the file cannot be read or is not a columnar table file.
+     */
+    public ColumnarTableReader(String path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 8 + ColumnarFormat.TRAILER_SIZE) {
+                throw new IOException("Not a columnar table file: " + path);
+            }
+            ByteBuffer header = read(0, 8);
+            ByteBuffer trailer = read(size - ColumnarFormat.TRAILER_SIZE, ColumnarFormat.TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (header.getInt() != ColumnarFormat.MAGIC || trailer.getInt() != ColumnarFormat.MAGIC) {
+                throw new IOException("Not a columnar table file: " + path);
+            }
+            int version = header.getInt();
+            if (version != ColumnarFormat.VERSION) {
+                throw new IOException("Unsupported columnar format version " + version + " in " + path);
+            }
+            ByteBuffer footer = read(footerOffset, (int) (size - ColumnarFormat.TRAILER_SIZE - footerOffset));
+            columnTypes = new ColumnType[footer.getInt()];
+            for (int column = 0; column < columnTypes.length; column++) {
+                columnTypes[column] = TYPES[footer.get()];
+            }
+            rowCount = footer.getLong();
+            int chunkCount = footer.getInt();
+            chunkRowCounts = new int[chunkCount];
+            columnChunks = new ColumnChunk[chunkCount][columnTypes.length];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                chunkRowCounts[chunk] = footer.getInt();
+                for (int column = 0; column < columnTypes.length; column++) {
+                    long offset = footer.getLong();
+                    int length = footer.getInt();
+                    byte encoding = footer.get();
+                    boolean hasNumbers = footer.get() != 0;
+                    // Only the dictionary encodings hold strings.
+                    boolean hasStrings = encoding == ColumnarFormat.DICTIONARY || encoding == ColumnarFormat.MIXED;
+                    columnChunks[chunk][column] = new ColumnChunk(offset, length, encoding,
+                            new ColumnStatistics(hasNumbers, hasStrings, footer.getLong(), footer.getLong()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getColumnCount() {
+        return columnTypes.length;
+    }
+
+    /**
+     * Returns the declared column types recorded when the table was imported.
+     *
+     * @return A new array holding the type of each column.
+     */
+    public ColumnType[] getColumnTypes() {
+        return columnTypes.clone();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getChunkCount() {
+        return chunkRowCounts.length;
+    }
+
+    public int getChunkRowCount(int chunk) {
+        return chunkRowCounts[chunk];
+    }
+
+    /**
+     * Returns the footer entry of one column of a chunk, which holds the statistics of its values.
+     *
+     * @param chunk  The index of the chunk.
+     * @param column The index of the column.
+     * @return The footer entry.
+     */
+    public ColumnChunk getColumnChunk(int chunk, int column) {
+        return columnChunks[chunk][column];
+    }
+
+    /**
+     * Reads and decodes one column of a chunk. Strings are encoded into the {@link StringDictionary} once per
+     * distinct value of the chunk.
+     *
+     * @param chunk  The index of the chunk.
+     * @param column The index of the column.
+     * @return The values of the column for every row of the chunk.
+     * @throws IOException if the column cannot be read.
+     */
+    public ColumnVector readColumn(int chunk, int column) throws IOException {
+        ColumnChunk entry = columnChunks[chunk][column];
+        int rows = chunkRowCounts[chunk];
+        ByteBuffer data = read(entry.getOffset(), entry.getLength());
+        long[] values = new long[rows];
+        String[] strings = null;
+        switch (entry.getEncoding()) {
+            case ColumnarFormat.INT32:
+                for (int row = 0; row < rows; row++) {
+                    values[row] = data.getInt();
+                }
+                break;
+            case ColumnarFormat.INT64:
+                data.asLongBuffer().get(values);
+                break;
+            case ColumnarFormat.DICTIONARY:
+            case ColumnarFormat.MIXED:
+                String[] dictionary = new String[data.getInt()];
+                int[] codes = new int[dictionary.length];
+                for (int i = 0; i < dictionary.length; i++) {
+                    byte[] utf8 = new byte[data.getInt()];
+                    data.get(utf8);
+                    dictionary[i] = new String(utf8, StandardCharsets.UTF_8);
+                    codes[i] = StringDictionary.encode(dictionary[i]);
+                }
+                strings = new String[rows];
+                for (int row = 0; row < rows; row++) {
+                    if (entry.getEncoding() == ColumnarFormat.DICTIONARY) {
+                        int index = data.getInt();
+                        values[row] = codes[index];
+                        strings[row] = dictionary[index];
+                    } else if (data.get() != 0) {
+                        int index = (int) data.getLong();
+                        values[row] = codes[index];
+                        strings[row] = dictionary[index];
+                    } else {
+                        values[row] = data.getLong();
+                    }
+                }
+                break;
+            default:
+                throw new IOException("Unknown column encoding " + entry.getEncoding() + " in " + path);
+        }
+        return new ColumnVector(values, strings);
+    }
+
+    /**
+     * Reads {@code length} bytes at a file offset.
+     */
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of columnar file " + path);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The footer entry of one column of one chunk: where its encoded values are stored, and the
+     * {@link ColumnStatistics} of its values.
+     */
+    public static final class ColumnChunk {
+        private final long offset;
+        private final int length;
+        private final byte encoding;
+        private final ColumnStatistics statistics;
+
+        ColumnChunk(long offset, int length, byte encoding, ColumnStatistics statistics) {
+            this.offset = offset;
+            this.length = length;
+            this.encoding = encoding;
+            this.statistics = statistics;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public byte getEncoding() {
+            return encoding;
+        }
+
+        public ColumnStatistics getStatistics() {
+            return statistics;
+        }
+    }
+
+    /**
+     * The decoded values of one column of a chunk, as {@link ed.inf.adbs.blazedb.Tuple} slots.
+     */
+    public static final class ColumnVector {
+        private final long[] values;
+        // Canonical string of each string value, or null if the column chunk holds only numbers.
+        private final String[] strings;
+
+        ColumnVector(long[] values, String[] strings) {
+            this.values = values;
+            this.strings = strings;
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public long getValue(int row) {
+            return values[row];
+        }
+
+        /**
+         * Returns the string of a row.
+         *
+         * @param row The index of the row in the chunk.
+         * @return The string, or {@code null} if the value of the row is a number.
+         */
+        public String getString(int row) {
+            return strings == null ? null : strings[row];
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the rows of a table to a columnar table file (see {@link ColumnarFormat} for the layout).
+ *
+ * Rows are appended with {@link #add(Tuple)} and buffered until a chunk is full; the chunk is then encoded column
+ * by column, choosing for each column the most compact encoding its values allow: fixed-width 32-bit integers
+ * when every value fits, 64-bit slots otherwise, and a per-chunk dictionary for strings. The minimum and maximum
+ * of the numeric values of each column chunk are recorded in the footer, written by {@link #close()}.
+ */
+public class ColumnarTableWriter implements Closeable {
+    public static final int DEFAULT_CHUNK_ROWS = 64 * 1024;
+
+    private final String path;
+    private final ColumnType[] columnTypes;
+    private final int chunkRows;
+    private final DataOutputStream output;
+    // Offset of the next byte written to the file.
+    private long offset;
+    private long rowCount;
+    private final List<Tuple> pendingRows = new ArrayList<>();
+    private final List<ChunkEntry> chunks = new ArrayList<>();
+
+    /**
+     * Creates a columnar file, replacing any existing file, with chunks of {@link #DEFAULT_CHUNK_ROWS} rows.
+     *
+     * @param path        The path of the file.
+     * @param columnTypes The declared type of each column; every row must have this many fields.
+     * @throws IOException if the file cannot be created.
+     */
+    public ColumnarTableWriter(String path, ColumnType[] columnTypes) throws IOException {
+        this(path, columnTypes, DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * Creates a columnar file, replacing any existing file.
+     *
+     * @param path        The path of the file.
+     * @param columnTypes The declared type of each column; every row must have this many fields.
+     * @param chunkRows   The number of rows per chunk.
+     * @throws IOException if the file cannot be created.
+     */
+    public ColumnarTableWriter(String path, ColumnType[] columnTypes, int chunkRows) throws IOException {
+        this.path = path;
+        this.columnTypes = columnTypes.clone();
+        this.chunkRows = chunkRows;
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        output.writeInt(ColumnarFormat.MAGIC);
+        output.writeInt(ColumnarFormat.VERSION);
+        offset = 8;
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param tuple The row to write.
+     * @throws IllegalArgumentException if the row does not have one field per column.
+     * @throws IOException if a chunk cannot be written.
+     */
+    public void add(Tuple tuple) throws IOException {
+        if (tuple.size() != columnTypes.length) {
+            throw new IllegalArgumentException("Row " + (rowCount + pendingRows.size() + 1) + " of " + path + " has "
+                    + tuple.size() + " fields, expected " + columnTypes.length + ": " + tuple);
+        }
+        pendingRows.add(tuple);
+        if (pendingRows.size() == chunkRows) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * Writes the last chunk and the footer, and closes the file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!pendingRows.isEmpty()) {
+                writeChunk();
+            }
+            long footerOffset = offset;
+            output.writeInt(columnTypes.length);
+            for (ColumnType type : columnTypes) {
+                output.writeByte(type.ordinal());
+            }
+            output.writeLong(rowCount);
+            output.writeInt(chunks.size());
+            for (ChunkEntry chunk : chunks) {
+                output.writeInt(chunk.rowCount);
+                for (ColumnarTableReader.ColumnChunk column : chunk.columns) {
+                    output.writeLong(column.getOffset());
+                    output.writeInt(column.getLength());
+                    output.writeByte(column.getEncoding());
+                    output.writeBoolean(column.getStatistics().hasNumbers());
+                    output.writeLong(column.getStatistics().getMin());
+                    output.writeLong(column.getStatistics().getMax());
+                }
+            }
+            output.writeLong(footerOffset);
+            output.writeInt(ColumnarFormat.MAGIC);
+        } finally {
+            output.close();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount + pendingRows.size();
+    }
+
+    /**
+     * Encodes the buffered rows as one chunk.
+     */
+    private void writeChunk() throws IOException {
+        ChunkEntry chunk = new ChunkEntry(pendingRows.size(), columnTypes.length);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int column = 0; column < columnTypes.length; column++) {
+            bytes.reset();
+            chunk.columns[column] = encodeColumn(column, new DataOutputStream(bytes), offset);
+            bytes.writeTo(output);
+            offset += bytes.size();
+        }
+        chunks.add(chunk);
+        rowCount += pendingRows.size();
+        pendingRows.clear();
+    }
+
+    /**
+     * Encodes one column of the buffered rows.
+     *
+     * @return The footer entry of the encoded column, which starts at {@code columnOffset} in the file.
+     */
+    private ColumnarTableReader.ColumnChunk encodeColumn(int column, DataOutputStream out, long columnOffset)
+            throws IOException {
+        ColumnStatistics.Builder statistics = new ColumnStatistics.Builder(columnTypes[column]);
+        boolean hasStrings = false;
+        boolean hasNumbers = false;
+        boolean fitsInInt = true;
+        for (Tuple tuple : pendingRows) {
+            statistics.add(tuple, column);
+            if (tuple.isString(column)) {
+                hasStrings = true;
+            } else {
+                hasNumbers = true;
+                fitsInInt &= tuple.getLong(column) == (int) tuple.getLong(column);
+            }
+        }
+        ColumnStatistics columnStatistics = statistics.build();
+
+        byte encoding;
+        if (!hasStrings) {
+            encoding = fitsInInt ? ColumnarFormat.INT32 : ColumnarFormat.INT64;
+            for (Tuple tuple : pendingRows) {
+                if (fitsInInt) {
+                    out.writeInt((int) tuple.getLong(column));
+                } else {
+                    out.writeLong(tuple.getLong(column));
+                }
+            }
+        } else {
+            encoding = hasNumbers ? ColumnarFormat.MIXED : ColumnarFormat.DICTIONARY;
+            // Strings are stored once per chunk, in order of first appearance.
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            for (Tuple tuple : pendingRows) {
+                if (tuple.isString(column)) {
+                    dictionary.putIfAbsent(tuple.getString(column), dictionary.size());
+                }
+            }
+            out.writeInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            for (Tuple tuple : pendingRows) {
+                boolean isString = tuple.isString(column);
+                if (encoding == ColumnarFormat.DICTIONARY) {
+                    out.writeInt(dictionary.get(tuple.getString(column)));
+                } else {
+                    out.writeBoolean(isString);
+                    out.writeLong(isString ? dictionary.get(tuple.getString(column)) : tuple.getLong(column));
+                }
+            }
+        }
+        out.flush();
+        return new ColumnarTableReader.ColumnChunk(columnOffset, out.size(), encoding, columnStatistics);
+    }
+
+    /**
+     * The footer entry of a written chunk.
+     */
+    private static final class ChunkEntry {
+        private final int rowCount;
+        private final ColumnarTableReader.ColumnChunk[] columns;
+
+        ChunkEntry(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.columns = new ColumnarTableReader.ColumnChunk[columnCount];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the rows of a CSV table file together with their byte ranges, for the files derived from a table
+ * (zone maps and indexes) that must locate rows in the file. Rows are parsed as a scan of the table parses them.
+ */
+final class CsvRows {
+
+    /**
+     * Receives the rows of a file in order.
+     */
+    interface RowHandler {
+        /**
+         * @param tuple The parsed row.
+         * @param start The file offset of the first byte of the row.
+         * @param end   The file offset just past the row's line terminator (or the end of the file).
+         */
+        void row(Tuple tuple, long start, long end) throws IOException;
+    }
+
+    private CsvRows() {
+    }
+
+    /**
+     * Parses every row of a CSV file and hands it to a handler.
+     *
+     * @param csvPath    The path of the CSV file.
+     * @param tupleTypes The tuple types of the table (see {@link ed.inf.adbs.blazedb.TableSchema#getTupleTypes()}).
+     * @param handler    The handler receiving the rows.
+     * @return The length of the file.
+     * @throws IOException if the file cannot be read or the handler fails.
+     */
+    static long forEach(String csvPath, ColumnType[] tupleTypes, RowHandler handler) throws IOException {
+        try (InputStream in = new FileInputStream(csvPath)) {
+            byte[] buffer = new byte[1 << 16];
+            byte[] line = new byte[256];
+            int lineLength = 0;
+            long offset = 0;
+            long lineStart = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    offset++;
+                    if (b != '\n') {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLength++] = b;
+                        continue;
+                    }
+                    handler.row(parse(line, lineLength, tupleTypes), lineStart, offset);
+                    lineLength = 0;
+                    lineStart = offset;
+                }
+            }
+            // The last line may have no line terminator.
+            if (lineLength > 0) {
+                handler.row(parse(line, lineLength, tupleTypes), lineStart, offset);
+            }
+            return offset;
+        }
+    }
+
+    private static Tuple parse(byte[] line, int length, ColumnType[] tupleTypes) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return Tuple.parse(new String(line, 0, length, StandardCharsets.UTF_8), tupleTypes);
+    }
+}
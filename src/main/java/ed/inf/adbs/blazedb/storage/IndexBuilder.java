@@ -0,0 +1,270 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.IndexInfo;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds {@link BPlusTreeIndex} files from the CSV data of tables, for the {@code index} command of
+ * {@link ed.inf.adbs.blazedb.BlazeDB}, and registers them in the {@link Catalog}.
+ *
+ * Building a clustered index first rewrites the table's CSV file sorted on the indexed column (rows whose field is
+ * not a number last, in their original order). Since this moves every row, the table's other indexes are rebuilt
+ * as unclustered indexes. The whole table is sorted in memory.
+ */
+public class IndexBuilder {
+
+    private IndexBuilder() {
+    }
+
+    /**
+     * Builds and registers an index on a table column.
+     *
+     * @param tableName  The name of the table, which must be declared in the schema file.
+     * @param columnName The name of the column, which must not be a {@code VARCHAR} column.
+     * @param clustered  Whether to sort the table file on the column and build a clustered index.
+     * @throws IOException if the CSV file cannot be read or rewritten, or the index cannot be written.
+     * @throws IllegalArgumentException if the table or the column is unknown or cannot be indexed.
+     */
+    public static void buildIndex(String tableName, String columnName, boolean clustered) throws IOException {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(tableName);
+        if (schema == null) {
+            throw new IllegalArgumentException("Table " + tableName + " is not declared in the schema file.");
+        }
+        int column = schema.getColumnIndex(columnName);
+        if (column < 0) {
+            throw new IllegalArgumentException("Table " + tableName + " has no column " + columnName + ".");
+        }
+        if (schema.getColumnType(column) == ColumnType.VARCHAR) {
+            throw new IllegalArgumentException("Cannot index VARCHAR column " + tableName + "." + columnName + ".");
+        }
+        String csvPath = catalog.getFilePathForTable(tableName);
+        if (csvPath == null) {
+            throw new IOException("No CSV file to index for table " + tableName);
+        }
+
+        if (clustered) {
+            sortTableFile(csvPath, schema, column);
+            if (new File(catalog.getColumnarFilePathForTable(tableName)).exists()) {
+                System.out.println("The columnar file of " + tableName
+                        + " is out of date until the table is imported again.");
+            }
+        }
+        writeIndex(new IndexInfo(tableName, columnName, clustered), schema);
+        if (clustered) {
+            // The rows have moved, so the record ids of the other indexes are stale.
+            for (IndexInfo other : catalog.getRegisteredIndexes()) {
+                if (other.getTableName().equals(tableName) && !other.getColumnName().equals(columnName)) {
+                    writeIndex(other, schema);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index file of a registered index (or one being registered) and registers it.
+     */
+    private static void writeIndex(IndexInfo index, TableSchema schema) throws IOException {
+        Catalog catalog = Catalog.getInstance();
+        String tableName = index.getTableName();
+        int column = schema.getColumnIndex(index.getColumnName());
+        if (column < 0 || schema.getColumnType(column) == ColumnType.VARCHAR) {
+            throw new IllegalArgumentException("Cannot index column " + tableName + "." + index.getColumnName() + ".");
+        }
+        String path = catalog.getIndexFilePath(tableName, index.getColumnName());
+        File temporaryFile = new File(path + ".tmp");
+        int entryCount;
+        try {
+            entryCount = writeIndexFile(catalog.getFilePathForTable(tableName), schema, column, index.isClustered(),
+                    temporaryFile.getPath());
+        } catch (IOException | RuntimeException e) {
+            temporaryFile.delete();
+            throw e;
+        }
+        Files.move(temporaryFile.toPath(), Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+        catalog.registerIndex(index);
+        System.out.println("Built " + index + " with " + entryCount + " entries (" + new File(path).length()
+                + " bytes).");
+    }
+
+    /**
+     * Writes the index file of a column of a CSV table file.
+     *
+     * @param csvPath   The path of the CSV file, which must be sorted on the column for a clustered index.
+     * @param schema    The schema of the table.
+     * @param column    The index of the column, which must not be a {@code VARCHAR} column.
+     * @param clustered Whether to write a clustered index.
+     * @param path      The path of the index file.
+     * @return The number of entries of the index.
+     * @throws IOException if the CSV file cannot be read or the index cannot be written.
+     * @throws IllegalStateException if a clustered index is written for a file that is not sorted on the column.
+     */
+    static int writeIndexFile(String csvPath, TableSchema schema, int column, boolean clustered, String path)
+            throws IOException {
+        RowCollector rows = new RowCollector(column, schema.getColumnType(column) == ColumnType.DOUBLE);
+        CsvRows.forEach(csvPath, schema.getTupleTypes(), rows);
+
+        long[] keys = new long[rows.count];
+        long[] recordIds = new long[rows.count];
+        int entryCount = 0;
+        long dataEnd = 0;
+        long distinctKeyCount = 0;
+        if (clustered) {
+            // One entry per distinct key, pointing at its first row; the file must be sorted on the column.
+            boolean seenNonNumber = false;
+            for (int row = 0; row < rows.count; row++) {
+                if (!rows.isNumber[row]) {
+                    seenNonNumber = true;
+                    continue;
+                }
+                if (seenNonNumber || (entryCount > 0 && rows.keys[row] < keys[entryCount - 1])) {
+                    throw new IllegalStateException("The file of " + schema.getTableName() + " is not sorted on "
+                            + schema.getColumnNames().get(column) + "; rebuild its clustered index.");
+                }
+                if (entryCount == 0 || rows.keys[row] != keys[entryCount - 1]) {
+                    keys[entryCount] = rows.keys[row];
+                    recordIds[entryCount] = rows.starts[row];
+                    entryCount++;
+                }
+                dataEnd = rows.ends[row];
+            }
+            distinctKeyCount = entryCount;
+        } else {
+            for (int row : rows.sortedOrder()) {
+                if (rows.isNumber[row]) {
+                    if (entryCount == 0 || rows.keys[row] != keys[entryCount - 1]) {
+                        distinctKeyCount++;
+                    }
+                    keys[entryCount] = rows.keys[row];
+                    recordIds[entryCount] = rows.starts[row];
+                    entryCount++;
+                }
+            }
+        }
+        BPlusTreeIndex.write(path, keys, recordIds, entryCount, clustered, rows.numberCount() < rows.count,
+                rows.count, dataEnd, distinctKeyCount);
+        return entryCount;
+    }
+
+    /**
+     * Rewrites a CSV file with its rows sorted on a column: rows whose field is a number in increasing order,
+     * followed by the other rows. Rows with equal keys keep their order.
+     */
+    static void sortTableFile(String csvPath, TableSchema schema, int column) throws IOException {
+        RowCollector rows = new RowCollector(column, schema.getColumnType(column) == ColumnType.DOUBLE);
+        CsvRows.forEach(csvPath, schema.getTupleTypes(), rows);
+        File temporaryFile = new File(csvPath + ".tmp");
+        try (FileChannel input = FileChannel.open(Paths.get(csvPath), StandardOpenOption.READ);
+             OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile), 1 << 16)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            for (int row : rows.sortedOrder()) {
+                int length = (int) (rows.ends[row] - rows.starts[row]);
+                if (buffer.capacity() < length) {
+                    buffer = ByteBuffer.allocate(length);
+                }
+                buffer.clear();
+                buffer.limit(length);
+                while (buffer.hasRemaining()) {
+                    if (input.read(buffer, rows.starts[row] + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of file " + csvPath);
+                    }
+                }
+                output.write(buffer.array(), 0, length);
+                // The last line of the file may have no line terminator.
+                if (length == 0 || buffer.get(length - 1) != '\n') {
+                    output.write('\n');
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            temporaryFile.delete();
+            throw e;
+        }
+        Files.move(temporaryFile.toPath(), Paths.get(csvPath), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Sorted " + rows.count + " rows of " + schema.getTableName() + " on "
+                + schema.getColumnNames().get(column) + ".");
+    }
+
+    /**
+     * Collects the key and the byte range of every row of a CSV file.
+     */
+    private static final class RowCollector implements CsvRows.RowHandler {
+        private final int column;
+        private final boolean isDouble;
+        private long[] keys = new long[1024];
+        private long[] starts = new long[1024];
+        private long[] ends = new long[1024];
+        private boolean[] isNumber = new boolean[1024];
+        private int count;
+
+        RowCollector(int column, boolean isDouble) {
+            this.column = column;
+            this.isDouble = isDouble;
+        }
+
+        @Override
+        public void row(Tuple tuple, long start, long end) {
+            if (count == keys.length) {
+                int capacity = count * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                isNumber = Arrays.copyOf(isNumber, capacity);
+            }
+            isNumber[count] = ColumnStatistics.isNumber(tuple, column, isDouble);
+            if (isNumber[count]) {
+                long slot = tuple.getLong(column);
+                keys[count] = isDouble ? BPlusTreeIndex.doubleKey(Double.longBitsToDouble(slot)) : slot;
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        int numberCount() {
+            int numbers = 0;
+            for (int row = 0; row < count; row++) {
+                if (isNumber[row]) {
+                    numbers++;
+                }
+            }
+            return numbers;
+        }
+
+        /**
+         * Returns the rows sorted by key, rows that are not numbers last; the sort is stable, so rows with equal
+         * keys stay in file order.
+         */
+        List<Integer> sortedOrder() {
+            List<Integer> order = new ArrayList<>(count);
+            for (int row = 0; row < count; row++) {
+                order.add(row);
+            }
+            order.sort((a, b) -> {
+                if (isNumber[a] != isNumber[b]) {
+                    return isNumber[a] ? -1 : 1;
+                }
+                return isNumber[a] ? Long.compare(keys[a], keys[b]) : 0;
+            });
+            return order;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnDistribution;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.TableStatistics;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.util.HyperLogLog;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Gathers the {@link TableStatistics} of tables, for the {@code analyze} command of
+ * {@link ed.inf.adbs.blazedb.BlazeDB}, and stores them in the {@link Catalog}.
+ *
+ * A table is read in a single scan of its CSV file, parsed as a query would parse it. For each column, every
+ * value is added to a {@link HyperLogLog} sketch counting the distinct values, and the numbers are counted, their
+ * minimum and maximum kept, and a uniform sample of them drawn by reservoir sampling. The equi-depth histogram of
+ * the column is built from the sorted sample, with the exact minimum and maximum as its outer bounds. The memory
+ * used is therefore bounded whatever the size of the table.
+ */
+public class TableAnalyzer {
+    /**
+     * The number of buckets of a column's histogram, fewer if the column holds fewer numbers.
+     */
+    public static final int HISTOGRAM_BUCKETS = 64;
+    // Number of values of a column sampled to build its histogram.
+    private static final int SAMPLE_SIZE = 16 * 1024;
+
+    private TableAnalyzer() {
+    }
+
+    /**
+     * Analyzes one table and stores its statistics in the {@link Catalog}, replacing any previous statistics.
+     *
+     * @param tableName The name of the table, which must be declared in the schema file.
+     * @return The statistics of the table.
+     * @throws IOException if the CSV file cannot be read or the statistics file cannot be written.
+     * @throws IllegalArgumentException if the table is unknown.
+     */
+    public static TableStatistics analyzeTable(String tableName) throws IOException {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(tableName);
+        if (schema == null) {
+            throw new IllegalArgumentException("Table " + tableName + " is not declared in the schema file.");
+        }
+        if (catalog.getFilePathForTable(tableName) == null) {
+            throw new IOException("No CSV file to analyze for table " + tableName);
+        }
+        ColumnCollector[] collectors = new ColumnCollector[schema.getColumnCount()];
+        for (int column = 0; column < collectors.length; column++) {
+            collectors[column] = new ColumnCollector(column, schema.getColumnType(column));
+        }
+
+        ScanOperator scan = new ScanOperator(tableName, false);
+        long rowCount = 0;
+        TupleBatch batch;
+        while ((batch = scan.getNextBatch()) != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                Tuple tuple = batch.get(i);
+                for (ColumnCollector collector : collectors) {
+                    collector.add(tuple);
+                }
+            }
+            rowCount += batch.size();
+        }
+
+        Map<String, ColumnDistribution> columns = new LinkedHashMap<>();
+        for (ColumnCollector collector : collectors) {
+            columns.put(schema.getColumnNames().get(collector.column), collector.build(rowCount));
+        }
+        TableStatistics statistics = new TableStatistics(tableName, rowCount, columns);
+        catalog.saveTableStatistics(statistics);
+        StringBuilder distinct = new StringBuilder();
+        for (Map.Entry<String, ColumnDistribution> entry : columns.entrySet()) {
+            distinct.append(distinct.length() == 0 ? "" : ", ").append(entry.getKey()).append('=')
+                    .append(entry.getValue().getDistinctCount());
+        }
+        System.out.println("Analyzed " + rowCount + " rows of " + tableName + " (distinct values: " + distinct
+                + ").");
+        return statistics;
+    }
+
+    /**
+     * Accumulates the values of one column.
+     */
+    private static final class ColumnCollector {
+        final int column;
+        final ColumnType type;
+        final boolean isDouble;
+        final HyperLogLog distinct = new HyperLogLog();
+        // Seeded per column, so that analyzing the same data gives the same histograms.
+        final Random random;
+        final double[] sample = new double[SAMPLE_SIZE];
+        long numberCount;
+        double min;
+        double max;
+
+        ColumnCollector(int column, ColumnType type) {
+            this.column = column;
+            this.type = type;
+            this.isDouble = type == ColumnType.DOUBLE;
+            this.random = new Random(column);
+        }
+
+        void add(Tuple tuple) {
+            if (!ColumnStatistics.isNumber(tuple, column, isDouble)) {
+                if (column < tuple.size()) {
+                    distinct.add(tuple.getString(column));
+                }
+                return;
+            }
+            long slot = tuple.getLong(column);
+            distinct.add(slot);
+            double value = isDouble ? Double.longBitsToDouble(slot) : slot;
+            if (numberCount == 0 || value < min) {
+                min = value;
+            }
+            if (numberCount == 0 || value > max) {
+                max = value;
+            }
+            // Reservoir sampling: the n-th number replaces a random sampled value with probability SAMPLE_SIZE / n.
+            if (numberCount < SAMPLE_SIZE) {
+                sample[(int) numberCount] = value;
+            } else {
+                long position = (long) (random.nextDouble() * (numberCount + 1));
+                if (position < SAMPLE_SIZE) {
+                    sample[(int) position] = value;
+                }
+            }
+            numberCount++;
+        }
+
+        ColumnDistribution build(long rowCount) {
+            int sampled = (int) Math.min(numberCount, SAMPLE_SIZE);
+            double[] bounds;
+            if (sampled == 0) {
+                bounds = new double[0];
+            } else {
+                double[] sorted = Arrays.copyOf(sample, sampled);
+                Arrays.sort(sorted);
+                int buckets = Math.max(1, Math.min(HISTOGRAM_BUCKETS, sampled - 1));
+                bounds = new double[buckets + 1];
+                for (int i = 0; i <= buckets; i++) {
+                    bounds[i] = sorted[(int) ((long) i * (sampled - 1) / buckets)];
+                }
+                bounds[0] = min;
+                bounds[buckets] = max;
+            }
+            long distinctCount = Math.max(Math.min(distinct.estimate(), rowCount), numberCount > 0 ? 1 : 0);
+            return new ColumnDistribution(type, rowCount, numberCount, distinctCount, bounds);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Converts CSV tables into columnar table files, for the {@code import} command of {@link ed.inf.adbs.blazedb.BlazeDB}.
+ *
+ * The CSV file is scanned with a {@link ScanOperator}, so fields are parsed exactly as a query would parse them,
+ * and written to a temporary file that replaces the table's columnar file once it is complete. The {@link Catalog}
+ * then reads the table from the columnar file until the CSV file or the schema file changes.
+ */
+public class TableImporter {
+
+    private TableImporter() {
+    }
+
+    /**
+     * Imports one table from its CSV file into its columnar file.
+     *
+     * @param tableName The name of the table, which must be declared in the schema file.
+     * @return The number of imported rows.
+     * @throws IOException if the CSV file cannot be read or the columnar file cannot be written.
+     * @throws IllegalArgumentException if the table is unknown or a row does not match the table's column count.
+     */
+    public static long importTable(String tableName) throws IOException {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(tableName);
+        if (schema == null) {
+            throw new IllegalArgumentException("Table " + tableName + " is not declared in the schema file.");
+        }
+        if (catalog.getFilePathForTable(tableName) == null) {
+            throw new IOException("No CSV file to import for table " + tableName);
+        }
+        ColumnType[] columnTypes = new ColumnType[schema.getColumnCount()];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columnTypes[i] = schema.getColumnType(i);
+        }
+
+        String path = catalog.getColumnarFilePathForTable(tableName);
+        File temporaryFile = new File(path + ".tmp");
+        ScanOperator scan = new ScanOperator(tableName, false);
+        long rowCount;
+        try (ColumnarTableWriter writer = new ColumnarTableWriter(temporaryFile.getPath(), columnTypes)) {
+            TupleBatch batch;
+            while ((batch = scan.getNextBatch()) != null) {
+                for (int i = 0; i < batch.size(); i++) {
+                    writer.add(batch.get(i));
+                }
+            }
+            rowCount = writer.getRowCount();
+        } catch (IOException | RuntimeException e) {
+            temporaryFile.delete();
+            throw e;
+        }
+        Files.move(temporaryFile.toPath(), Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Imported " + rowCount + " rows of " + tableName + " " + Arrays.toString(columnTypes)
+                + " into " + path + " (" + new File(path).length() + " bytes).");
+        return rowCount;
+    }
+}
@@ -0,0 +1,234 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A zone map of a CSV table file: the file is divided into blocks of {@link #DEFAULT_BLOCK_ROWS} rows, and for each
+ * block the zone map records its byte range and the {@link ColumnStatistics} of every column. A scan with a
+ * selection reads only the blocks whose statistics show that some row may satisfy it.
+ *
+ * The zone map of a table is kept in a sidecar file next to the CSV file (see
+ * {@link Catalog#getZoneMapPathForTable(String)}). It is built by one pass over the CSV file the first time a
+ * selection on the table needs it, and rebuilt whenever the CSV file or the schema file is modified.
+ *
+ * Sidecar layout (big-endian): a magic number, the column count and the block count, followed for each block by
+ * its start and end offsets and, for each column, a flag byte (bit 0: has numbers, bit 1: has non-numbers) and
+ * the minimum and maximum slots.
+ */
+public class ZoneMap {
+    public static final int DEFAULT_BLOCK_ROWS = 16 * 1024;
+    private static final int MAGIC = 0x425A5A31; // "BZZ1"
+
+    private final int columnCount;
+    private final long[] blockStarts;
+    private final long[] blockEnds;
+    // Statistics of each column of each block, indexed by block then column.
+    private final ColumnStatistics[][] statistics;
+
+    private ZoneMap(int columnCount, long[] blockStarts, long[] blockEnds, ColumnStatistics[][] statistics) {
+        this.columnCount = columnCount;
+        this.blockStarts = blockStarts;
+        this.blockEnds = blockEnds;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the up-to-date zone map of a table, reading its sidecar file or, if the sidecar is missing or
+     * stale, building it from the CSV file and writing the sidecar.
+     *
+     * @param tableName The name of the table.
+     * @return The zone map, or {@code null} if the table has no schema or CSV file, or its zone map cannot be built.
+     */
+    public static ZoneMap forTable(String tableName) {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema(tableName);
+        if (schema == null || !catalog.hasCsvFile(tableName)) {
+            return null;
+        }
+        String path = catalog.getZoneMapPathForTable(tableName);
+        try {
+            if (catalog.hasCurrentZoneMap(tableName)) {
+                ZoneMap zoneMap = read(path);
+                if (zoneMap.getColumnCount() == schema.getColumnCount()) {
+                    return zoneMap;
+                }
+            }
+            ZoneMap zoneMap = build(catalog.getFilePathForTable(tableName), schema, DEFAULT_BLOCK_ROWS);
+            zoneMap.write(path);
+            System.out.println("Built zone map of " + tableName + " with " + zoneMap.getBlockCount() + " blocks.");
+            return zoneMap;
+        } catch (IOException e) {
+            System.err.println("Error building zone map of table " + tableName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds the zone map of a CSV file, parsing its rows as a scan of the table would.
+     *
+     * @param csvPath   The path of the CSV file.
+     * @param schema    The schema of the table.
+     * @param blockRows The number of rows per block.
+     * @return The zone map.
+     * @throws IOException if the file cannot be read.
+     */
+    public static ZoneMap build(String csvPath, TableSchema schema, int blockRows) throws IOException {
+        BlockBuilder builder = new BlockBuilder(schema, blockRows);
+        long length = CsvRows.forEach(csvPath, schema.getTupleTypes(), builder);
+        builder.finishBlock(length);
+
+        int blockCount = builder.blocks.size();
+        long[] starts = new long[blockCount];
+        long[] ends = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            starts[i] = builder.ranges.get(i)[0];
+            ends[i] = builder.ranges.get(i)[1];
+        }
+        return new ZoneMap(schema.getColumnCount(), starts, ends, builder.blocks.toArray(new ColumnStatistics[0][]));
+    }
+
+    /**
+     * Accumulates the rows of a CSV file into blocks of {@code blockRows} rows.
+     */
+    private static final class BlockBuilder implements CsvRows.RowHandler {
+        private final int blockRows;
+        private final ColumnStatistics.Builder[] builders;
+        private final List<long[]> ranges = new ArrayList<>();
+        private final List<ColumnStatistics[]> blocks = new ArrayList<>();
+        private long blockStart;
+        private int blockRowCount;
+
+        BlockBuilder(TableSchema schema, int blockRows) {
+            this.blockRows = blockRows;
+            this.builders = new ColumnStatistics.Builder[schema.getColumnCount()];
+            for (int column = 0; column < builders.length; column++) {
+                builders[column] = new ColumnStatistics.Builder(schema.getColumnType(column));
+            }
+        }
+
+        @Override
+        public void row(Tuple tuple, long start, long end) {
+            for (int column = 0; column < builders.length; column++) {
+                builders[column].add(tuple, column);
+            }
+            if (++blockRowCount == blockRows) {
+                finishBlock(end);
+            }
+        }
+
+        /**
+         * Closes the current block, if it has rows, at the given file offset.
+         */
+        void finishBlock(long end) {
+            if (blockRowCount == 0) {
+                return;
+            }
+            ColumnStatistics[] block = new ColumnStatistics[builders.length];
+            for (int column = 0; column < builders.length; column++) {
+                block[column] = builders[column].build();
+                builders[column].reset();
+            }
+            ranges.add(new long[]{blockStart, end});
+            blocks.add(block);
+            blockStart = end;
+            blockRowCount = 0;
+        }
+    }
+
+    /**
+     * Reads a zone map sidecar file.
+     *
+     * @param path The path of the sidecar file.
+     * @return The zone map.
+     * @throws IOException if the file cannot be read or is not a zone map.
+     */
+    public static ZoneMap read(String path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a zone map file: " + path);
+            }
+            int columnCount = input.readInt();
+            int blockCount = input.readInt();
+            long[] starts = new long[blockCount];
+            long[] ends = new long[blockCount];
+            ColumnStatistics[][] statistics = new ColumnStatistics[blockCount][columnCount];
+            for (int block = 0; block < blockCount; block++) {
+                starts[block] = input.readLong();
+                ends[block] = input.readLong();
+                for (int column = 0; column < columnCount; column++) {
+                    int flags = input.readByte();
+                    statistics[block][column] = new ColumnStatistics((flags & 1) != 0, (flags & 2) != 0,
+                            input.readLong(), input.readLong());
+                }
+            }
+            return new ZoneMap(columnCount, starts, ends, statistics);
+        }
+    }
+
+    /**
+     * Writes the zone map to a sidecar file, replacing it only once it is complete.
+     *
+     * @param path The path of the sidecar file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(String path) throws IOException {
+        File temporaryFile = new File(path + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(getColumnCount());
+            output.writeInt(getBlockCount());
+            for (int block = 0; block < getBlockCount(); block++) {
+                output.writeLong(blockStarts[block]);
+                output.writeLong(blockEnds[block]);
+                for (ColumnStatistics column : statistics[block]) {
+                    output.writeByte((column.hasNumbers() ? 1 : 0) | (column.hasNonNumbers() ? 2 : 0));
+                    output.writeLong(column.getMin());
+                    output.writeLong(column.getMax());
+                }
+            }
+        }
+        Files.move(temporaryFile.toPath(), Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public int getBlockCount() {
+        return blockStarts.length;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Returns the file offset of the first row of a block.
+     */
+    public long getBlockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /**
+     * Returns the file offset just past the last row of a block.
+     */
+    public long getBlockEnd(int block) {
+        return blockEnds[block];
+    }
+
+    public ColumnStatistics getStatistics(int block, int column) {
+        return statistics[block][column];
+    }
+}
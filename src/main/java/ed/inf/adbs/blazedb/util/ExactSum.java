@@ -0,0 +1,159 @@
+package ed.inf.adbs.blazedb.util;
+
+import java.util.Arrays;
+
+/**
+ * The exact sum of a series of doubles, rounded to the nearest double only when it is read. The result does not
+ * depend on the order in which the values are added, so sums computed in parts by several threads and merged in
+ * any order are identical, bit for bit, to the sum computed serially.
+ *
+ * The sum is kept as a short list of non-overlapping partial sums in increasing order of magnitude (Shewchuk's
+ * algorithm, also used by Python's {@code math.fsum}): each value is added to every partial with an error-free
+ * two-sum, and only the non-zero rounding errors are kept. A few partials suffice for most inputs.
+ *
+ * Infinite and NaN values are summed apart and, if any was added, make up the result. A sum of finite values
+ * that exceeds the range of doubles overflows to infinity.
+ */
+public final class ExactSum {
+    private double[] partials = new double[4];
+    private int partialCount;
+    // Sum of the infinite and NaN values added.
+    private double nonFinite;
+
+    /**
+     * Adds a value to the sum.
+     *
+     * @param value The value to add.
+     */
+    public void add(double value) {
+        if (!Double.isFinite(value)) {
+            nonFinite += value;
+            return;
+        }
+        double x = value;
+        int count = 0;
+        for (int i = 0; i < partialCount; i++) {
+            double y = partials[i];
+            if (Math.abs(x) < Math.abs(y)) {
+                double swapped = x;
+                x = y;
+                y = swapped;
+            }
+            double hi = x + y;
+            if (Double.isInfinite(hi)) {
+                // The sum left the range of doubles.
+                nonFinite += hi;
+                partialCount = 0;
+                return;
+            }
+            double lo = y - (hi - x);
+            if (lo != 0.0) {
+                partials[count++] = lo;
+            }
+            x = hi;
+        }
+        if (count == partials.length) {
+            partials = Arrays.copyOf(partials, 2 * count);
+        }
+        partials[count++] = x;
+        partialCount = count;
+    }
+
+    /**
+     * Adds an integer to the sum exactly, as two doubles holding its high and low 32 bits.
+     *
+     * @param value The value to add.
+     */
+    public void add(long value) {
+        add((double) (value & 0xFFFFFFFF00000000L));
+        add((double) (value & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Adds another exact sum to this one.
+     *
+     * @param other The sum to add; it is not modified.
+     */
+    public void add(ExactSum other) {
+        for (int i = 0; i < other.partialCount; i++) {
+            add(other.partials[i]);
+        }
+        nonFinite += other.nonFinite;
+    }
+
+    /**
+     * Returns the sum rounded to the nearest double, ties to even.
+     */
+    public double doubleValue() {
+        if (nonFinite != 0.0 || Double.isNaN(nonFinite)) {
+            return nonFinite;
+        }
+        int n = partialCount;
+        if (n == 0) {
+            return 0.0;
+        }
+        // Add the partials from the largest down, until the addition is inexact.
+        double hi = partials[--n];
+        double lo = 0.0;
+        while (n > 0) {
+            double x = hi;
+            double y = partials[--n];
+            hi = x + y;
+            lo = y - (hi - x);
+            if (lo != 0.0) {
+                break;
+            }
+        }
+        // hi + lo is exact, but a half-way rounding of it may have to go the other way given the remaining partials.
+        if (n > 0 && ((lo < 0 && partials[n - 1] < 0) || (lo > 0 && partials[n - 1] > 0))) {
+            double y = lo * 2;
+            double x = hi + y;
+            if (y == x - hi) {
+                hi = x;
+            }
+        }
+        // A sum of zeros is 0.0, as when adding them to 0.0 one by one.
+        return hi + 0.0;
+    }
+
+    /**
+     * Returns the number of partial sums; the sum is their exact total, unless {@link #isFinite()} is false.
+     */
+    public int getPartialCount() {
+        return partialCount;
+    }
+
+    public double getPartial(int index) {
+        return partials[index];
+    }
+
+    /**
+     * Tells whether only finite values were added and the sum stayed in the range of doubles.
+     */
+    public boolean isFinite() {
+        return nonFinite == 0.0;
+    }
+
+    /**
+     * Replaces the sum by the finite sum whose partial sums were read with {@link #getPartial(int)}, in order.
+     *
+     * @param values The partial sums.
+     * @param count  The number of partial sums.
+     */
+    public void setPartials(double[] values, int count) {
+        if (count > partials.length) {
+            partials = Arrays.copyOf(partials, count);
+        }
+        System.arraycopy(values, 0, partials, 0, count);
+        partialCount = count;
+        nonFinite = 0.0;
+    }
+
+    /**
+     * Resets the sum to zero.
+     */
+    public void clear() {
+        partialCount = 0;
+        nonFinite = 0.0;
+    }
+}
@@ -0,0 +1,109 @@
+package ed.inf.adbs.blazedb.util;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values added to it in a fixed amount of memory.
+ *
+ * Each value is hashed to 64 bits; the first {@code precision} bits of the hash select one of
+ * {@code 2^precision} registers, which keeps the largest number of leading zero bits (plus one) seen in the rest
+ * of the hash. The estimate is the bias-corrected harmonic mean of the registers, replaced by linear counting of
+ * the empty registers while many of them are empty. Its relative standard error is about
+ * {@code 1.04 / sqrt(2^precision)}: 0.8% with the default precision of 14, using 16 KB.
+ *
+ * Numbers and strings are hashed differently, so a number and a string are counted as distinct values.
+ */
+public final class HyperLogLog {
+    /**
+     * The default precision, i.e. the number of hash bits selecting a register.
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch with the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param precision The number of hash bits selecting a register, from 4 to 18.
+     * @throws IllegalArgumentException if the precision is out of range.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a number, given as the 64 bits of its {@link ed.inf.adbs.blazedb.Tuple} slot.
+     *
+     * @param value The value.
+     */
+    public void add(long value) {
+        addHash(mix(value));
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value The value.
+     */
+    public void add(String value) {
+        // 64-bit FNV-1a over the characters, mixed so that every bit depends on the whole string.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        addHash(mix(hash));
+    }
+
+    private void addHash(long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        // Leading zeros of the remaining bits, with a sentinel bit bounding the count.
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct values added.
+     *
+     * @return The estimate, 0 if nothing was added.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && emptyRegisters > 0) {
+            estimate = m * Math.log((double) m / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * The output function of SplitMix64, spreading the bits of a value over the whole hash so that consecutive
+     * values have unrelated hashes.
+     */
+    private static long mix(long value) {
+        value += 0x9e3779b97f4a7c15L;
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
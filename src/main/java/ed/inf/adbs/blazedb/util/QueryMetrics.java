@@ -0,0 +1,61 @@
+package ed.inf.adbs.blazedb.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects named execution counters (e.g. spilled bytes or partitions) reported by operators while a query runs.
+ * Counters are accumulated per query and printed once the query plan has been executed, so that memory
+ * budgets and other settings can be sized from real runs.
+ */
+public class QueryMetrics {
+
+    private static final Map<String, Long> counters = new TreeMap<>();
+
+    /**
+     * Adds the given amount to a named counter, creating the counter if needed.
+     *
+     * @param name  The counter name, conventionally prefixed with the reporting operator (e.g. "GraceHashJoin.spillBytes").
+     * @param delta The amount to add.
+     */
+    public static synchronized void add(String name, long delta) {
+        counters.merge(name, delta, Long::sum);
+    }
+
+    /**
+     * Raises a named counter to the given value if it is currently lower.
+     *
+     * @param name  The counter name.
+     * @param value The candidate maximum.
+     */
+    public static synchronized void max(String name, long value) {
+        counters.merge(name, value, Math::max);
+    }
+
+    /**
+     * Returns the current value of a counter, or 0 if it has never been reported.
+     */
+    public static synchronized long get(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Clears every counter; called before a query starts executing.
+     */
+    public static synchronized void reset() {
+        counters.clear();
+    }
+
+    /**
+     * Prints all counters reported by the last query, if any.
+     */
+    public static synchronized void report() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        System.out.println("Query metrics:");
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            System.out.println("  " + entry.getKey() + " = " + entry.getValue());
+        }
+    }
+}
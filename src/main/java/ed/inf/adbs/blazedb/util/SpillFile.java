@@ -0,0 +1,161 @@
+package ed.inf.adbs.blazedb.util;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * A temporary binary file of tuples used by operators that spill intermediate results to disk.
+ *
+ * Tuples are first appended with {@link #write(Tuple)}; once {@link #finishWriting()} has been called
+ * the file can be read back sequentially, any number of times, through {@link #openReader()} and
+ * {@link #read()}. The file is created in the given scratch directory and removed by {@link #delete()}
+ * (or, as a fallback, when the JVM exits).
+ *
+ * Each tuple is stored as its field count followed by one type byte and one long slot per field. String fields
+ * are stored by their {@link StringDictionary} code, which is valid for the lifetime of the process that wrote them.
+ */
+public class SpillFile {
+    private static final ColumnType[] TYPES = ColumnType.values();
+
+    private final File file;
+    private DataOutputStream output;
+    private DataInputStream input;
+    private long tupleCount;
+
+    /**
+     * Creates a new, empty spill file ready for writing.
+     *
+     * @param scratchDir The directory in which the file is created.
+     * @param prefix     A prefix identifying the owning operator in the file name.
+     * @throws RuntimeException if the file cannot be created.
+     */
+    public SpillFile(String scratchDir, String prefix) {
+        try {
+            this.file = File.createTempFile("blazedb-" + prefix + "-", ".spill", new File(scratchDir));
+            this.file.deleteOnExit();
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        } catch (IOException e) {
+            throw new RuntimeException("Error creating spill file in " + scratchDir + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends a tuple to the file.
+     *
+     * @param tuple The tuple to write.
+     * @throws RuntimeException if an I/O error occurs.
+     */
+    public void write(Tuple tuple) {
+        try {
+            int fieldCount = tuple.size();
+            output.writeInt(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                output.writeByte(tuple.getType(i).ordinal());
+                output.writeLong(tuple.getLong(i));
+            }
+            tupleCount++;
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing spill file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flushes and closes the writer. No more tuples can be written afterwards.
+     *
+     * @return The size of the file in bytes.
+     */
+    public long finishWriting() {
+        try {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing spill file " + file + ": " + e.getMessage(), e);
+        }
+        return file.length();
+    }
+
+    /**
+     * (Re)opens the file for reading from its first tuple.
+     */
+    public void openReader() {
+        closeReader();
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening spill file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the next tuple from the file.
+     *
+     * @return The next tuple, or {@code null} when the end of the file is reached.
+     */
+    public Tuple read() {
+        try {
+            int fieldCount;
+            try {
+                fieldCount = input.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            long[] values = new long[fieldCount];
+            String[] strings = null;
+            ColumnType[] types = null;
+            for (int i = 0; i < fieldCount; i++) {
+                ColumnType type = TYPES[input.readByte()];
+                values[i] = input.readLong();
+                if (type == ColumnType.VARCHAR) {
+                    if (strings == null) {
+                        strings = new String[fieldCount];
+                    }
+                    strings[i] = StringDictionary.decode((int) values[i]);
+                } else if (type != ColumnType.INT) {
+                    if (types == null) {
+                        types = new ColumnType[fieldCount];
+                        Arrays.fill(types, ColumnType.INT);
+                    }
+                    types[i] = type;
+                }
+            }
+            return new Tuple(values, strings, types);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading spill file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void closeReader() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // Nothing left to read; ignore.
+            }
+            input = null;
+        }
+    }
+
+    public long getTupleCount() {
+        return tupleCount;
+    }
+
+    public long getSizeInBytes() {
+        return file.length();
+    }
+
+    /**
+     * Closes any open stream and removes the file from disk.
+     */
+    public void delete() {
+        finishWriting();
+        closeReader();
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
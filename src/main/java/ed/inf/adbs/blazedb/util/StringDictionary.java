@@ -0,0 +1,48 @@
+package ed.inf.adbs.blazedb.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code StringDictionary} assigns a dense integer code to every distinct string value stored in a
+ * {@link ed.inf.adbs.blazedb.Tuple}. String slots of a tuple hold the code of their value together with the
+ * canonical {@code String} instance, so equal strings share one object and compare by code.
+ *
+ * The dictionary is shared by all operators for the lifetime of the application and is safe to use from
+ * several threads.
+ */
+public final class StringDictionary {
+    private static final Map<String, Integer> codes = new HashMap<>();
+    private static final List<String> values = new ArrayList<>();
+
+    private StringDictionary() {
+    }
+
+    /**
+     * Returns the code of a string, adding it to the dictionary if it is new.
+     *
+     * @param value The string to encode.
+     * @return The code of the string.
+     */
+    public static synchronized int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the string with the given code.
+     *
+     * @param code A code returned by {@link #encode(String)}.
+     * @return The canonical instance of the string.
+     */
+    public static synchronized String decode(int code) {
+        return values.get(code);
+    }
+}
@@ -0,0 +1,399 @@
+package ed.inf.adbs.blazedb.util;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * An append-only store of tuples serialized off the Java heap, used by blocking operators to hold their
+ * intermediate results without keeping one {@link Tuple} object per row alive.
+ *
+ * Rows are numbered from 0 in the order they are added. Each row is stored as its field count, one {@code long}
+ * slot per field and one type byte per field, the slots first so that a field is found without reading the field
+ * count. As in a {@link SpillFile}, string fields are stored by their {@link StringDictionary} code. Rows are
+ * written to chunks of direct (off-heap) memory, never across two chunks, and the address of each row is kept in
+ * a primitive {@code long[]}, so the heap only holds 8 bytes per row. Fields can be read, compared and updated in
+ * place; {@link #get(int)} rebuilds a row as a {@code Tuple} when it is returned to a parent operator.
+ *
+ * An arena is not safe for use by several threads; operators working in parallel use one arena per thread.
+ */
+public final class TupleArena {
+    // Size of the chunks of direct memory rows are written to; larger rows get a chunk of their own.
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final ColumnType[] TYPES = ColumnType.values();
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int chunkCount;
+    // Chunk being filled and the offset of its first free byte.
+    private int currentChunk = -1;
+    private int chunkPosition;
+    // Address of each row: the index of its chunk in the high 32 bits, its offset in the chunk in the low ones.
+    private long[] addresses = new long[1024];
+    private int rowCount;
+    private long usedBytes;
+    // Strings decoded so far, by dictionary code.
+    private String[] strings = new String[0];
+    // Types of the last tuple rebuilt, shared by the following tuples with the same types.
+    private ColumnType[] lastTypes;
+
+    /**
+     * Appends a tuple.
+     *
+     * @param tuple The tuple.
+     * @return The number of the new row.
+     */
+    public int add(Tuple tuple) {
+        int fieldCount = tuple.size();
+        int row = allocate(fieldCount);
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        int types = offset + 4 + 8 * fieldCount;
+        for (int i = 0; i < fieldCount; i++) {
+            chunk.putLong(offset + 4 + 8 * i, tuple.getLong(i));
+            chunk.put(types + i, (byte) tuple.getType(i).ordinal());
+        }
+        return row;
+    }
+
+    /**
+     * Appends a row of {@code INT} fields holding 0, to be filled with {@link #setLong(int, int, long)} and
+     * {@link #setType(int, int, ColumnType)}.
+     *
+     * @param fieldCount The number of fields of the row.
+     * @return The number of the new row.
+     */
+    public int addEmpty(int fieldCount) {
+        int row = allocate(fieldCount);
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        for (int i = 4; i < rowSize(fieldCount); i++) {
+            chunk.put(offset + i, (byte) 0);
+        }
+        return row;
+    }
+
+    /**
+     * Reserves the space of a new row and writes its field count.
+     */
+    private int allocate(int fieldCount) {
+        int size = rowSize(fieldCount);
+        if (currentChunk < 0 || chunkPosition + size > chunks[currentChunk].capacity()) {
+            nextChunk(size);
+        }
+        if (rowCount == addresses.length) {
+            addresses = Arrays.copyOf(addresses, addresses.length * 2);
+        }
+        int offset = chunkPosition;
+        chunks[currentChunk].putInt(offset, fieldCount);
+        addresses[rowCount] = ((long) currentChunk << 32) | offset;
+        chunkPosition += size;
+        usedBytes += size;
+        return rowCount++;
+    }
+
+    /**
+     * Moves to the next chunk, reusing a chunk kept by {@link #clear()} if it is large enough.
+     */
+    private void nextChunk(int size) {
+        currentChunk++;
+        chunkPosition = 0;
+        if (currentChunk < chunkCount && chunks[currentChunk].capacity() >= size) {
+            return;
+        }
+        if (currentChunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(4, chunks.length * 2));
+        }
+        chunks[currentChunk] = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, size)).order(ByteOrder.nativeOrder());
+        chunkCount = Math.max(chunkCount, currentChunk + 1);
+    }
+
+    private static int rowSize(int fieldCount) {
+        return 4 + 9 * fieldCount;
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of bytes used by the rows, including their addresses.
+     */
+    public long getMemoryUsage() {
+        return usedBytes + 8L * rowCount;
+    }
+
+    public int getFieldCount(int row) {
+        long address = addresses[row];
+        return chunks[(int) (address >>> 32)].getInt((int) address);
+    }
+
+    /**
+     * Returns the type of a field as {@link Tuple#getType(int)} returns it.
+     */
+    public ColumnType getType(int row, int field) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        return TYPES[chunk.get(offset + 4 + 8 * chunk.getInt(offset) + field)];
+    }
+
+    /**
+     * Returns the slot of a field as {@link Tuple#getLong(int)} returns it.
+     */
+    public long getLong(int row, int field) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        return chunk.getLong(offset + 4 + 8 * field);
+    }
+
+    public void setLong(int row, int field, long value) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        chunk.putLong(offset + 4 + 8 * field, value);
+    }
+
+    public void setType(int row, int field, ColumnType type) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        chunk.put(offset + 4 + 8 * chunk.getInt(offset) + field, (byte) type.ordinal());
+    }
+
+    /**
+     * Returns a field as an object, as {@link Tuple#getValue(int)} returns it.
+     */
+    public Object getValue(int row, int field) {
+        long slot = getLong(row, field);
+        switch (getType(row, field)) {
+            case VARCHAR:
+                return decode(slot);
+            case DOUBLE:
+                return Double.longBitsToDouble(slot);
+            default:
+                return slot;
+        }
+    }
+
+    /**
+     * Rebuilds a row as a tuple.
+     *
+     * @param row The number of the row.
+     * @return A new tuple equal to the one added.
+     */
+    public Tuple get(int row) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        int fieldCount = chunk.getInt(offset);
+        int types = offset + 4 + 8 * fieldCount;
+        long[] values = new long[fieldCount];
+        String[] rowStrings = null;
+        boolean typed = false;
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = chunk.getLong(offset + 4 + 8 * i);
+            byte type = chunk.get(types + i);
+            if (type == ColumnType.VARCHAR.ordinal()) {
+                if (rowStrings == null) {
+                    rowStrings = new String[fieldCount];
+                }
+                rowStrings[i] = decode(values[i]);
+            } else if (type != ColumnType.INT.ordinal()) {
+                typed = true;
+            }
+        }
+        return new Tuple(values, rowStrings, typed ? getTypes(chunk, types, fieldCount) : null);
+    }
+
+    /**
+     * Returns the types of a row, reusing the array of the previous row rebuilt if they are the same.
+     */
+    private ColumnType[] getTypes(ByteBuffer chunk, int typesOffset, int fieldCount) {
+        ColumnType[] types = lastTypes;
+        boolean same = types != null && types.length == fieldCount;
+        for (int i = 0; same && i < fieldCount; i++) {
+            same = types[i].ordinal() == chunk.get(typesOffset + i);
+        }
+        if (!same) {
+            types = new ColumnType[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                types[i] = TYPES[chunk.get(typesOffset + i)];
+            }
+            lastTypes = types;
+        }
+        return types;
+    }
+
+    /**
+     * Compares a field of a row with a field of another row, as {@link Tuple#compareField(int, Tuple, int)}
+     * compares the fields of two tuples.
+     */
+    public int compareField(int row, int field, int otherRow, int otherField) {
+        ColumnType type = getType(row, field);
+        ColumnType otherType = getType(otherRow, otherField);
+        long value = getLong(row, field);
+        long otherValue = getLong(otherRow, otherField);
+        if (type.isIntegral() && otherType.isIntegral()) {
+            return Long.compare(value, otherValue);
+        }
+        if (type == ColumnType.VARCHAR || otherType == ColumnType.VARCHAR) {
+            if (type == otherType && value == otherValue) {
+                return 0;
+            }
+            return toString(type, value).compareTo(toString(otherType, otherValue));
+        }
+        return Double.compare(toDouble(type, value), toDouble(otherType, otherValue));
+    }
+
+    /**
+     * Tells whether a row holds the same fields as a tuple, as {@link Tuple#equals(Object)} would.
+     */
+    public boolean equalsTuple(int row, Tuple tuple) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        int fieldCount = chunk.getInt(offset);
+        if (fieldCount != tuple.size()) {
+            return false;
+        }
+        int types = offset + 4 + 8 * fieldCount;
+        for (int i = 0; i < fieldCount; i++) {
+            if (chunk.getLong(offset + 4 + 8 * i) != tuple.getLong(i)
+                    || chunk.get(types + i) != tuple.getType(i).ordinal()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code of a row, equal to the {@link Tuple#hashCode()} of the tuple added.
+     */
+    public int hashCode(int row) {
+        long address = addresses[row];
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int offset = (int) address;
+        int fieldCount = chunk.getInt(offset);
+        int hash = 1;
+        for (int i = 0; i < fieldCount; i++) {
+            hash = 31 * hash + Long.hashCode(chunk.getLong(offset + 4 + 8 * i));
+        }
+        return hash;
+    }
+
+    /**
+     * Sorts the rows with a stable merge sort, which only compares the ends of two sorted runs that are already
+     * in order, so that sorting sorted rows takes linear time.
+     *
+     * @param comparator Compares two rows given by their numbers.
+     * @return The numbers of the rows, in sorted order.
+     */
+    public int[] sortRows(IntBinaryOperator comparator) {
+        int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        // Insertion sort of short runs, then bottom-up merges of pairs of runs.
+        final int run = 32;
+        for (int from = 0; from < rowCount; from += run) {
+            int to = Math.min(rowCount, from + run);
+            for (int i = from + 1; i < to; i++) {
+                int current = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.applyAsInt(rows[j], current) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = current;
+            }
+        }
+        int[] buffer = new int[rowCount];
+        for (int width = run; width < rowCount; width *= 2) {
+            for (int from = 0; from < rowCount; from += 2 * width) {
+                int middle = Math.min(rowCount, from + width);
+                int to = Math.min(rowCount, from + 2 * width);
+                if (middle == to || comparator.applyAsInt(rows[middle - 1], rows[middle]) <= 0) {
+                    // Already in order, as in sorted input.
+                    System.arraycopy(rows, from, buffer, from, to - from);
+                    continue;
+                }
+                int left = from;
+                int right = middle;
+                for (int k = from; k < to; k++) {
+                    if (left < middle && (right == to || comparator.applyAsInt(rows[left], rows[right]) <= 0)) {
+                        buffer[k] = rows[left++];
+                    } else {
+                        buffer[k] = rows[right++];
+                    }
+                }
+            }
+            int[] swapped = rows;
+            rows = buffer;
+            buffer = swapped;
+        }
+        return rows;
+    }
+
+    /**
+     * Removes every row, keeping the chunks for the rows added next.
+     */
+    public void clear() {
+        currentChunk = -1;
+        chunkPosition = 0;
+        rowCount = 0;
+        usedBytes = 0;
+    }
+
+    /**
+     * Removes every row and releases the chunks, whose memory is freed once they are garbage collected.
+     */
+    public void release() {
+        clear();
+        chunks = new ByteBuffer[0];
+        chunkCount = 0;
+        addresses = new long[1024];
+        strings = new String[0];
+        lastTypes = null;
+    }
+
+    private String decode(long code) {
+        int index = (int) code;
+        if (index >= strings.length) {
+            strings = Arrays.copyOf(strings, Math.max(index + 1, strings.length * 2));
+        }
+        String value = strings[index];
+        if (value == null) {
+            value = StringDictionary.decode(index);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private String toString(ColumnType type, long value) {
+        switch (type) {
+            case VARCHAR:
+                return decode(value);
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(value));
+            case DATE:
+                return LocalDate.ofEpochDay(value).toString();
+            default:
+                return Long.toString(value);
+        }
+    }
+
+    private static double toDouble(ColumnType type, long value) {
+        return type == ColumnType.DOUBLE ? Double.longBitsToDouble(value) : value;
+    }
+}
@@ -0,0 +1,72 @@
+package ed.inf.adbs.blazedb.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for the {@link ExpressionCompiler}'s handling of string literals compared with {@code DATE} fields.
+ */
+public class ExpressionCompilerTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.DATE};
+
+    @Test
+    public void isoStringLiteralsCompareWithDates() throws JSQLParserException {
+        Tuple tuple = Tuple.parse("1, 2020-01-15", TYPES);
+        String[] holding = {"Emp.hired = '2020-01-15'", "Emp.hired < '2021-01-01'", "'2020-01-01' <= Emp.hired",
+                "Emp.hired <> '2019-12-31'", "Emp.hired = DATE '2020-01-15'"};
+        String[] failing = {"Emp.hired = '2020-01-16'", "Emp.hired > '2021-01-01'", "'2020-01-15' < Emp.hired"};
+        for (String condition : holding) {
+            assertTrue(condition, compile(condition, tuple).test(tuple));
+            assertTrue(condition, new ExpressionEvaluator(tuple, schema()).evaluate(parse(condition)));
+        }
+        for (String condition : failing) {
+            assertFalse(condition, compile(condition, tuple).test(tuple));
+            assertFalse(condition, new ExpressionEvaluator(tuple, schema()).evaluate(parse(condition)));
+        }
+    }
+
+    @Test
+    public void malformedDateLiteralIsRejectedWhenCompiling() throws JSQLParserException {
+        Tuple tuple = Tuple.parse("1, 2020-01-15", TYPES);
+        try {
+            compile("Emp.hired < '2021-1-1'", tuple);
+        } catch (IllegalArgumentException e) {
+            assertEquals("'2021-1-1' is not a date of the form yyyy-MM-dd.", e.getMessage());
+            return;
+        }
+        throw new AssertionError("The malformed date was accepted.");
+    }
+
+    @Test
+    public void stringLiteralsStillCompareWithStrings() throws JSQLParserException {
+        Tuple tuple = Tuple.parse("1, 2020-01-15", new ColumnType[]{ColumnType.INT, ColumnType.VARCHAR});
+        assertTrue(compile("Emp.hired = '2020-01-15'", tuple).test(tuple));
+        assertFalse(compile("Emp.hired = '2020-1-15'", tuple).test(tuple));
+    }
+
+    private static TuplePredicate compile(String condition, Tuple sample) throws JSQLParserException {
+        return ExpressionCompiler.compilePredicate(parse(condition), schema(), sample);
+    }
+
+    private static Expression parse(String condition) throws JSQLParserException {
+        return CCJSqlParserUtil.parseCondExpression(condition);
+    }
+
+    private static Map<String, Integer> schema() {
+        Map<String, Integer> schema = new HashMap<>();
+        schema.put("Emp.id", 0);
+        schema.put("Emp.hired", 1);
+        return schema;
+    }
+}
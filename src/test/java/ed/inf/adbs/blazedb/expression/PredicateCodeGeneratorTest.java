@@ -0,0 +1,121 @@
+package ed.inf.adbs.blazedb.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests checking that the bytecode generated by the {@link PredicateCodeGenerator} evaluates predicates
+ * exactly as the compiled {@link ExpressionCompiler} tree it was generated from.
+ */
+public class PredicateCodeGeneratorTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.INT, ColumnType.DOUBLE, ColumnType.DATE,
+            ColumnType.VARCHAR};
+
+    // Conditions the generator translates into bytecode, at least in part.
+    private static final String[] SPECIALISED = {
+            "T.i = 3", "T.i <> T.j", "T.i < T.j + 2", "T.i * 2 >= T.j", "T.i * 3 + 1 = T.j * 2 + T.j",
+            "T.d > 1.5", "T.d <= T.i", "T.i + T.d < 4", "T.d * T.d > T.j", "2.25 = T.d", "T.j * 0.5 >= T.d",
+            "T.t >= DATE '2020-01-10'", "T.t < '2020-01-20'", "T.t = T.i + 18270", "T.t <> {d '2020-01-12'}",
+            "T.s = 'b'", "T.s <> 'b'", "T.s = T.s",
+            "3 > T.i AND T.d < 2.5", "T.i >= 1 AND T.j <= 4 AND T.s = 'a'",
+            "(T.i = 1 AND T.t > '2020-01-15') AND T.d <> 0", "T.s < 'b' AND T.i = 2",
+            "T.i = 2 AND (T.i = 1 OR T.j = 2)"
+    };
+    // Conditions evaluated entirely through the compiled tree, including those that report errors.
+    private static final String[] NOT_SPECIALISED = {
+            "T.s = T.i", "T.s <> 3", "T.s < 'b'", "T.s + 1 = 2", "T.i = 1 OR T.s = 'c'"
+    };
+
+    private final boolean codeGeneration = ExecutionConfig.getInstance().isCodeGenerationEnabled();
+
+    @After
+    public void restoreCodeGeneration() {
+        ExecutionConfig.getInstance().setCodeGenerationEnabled(codeGeneration);
+    }
+
+    @Test
+    public void generatedPredicatesMatchTheCompiledTree() throws JSQLParserException {
+        // Compiled predicates are then the trees themselves, from which the classes are generated explicitly.
+        ExecutionConfig.getInstance().setCodeGenerationEnabled(false);
+        List<Tuple> tuples = tuples();
+        for (String condition : SPECIALISED) {
+            assertTrue(condition, check(condition, tuples));
+        }
+        for (String condition : NOT_SPECIALISED) {
+            assertFalse(condition, check(condition, tuples));
+        }
+    }
+
+    /**
+     * Evaluates a condition on every tuple through the compiled tree and through the class generated for the
+     * first tuple, and checks that both give the same results and errors.
+     *
+     * @return Whether a class was generated.
+     */
+    private static boolean check(String condition, List<Tuple> tuples) throws JSQLParserException {
+        Tuple sample = tuples.get(0);
+        TuplePredicate tree = compile(condition, sample);
+        TuplePredicate compiled = compile(condition, sample);
+        TuplePredicate generated = PredicateCodeGenerator.generate(compiled, sample);
+        for (Tuple tuple : tuples) {
+            assertEquals(condition + " on " + tuple, outcome(tree, tuple), outcome(generated, tuple));
+        }
+        return generated != compiled;
+    }
+
+    private static TuplePredicate compile(String condition, Tuple sample) throws JSQLParserException {
+        return ExpressionCompiler.compilePredicate(CCJSqlParserUtil.parseCondExpression(condition), schema(), sample);
+    }
+
+    private static String outcome(TuplePredicate predicate, Tuple tuple) {
+        try {
+            return String.valueOf(predicate.test(tuple));
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private static List<Tuple> tuples() {
+        Random random = new Random(11);
+        double[] doubles = {-1.5, 0.0, 1.5, 2.0, 2.25, 3.0};
+        String[] strings = {"a", "b", "c"};
+        LocalDate firstDay = LocalDate.of(2020, 1, 5);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int row = 0; row < 500; row++) {
+            tuples.add(Tuple.parse(random.nextInt(6) + ", " + random.nextInt(6) + ", "
+                    + doubles[random.nextInt(doubles.length)] + ", " + firstDay.plusDays(random.nextInt(20)) + ", "
+                    + strings[random.nextInt(strings.length)], TYPES));
+        }
+        // Fields that do not match their declared type are held as strings, unlike those of the sample.
+        tuples.add(Tuple.parse("x, 1, 1.5, 2020-01-10, a", TYPES));
+        tuples.add(Tuple.parse("1, 2, y, 2020-01-10, b", TYPES));
+        tuples.add(Tuple.parse("1, 2, 1.5, 2020-13-45, 3", TYPES));
+        return tuples;
+    }
+
+    private static Map<String, Integer> schema() {
+        Map<String, Integer> schema = new HashMap<>();
+        schema.put("T.i", 0);
+        schema.put("T.j", 1);
+        schema.put("T.d", 2);
+        schema.put("T.t", 3);
+        schema.put("T.s", 4);
+        return schema;
+    }
+}
@@ -0,0 +1,78 @@
+package ed.inf.adbs.blazedb.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for the {@link DuplicateEliminationOperator}, in memory and with spilled partitions.
+ */
+public class DuplicateEliminationOperatorTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.DOUBLE, ColumnType.VARCHAR};
+    private static final String SCRATCH_DIR = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void keepsTheFirstCopyOfEachTupleInInputOrder() {
+        List<Tuple> input = input(2000);
+        List<Tuple> output = ListOperator.drain(
+                new DuplicateEliminationOperator(new ListOperator(input), Long.MAX_VALUE, SCRATCH_DIR));
+        assertEquals(new ArrayList<>(new LinkedHashSet<>(input)), output);
+    }
+
+    @Test
+    public void spilledPartitionsReturnEachDistinctTupleOnce() {
+        List<Tuple> input = input(5000);
+        for (long budget : new long[]{16 * 1024, 64 * 1024}) {
+            List<Tuple> output = ListOperator.drain(
+                    new DuplicateEliminationOperator(new ListOperator(input), budget, SCRATCH_DIR));
+            assertEquals(new HashSet<>(input).size(), output.size());
+            assertEquals(new HashSet<>(input), new HashSet<>(output));
+        }
+    }
+
+    @Test
+    public void partitionsRecursivelyUpToTheMaximumDepth() {
+        List<Tuple> input = input(400);
+        List<Tuple> output = ListOperator.drain(new DuplicateEliminationOperator(new ListOperator(input), 1, SCRATCH_DIR));
+        assertEquals(new HashSet<>(input).size(), output.size());
+        assertEquals(new HashSet<>(input), new HashSet<>(output));
+    }
+
+    @Test
+    public void distinguishesTypesWithEqualSlots() {
+        // 0 as an INT and 0.0 as a DOUBLE share the slot 0 but are different tuples.
+        List<Tuple> input = new ArrayList<>();
+        input.add(new Tuple(new long[]{0}, null, new ColumnType[]{ColumnType.INT}));
+        input.add(new Tuple(new long[]{0}, null, new ColumnType[]{ColumnType.DOUBLE}));
+        input.add(new Tuple(new long[]{0}, null, new ColumnType[]{ColumnType.INT}));
+        assertEquals(2, ListOperator.drain(new DuplicateEliminationOperator(new ListOperator(input), 1, SCRATCH_DIR)).size());
+    }
+
+    @Test
+    public void resetStartsOver() {
+        List<Tuple> input = input(3000);
+        DuplicateEliminationOperator distinct = new DuplicateEliminationOperator(new ListOperator(input), 16 * 1024, SCRATCH_DIR);
+        for (int i = 0; i < 100; i++) {
+            distinct.getNextTuple();
+        }
+        distinct.reset();
+        Set<Tuple> output = new HashSet<>(ListOperator.drain(distinct));
+        assertEquals(new HashSet<>(input), output);
+    }
+
+    private static List<Tuple> input(int count) {
+        String[] rows = new String[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = (i % 701) + ", " + (i % 3) / 2.0 + ", s" + (i % 5);
+        }
+        return ListOperator.parse(TYPES, rows);
+    }
+}
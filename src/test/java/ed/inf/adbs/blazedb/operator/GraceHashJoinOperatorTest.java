@@ -0,0 +1,76 @@
+package ed.inf.adbs.blazedb.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import ed.inf.adbs.blazedb.Tuple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the {@link GraceHashJoinOperator} under memory budgets small enough to spill partitions.
+ */
+public class GraceHashJoinOperatorTest {
+    private static final String SCRATCH_DIR = System.getProperty("java.io.tmpdir");
+
+    @Test
+    public void spilledJoinMatchesNestedLoops() {
+        List<Tuple> left = rows(3000, 97);
+        List<Tuple> right = rows(2000, 89);
+        for (long budget : new long[]{1, 2048, 1 << 20}) {
+            assertEquals(nestedLoops(left, right), join(left, right, budget));
+        }
+    }
+
+    @Test
+    public void skewedKeyIsJoinedInChunks() {
+        // A single key cannot be split by repartitioning, so the build partition is joined chunk by chunk.
+        List<Tuple> left = rows(300, 1);
+        List<Tuple> right = rows(500, 1);
+        assertEquals(nestedLoops(left, right), join(left, right, 256));
+    }
+
+    private static List<String> join(List<Tuple> left, List<Tuple> right, long budget) {
+        Map<String, Integer> schema = new HashMap<>();
+        schema.put("L.a", 0);
+        schema.put("L.b", 1);
+        schema.put("R.a", 2);
+        schema.put("R.b", 3);
+        GraceHashJoinOperator join = new GraceHashJoinOperator(new ListOperator(left), new ListOperator(right),
+                new int[]{1}, new int[]{1}, null, schema, budget, SCRATCH_DIR);
+        return sorted(ListOperator.drain(join));
+    }
+
+    private static List<String> nestedLoops(List<Tuple> left, List<Tuple> right) {
+        List<Tuple> joined = new ArrayList<>();
+        for (Tuple l : left) {
+            for (Tuple r : right) {
+                if (l.getLong(1) == r.getLong(1)) {
+                    joined.add(Tuple.concat(l, r));
+                }
+            }
+        }
+        return sorted(joined);
+    }
+
+    private static List<Tuple> rows(int count, int keys) {
+        List<Tuple> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Tuple(new long[]{i, (i * 31L) % keys}));
+        }
+        return rows;
+    }
+
+    private static List<String> sorted(List<Tuple> tuples) {
+        List<String> rows = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            rows.add(tuple.toString());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+}
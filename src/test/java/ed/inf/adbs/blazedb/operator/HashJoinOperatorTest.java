@@ -0,0 +1,87 @@
+package ed.inf.adbs.blazedb.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the join keys of the hash joins, which must match the pairs the {@link JoinOperator} finds by
+ * evaluating the same equality.
+ */
+public class HashJoinOperatorTest {
+    private static final ColumnType[] P_TYPES = {ColumnType.INT, ColumnType.VARCHAR};
+    private static final ColumnType[] Q_TYPES = {ColumnType.DOUBLE, ColumnType.INT};
+    private static final String[] P_ROWS = {"1, a", "2, b", "0, c", "3, d", "-4, e", "x, f"};
+    private static final String[] Q_ROWS = {"1.0, 10", "2.5, 20", "-0.0, 30", "0.0, 40", "3, 50", "-4.0, 60", "1, 70"};
+
+    @Test
+    public void integerKeysMatchDoublesOfTheSameValue() throws JSQLParserException {
+        List<String> expected = nestedLoops("P.id = Q.w");
+        assertEquals(Arrays.asList("-4, e, -4.0, 60", "0, c, 0.0, 40", "1, a, 1.0, 10", "1, a, 1.0, 70",
+                "3, d, 3.0, 50"), expected);
+        assertEquals(expected, sorted(new HashJoinOperator(p(), q(), new int[]{0}, new int[]{0}, null, schema())));
+        for (long budget : new long[]{1, 1 << 20}) {
+            assertEquals(expected, sorted(new GraceHashJoinOperator(p(), q(), new int[]{0}, new int[]{0}, null,
+                    schema(), budget, System.getProperty("java.io.tmpdir"))));
+        }
+    }
+
+    @Test
+    public void multiColumnKeysCompareEachColumnByValue() throws JSQLParserException {
+        List<String> expected = nestedLoops("P.id = Q.w AND P.id = Q.n");
+        assertEquals(expected, sorted(new HashJoinOperator(p(), q(), new int[]{0, 0}, new int[]{0, 1}, null, schema())));
+    }
+
+    @Test
+    public void keyValuesFollowTheEvaluator() {
+        Tuple doubles = Tuple.parse("1.0, 1.5, -0.0, 0.0, 9.2233720368547758E18", new ColumnType[]{
+                ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE});
+        assertEquals(1L, HashJoinOperator.keyValue(doubles, 0));
+        assertEquals(1.5, HashJoinOperator.keyValue(doubles, 1));
+        assertEquals(-0.0, HashJoinOperator.keyValue(doubles, 2));
+        assertEquals(0L, HashJoinOperator.keyValue(doubles, 3));
+        // 2^63 does not fit in a long.
+        assertEquals(0x1p63, HashJoinOperator.keyValue(doubles, 4));
+    }
+
+    private static List<String> nestedLoops(String condition) throws JSQLParserException {
+        return sorted(new JoinOperator(p(), q(), CCJSqlParserUtil.parseCondExpression(condition), schema()));
+    }
+
+    private static Operator p() {
+        return ListOperator.of(P_TYPES, P_ROWS);
+    }
+
+    private static Operator q() {
+        return ListOperator.of(Q_TYPES, Q_ROWS);
+    }
+
+    private static Map<String, Integer> schema() {
+        Map<String, Integer> schema = new HashMap<>();
+        schema.put("P.id", 0);
+        schema.put("P.name", 1);
+        schema.put("Q.w", 2);
+        schema.put("Q.n", 3);
+        return schema;
+    }
+
+    private static List<String> sorted(Operator join) {
+        List<String> rows = new ArrayList<>();
+        for (Tuple tuple : ListOperator.drain(join)) {
+            rows.add(tuple.toString());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+}
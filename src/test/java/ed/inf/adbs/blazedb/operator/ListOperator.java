@@ -0,0 +1,56 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An operator returning a fixed list of tuples, used as the child of the operators under test.
+ */
+class ListOperator extends Operator {
+    private final List<Tuple> tuples;
+    private int position;
+
+    ListOperator(List<Tuple> tuples) {
+        this.tuples = tuples;
+    }
+
+    /**
+     * Parses comma-separated rows with the given column types.
+     */
+    static ListOperator of(ColumnType[] types, String... rows) {
+        return new ListOperator(parse(types, rows));
+    }
+
+    static List<Tuple> parse(ColumnType[] types, String... rows) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (String row : rows) {
+            tuples.add(Tuple.parse(row, types));
+        }
+        return tuples;
+    }
+
+    /**
+     * Returns every remaining tuple of an operator.
+     */
+    static List<Tuple> drain(Operator operator) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        return position < tuples.size() ? tuples.get(position++) : null;
+    }
+
+    @Override
+    public void reset() {
+        position = 0;
+    }
+}
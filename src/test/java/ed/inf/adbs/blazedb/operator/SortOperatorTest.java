@@ -0,0 +1,89 @@
+package ed.inf.adbs.blazedb.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the {@link SortOperator}, sorting in memory and through spilled runs.
+ */
+public class SortOperatorTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.DOUBLE, ColumnType.VARCHAR};
+    private static final String[] ROWS = {
+            "1, 2.5, pear", "2, -1.0, apple", "3, 2.5, fig", "4, 10.25, apple", "5, -1.0, kiwi", "6, 0.5, fig"
+    };
+
+    @Test
+    public void sortsDoubleKeysInMemory() {
+        assertEquals(Arrays.asList(2L, 5L, 6L, 1L, 3L, 4L), ids(sort(Long.MAX_VALUE, key("P.price", true))));
+    }
+
+    @Test
+    public void sortsDoubleKeysThroughSpilledRuns() {
+        assertEquals(Arrays.asList(4L, 1L, 3L, 6L, 2L, 5L), ids(sort(1, key("P.price", false))));
+    }
+
+    @Test
+    public void sortsVarcharKeysInMemory() {
+        assertEquals(Arrays.asList(2L, 4L, 3L, 6L, 5L, 1L),
+                ids(sort(Long.MAX_VALUE, key("P.name", true), key("P.id", true))));
+    }
+
+    @Test
+    public void sortsVarcharAndDoubleKeysThroughSpilledRuns() {
+        assertEquals(Arrays.asList(4L, 2L, 3L, 6L, 5L, 1L),
+                ids(sort(64, key("P.name", true), key("P.price", false))));
+    }
+
+    @Test
+    public void spilledSortMatchesInMemorySort() {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(i + ", " + ((i * 37) % 101) / 4.0 + ", s" + (i * 13) % 17);
+        }
+        String[] input = rows.toArray(new String[0]);
+        OrderByElement[] keys = {key("P.name", false), key("P.price", true), key("P.id", true)};
+        assertEquals(ids(sort(Long.MAX_VALUE, input, keys)), ids(sort(256, input, keys)));
+    }
+
+    private static List<Tuple> sort(long memoryBudget, OrderByElement... keys) {
+        return sort(memoryBudget, ROWS, keys);
+    }
+
+    private static List<Tuple> sort(long memoryBudget, String[] rows, OrderByElement... keys) {
+        Map<String, Integer> schema = new HashMap<>();
+        schema.put("P.id", 0);
+        schema.put("P.price", 1);
+        schema.put("P.name", 2);
+        SortOperator sort = new SortOperator(ListOperator.of(TYPES, rows), Arrays.asList(keys), schema,
+                memoryBudget, System.getProperty("java.io.tmpdir"));
+        return ListOperator.drain(sort);
+    }
+
+    private static OrderByElement key(String column, boolean ascending) {
+        String[] parts = column.split("\\.");
+        OrderByElement element = new OrderByElement();
+        element.setExpression(new Column(new Table(parts[0]), parts[1]));
+        element.setAsc(ascending);
+        return element;
+    }
+
+    private static List<Long> ids(List<Tuple> tuples) {
+        List<Long> ids = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            ids.add(tuple.getLong(0));
+        }
+        return ids;
+    }
+}
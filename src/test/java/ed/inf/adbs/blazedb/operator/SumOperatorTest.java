@@ -0,0 +1,126 @@
+package ed.inf.adbs.blazedb.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link SumOperator}, whose parallel aggregation must return exactly the serial result.
+ */
+public class SumOperatorTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.DOUBLE, ColumnType.INT};
+    private final int threads = ExecutionConfig.getInstance().getThreads();
+
+    @After
+    public void restoreThreads() {
+        ExecutionConfig.getInstance().setThreads(threads);
+    }
+
+    @Test
+    public void parallelDoubleSumsMatchTheSerialSumsBitForBit() {
+        List<Tuple> input = input(20000);
+        for (boolean grouped : new boolean[]{false, true}) {
+            List<String> serial = sum(input, grouped, 1);
+            for (int run = 0; run < 3; run++) {
+                assertEquals(serial, sum(input, grouped, 4));
+            }
+        }
+    }
+
+    @Test
+    public void globalDoubleSumIsTheRoundedExactSum() {
+        List<Tuple> input = ListOperator.parse(TYPES, "0, 1e16, 1", "0, 1.0, 2", "0, -1e16, 3", "0, 0.1, 4");
+        assertEquals(Collections.singletonList("1.1, 10"), sum(input, false, 1));
+    }
+
+    @Test
+    public void dateGroupKeysKeepTheirType() {
+        ColumnType[] types = {ColumnType.DATE, ColumnType.INT};
+        List<Tuple> input = ListOperator.parse(types, "2020-01-15, 1", "2021-03-02, 2", "2020-01-15, 3");
+        for (int threads : new int[]{1, 4}) {
+            ExecutionConfig.getInstance().setThreads(threads);
+            Map<String, Integer> schema = new HashMap<>();
+            schema.put("Emp.hired", 0);
+            schema.put("Emp.id", 1);
+            SumOperator sum = new SumOperator(new ListOperator(input),
+                    Collections.singletonList(new Column(new Table("Emp"), "hired")),
+                    Collections.singletonList(new Column(new Table("Emp"), "id")), schema);
+            List<String> rows = new ArrayList<>();
+            for (Tuple tuple : ListOperator.drain(sum)) {
+                assertEquals(ColumnType.DATE, tuple.getType(0));
+                rows.add(tuple.toString());
+            }
+            Collections.sort(rows);
+            assertEquals(Arrays.asList("2020-01-15, 4", "2021-03-02, 2"), rows);
+        }
+    }
+
+    @Test
+    public void varcharGroupKeysAreGroupedByString() {
+        ColumnType[] types = {ColumnType.VARCHAR, ColumnType.INT};
+        List<Tuple> input = ListOperator.parse(types, "b, 1", "a, 2", "b, 3", "c, 4", "a, 5", "12, 6");
+        for (int threads : new int[]{1, 4}) {
+            ExecutionConfig.getInstance().setThreads(threads);
+            Map<String, Integer> schema = new HashMap<>();
+            schema.put("T.s", 0);
+            schema.put("T.n", 1);
+            SumOperator sum = new SumOperator(new ListOperator(input),
+                    Collections.singletonList(new Column(new Table("T"), "s")),
+                    Collections.singletonList(new Column(new Table("T"), "n")), schema);
+            List<String> rows = new ArrayList<>();
+            for (Tuple tuple : ListOperator.drain(sum)) {
+                assertEquals(ColumnType.VARCHAR, tuple.getType(0));
+                rows.add(tuple.toString());
+            }
+            Collections.sort(rows);
+            assertEquals(Arrays.asList("12, 6", "a, 7", "b, 4", "c, 4"), rows);
+        }
+    }
+
+    private static List<String> sum(List<Tuple> input, boolean grouped, int threads) {
+        ExecutionConfig.getInstance().setThreads(threads);
+        Map<String, Integer> schema = new HashMap<>();
+        schema.put("T.g", 0);
+        schema.put("T.d", 1);
+        schema.put("T.n", 2);
+        List<Expression> groupBy = new ArrayList<>();
+        List<Expression> sums = new ArrayList<>();
+        sums.add(new Column(new Table("T"), "d"));
+        if (grouped) {
+            groupBy.add(new Column(new Table("T"), "g"));
+        } else {
+            sums.add(new Column(new Table("T"), "n"));
+        }
+        List<String> rows = new ArrayList<>();
+        for (Tuple tuple : ListOperator.drain(new SumOperator(new ListOperator(input), groupBy, sums, schema))) {
+            rows.add(tuple.toString());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<Tuple> input(int count) {
+        Random random = new Random(7);
+        String[] rows = new String[count];
+        for (int i = 0; i < count; i++) {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(20) - 5);
+            rows[i] = (i % 13) + ", " + (random.nextBoolean() ? value : -value) + ", " + i;
+        }
+        return ListOperator.parse(TYPES, rows);
+    }
+}
@@ -0,0 +1,214 @@
+package ed.inf.adbs.blazedb.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import ed.inf.adbs.blazedb.Catalog;
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.TableSchema;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.expression.KeyRange;
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Unit tests for {@link BPlusTreeIndex} files written by the {@link IndexBuilder} over a small CSV table, and for
+ * the {@link IndexScanOperator} reading a table through them.
+ */
+public class BPlusTreeIndexTest {
+    private static final int ROWS = 1000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final TableSchema SCHEMA = new TableSchema("T", Arrays.asList("id", "k", "d", "x"),
+            Arrays.asList(ColumnType.INT, ColumnType.INT, ColumnType.DATE, ColumnType.DOUBLE));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String csvPath;
+    private final List<String> lines = new ArrayList<>();
+
+    @Before
+    public void writeTable() throws IOException {
+        // Ten keys of 100 rows each, in shuffled order; dates and doubles with their own duplicates.
+        for (int i = 0; i < ROWS; i++) {
+            int k = (i * 7919 % ROWS) / 100;
+            double x = ((i % 41) - 20) * 0.75;
+            lines.add(i + ", " + k + ", " + FIRST_DAY.plusDays(i % 37) + ", " + x);
+        }
+        File csv = folder.newFile("T.csv");
+        Files.write(csv.toPath(), lines, StandardCharsets.UTF_8);
+        csvPath = csv.getPath();
+    }
+
+    @Test
+    public void unclusteredIndexFindsEqualKeysAcrossLeaves() throws IOException {
+        try (BPlusTreeIndex index = build(1, false)) {
+            assertEquals(ROWS, index.getEntryCount());
+            assertEquals(10, index.getDistinctKeyCount());
+            // The 100 entries of key 2 are at positions 200 to 299, on both sides of the first leaf boundary.
+            long[] positions = index.findRange(2, 2);
+            assertEquals(200, positions[0]);
+            assertEquals(300, positions[1]);
+            assertNotEquals(positions[0] / BPlusTreeIndex.LEAF_CAPACITY,
+                    (positions[1] - 1) / BPlusTreeIndex.LEAF_CAPACITY);
+            for (int key = -1; key <= 10; key++) {
+                int k = key;
+                assertEquals(expected(fields -> intField(fields, 1) == k), fetch(index, k, k));
+            }
+        }
+    }
+
+    @Test
+    public void unclusteredIndexFindsOpenAndClosedRanges() throws IOException {
+        try (BPlusTreeIndex index = build(1, false)) {
+            assertEquals(expected(fields -> intField(fields, 1) >= 3 && intField(fields, 1) <= 5), fetch(index, 3, 5));
+            assertEquals(expected(fields -> intField(fields, 1) >= 7), fetch(index, 7, Long.MAX_VALUE));
+            assertEquals(expected(fields -> intField(fields, 1) <= 1), fetch(index, Long.MIN_VALUE, 1));
+            assertEquals(lines.size(), fetch(index, Long.MIN_VALUE, Long.MAX_VALUE).size());
+            assertEquals(Collections.emptyList(), fetch(index, 5, 3));
+            assertEquals(0, index.estimateRowCount(10, 20));
+        }
+    }
+
+    @Test
+    public void clusteredIndexReadsByteRanges() throws IOException {
+        IndexBuilder.sortTableFile(csvPath, SCHEMA, 1);
+        try (BPlusTreeIndex index = build(1, true)) {
+            assertTrue(index.isClustered());
+            // One entry per distinct key.
+            assertEquals(10, index.getEntryCount());
+            assertEquals(new File(csvPath).length(), index.getDataEnd());
+            assertEquals(expected(fields -> intField(fields, 1) == 2), readBytes(index.findByteRange(2, 2)));
+            assertEquals(expected(fields -> intField(fields, 1) >= 3 && intField(fields, 1) <= 5),
+                    readBytes(index.findByteRange(3, 5)));
+            assertEquals(expected(fields -> intField(fields, 1) >= 7), readBytes(index.findByteRange(7, Long.MAX_VALUE)));
+            assertEquals(expected(fields -> true), readBytes(index.findByteRange(Long.MIN_VALUE, Long.MAX_VALUE)));
+            assertEquals(Collections.emptyList(), readBytes(index.findByteRange(10, 20)));
+        }
+    }
+
+    @Test
+    public void dateKeysAreDayNumbers() throws IOException, JSQLParserException {
+        try (BPlusTreeIndex index = build(2, false)) {
+            long day = FIRST_DAY.plusDays(10).toEpochDay();
+            assertEquals(expected(fields -> fields[2].equals("2020-01-11")), fetch(index, day, day));
+            KeyRange range = KeyRange.fromSelection(
+                    CCJSqlParserUtil.parseCondExpression("T.d >= DATE '2020-01-10' AND T.d < '2020-01-20'"), SCHEMA, 2);
+            assertEquals(expected(fields -> fields[2].compareTo("2020-01-10") >= 0 && fields[2].compareTo("2020-01-20") < 0),
+                    fetch(index, range.getLow(), range.getHigh()));
+        }
+    }
+
+    @Test
+    public void doubleKeysKeepTheOrderOfTheValues() throws IOException, JSQLParserException {
+        try (BPlusTreeIndex index = build(3, false)) {
+            long key = BPlusTreeIndex.doubleKey(-15.0);
+            assertEquals(expected(fields -> doubleField(fields) == -15.0), fetch(index, key, key));
+            assertEquals(expected(fields -> doubleField(fields) >= -1.5 && doubleField(fields) <= 2.25),
+                    fetch(index, BPlusTreeIndex.doubleKey(-1.5), BPlusTreeIndex.doubleKey(2.25)));
+            KeyRange range = KeyRange.fromSelection(CCJSqlParserUtil.parseCondExpression("T.x > 1.5"), SCHEMA, 3);
+            assertEquals(expected(fields -> doubleField(fields) > 1.5), fetch(index, range.getLow(), range.getHigh()));
+        }
+    }
+
+    @Test
+    public void indexScanReadsTheKeyRangeOfASampleTable() throws IOException, JSQLParserException {
+        // The scan finds the table file through the Catalog, so it reads the sample Student table, sorted on A.
+        Catalog catalog = Catalog.getInstance();
+        TableSchema schema = catalog.getTableSchema("Student");
+        String studentPath = catalog.getFilePathForTable("Student");
+        for (boolean clustered : new boolean[]{true, false}) {
+            String path = new File(folder.getRoot(), "Student.A." + clustered + ".idx").getPath();
+            IndexBuilder.writeIndexFile(studentPath, schema, 0, clustered, path);
+            KeyRange range = KeyRange.fromSelection(
+                    CCJSqlParserUtil.parseCondExpression("Student.A >= 2 AND Student.A <= 4"), schema, 0);
+            List<String> rows = new ArrayList<>();
+            try (BPlusTreeIndex index = new BPlusTreeIndex(path)) {
+                IndexScanOperator scan = new IndexScanOperator("Student", index, range);
+                Tuple tuple;
+                while ((tuple = scan.getNextTuple()) != null) {
+                    rows.add(tuple.toString());
+                }
+            }
+            assertEquals(Arrays.asList("2, 200, 200, 44", "3, 100, 105, 44", "4, 100, 50, 11"), rows);
+        }
+    }
+
+    private BPlusTreeIndex build(int column, boolean clustered) throws IOException {
+        String path = new File(folder.getRoot(), "T." + SCHEMA.getColumnNames().get(column) + ".idx").getPath();
+        IndexBuilder.writeIndexFile(csvPath, SCHEMA, column, clustered, path);
+        return new BPlusTreeIndex(path);
+    }
+
+    /**
+     * Returns the rows of the entries whose keys lie in a range, read at their record ids, in sorted order.
+     */
+    private List<String> fetch(BPlusTreeIndex index, long low, long high) throws IOException {
+        long[] positions = index.findRange(low, high);
+        List<String> rows = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(csvPath, "r")) {
+            for (long recordId : index.readRecordIds(positions[0], positions[1])) {
+                file.seek(recordId);
+                rows.add(file.readLine());
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Returns the rows stored in a byte range of the table file, in sorted order.
+     */
+    private List<String> readBytes(long[] range) throws IOException {
+        byte[] bytes = new byte[(int) (range[1] - range[0])];
+        try (RandomAccessFile file = new RandomAccessFile(csvPath, "r")) {
+            file.seek(range[0]);
+            file.readFully(bytes);
+        }
+        List<String> rows = new ArrayList<>();
+        for (String row : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            if (!row.isEmpty()) {
+                rows.add(row);
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private List<String> expected(Predicate<String[]> condition) {
+        List<String> rows = new ArrayList<>();
+        for (String line : lines) {
+            if (condition.test(line.split(", "))) {
+                rows.add(line);
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static int intField(String[] fields, int index) {
+        return Integer.parseInt(fields[index]);
+    }
+
+    private static double doubleField(String[] fields) {
+        return Double.parseDouble(fields[3]);
+    }
+}
@@ -0,0 +1,98 @@
+package ed.inf.adbs.blazedb.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the {@link ColumnarTableWriter} and {@link ColumnarTableReader}: a typed table written to a
+ * columnar file must be read back unchanged.
+ */
+public class ColumnarTableTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.DOUBLE, ColumnType.DATE, ColumnType.VARCHAR,
+            ColumnType.BIGINT};
+    private static final int CHUNK_ROWS = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void typedTableRoundTripsAcrossChunks() throws IOException {
+        String[] names = {"Ana", "Bo", "Zoë", "", "Ana María"};
+        List<Tuple> rows = new ArrayList<>();
+        for (int i = 0; i < 2 * CHUNK_ROWS + 37; i++) {
+            rows.add(Tuple.parse(i + ", " + (i % 7 - 3) * 1.25 + ", " + LocalDate.of(2019, 12, 30).plusDays(i) + ", "
+                    + names[i % names.length] + ", " + (i * 4_000_000_000L), TYPES));
+        }
+        assertEquals(rows, roundTrip(rows, new int[]{CHUNK_ROWS, CHUNK_ROWS, 37}));
+        try (ColumnarTableReader reader = new ColumnarTableReader(new File(folder.getRoot(), "T.col").getPath())) {
+            assertEquals(ColumnarFormat.INT32, reader.getColumnChunk(0, 0).getEncoding());
+            assertEquals(ColumnarFormat.INT64, reader.getColumnChunk(0, 1).getEncoding());
+            assertEquals(ColumnarFormat.DICTIONARY, reader.getColumnChunk(0, 3).getEncoding());
+        }
+    }
+
+    @Test
+    public void fieldsHeldAsStringsRoundTrip() throws IOException {
+        // Malformed numbers are held as strings, so their column chunks mix numbers and strings.
+        List<Tuple> rows = new ArrayList<>();
+        for (int i = 0; i < CHUNK_ROWS + 1; i++) {
+            rows.add(Tuple.parse(i + ", " + (i % 10 == 0 ? "n/a" : "-0.5") + ", "
+                    + (i == CHUNK_ROWS ? "someday" : "2024-02-29") + ", x" + i % 3 + ", " + -i, TYPES));
+        }
+        assertEquals(rows, roundTrip(rows, new int[]{CHUNK_ROWS, 1}));
+        try (ColumnarTableReader reader = new ColumnarTableReader(new File(folder.getRoot(), "T.col").getPath())) {
+            assertEquals(ColumnarFormat.MIXED, reader.getColumnChunk(0, 1).getEncoding());
+            assertEquals(ColumnarFormat.DICTIONARY, reader.getColumnChunk(1, 2).getEncoding());
+        }
+    }
+
+    /**
+     * Writes rows to a columnar file and reads them back, checking the chunk sizes.
+     */
+    private List<Tuple> roundTrip(List<Tuple> rows, int[] chunkRowCounts) throws IOException {
+        String path = new File(folder.getRoot(), "T.col").getPath();
+        try (ColumnarTableWriter writer = new ColumnarTableWriter(path, TYPES, CHUNK_ROWS)) {
+            for (Tuple row : rows) {
+                writer.add(row);
+            }
+        }
+        List<Tuple> read = new ArrayList<>();
+        try (ColumnarTableReader reader = new ColumnarTableReader(path)) {
+            assertArrayEquals(TYPES, reader.getColumnTypes());
+            assertEquals(rows.size(), reader.getRowCount());
+            assertEquals(chunkRowCounts.length, reader.getChunkCount());
+            for (int chunk = 0; chunk < reader.getChunkCount(); chunk++) {
+                assertEquals(chunkRowCounts[chunk], reader.getChunkRowCount(chunk));
+                ColumnarTableReader.ColumnVector[] columns = new ColumnarTableReader.ColumnVector[TYPES.length];
+                for (int column = 0; column < TYPES.length; column++) {
+                    columns[column] = reader.readColumn(chunk, column);
+                }
+                for (int row = 0; row < reader.getChunkRowCount(chunk); row++) {
+                    long[] values = new long[TYPES.length];
+                    String[] strings = new String[TYPES.length];
+                    for (int column = 0; column < TYPES.length; column++) {
+                        values[column] = columns[column].getValue(row);
+                        strings[column] = columns[column].getString(row);
+                    }
+                    read.add(new Tuple(values, strings, TYPES));
+                }
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).toString(), read.get(i).toString());
+        }
+        return read;
+    }
+}
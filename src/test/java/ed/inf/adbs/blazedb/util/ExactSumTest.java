@@ -0,0 +1,101 @@
+package ed.inf.adbs.blazedb.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link ExactSum}, checked against sums computed with {@link BigDecimal}.
+ */
+public class ExactSumTest {
+
+    @Test
+    public void roundsTheExactSumWhateverTheOrder() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            List<Double> values = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                double value = random.nextDouble() * Math.pow(10, random.nextInt(30) - 10);
+                values.add(random.nextBoolean() ? value : -value);
+            }
+            double expected = exact(values);
+            for (int shuffle = 0; shuffle < 5; shuffle++) {
+                Collections.shuffle(values, random);
+                assertEquals(expected, sum(values), 0);
+            }
+        }
+    }
+
+    @Test
+    public void keepsTheLowOrderBitsThatNaiveSummationLoses() {
+        List<Double> values = new ArrayList<>();
+        values.add(1e16);
+        values.add(1.0);
+        values.add(-1e16);
+        values.add(0.1);
+        assertEquals(1.1, sum(values), 0);
+    }
+
+    @Test
+    public void mergesPartialSumsExactly() {
+        ExactSum left = new ExactSum();
+        ExactSum right = new ExactSum();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            double value = (i % 7 - 3) * 0.1 + i * 1e12;
+            values.add(value);
+            (i % 3 == 0 ? left : right).add(value);
+        }
+        right.add(left);
+        assertEquals(exact(values), right.doubleValue(), 0);
+    }
+
+    @Test
+    public void addsLongsExactly() {
+        ExactSum sum = new ExactSum();
+        sum.add(Long.MAX_VALUE);
+        sum.add(-Long.MAX_VALUE);
+        sum.add(Long.MIN_VALUE);
+        sum.add(0.5);
+        assertEquals((double) Long.MIN_VALUE, sum.doubleValue(), 0);
+        ExactSum odd = new ExactSum();
+        odd.add((1L << 53) + 1);
+        odd.add(0.5);
+        assertEquals(9007199254740994.0, odd.doubleValue(), 0);
+    }
+
+    @Test
+    public void handlesZerosAndNonFiniteValues() {
+        ExactSum sum = new ExactSum();
+        assertEquals(0.0, sum.doubleValue(), 0);
+        sum.add(-0.0);
+        assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(sum.doubleValue()));
+        sum.add(Double.POSITIVE_INFINITY);
+        sum.add(1.0);
+        assertEquals(Double.POSITIVE_INFINITY, sum.doubleValue(), 0);
+        sum.add(Double.NEGATIVE_INFINITY);
+        assertEquals(Double.NaN, sum.doubleValue(), 0);
+    }
+
+    private static double sum(List<Double> values) {
+        ExactSum sum = new ExactSum();
+        for (double value : values) {
+            sum.add(value);
+        }
+        return sum.doubleValue();
+    }
+
+    private static double exact(List<Double> values) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double value : values) {
+            sum = sum.add(new BigDecimal(value));
+        }
+        return sum.doubleValue();
+    }
+}
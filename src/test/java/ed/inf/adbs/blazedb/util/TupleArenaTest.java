@@ -0,0 +1,111 @@
+package ed.inf.adbs.blazedb.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ed.inf.adbs.blazedb.ColumnType;
+import ed.inf.adbs.blazedb.Tuple;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the {@link TupleArena}.
+ */
+public class TupleArenaTest {
+    private static final ColumnType[] TYPES = {ColumnType.INT, ColumnType.DOUBLE, ColumnType.VARCHAR, ColumnType.DATE};
+
+    @Test
+    public void rebuildsTheTuplesAdded() {
+        TupleArena arena = new TupleArena();
+        List<Tuple> tuples = tuples(100);
+        for (Tuple tuple : tuples) {
+            arena.add(tuple);
+        }
+        assertEquals(tuples.size(), arena.size());
+        for (int row = 0; row < tuples.size(); row++) {
+            Tuple tuple = tuples.get(row);
+            assertEquals(tuple, arena.get(row));
+            assertEquals(tuple.toString(), arena.get(row).toString());
+            assertEquals(tuple.hashCode(), arena.hashCode(row));
+            assertTrue(arena.equalsTuple(row, tuple));
+            assertFalse(arena.equalsTuple(row, tuples.get((row + 1) % tuples.size())));
+        }
+    }
+
+    @Test
+    public void comparesFieldsAsTuplesDo() {
+        TupleArena arena = new TupleArena();
+        List<Tuple> tuples = tuples(40);
+        for (Tuple tuple : tuples) {
+            arena.add(tuple);
+        }
+        for (int row = 0; row < tuples.size(); row++) {
+            for (int other = 0; other < tuples.size(); other++) {
+                for (int field = 0; field < TYPES.length; field++) {
+                    assertEquals(Integer.signum(tuples.get(row).compareField(field, tuples.get(other), field)),
+                            Integer.signum(arena.compareField(row, field, other, field)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sortsRowsStablyOnNonIntegralKeys() {
+        TupleArena arena = new TupleArena();
+        List<Tuple> tuples = tuples(1000);
+        for (Tuple tuple : tuples) {
+            arena.add(tuple);
+        }
+        // Sort on the DOUBLE field, then check the VARCHAR field with ties kept in row order.
+        int[] byPrice = arena.sortRows((row, other) -> arena.compareField(row, 1, other, 1));
+        for (int i = 1; i < byPrice.length; i++) {
+            int cmp = arena.compareField(byPrice[i - 1], 1, byPrice[i], 1);
+            assertTrue(cmp < 0 || cmp == 0 && byPrice[i - 1] < byPrice[i]);
+        }
+        int[] byName = arena.sortRows((row, other) -> arena.compareField(row, 2, other, 2));
+        for (int i = 1; i < byName.length; i++) {
+            int cmp = arena.compareField(byName[i - 1], 2, byName[i], 2);
+            assertTrue(cmp < 0 || cmp == 0 && byName[i - 1] < byName[i]);
+        }
+    }
+
+    @Test
+    public void updatesFieldsInPlace() {
+        TupleArena arena = new TupleArena();
+        int row = arena.addEmpty(2);
+        arena.setLong(row, 0, 42);
+        arena.setType(row, 1, ColumnType.DOUBLE);
+        arena.setLong(row, 1, Double.doubleToLongBits(1.5));
+        assertEquals(42L, arena.getLong(row, 0));
+        assertEquals(ColumnType.INT, arena.getType(row, 0));
+        assertEquals(1.5, (Double) arena.getValue(row, 1), 0);
+        assertEquals("42, 1.5", arena.get(row).toString());
+    }
+
+    @Test
+    public void fillsSeveralChunksAndIsReusedAfterClear() {
+        TupleArena arena = new TupleArena();
+        long[] values = new long[64];
+        for (int i = 0; i < 5000; i++) {
+            values[0] = i;
+            arena.add(new Tuple(values.clone()));
+        }
+        assertEquals(4999L, arena.getLong(4999, 0));
+        arena.clear();
+        assertEquals(0, arena.size());
+        arena.add(new Tuple(new long[]{7}));
+        assertEquals(7L, arena.getValue(0, 0));
+    }
+
+    private static List<Tuple> tuples(int count) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tuples.add(Tuple.parse(i + ", " + (i * 7 % 13) / 2.0 + ", s" + (i * 5 % 11) + ", 2024-01-"
+                    + String.format("%02d", 1 + i % 28), TYPES));
+        }
+        return tuples;
+    }
+}